@@ -0,0 +1,80 @@
+package benchmarks;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+/**
+ * Minimal benchmark harness used by benchmarks in this package
+ *
+ * Each benchmark runs warm up rounds first, so JIT compilation is done before measurement, and then measured
+ * rounds. Median time and median heap allocated by the benchmark thread per operation of measured rounds are
+ * printed. Results of operations are written to a volatile field so JIT can't remove the measured code.
+ *
+ * Benchmarks are not executed by default, they are run by surefire one by one, for example
+ * mvn test -Dtest=StoragePathBenchmark
+ * Number of rounds can be changed with -Dsaf.bench.warmup (default 5) and -Dsaf.bench.rounds (default 10).
+ */
+public final class Bench {
+
+    private static final int WARMUP_ROUNDS = Integer.getInteger("saf.bench.warmup", 5);
+    private static final int ROUNDS = Integer.getInteger("saf.bench.rounds", 10);
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static volatile Object sink;
+
+    private Bench() {}
+
+    /**
+     * Single measured operation
+     */
+    public interface Op {
+        /**
+         * @param i int, number of the operation in the round
+         * @return Object, result of the operation
+         */
+        Object run(int i);
+    }
+
+
+    /**
+     * Runs the benchmark and prints median time per operation
+     *
+     * @param name String, name of the benchmark
+     * @param ops int, number of operations in one round
+     * @param op Op, measured operation
+     *
+     * @return double, median time per operation in ns
+     */
+    public static double run(String name, int ops, Op op) {
+        for (int r = 0; r < WARMUP_ROUNDS; r++) {
+            round(ops, op);
+        }
+        double[] results = new double[ROUNDS];
+        double[] allocated = new double[ROUNDS];
+        long threadId = Thread.currentThread().getId();
+        for (int r = 0; r < ROUNDS; r++) {
+            long bytes = THREADS.getThreadAllocatedBytes(threadId);
+            results[r] = round(ops, op);
+            allocated[r] = (double) (THREADS.getThreadAllocatedBytes(threadId) - bytes) / ops;
+        }
+        Arrays.sort(results);
+        Arrays.sort(allocated);
+        double median = results[ROUNDS / 2];
+        System.out.println(String.format("%-50s %12.1f ns/op %10.1f B/op  (min %.1f, max %.1f, %d ops x %d rounds)",
+                name, median, allocated[ROUNDS / 2], results[0], results[ROUNDS - 1], ops, ROUNDS));
+
+        return median;
+    }
+
+    private static double round(int ops, Op op) {
+        long start = System.nanoTime();
+        for (int i = 0; i < ops; i++) {
+            sink = op.run(i);
+        }
+
+        return (double) (System.nanoTime() - start) / ops;
+    }
+
+}
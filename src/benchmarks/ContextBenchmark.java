@@ -0,0 +1,103 @@
+package benchmarks;
+
+import libs.libCore.modules.Context;
+import libs.libCore.modules.ContextKey;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compares time and allocation of put and get of context entries with Context, its synchronized view and with
+ * former map of maps implementation
+ *
+ * Filling of a new context measures creation of entries, former implementation allocates an inner HashMap
+ * for each name, Context stores all entries in a single table.
+ *
+ * Run with mvn test -Dtest=ContextBenchmark
+ */
+public class ContextBenchmark {
+
+    private static final int OPS = 2000000;
+    private static final int KEYS = 32;
+
+    private static final String[] NAMES = new String[KEYS];
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static final ContextKey<Object>[] CONTEXT_KEYS = new ContextKey[KEYS];
+
+    static {
+        for (int i = 0; i < KEYS; i++) {
+            NAMES[i] = "Key" + i;
+            CONTEXT_KEYS[i] = ContextKey.of(NAMES[i], Object.class);
+        }
+    }
+
+    @Test
+    public void lookup() {
+        Map<String, Map<Class<?>, Object>> legacy = new HashMap<>();
+        Context context = new Context();
+        Context synchronizedContext = Context.synchronizedContext();
+        for (int i = 0; i < KEYS; i++) {
+            legacyPut(legacy, NAMES[i], Object.class, i);
+            context.put(NAMES[i], Object.class, i);
+            context.put(CONTEXT_KEYS[i], i);
+            synchronizedContext.put(NAMES[i], Object.class, i);
+        }
+
+        Bench.run("get, map of maps", OPS, i -> legacyGet(legacy, NAMES[i & 31], Object.class));
+        Bench.run("get, Context by name and type", OPS, i -> context.get(NAMES[i & 31], Object.class));
+        Bench.run("get, Context by ContextKey", OPS, i -> context.get(CONTEXT_KEYS[i & 31]));
+        Bench.run("get, synchronized Context", OPS, i -> synchronizedContext.get(NAMES[i & 31], Object.class));
+        Bench.run("get miss, Context", OPS, i -> context.get(NAMES[i & 31], Long.class));
+
+        Bench.run("fill 32 entries, map of maps", OPS / KEYS, i -> {
+            Map<String, Map<Class<?>, Object>> tLegacy = new HashMap<>();
+            for (int k = 0; k < KEYS; k++) {
+                legacyPut(tLegacy, NAMES[k], Object.class, k);
+            }
+            return tLegacy;
+        });
+        Bench.run("fill 32 entries, Context", OPS / KEYS, i -> {
+            Context tContext = new Context();
+            for (int k = 0; k < KEYS; k++) {
+                tContext.put(CONTEXT_KEYS[k], k);
+            }
+            return tContext;
+        });
+
+        Bench.run("put, map of maps", OPS, i -> {
+            legacyPut(legacy, NAMES[i & 31], Object.class, i);
+            return legacy;
+        });
+        Bench.run("put, Context by name and type", OPS, i -> {
+            context.put(NAMES[i & 31], Object.class, i);
+            return context;
+        });
+        Bench.run("put, Context by ContextKey", OPS, i -> {
+            context.put(CONTEXT_KEYS[i & 31], i);
+            return context;
+        });
+    }
+
+    /**
+     * former implementation of Context.put without logging
+     */
+    private static void legacyPut(Map<String, Map<Class<?>, Object>> map, String textKey, Class<?> typeKey, Object value) {
+        if ( !map.containsKey(textKey) ) {
+            map.put(textKey, new HashMap<>());
+        }
+        map.get(textKey).put(typeKey, value);
+    }
+
+    /**
+     * former implementation of Context.get without logging
+     */
+    private static Object legacyGet(Map<String, Map<Class<?>, Object>> map, String textKey, Class<?> typeKey) {
+        if ( !map.containsKey(textKey) ) {
+            return null;
+        }
+
+        return typeKey.cast(map.get(textKey).get(typeKey));
+    }
+
+}
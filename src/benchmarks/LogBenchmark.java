@@ -0,0 +1,112 @@
+package benchmarks;
+
+import libs.libCore.modules.Log;
+import libs.libCore.modules.StepCore;
+import libs.libCore.modules.Storage;
+import libs.libCore.modules.ThreadContext;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Measures latency of a step shaped workload and cost of single Log.debug calls with string concatenation,
+ * {} parameters and lazy messages
+ *
+ * Step logs its banner, sets a value in the storage, reads nested values from the storage and converts
+ * step inputs with StepCore.checkIfInputIsVariable, as steps of the framework do.
+ *
+ * Logger is configured by system properties when Log class is loaded, so each mode is measured in a separate run
+ * mvn test -Dtest=LogBenchmark                          synchronous appenders
+ * mvn test -Dtest=LogBenchmark -Dsaf.log.async=true     asynchronous appenders
+ * mvn test -Dtest=LogBenchmark -Dsaf.log.level=INFO     debug messages not logged
+ * mvn test -Dtest=LogBenchmark -Dsaf.log.level=OFF      nothing logged
+ */
+public class LogBenchmark {
+
+    private static final int LOGGED_OPS = 10000;
+    private static final int SKIPPED_OPS = 1000000;
+    private static final int LOGGED_STEPS = 500;
+    private static final int SKIPPED_STEPS = 20000;
+
+    private static Storage storage;
+    private static StepCore stepCore;
+
+    @BeforeClass
+    public static void setUp() {
+        ThreadContext.initializeContext("Scenario");
+        HashMap<String, Object> testData = new HashMap<>();
+        for (int i = 0; i < 20; i++) {
+            Map<String, Object> user = new HashMap<>();
+            user.put("name", "user" + i);
+            user.put("age", 20 + i);
+            testData.put("user" + i, user);
+        }
+        ThreadContext.getContext("Scenario").put("TestData", HashMap.class, testData);
+        storage = new Storage();
+        ThreadContext.getContext("Scenario").put("Storage", Storage.class, storage);
+        stepCore = new StepCore();
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        ThreadContext.removeContext("Scenario");
+    }
+
+    @Test
+    public void step() {
+        logMode();
+        int steps = Log.isDebugEnabled() ? LOGGED_STEPS : SKIPPED_STEPS;
+
+        Bench.run("step, banner + 1 set + 10 get + 5 inputs", steps, i -> {
+            Log.info("* Step started user " + (i % 20) + " has name and age");
+            storage.set("TestData.user" + (i % 20) + ".visited", i);
+            Object value = null;
+            for (int k = 0; k < 10; k++) {
+                value = storage.get("TestData.user" + ((i + k) % 20) + ".name");
+            }
+            stepCore.checkIfInputIsVariable("TestData.user" + (i % 20) + ".age");
+            stepCore.checkIfInputIsVariable("TestData.user" + (i % 20) + ".name");
+            stepCore.checkIfInputIsVariable("some text");
+            stepCore.checkIfInputIsVariable("42");
+            stepCore.checkIfInputIsVariable("true");
+            Log.debug("Step finished");
+            return value;
+        });
+    }
+
+    @Test
+    public void debug() {
+        logMode();
+
+        //value similar to a storage which is written to the log by Storage.get and Storage.set
+        Map<String, Object> value = new HashMap<>();
+        for (int i = 0; i < 20; i++) {
+            value.put("key" + i, "value" + i);
+        }
+
+        int ops = Log.isDebugEnabled() ? LOGGED_OPS : SKIPPED_OPS;
+        String mode = Log.isDebugEnabled() ? "" : " (not logged)";
+
+        Bench.run("debug, concatenated message" + mode, ops, i -> {
+            Log.debug("Value of key" + i + " is " + value);
+            return value;
+        });
+        Bench.run("debug, {} parameters" + mode, ops, i -> {
+            Log.debug("Value of key{} is {}", i, value);
+            return value;
+        });
+        Bench.run("debugLazy, message supplier" + mode, ops, i -> {
+            Log.debugLazy(() -> "Value of key" + i + " is " + value);
+            return value;
+        });
+    }
+
+    private static void logMode() {
+        System.out.println("Log benchmark, async " + System.getProperty("saf.log.async", "false")
+                + ", level " + System.getProperty("saf.log.level", "ALL"));
+    }
+
+}
@@ -0,0 +1,85 @@
+package benchmarks;
+
+import libs.libCore.modules.Storage;
+import libs.libCore.modules.StoragePath;
+import libs.libCore.modules.ThreadContext;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.*;
+
+/**
+ * Compares lookup of a nested storage value with compiled StoragePath and with former parsing of the path
+ * on each call
+ *
+ * Run with mvn test -Dtest=StoragePathBenchmark
+ */
+@SuppressWarnings("unchecked")
+public class StoragePathBenchmark {
+
+    private static final int OPS = 1000000;
+    private static final String PATH = "TestData.users[3].address.city";
+    private static final String[] PATHS = new String[64];
+
+    private static HashMap<String, Object> testData;
+    private static Storage storage;
+
+    @BeforeClass
+    public static void setUp() {
+        ThreadContext.initializeContext("Scenario");
+        testData = new HashMap<>();
+        List<Object> users = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Map<String, Object> address = new HashMap<>();
+            address.put("city", "City" + i);
+            Map<String, Object> user = new HashMap<>();
+            user.put("address", address);
+            users.add(user);
+        }
+        testData.put("users", users);
+        ThreadContext.getContext("Scenario").put("TestData", HashMap.class, testData);
+        storage = new Storage();
+
+        for (int i = 0; i < PATHS.length; i++) {
+            PATHS[i] = "TestData.users[" + (i % 10) + "].address.city";
+        }
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        ThreadContext.removeContext("Scenario");
+    }
+
+    @Test
+    public void lookup() {
+        Bench.run("storage path, parsed on each call", OPS, i -> legacyGet(PATH));
+        Bench.run("storage path, compiled (Storage.find)", OPS, i -> storage.find(PATH));
+        Bench.run("64 storage paths, parsed on each call", OPS, i -> legacyGet(PATHS[i & 63]));
+        Bench.run("64 storage paths, compiled (Storage.find)", OPS, i -> storage.find(PATHS[i & 63]));
+        Bench.run("StoragePath.compile, cached", OPS, i -> StoragePath.compile(PATHS[i & 63]));
+    }
+
+    /**
+     * former implementation of Storage.get without logging, path is split and parsed on each call
+     */
+    private static Object legacyGet(String path) {
+        String[] tmp = path.split("\\.");
+        Object value = ThreadContext.getContext("Scenario").get(tmp[0], HashMap.class);
+        String sTmp = "";
+        for (int i = 1; i < tmp.length; i++) {
+            sTmp = sTmp + "." + tmp[i];
+        }
+        for (String element : sTmp.substring(1).split("\\.")) {
+            String ename = element.split("\\[")[0];
+            value = ((AbstractMap<String, Object>) value).get(ename);
+            if ( element.contains("[") ) {
+                Integer index = Integer.valueOf(element.substring(element.indexOf("[") + 1, element.indexOf("]")));
+                value = ((List<Object>) value).get(index);
+            }
+        }
+
+        return value;
+    }
+
+}
@@ -22,7 +22,7 @@ public class BookByIsbnSteps extends BaseSteps {
      */
     @Given("^a book exists with an isbn$")
     public void a_book_exists_with_isbn() {
-        String isbn = Storage.get("TestData.isbn");
+        String isbn = storage().get("TestData.isbn");
         RequestSpecification request = given().param("q", "isbn:" + isbn);
         scenarioCtx.put("request",RequestSpecification.class, request);
     }
@@ -33,14 +33,14 @@ public class BookByIsbnSteps extends BaseSteps {
      */
     @When("^a user retrieves the book by isbn$")
     public void a_user_retrieves_the_book_by_isbn(){
-        String url = Storage.get("Environment.Active.Rest.url");
+        String url = storage().get("Environment.Active.Rest.url");
         RequestSpecification request = scenarioCtx.get("request",RequestSpecification.class);
         Response response = request.when().log().all().get(url);
         ValidatableResponse response2 = response.then();
         scenarioCtx.put("response",Response.class, response);
         scenarioCtx.put("response",ValidatableResponse.class, response2);
         scenarioCtx.put("json",ValidatableResponse.class, response2);
-        StepCore.attachMessageToReport("Json response", response.prettyPrint());
+        stepCore().attachResponseToReport("Json response", response);
     }
 
 
@@ -54,7 +54,7 @@ public class BookByIsbnSteps extends BaseSteps {
     public void response_contains_in_any_order(Map<String,String> responseFields){
         ValidatableResponse json = scenarioCtx.get("json",ValidatableResponse.class);
         for (Map.Entry<String, String> field : responseFields.entrySet()) {
-            Object expectedValue = StepCore.checkIfInputIsVariable(field.getValue());
+            Object expectedValue = stepCore().checkIfInputIsVariable(field.getValue());
             String type = expectedValue.getClass().getName();
             if(type.contains("Int")){
                 Integer iExpVal = (int) expectedValue;
@@ -82,7 +82,7 @@ public class BookByIsbnSteps extends BaseSteps {
     public void response_includes_the_following(Map<String,String> responseFields){
         ValidatableResponse json = scenarioCtx.get("json",ValidatableResponse.class);
         for (Map.Entry<String, String> field : responseFields.entrySet()) {
-            Object expectedValue = StepCore.checkIfInputIsVariable(field.getValue());
+            Object expectedValue = stepCore().checkIfInputIsVariable(field.getValue());
             String type = expectedValue.getClass().getName();
             if(type.contains("Int")){
                 Integer iExpVal = (int) expectedValue;
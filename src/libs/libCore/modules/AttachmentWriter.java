@@ -0,0 +1,423 @@
+package libs.libCore.modules;
+
+import io.qameta.allure.Allure;
+import io.qameta.allure.util.PropertiesUtils;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes attachments of the report directly to the allure results directory
+ *
+ * Attachment entry is added to the current step or test by Allure lifecycle while content is streamed
+ * to the attachment file, so content is never kept on the heap as a whole. Files are copied with
+ * FileChannel.transferTo.
+ *
+ * Size of each attachment is limited by -Dsaf.attachment.maxSize (default 10MB) or per attachment.
+ * Text attachments above the limit are truncated and end with a marker line, other attachments above the limit
+ * are not attached at all because truncated binary content is not usable.
+ * Attachments can be gzipped per attachment or for all attachments with -Dsaf.attachment.gzip=true,
+ * such attachments have type application/gzip and extension .gz.
+ *
+ * Content of each attachment is hashed with SHA-256 while it is written. First attachment with given content is
+ * kept in the .blobs sub directory of allure results and each later attachment with the same content is replaced
+ * by a hard link to it, files with already known content are not written at all. Because blobs are shared through
+ * the file system this works also between parallel workers. Deduplication can be switched off with
+ * -Dsaf.attachment.deduplicate=false, if hard links are not supported attachments are kept as copies.
+ */
+public class AttachmentWriter {
+
+    public static final long MAX_SIZE = Long.getLong("saf.attachment.maxSize", 10L * 1024 * 1024);
+    public static final boolean GZIP = Boolean.getBoolean("saf.attachment.gzip");
+    public static final boolean DEDUPLICATE = Boolean.parseBoolean(System.getProperty("saf.attachment.deduplicate", "true"));
+
+    private static final Path RESULTS_DIR = Paths.get(PropertiesUtils.loadAllureProperties()
+            .getProperty("allure.results.directory", "allure-results"));
+    private static final Path BLOBS_DIR = RESULTS_DIR.resolve(".blobs");
+
+    private static final LongAdder attachments = new LongAdder();
+    private static final LongAdder deduplicated = new LongAdder();
+    private static final LongAdder savedBytes = new LongAdder();
+
+    private static final Map<String, String> EXTENSIONS = new HashMap<>();
+
+    static {
+        EXTENSIONS.put("text/plain", ".txt");
+        EXTENSIONS.put("text/csv", ".csv");
+        EXTENSIONS.put("text/html", ".html");
+        EXTENSIONS.put("text/xml", ".xml");
+        EXTENSIONS.put("application/xml", ".xml");
+        EXTENSIONS.put("application/json", ".json");
+        EXTENSIONS.put("application/pdf", ".pdf");
+        EXTENSIONS.put("image/png", ".png");
+    }
+
+
+    /**
+     * Attaches file to the report, default size limit and compression are used
+     *
+     * @param name String, name of the attachment displayed in the report
+     * @param type String, mime type like text/plain or application/pdf
+     * @param file Path, file to attach
+     */
+    public static void attach(String name, String type, Path file) {
+        attach(name, type, file, MAX_SIZE, GZIP);
+    }
+
+
+    /**
+     * Attaches file to the report
+     *
+     * @param name String, name of the attachment displayed in the report
+     * @param type String, mime type like text/plain or application/pdf
+     * @param file Path, file to attach
+     * @param maxSize long, max number of bytes of the file which are attached
+     * @param gzip boolean, true if attachment shall be compressed
+     */
+    public static void attach(String name, String type, Path file, long maxSize, boolean gzip) {
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = in.size();
+            if ( size > maxSize && ! isText(type) ) {
+                Log.warn("Attachment " + name + " not added to the report. File " + file + " has " + size
+                        + " bytes, limit is " + maxSize);
+                return;
+            }
+
+            long count = Math.min(size, maxSize);
+            Path blob = blob(hash(in, count, size), gzip);
+            Path target = prepare(name, type, extensionOf(file, type), gzip);
+            if ( blob != null && Files.exists(blob) ) {
+                //content is already in the report, nothing has to be written
+                link(target, blob);
+                return;
+            }
+            if ( gzip ) {
+                try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(target))) {
+                    copy(Channels.newInputStream(in.position(0)), out, count);
+                    writeMarker(out, count, size);
+                }
+            } else {
+                try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                    long position = 0;
+                    while ( position < count ) {
+                        position += in.transferTo(position, count - position, out);
+                    }
+                    if ( count < size ) {
+                        out.write(ByteBuffer.wrap(marker(count, size, "bytes")));
+                    }
+                }
+            }
+            share(target, blob);
+        } catch (IOException e) {
+            Log.error("File " + file.toAbsolutePath() + " can't be attached to the report!", e);
+        }
+    }
+
+
+    /**
+     * Attaches content of the stream to the report, stream is read up to the size limit and closed
+     * Content which is not text and is above the limit is not attached at all
+     *
+     * @param name String, name of the attachment displayed in the report
+     * @param type String, mime type like text/plain or application/json
+     * @param in InputStream, content of the attachment
+     * @param maxSize long, max number of bytes which are attached
+     * @param gzip boolean, true if attachment shall be compressed
+     */
+    public static void attach(String name, String type, InputStream in, long maxSize, boolean gzip) {
+        MessageDigest digest = digest();
+        Path temp = null;
+        try (InputStream input = in) {
+            //content is written aside first, attachment entry is added only if content is kept
+            Files.createDirectories(RESULTS_DIR);
+            temp = Files.createTempFile(RESULTS_DIR, ".attachment", ".tmp");
+            boolean truncated;
+            if ( gzip ) {
+                try (OutputStream out = new DigestOutputStream(new GZIPOutputStream(Files.newOutputStream(temp)), digest)) {
+                    long count = copy(input, out, maxSize);
+                    truncated = count == maxSize && input.read() != -1;
+                    if ( truncated && isText(type) ) {
+                        out.write(marker(count, -1, "bytes"));
+                    }
+                }
+            } else {
+                try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                    ReadableByteChannel channel = Channels.newChannel(new DigestInputStream(input, digest));
+                    long position = 0;
+                    long read;
+                    while ( position < maxSize && (read = out.transferFrom(channel, position, maxSize - position)) > 0 ) {
+                        position += read;
+                    }
+                    truncated = position == maxSize && input.read() != -1;
+                    if ( truncated && isText(type) ) {
+                        byte[] marker = marker(position, -1, "bytes");
+                        digest.update(marker);
+                        out.write(ByteBuffer.wrap(marker), position);
+                    }
+                }
+            }
+
+            if ( truncated && ! isText(type) ) {
+                Log.warn("Attachment " + name + " not added to the report. It has more than " + maxSize + " bytes");
+                return;
+            }
+            Path target = prepare(name, type, extensionOf(null, type), gzip);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            share(target, blob(digest, gzip));
+        } catch (IOException e) {
+            Log.error("Attachment " + name + " can't be written to " + RESULTS_DIR.toAbsolutePath(), e);
+        } finally {
+            deleteTemp(temp);
+        }
+    }
+
+    private static void deleteTemp(Path temp) {
+        if ( temp == null ) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(temp);
+        } catch (IOException e) {
+            Log.debug("Temporary attachment file " + temp + " can't be removed. " + e.getMessage());
+        }
+    }
+
+
+    /**
+     * Attaches content of the stream to the report, default size limit and compression are used
+     *
+     * @param name String, name of the attachment displayed in the report
+     * @param type String, mime type like text/plain or application/json
+     * @param in InputStream, content of the attachment
+     */
+    public static void attach(String name, String type, InputStream in) {
+        attach(name, type, in, MAX_SIZE, GZIP);
+    }
+
+
+    /**
+     * Attaches content to the report, default size limit and compression are used
+     *
+     * @param name String, name of the attachment displayed in the report
+     * @param type String, mime type like image/png
+     * @param content byte[], content of the attachment
+     */
+    public static void attach(String name, String type, byte[] content) {
+        if ( content.length > MAX_SIZE && ! isText(type) ) {
+            Log.warn("Attachment " + name + " not added to the report. It has " + content.length
+                    + " bytes, limit is " + MAX_SIZE);
+            return;
+        }
+        attach(name, type, new ByteArrayInputStream(content), MAX_SIZE, GZIP);
+    }
+
+
+    /**
+     * Attaches text to the report, text is encoded as UTF-8 while it is written
+     *
+     * @param name String, name of the attachment displayed in the report
+     * @param text CharSequence, content of the attachment
+     */
+    public static void attach(String name, CharSequence text) {
+        Path target = prepare(name, "text/plain", ".txt", GZIP);
+        MessageDigest digest = digest();
+        try {
+            try (OutputStream file = Files.newOutputStream(target);
+                 Writer out = new OutputStreamWriter(
+                         new DigestOutputStream(GZIP ? new GZIPOutputStream(file) : file, digest), StandardCharsets.UTF_8)) {
+                //characters are counted instead of bytes
+                int count = (int) Math.min(text.length(), MAX_SIZE);
+                out.append(text, 0, count);
+                if ( count < text.length() ) {
+                    out.write(new String(marker(count, text.length(), "characters"), StandardCharsets.UTF_8));
+                }
+            }
+            share(target, blob(digest, GZIP));
+        } catch (IOException e) {
+            Log.error("Attachment " + name + " can't be written to " + target.toAbsolutePath(), e);
+        }
+    }
+
+
+    /**
+     * helper function used to add attachment entry to current step or test and to create the attachment file
+     *
+     * @return Path, path of the attachment file in the allure results directory
+     */
+    private static Path prepare(String name, String type, String extension, boolean gzip) {
+        if ( gzip ) {
+            type = "application/gzip";
+            extension = extension + ".gz";
+        }
+        String source = Allure.getLifecycle().prepareAttachment(name, type, extension);
+        try {
+            Files.createDirectories(RESULTS_DIR);
+        } catch (IOException e) {
+            Log.error("Allure results directory " + RESULTS_DIR.toAbsolutePath() + " can't be created", e);
+        }
+        Log.debug("Attachment with name " + name + " added to report as " + source);
+        attachments.increment();
+
+        return RESULTS_DIR.resolve(source);
+    }
+
+    /**
+     * Logs how many attachments were written and how many bytes were saved by deduplication
+     */
+    public static void report() {
+        if ( attachments.sum() == 0 ) {
+            return;
+        }
+        Log.info("--- Attachment report ---");
+        Log.info("Attachments added: " + attachments.sum() + ", deduplicated: " + deduplicated.sum());
+        Log.info("Bytes saved by deduplication: " + savedBytes.sum());
+        Log.info("--- end ---");
+    }
+
+
+    /**
+     * helper function used to hash capped content of the file together with the truncation marker,
+     * that is exactly the content which is attached
+     */
+    private static MessageDigest hash(FileChannel in, long count, long size) throws IOException {
+        if ( ! DEDUPLICATE ) {
+            return null;
+        }
+        MessageDigest digest = digest();
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        long position = 0;
+        while ( position < count ) {
+            buffer.clear().limit((int) Math.min(buffer.capacity(), count - position));
+            int read = in.read(buffer, position);
+            if ( read < 0 ) {
+                break;
+            }
+            buffer.flip();
+            digest.update(buffer);
+            position += read;
+        }
+        if ( count < size ) {
+            digest.update(marker(count, size, "bytes"));
+        }
+
+        return digest;
+    }
+
+    private static MessageDigest digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * helper function used to get path of the blob for the hashed content, gzipped content is kept apart
+     */
+    private static Path blob(MessageDigest digest, boolean gzip) {
+        if ( digest == null || ! DEDUPLICATE ) {
+            return null;
+        }
+        StringBuilder name = new StringBuilder();
+        for (byte b : digest.digest()) {
+            name.append(String.format("%02x", b));
+        }
+
+        return BLOBS_DIR.resolve(gzip ? name + ".gz" : name.toString());
+    }
+
+    /**
+     * helper function used to make the written attachment file the blob of its content or, if such blob already
+     * exists, to replace the attachment file with a link to the blob
+     */
+    private static void share(Path target, Path blob) {
+        if ( blob == null ) {
+            return;
+        }
+        try {
+            Files.createDirectories(BLOBS_DIR);
+            try {
+                Files.createLink(blob, target);
+            } catch (FileAlreadyExistsException e) {
+                long size = Files.size(target);
+                //link is created aside and moved over the attachment so attachment file is never missing
+                Path link = target.resolveSibling(target.getFileName() + ".link");
+                Files.createLink(link, blob);
+                Files.move(link, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                deduplicated.increment();
+                savedBytes.add(size);
+            }
+        } catch (IOException | UnsupportedOperationException e) {
+            Log.debug("Attachment " + target.getFileName() + " kept as a copy. " + e.getMessage());
+        }
+    }
+
+    /**
+     * helper function used to create attachment file as a link to already existing blob
+     */
+    private static void link(Path target, Path blob) throws IOException {
+        try {
+            Files.createLink(target, blob);
+            deduplicated.increment();
+            savedBytes.add(Files.size(blob));
+        } catch (IOException | UnsupportedOperationException e) {
+            Log.debug("Attachment " + target.getFileName() + " written as a copy. " + e.getMessage());
+            Files.copy(blob, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static long copy(InputStream in, OutputStream out, long maxSize) throws IOException {
+        byte[] buffer = new byte[8192];
+        long count = 0;
+        int read;
+        while ( count < maxSize && (read = in.read(buffer, 0, (int) Math.min(buffer.length, maxSize - count))) != -1 ) {
+            out.write(buffer, 0, read);
+            count += read;
+        }
+
+        return count;
+    }
+
+    private static void writeMarker(OutputStream out, long count, long size) throws IOException {
+        if ( size < 0 || count < size ) {
+            out.write(marker(count, size, "bytes"));
+        }
+    }
+
+    private static byte[] marker(long count, long size, String unit) {
+        String total = size < 0 ? "" : " of " + size;
+        return (System.lineSeparator() + "... truncated after " + count + total + " " + unit)
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static boolean isText(String type) {
+        return type.startsWith("text/") || type.endsWith("json") || type.endsWith("xml");
+    }
+
+    private static String extensionOf(Path file, String type) {
+        if ( file != null ) {
+            String fileName = file.getFileName().toString();
+            int dot = fileName.lastIndexOf('.');
+            if ( dot > 0 ) {
+                return fileName.substring(dot);
+            }
+        }
+        String extension = EXTENSIONS.get(type);
+
+        return extension == null ? "" : extension;
+    }
+
+}
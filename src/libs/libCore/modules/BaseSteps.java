@@ -1,42 +1,268 @@
 package libs.libCore.modules;
 
+import org.apache.commons.io.IOUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Base class of step classes which gives access to the scenario context and core modules
+ *
+ * Modules are built lazily, on first access in a scenario. Accessors like storage() or stepCore() return
+ * the module of the current scenario and build it if needed, they can be used from step classes and from
+ * any other class which holds a step instance.
+ *
+ * Protected module fields are kept for compatibility and are deprecated. They are filled in the constructor
+ * only for modules whose names are found in the class files of the step class and its super classes,
+ * see findUsedModules. A field read from other class, for example from a helper class in this package,
+ * can therefore be null, such code has to use the accessors.
+ */
 @SuppressWarnings("unchecked")
 public class BaseSteps {
 
+    private static final String[] MODULES = {"Macro", "StepCore", "PageCore", "SqlCore", "Storage", "FileCore",
+            "ExecutorCore", "AssertCore", "PdfCore", "SshCore", "WinRMCore", "WinRSCore", "CloudDirectorCore", "WiniumCore"};
+    private static final Map<Class<?>, Set<String>> usedModules = new ConcurrentHashMap<>();
+
+    private static final ContextKey<Macro> MACRO_KEY = ContextKey.of("Macro", Macro.class);
+    private static final ContextKey<StepCore> STEP_CORE_KEY = ContextKey.of("StepCore", StepCore.class);
+    private static final ContextKey<PageCore> PAGE_CORE_KEY = ContextKey.of("PageCore", PageCore.class);
+    private static final ContextKey<SqlCore> SQL_CORE_KEY = ContextKey.of("SqlCore", SqlCore.class);
+    private static final ContextKey<Storage> STORAGE_KEY = ContextKey.of("Storage", Storage.class);
+    private static final ContextKey<FileCore> FILE_CORE_KEY = ContextKey.of("FileCore", FileCore.class);
+    private static final ContextKey<ExecutorCore> EXECUTOR_CORE_KEY = ContextKey.of("ExecutorCore", ExecutorCore.class);
+    private static final ContextKey<AssertCore> ASSERT_CORE_KEY = ContextKey.of("AssertCore", AssertCore.class);
+    private static final ContextKey<PdfCore> PDF_CORE_KEY = ContextKey.of("PdfCore", PdfCore.class);
+    private static final ContextKey<SshCore> SSH_CORE_KEY = ContextKey.of("SshCore", SshCore.class);
+    private static final ContextKey<WinRMCore> WINRM_CORE_KEY = ContextKey.of("WinRMCore", WinRMCore.class);
+    private static final ContextKey<WinRSCore> WINRS_CORE_KEY = ContextKey.of("WinRSCore", WinRSCore.class);
+    private static final ContextKey<CloudDirectorCore> CLOUD_DIRECTOR_CORE_KEY = ContextKey.of("CloudDirectorCore", CloudDirectorCore.class);
+    private static final ContextKey<WiniumCore> WINIUM_CORE_KEY = ContextKey.of("WiniumCore", WiniumCore.class);
+
     protected Context scenarioCtx;
     protected Context globalCtx;
+    /** @deprecated use macro() */
+    @Deprecated
     protected Macro Macro;
+    /** @deprecated use stepCore() */
+    @Deprecated
     protected StepCore StepCore;
+    /** @deprecated use pageCore() */
+    @Deprecated
     protected PageCore PageCore;
+    /** @deprecated use sqlCore() */
+    @Deprecated
     protected SqlCore SqlCore;
+    /** @deprecated use storage() */
+    @Deprecated
     protected Storage Storage;
+    /** @deprecated use fileCore() */
+    @Deprecated
     protected FileCore FileCore;
+    /** @deprecated use executorCore() */
+    @Deprecated
     protected ExecutorCore ExecutorCore;
+    /** @deprecated use assertCore() */
+    @Deprecated
     protected AssertCore AssertCore;
+    /** @deprecated use pdfCore() */
+    @Deprecated
     protected PdfCore PdfCore;
+    /** @deprecated use sshCore() */
+    @Deprecated
     protected SshCore SshCore;
+    /** @deprecated use winRMCore() */
+    @Deprecated
     protected WinRMCore WinRMCore;
+    /** @deprecated use winRSCore() */
+    @Deprecated
     protected WinRSCore WinRSCore;
+    /** @deprecated use cloudDirectorCore() */
+    @Deprecated
     protected CloudDirectorCore CloudDirectorCore;
+    /** @deprecated use winiumCore() */
+    @Deprecated
     protected WiniumCore WiniumCore;
 
     public BaseSteps ()  {
         this.scenarioCtx = ThreadContext.getContext("Scenario");
         this.globalCtx = ThreadContext.getContext("Global");
-        this.Macro = scenarioCtx.get("Macro",Macro.class);
-        this.StepCore = scenarioCtx.get("StepCore",StepCore.class);
-        this.PageCore = scenarioCtx.get("PageCore",PageCore.class);
-        this.SqlCore = scenarioCtx.get("SqlCore",SqlCore.class);
-        this.Storage = scenarioCtx.get("Storage", Storage.class);
-        this.FileCore = scenarioCtx.get("FileCore",FileCore.class);
-        this.ExecutorCore = scenarioCtx.get("ExecutorCore", ExecutorCore.class);
-        this.AssertCore = scenarioCtx.get("AssertCore", AssertCore.class);
-        this.PdfCore = scenarioCtx.get("PdfCore", PdfCore.class);
-        this.SshCore = scenarioCtx.get("SshCore", SshCore.class);
-        this.WinRMCore = scenarioCtx.get("WinRMCore", WinRMCore.class);
-        this.WinRSCore = scenarioCtx.get("WinRSCore", WinRSCore.class);
-        this.CloudDirectorCore = scenarioCtx.get("CloudDirectorCore", CloudDirectorCore.class);
-        this.WiniumCore = scenarioCtx.get("WiniumCore", WiniumCore.class);
-    }
-
-}
\ No newline at end of file
+
+        //modules are built lazily so resolve only those which are referenced by the step class
+        Set<String> used = usedModules.computeIfAbsent(getClass(), BaseSteps::findUsedModules);
+        this.Macro = used.contains("Macro") ? scenarioCtx.get(MACRO_KEY) : null;
+        this.StepCore = used.contains("StepCore") ? scenarioCtx.get(STEP_CORE_KEY) : null;
+        this.PageCore = used.contains("PageCore") ? scenarioCtx.get(PAGE_CORE_KEY) : null;
+        this.SqlCore = used.contains("SqlCore") ? scenarioCtx.get(SQL_CORE_KEY) : null;
+        this.Storage = used.contains("Storage") ? scenarioCtx.get(STORAGE_KEY) : null;
+        this.FileCore = used.contains("FileCore") ? scenarioCtx.get(FILE_CORE_KEY) : null;
+        this.ExecutorCore = used.contains("ExecutorCore") ? scenarioCtx.get(EXECUTOR_CORE_KEY) : null;
+        this.AssertCore = used.contains("AssertCore") ? scenarioCtx.get(ASSERT_CORE_KEY) : null;
+        this.PdfCore = used.contains("PdfCore") ? scenarioCtx.get(PDF_CORE_KEY) : null;
+        this.SshCore = used.contains("SshCore") ? scenarioCtx.get(SSH_CORE_KEY) : null;
+        this.WinRMCore = used.contains("WinRMCore") ? scenarioCtx.get(WINRM_CORE_KEY) : null;
+        this.WinRSCore = used.contains("WinRSCore") ? scenarioCtx.get(WINRS_CORE_KEY) : null;
+        this.CloudDirectorCore = used.contains("CloudDirectorCore") ? scenarioCtx.get(CLOUD_DIRECTOR_CORE_KEY) : null;
+        this.WiniumCore = used.contains("WiniumCore") ? scenarioCtx.get(WINIUM_CORE_KEY) : null;
+    }
+
+
+    /**
+     * @return Macro module of the current scenario, built on first access
+     */
+    public Macro macro() {
+        return module(MACRO_KEY);
+    }
+
+    /**
+     * @return StepCore module of the current scenario, built on first access
+     */
+    public StepCore stepCore() {
+        return module(STEP_CORE_KEY);
+    }
+
+    /**
+     * @return PageCore module of the current scenario, built on first access
+     */
+    public PageCore pageCore() {
+        return module(PAGE_CORE_KEY);
+    }
+
+    /**
+     * @return SqlCore module of the current scenario, built on first access
+     */
+    public SqlCore sqlCore() {
+        return module(SQL_CORE_KEY);
+    }
+
+    /**
+     * @return Storage module of the current scenario, built on first access
+     */
+    public Storage storage() {
+        return module(STORAGE_KEY);
+    }
+
+    /**
+     * @return FileCore module of the current scenario, built on first access
+     */
+    public FileCore fileCore() {
+        return module(FILE_CORE_KEY);
+    }
+
+    /**
+     * @return ExecutorCore module of the current scenario, built on first access
+     */
+    public ExecutorCore executorCore() {
+        return module(EXECUTOR_CORE_KEY);
+    }
+
+    /**
+     * @return AssertCore module of the current scenario, built on first access
+     */
+    public AssertCore assertCore() {
+        return module(ASSERT_CORE_KEY);
+    }
+
+    /**
+     * @return PdfCore module of the current scenario, built on first access
+     */
+    public PdfCore pdfCore() {
+        return module(PDF_CORE_KEY);
+    }
+
+    /**
+     * @return SshCore module of the current scenario, built on first access
+     */
+    public SshCore sshCore() {
+        return module(SSH_CORE_KEY);
+    }
+
+    /**
+     * @return WinRMCore module of the current scenario, built on first access
+     */
+    public WinRMCore winRMCore() {
+        return module(WINRM_CORE_KEY);
+    }
+
+    /**
+     * @return WinRSCore module of the current scenario, built on first access
+     */
+    public WinRSCore winRSCore() {
+        return module(WINRS_CORE_KEY);
+    }
+
+    /**
+     * @return CloudDirectorCore module of the current scenario, built on first access
+     */
+    public CloudDirectorCore cloudDirectorCore() {
+        return module(CLOUD_DIRECTOR_CORE_KEY);
+    }
+
+    /**
+     * @return WiniumCore module of the current scenario, built on first access
+     */
+    public WiniumCore winiumCore() {
+        return module(WINIUM_CORE_KEY);
+    }
+
+    /**
+     * helper function used by module accessors
+     * Reports an error instead of returning null when module is not available in the current scenario
+     *
+     * @param key ContextKey, key of the module
+     *
+     * @return module
+     */
+    private <T> T module(ContextKey<T> key) {
+        T module = scenarioCtx.get(key);
+        if ( module == null ) {
+            Log.error("Module " + key.getName() + " is not available in the current scenario!");
+        }
+
+        return module;
+    }
+
+
+    /**
+     * Finds modules referenced by a step class
+     * helper function used to avoid building modules which are never used by particular step class
+     *
+     * A module field can be accessed only by its name so if the name is not present in the constant pool
+     * of the class file (or any of its super classes up to BaseSteps) the field is not used.
+     * Only constants equal to the name are matched, class names and descriptors used by accessors are not.
+     * If class file can't be read all modules are considered to be used.
+     * Field accessed from other classes than the step class and its super classes is not found,
+     * such code shall use the module accessors instead of fields.
+     *
+     * @param clazz Class, step class
+     *
+     * @return Set of names of used modules
+     */
+    private static Set<String> findUsedModules(Class<?> clazz) {
+        Set<String> used = new HashSet<>();
+        for (Class<?> c = clazz; c != null && c != BaseSteps.class; c = c.getSuperclass()) {
+            String resource = c.getName().replace('.', '/') + ".class";
+            ClassLoader loader = c.getClassLoader() != null ? c.getClassLoader() : ClassLoader.getSystemClassLoader();
+            try (InputStream in = loader.getResourceAsStream(resource)) {
+                if ( in == null ) {
+                    return new HashSet<>(Arrays.asList(MODULES));
+                }
+                String content = new String(IOUtils.toByteArray(in), StandardCharsets.ISO_8859_1);
+                for (String module : MODULES) {
+                    //CONSTANT_Utf8 entry: tag 1, two bytes of length, name
+                    if ( content.contains("\u0001\u0000" + (char) module.length() + module) ) {
+                        used.add(module);
+                    }
+                }
+            } catch (IOException e) {
+                return new HashSet<>(Arrays.asList(MODULES));
+            }
+        }
+
+        return used;
+    }
+
+}
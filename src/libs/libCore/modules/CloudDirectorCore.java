@@ -76,11 +76,17 @@ public class CloudDirectorCore {
 
         Log.debug("Trigger request to login using /api/sessions");
         //trigger request and log it (it will be added as attachment to the report)
-        Response response = request
-                .when()
-                .log()
-                .all()
-                .post();
+        Metrics.Sample tSample = Metrics.start("vcd.post");
+        Response response;
+        try {
+            response = request
+                    .when()
+                    .log()
+                    .all()
+                    .post();
+        } finally {
+            tSample.stop();
+        }
 
         //print status code
         Integer statusCode = response.getStatusCode();
@@ -123,11 +129,17 @@ public class CloudDirectorCore {
         RequestSpecification request = buildRequest(url);
         Log.debug("Trigger request to logout using /api/session");
         //trigger request and log it (it will be added as attachment to the report)
-        Response response = request
-                .when()
-                .log()
-                .all()
-                .delete();
+        Metrics.Sample tSample = Metrics.start("vcd.delete");
+        Response response;
+        try {
+            response = request
+                    .when()
+                    .log()
+                    .all()
+                    .delete();
+        } finally {
+            tSample.stop();
+        }
 
         //print status code
         Integer statusCode = response.getStatusCode();
@@ -764,11 +776,17 @@ public class CloudDirectorCore {
     private ValidatableResponse triggerGetRequest(RequestSpecification request, Integer expectedStatusCode){
 
         //trigger request and log it (it will be added as attachment to the report)
-        Response response = request
-                .when()
-                .log()
-                .all()
-                .get();
+        Metrics.Sample tSample = Metrics.start("vcd.get");
+        Response response;
+        try {
+            response = request
+                    .when()
+                    .log()
+                    .all()
+                    .get();
+        } finally {
+            tSample.stop();
+        }
 
         //print status code
         Integer statusCode = response.getStatusCode();
@@ -799,11 +817,17 @@ public class CloudDirectorCore {
     private ValidatableResponse triggerPostRequest(RequestSpecification request, Integer expectedStatusCode){
 
         //trigger request and log it (it will be added as attachment to the report)
-        Response response = request
-                .when()
-                .log()
-                .all()
-                .post();
+        Metrics.Sample tSample = Metrics.start("vcd.post");
+        Response response;
+        try {
+            response = request
+                    .when()
+                    .log()
+                    .all()
+                    .post();
+        } finally {
+            tSample.stop();
+        }
 
         //print status code
         Integer statusCode = response.getStatusCode();
@@ -832,11 +856,17 @@ public class CloudDirectorCore {
 
     private ValidatableResponse triggerPutRequest(RequestSpecification request, Integer expectedStatusCode){
         //trigger request and log it (it will be added as attachment to the report)
-        Response response = request
-                .when()
-                .log()
-                .all()
-                .put();
+        Metrics.Sample tSample = Metrics.start("vcd.put");
+        Response response;
+        try {
+            response = request
+                    .when()
+                    .log()
+                    .all()
+                    .put();
+        } finally {
+            tSample.stop();
+        }
 
         //print status code
         Integer statusCode = response.getStatusCode();
@@ -867,11 +897,17 @@ public class CloudDirectorCore {
 
     private ValidatableResponse triggerDeleteRequest(RequestSpecification request, Integer expectedStatusCode){
         //trigger request and log it (it will be added as attachment to the report)
-        Response response = request
-                .when()
-                .log()
-                .all()
-                .delete();
+        Metrics.Sample tSample = Metrics.start("vcd.delete");
+        Response response;
+        try {
+            response = request
+                    .when()
+                    .log()
+                    .all()
+                    .delete();
+        } finally {
+            tSample.stop();
+        }
 
         //print status code
         Integer statusCode = response.getStatusCode();
@@ -0,0 +1,256 @@
+package libs.libCore.modules;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Template with ${...} variables compiled into a list of literal and variable segments
+ *
+ * Template is parsed only once and rendered in a single pass, each variable is resolved once per rendering.
+ * Template files are cached for the whole test run by canonical path and validated against modification time
+ * and size, same as config files in ConfigCache. Templates created from strings are kept in a bounded LRU cache,
+ * cached segments are shared but each compilation gets the name of its caller, so errors refer to the right source.
+ *
+ * Variable ${ctx.key} is replaced with the value returned by resolver for key, variable ${key} with the value
+ * returned for key. If resolver returns the key itself for a ctx variable it is treated as unresolved and
+ * kept in the output as it is. Values which contain variables are rendered again, so a value can refer
+ * to other values. Cycles are reported as an error together with the chain of variables and position
+ * of the variable in the template.
+ */
+public final class CompiledTemplate {
+
+    private static final int CACHE_SIZE = Integer.getInteger("saf.template.cacheSize", 1024);
+
+    private static final Map<String, FileEntry> FILES = new ConcurrentHashMap<>();
+
+    private static final Map<String, CompiledTemplate> STRINGS = Collections.synchronizedMap(
+            new LinkedHashMap<String, CompiledTemplate>(64, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CompiledTemplate> eldest) {
+                    return size() > CACHE_SIZE;
+                }
+            });
+
+    private final String name;
+    //literals and variables alternate, even elements are literals, odd elements are variables
+    private final String[] segments;
+    private final int[] lines;
+    private final int[] columns;
+
+    private static final class FileEntry {
+        private final long lastModified;
+        private final long size;
+        private final CompiledTemplate template;
+
+        private FileEntry(long lastModified, long size, CompiledTemplate template) {
+            this.lastModified = lastModified;
+            this.size = size;
+            this.template = template;
+        }
+    }
+
+    private CompiledTemplate(String name, String[] segments, int[] lines, int[] columns) {
+        this.name = name;
+        this.segments = segments;
+        this.lines = lines;
+        this.columns = columns;
+    }
+
+    private CompiledTemplate(String name, String source) {
+        this.name = name;
+
+        List<String> tSegments = new ArrayList<>();
+        List<Integer> tLines = new ArrayList<>();
+        List<Integer> tColumns = new ArrayList<>();
+
+        int line = 1;
+        int lineStart = 0;
+        int pos = 0;
+        while ( true ) {
+            int begin = source.indexOf("${", pos);
+            if ( begin == -1 ) {
+                tSegments.add(source.substring(pos));
+                break;
+            }
+            for (int i = source.indexOf('\n', pos); i != -1 && i < begin; i = source.indexOf('\n', i + 1)) {
+                line++;
+                lineStart = i + 1;
+            }
+            int end = source.indexOf('}', begin);
+            if ( end == -1 ) {
+                Log.error("Typo in " + name + "! Missing closing bracket } for variable at line " + line
+                        + " column " + (begin - lineStart + 1) + ". Can't do variable substitution!");
+            }
+            tSegments.add(source.substring(pos, begin));
+            tSegments.add(source.substring(begin + 2, end));
+            tLines.add(line);
+            tColumns.add(begin - lineStart + 1);
+            pos = end + 1;
+        }
+
+        this.segments = tSegments.toArray(new String[0]);
+        this.lines = new int[tLines.size()];
+        this.columns = new int[tColumns.size()];
+        for (int i = 0; i < lines.length; i++) {
+            lines[i] = tLines.get(i);
+            columns[i] = tColumns.get(i);
+        }
+    }
+
+
+    /**
+     * Returns compiled template file
+     * File is parsed again only if it was modified since last compilation
+     *
+     * @param file File, template file
+     *
+     * @return CompiledTemplate
+     */
+    public static CompiledTemplate compile(File file) {
+        String key = ConfigCache.keyOf(file);
+        FileEntry entry = FILES.get(key);
+        if ( entry != null && entry.lastModified == file.lastModified() && entry.size == file.length() ) {
+            return entry.template;
+        }
+
+        long lastModified = file.lastModified();
+        long size = file.length();
+        String source = null;
+        try {
+            source = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            Log.error("Template " + file.getAbsolutePath() + " can't be read!", e);
+        }
+        CompiledTemplate template = new CompiledTemplate("template " + file.getAbsolutePath(), source);
+        FILES.put(key, new FileEntry(lastModified, size, template));
+
+        return template;
+    }
+
+
+    /**
+     * Returns compiled template for provided string
+     * Parsed segments are cached by the string, name is always the one provided by the caller
+     *
+     * @param name String, description of the string used in error messages, for example "config value abc"
+     * @param source String, template content
+     *
+     * @return CompiledTemplate
+     */
+    public static CompiledTemplate compile(String name, String source) {
+        CompiledTemplate template = STRINGS.get(source);
+        if ( template == null ) {
+            template = new CompiledTemplate(name, source);
+            STRINGS.put(source, template);
+        } else if ( ! template.name.equals(name) ) {
+            template = new CompiledTemplate(name, template.segments, template.lines, template.columns);
+        }
+
+        return template;
+    }
+
+
+    /**
+     * @return true if template does not contain any variables
+     */
+    public boolean isConstant() {
+        return segments.length == 1;
+    }
+
+
+    /**
+     * @return names of variables in order of their appearance in the template, as written between ${ and }
+     */
+    public List<String> getVariables() {
+        List<String> variables = new ArrayList<>(segments.length / 2);
+        for (int i = 1; i < segments.length; i += 2) {
+            variables.add(segments[i]);
+        }
+
+        return variables;
+    }
+
+
+    /**
+     * Renders template into a String
+     *
+     * @param resolver Function, returns value for a variable name without ctx. prefix
+     *
+     * @return String
+     */
+    public String render(Function<String, Object> resolver) {
+        if ( isConstant() ) {
+            return segments[0];
+        }
+        StringWriter out = new StringWriter(segments[0].length() * 2);
+        try {
+            render(out, resolver);
+        } catch (IOException e) {
+            Log.error("", e);
+        }
+
+        return out.toString();
+    }
+
+
+    /**
+     * Renders template into a Writer in a single pass
+     *
+     * @param out Writer
+     * @param resolver Function, returns value for a variable name without ctx. prefix
+     */
+    public void render(Writer out, Function<String, Object> resolver) throws IOException {
+        render(out, resolver, new HashMap<>(), new ArrayDeque<>(), null);
+    }
+
+    private void render(Writer out, Function<String, Object> resolver, Map<String, String> resolved,
+                        Deque<String> stack, String location) throws IOException {
+        out.write(segments[0]);
+        for (int i = 1; i < segments.length; i += 2) {
+            String variable = segments[i];
+            String value = resolved.get(variable);
+            if ( value == null ) {
+                String where = location != null ? location
+                        : name + " at line " + lines[i / 2] + " column " + columns[i / 2];
+                value = resolve(variable, where, resolver, resolved, stack);
+                resolved.put(variable, value);
+            }
+            out.write(value);
+            out.write(segments[i + 1]);
+        }
+    }
+
+    private String resolve(String variable, String where, Function<String, Object> resolver,
+                           Map<String, String> resolved, Deque<String> stack) throws IOException {
+        if ( stack.contains(variable) ) {
+            StringBuilder chain = new StringBuilder();
+            for (Iterator<String> it = stack.descendingIterator(); it.hasNext(); ) {
+                chain.append("${").append(it.next()).append("} -> ");
+            }
+            Log.error("Cycle detected in " + where + "! " + chain + "${" + variable + "}");
+        }
+
+        String key = variable.startsWith("ctx.") ? variable.substring(4) : variable;
+        String value = String.valueOf(resolver.apply(key));
+        if ( variable.equals("ctx." + value) ) {
+            //not found, keep the variable as it is
+            return "${" + variable + "}";
+        }
+        if ( ! value.contains("${") ) {
+            return value;
+        }
+
+        CompiledTemplate nested = compile("value of ${" + variable + "}", value);
+        StringWriter out = new StringWriter(value.length() * 2);
+        stack.push(variable);
+        nested.render(out, resolver, resolved, stack, where);
+        stack.pop();
+
+        return out.toString();
+    }
+
+}
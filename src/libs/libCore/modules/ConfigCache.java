@@ -0,0 +1,127 @@
+package libs.libCore.modules;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Run level cache of parsed configuration files
+ *
+ * Each configuration file is parsed only once per test run and kept in memory together with
+ * the list of files it includes. Entries are keyed by canonical path of the file and validated
+ * against its last modification time and size so a file changed during the run is parsed again.
+ *
+ * Cached content is kept in immutable form (PersistentMap) and is never handed out directly. Each scenario gets
+ * its own ForkedHashMap of it so merges and substitutions done during the scenario do not leak to other scenarios.
+ * Forking is O(1), only the parts of the storage a scenario actually touches are copied.
+ */
+@SuppressWarnings("unchecked")
+public class ConfigCache {
+
+    private static final Map<String, Entry> CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * Parsed content of a single configuration file
+     */
+    public static class Entry {
+
+        private final long lastModified;
+        private final long size;
+        private final List<String> includes;
+        private final LinkedHashMap<String, PersistentMap<String, Object>> storages;
+
+        public Entry(long lastModified, long size, List<String> includes,
+                     LinkedHashMap<String, PersistentMap<String, Object>> storages) {
+            this.lastModified = lastModified;
+            this.size = size;
+            this.includes = Collections.unmodifiableList(new ArrayList<>(includes));
+            this.storages = storages;
+        }
+
+        /**
+         * @return paths to included configuration files in the order of #include directives
+         */
+        public List<String> getIncludes() {
+            return includes;
+        }
+
+        /**
+         * @return storages defined in the file in the order of definition
+         */
+        public LinkedHashMap<String, PersistentMap<String, Object>> getStorages() {
+            return storages;
+        }
+
+        private boolean isValidFor(File file) {
+            return file.lastModified() == lastModified && file.length() == size;
+        }
+    }
+
+
+    /**
+     * Returns key under which particular configuration file is cached
+     *
+     * @param file File, configuration file
+     *
+     * @return String, canonical path of the file
+     */
+    public static String keyOf(File file) {
+        try {
+            return file.getCanonicalPath();
+        } catch (IOException e) {
+            return file.getAbsolutePath();
+        }
+    }
+
+
+    /**
+     * Returns cached content of configuration file or null if file was not parsed yet
+     * or was modified since it was parsed
+     *
+     * @param file File, configuration file
+     *
+     * @return Entry
+     */
+    public static Entry get(File file) {
+        Entry entry = CACHE.get(keyOf(file));
+        if ( entry != null && entry.isValidFor(file) ) {
+            return entry;
+        }
+
+        return null;
+    }
+
+
+    /**
+     * Stores parsed content of configuration file
+     *
+     * @param file File, configuration file
+     * @param lastModified long, modification time of the file read before parsing
+     * @param size long, size of the file read before parsing
+     * @param includes List, paths to included configuration files
+     * @param storages LinkedHashMap, storages defined in the file, they are frozen before caching
+     *
+     * @return Entry
+     */
+    public static Entry put(File file, long lastModified, long size, List<String> includes,
+                            LinkedHashMap<String, HashMap<String, Object>> storages) {
+        LinkedHashMap<String, PersistentMap<String, Object>> frozen = new LinkedHashMap<>();
+        for (Map.Entry<String, HashMap<String, Object>> storage : storages.entrySet()) {
+            frozen.put(storage.getKey(), (PersistentMap<String, Object>) ForkedHashMap.freeze(storage.getValue()));
+        }
+        Entry entry = new Entry(lastModified, size, includes, frozen);
+        CACHE.put(keyOf(file), entry);
+
+        return entry;
+    }
+
+
+    /**
+     * Removes all cached entries
+     */
+    public static void clear() {
+        CACHE.clear();
+    }
+
+}
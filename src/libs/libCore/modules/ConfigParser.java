@@ -0,0 +1,370 @@
+package libs.libCore.modules;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Streaming parser of configuration files
+ *
+ * Config file is read line by line and tokens are consumed directly from a lenient JsonReader,
+ * so storages are built in a single pass without keeping the whole file content in memory and
+ * without building an intermediate json tree. #include directives are collected on the way.
+ *
+ * Values can be of type: Integer, Long, Double, String, Boolean, ArrayList, HashMap.
+ * Nulls and arrays nested directly in arrays are skipped.
+ */
+public final class ConfigParser {
+
+    private static final BigDecimal LONG_MIN = BigDecimal.valueOf(Long.MIN_VALUE);
+    private static final BigDecimal LONG_MAX = BigDecimal.valueOf(Long.MAX_VALUE);
+
+    private ConfigParser() {}
+
+    /**
+     * Content of a single configuration file
+     */
+    public static final class Result {
+
+        private final List<String> includes;
+        private final LinkedHashMap<String, HashMap<String, Object>> storages;
+
+        private Result(List<String> includes, LinkedHashMap<String, HashMap<String, Object>> storages) {
+            this.includes = includes;
+            this.storages = storages;
+        }
+
+        /**
+         * @return paths to included configuration files in the order of #include directives
+         */
+        public List<String> getIncludes() {
+            return includes;
+        }
+
+        /**
+         * @return storages defined in the file in the order of definition
+         */
+        public LinkedHashMap<String, HashMap<String, Object>> getStorages() {
+            return storages;
+        }
+    }
+
+
+    /**
+     * Parses config file
+     * File content shall be a json object where each member is a storage, outer braces can be omitted
+     *
+     * @param file File, config file
+     * @param projectPath String, path against which included files are resolved
+     *
+     * @return Result
+     */
+    public static Result parse(File file, String projectPath) {
+        try {
+            return read(file, projectPath);
+        } catch (FileNotFoundException e) {
+            Log.error("", e);
+        } catch (IOException | IllegalStateException e) {
+            Log.error("Typo in file " + file.getAbsolutePath(), e);
+        }
+
+        return null;
+    }
+
+
+    /**
+     * Parses config file without reporting errors
+     * Used to parse files in advance, errors are reported when such file is parsed again with parse method
+     *
+     * @param file File, config file
+     * @param projectPath String, path against which included files are resolved
+     *
+     * @return Result or null if file can't be parsed
+     */
+    public static Result tryParse(File file, String projectPath) {
+        try {
+            return read(file, projectPath);
+        } catch (IOException | IllegalStateException e) {
+            return null;
+        }
+    }
+
+    private static Result read(File file, String projectPath) throws IOException {
+        List<String> includes = new ArrayList<>();
+        LinkedHashMap<String, HashMap<String, Object>> storages = new LinkedHashMap<>();
+
+        try (SourceReader source = new SourceReader(file, projectPath, includes);
+             JsonReader reader = new JsonReader(source)) {
+            reader.setLenient(true);
+            reader.beginObject();
+            while ( reader.hasNext() ) {
+                String name = reader.nextName();
+                if ( reader.peek() != JsonToken.BEGIN_OBJECT ) {
+                    throw new IllegalStateException("No objects defined in configuration file! Storage " + name
+                            + " is not a json object");
+                }
+                storages.put(name, readObject(reader));
+            }
+            reader.endObject();
+            checkEnd(reader);
+        }
+
+        return new Result(includes, storages);
+    }
+
+
+    /**
+     * Parses content of a single storage
+     *
+     * @param name String, name of the storage used in error messages
+     * @param json String, json object
+     *
+     * @return HashMap
+     */
+    public static HashMap<String, Object> parseStorage(String name, String json) {
+        try (JsonReader reader = new JsonReader(new StringReader(json))) {
+            reader.setLenient(true);
+            if ( reader.peek() != JsonToken.BEGIN_OBJECT ) {
+                Log.error("Content of storage " + name + " is not a json object!");
+            }
+            HashMap<String, Object> result = readObject(reader);
+            checkEnd(reader);
+
+            return result;
+        } catch (IOException | IllegalStateException e) {
+            Log.error("Typo in content of storage " + name, e);
+        }
+
+        return null;
+    }
+
+
+    /**
+     * Converts json number into Integer, Long or Double
+     * Integral values are returned as Integer if they fit into int, else as Long if they fit into long,
+     * all other values are returned as Double. Parsing does not depend on default locale.
+     *
+     * @param text String, json number
+     *
+     * @return Number
+     */
+    public static Number parseNumber(String text) {
+        boolean integral = text.length() <= 18;
+        for (int i = 0; i < text.length() && integral; i++) {
+            char c = text.charAt(i);
+            integral = c != '.' && c != 'e' && c != 'E';
+        }
+
+        if ( integral ) {
+            long value = Long.parseLong(text);
+            if ( value == 0 && text.charAt(0) == '-' ) {
+                return -0.0d;
+            }
+            return narrow(value);
+        }
+
+        //double which is not integral can't come from an integral decimal
+        double dValue = Double.parseDouble(text);
+        if ( dValue != Math.rint(dValue) || Double.isInfinite(dValue) ) {
+            return dValue;
+        }
+
+        BigDecimal value = new BigDecimal(text);
+        if ( value.signum() == 0 && text.charAt(0) == '-' ) {
+            return -0.0d;
+        }
+        value = value.stripTrailingZeros();
+        if ( value.scale() <= 0 && value.compareTo(LONG_MIN) >= 0 && value.compareTo(LONG_MAX) <= 0 ) {
+            return narrow(value.longValue());
+        }
+
+        return dValue;
+    }
+
+    private static Number narrow(long value) {
+        if ( value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE ) {
+            return (int) value;
+        }
+        return value;
+    }
+
+
+    /**
+     * helper function used to make sure that nothing follows parsed object
+     *
+     * @param reader JsonReader
+     */
+    private static void checkEnd(JsonReader reader) throws IOException {
+        if ( reader.peek() != JsonToken.END_DOCUMENT ) {
+            throw new IllegalStateException("Did not consume the entire document. Unexpected " + reader.peek()
+                    + " at path " + reader.getPath());
+        }
+    }
+
+
+    /**
+     * helper function used to read json object into HashMap
+     *
+     * @param reader JsonReader positioned at the beginning of an object
+     *
+     * @return HashMap
+     */
+    private static HashMap<String, Object> readObject(JsonReader reader) throws IOException {
+        HashMap<String, Object> map = new HashMap<>();
+        reader.beginObject();
+        while ( reader.hasNext() ) {
+            String key = reader.nextName();
+            switch ( reader.peek() ) {
+                case NUMBER:
+                    map.put(key, readNumber(reader, key));
+                    break;
+                case STRING:
+                    map.put(key, reader.nextString());
+                    break;
+                case BOOLEAN:
+                    map.put(key, reader.nextBoolean());
+                    break;
+                case BEGIN_ARRAY:
+                    map.put(key, readArray(reader, key));
+                    break;
+                case BEGIN_OBJECT:
+                    map.put(key, readObject(reader));
+                    break;
+                default:
+                    reader.skipValue();
+                    Log.warn("Didn't recognized type of object data. Going to put null value!");
+                    map.put(key, null);
+            }
+        }
+        reader.endObject();
+
+        return map;
+    }
+
+
+    /**
+     * helper function used to read json array into ArrayList
+     *
+     * @param reader JsonReader positioned at the beginning of an array
+     * @param key String, name of the array used in error messages
+     *
+     * @return ArrayList
+     */
+    private static ArrayList<Object> readArray(JsonReader reader, String key) throws IOException {
+        ArrayList<Object> list = new ArrayList<>();
+        reader.beginArray();
+        while ( reader.hasNext() ) {
+            switch ( reader.peek() ) {
+                case NUMBER:
+                    list.add(readNumber(reader, key));
+                    break;
+                case STRING:
+                    list.add(reader.nextString());
+                    break;
+                case BOOLEAN:
+                    list.add(reader.nextBoolean());
+                    break;
+                case BEGIN_OBJECT:
+                    list.add(readObject(reader));
+                    break;
+                default:
+                    //missing support for array of arrays!!!!
+                    reader.skipValue();
+            }
+        }
+        reader.endArray();
+
+        return list;
+    }
+
+    private static Number readNumber(JsonReader reader, String key) throws IOException {
+        String text = reader.nextString();
+        try {
+            return parseNumber(text);
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException("Not able to parse String to Number for " + key + " : " + text, e);
+        }
+    }
+
+
+    /**
+     * Reader which feeds config file to JsonReader line by line
+     *
+     * Lines with #include directives are collected and replaced with empty lines so line numbers
+     * reported by JsonReader still match the file. Outer braces are added if the file does not start with one.
+     */
+    private static final class SourceReader extends Reader {
+
+        private final BufferedReader in;
+        private final String projectPath;
+        private final List<String> includes;
+
+        private String buffer = "";
+        private int pos = 0;
+        private boolean started = false;
+        private boolean wrapped = false;
+        private boolean finished = false;
+
+        private SourceReader(File file, String projectPath, List<String> includes) throws FileNotFoundException {
+            this.in = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
+            this.projectPath = projectPath;
+            this.includes = includes;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            while ( pos >= buffer.length() ) {
+                if ( ! nextLine() ) {
+                    return -1;
+                }
+            }
+            int n = Math.min(len, buffer.length() - pos);
+            buffer.getChars(pos, pos + n, cbuf, off);
+            pos += n;
+
+            return n;
+        }
+
+        private boolean nextLine() throws IOException {
+            if ( finished ) {
+                return false;
+            }
+            pos = 0;
+            String line = in.readLine();
+            if ( line == null ) {
+                finished = true;
+                buffer = ! started ? "{}" : wrapped ? "}" : "";
+                return ! buffer.isEmpty();
+            }
+
+            String tLine = line.trim();
+            if ( tLine.contains("#include") ) {
+                tLine = tLine.replace("\"", "").replace("'", "");
+                if ( tLine.startsWith("#include") && tLine.endsWith(".config") ) {
+                    includes.add(projectPath + File.separator + tLine.substring(9).trim());
+                    buffer = "\n";
+                    return true;
+                }
+            }
+            if ( ! started && ! tLine.isEmpty() ) {
+                started = true;
+                wrapped = ! tLine.startsWith("{");
+                buffer = wrapped ? "{" + line + "\n" : line + "\n";
+                return true;
+            }
+            buffer = line + "\n";
+
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+}
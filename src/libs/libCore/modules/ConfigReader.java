@@ -1,19 +1,21 @@
 package libs.libCore.modules;
 
-import com.google.gson.*;
-import org.apache.commons.lang.StringUtils;
-
 import java.io.File;
-import java.text.NumberFormat;
 import java.util.*;
-
-import static java.lang.Math.toIntExact;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
 
 @SuppressWarnings("unchecked")
 public class ConfigReader {
 
+    private static final boolean PRELOAD = Boolean.parseBoolean(System.getProperty("saf.config.preload", "true"));
+
     private Context scenarioCtx;
     private FileCore FileCore;
+    private final LinkedHashSet<String> mergedFiles = new LinkedHashSet<>();
+    private final LinkedHashSet<String> mergedStorages = new LinkedHashSet<>();
 
     public ConfigReader() {
         this.scenarioCtx = ThreadContext.getContext("Scenario");
@@ -27,176 +29,204 @@ public class ConfigReader {
      * an error will be indicated in the log
      * Content shall be in the form of json
      *
+     * Included files are resolved as a dependency graph before anything is merged. Each file is merged
+     * only once per call even if it is included many times, after all files it includes.
+     * Include cycles are reported as an error.
+     *
+     * Each file is parsed only once per test run, see ConfigCache
+     *
      * @param path path to the config file
      */
     public void create(String path) {
+        LinkedHashMap<String, ConfigCache.Entry> resolved = new LinkedHashMap<>();
+        resolve(new File(path), new LinkedHashSet<>(), resolved);
 
-        JsonElement root = null;
-        JsonObject object = null;
-        String sFile = null;
-        HashMap<String, Object> result = null;
-        File file = new File(path);
-
-        sFile = FileCore.readToString(file);
-
-        if ( sFile.contains("#include ") ) {
-            List<String> lines = FileCore.readLines(file);
-            String sFileWithoutIncludes = "";
-            for (String line : lines){
-                String tLine = line.trim();
-                tLine = StringUtils.remove(tLine,'"');
-                tLine = StringUtils.remove(tLine,"'");
-                if ( tLine.startsWith("#include") && tLine.endsWith(".config")) {
-                    String pathToIncludedConfigFile = tLine.substring(9);
-                    pathToIncludedConfigFile = FileCore.getProjectPath() + File.separator + pathToIncludedConfigFile.trim();
-                    Log.debug("Found included configuration file");
-                    create(pathToIncludedConfigFile);
-                } else {
-                    sFileWithoutIncludes = sFileWithoutIncludes + line + System.getProperty("line.separator");
+        for (Map.Entry<String, ConfigCache.Entry> file : resolved.entrySet()) {
+            Log.debug("Reading configuration file " + file.getKey());
+            mergedFiles.add(file.getKey());
+
+            //read each entry and create new shared object for it
+            ConfigCache.Entry entry = file.getValue();
+            if ( entry.getStorages().size() > 0 ) {
+                for (Map.Entry<String, PersistentMap<String, Object>> storage : entry.getStorages().entrySet()) {
+                    merge(storage.getKey(), ForkedHashMap.fork(storage.getValue()));
                 }
+            } else {
+                Log.debug("No objects found");
             }
-            sFileWithoutIncludes = sFileWithoutIncludes.trim();
-            sFile = sFileWithoutIncludes;
         }
+    }
 
-        if ( ! sFile.startsWith("{") ) {
-            sFile = "{" + sFile + "}";
-        }
 
-        Log.debug("Reading configuration file " + path);
+    /**
+     * @return canonical paths of all config files merged by this reader, included ones too, in merge order
+     */
+    public Set<String> getMergedFiles() {
+        return Collections.unmodifiableSet(mergedFiles);
+    }
 
-        //read the JSON file and make sure that format is correct
-        try {
-            root = new JsonParser().parse(sFile);
-        } catch (JsonSyntaxException e) {
-                Log.error("Typo in file " + file.getAbsolutePath(), e);
-        }
 
-        //read each entry and create new shared object for it
-        if(root.isJsonObject()){
-            Set<Map.Entry<String, JsonElement>> entries = root.getAsJsonObject().entrySet();//will return members of your object
-            if ( entries.size() > 0 ) {
-                for (Map.Entry<String, JsonElement> entry : entries) {
-                    try {
-                        object = root.getAsJsonObject().get(entry.getKey()).getAsJsonObject();
-                    } catch (NullPointerException e) {
-                        Log.error("No objects defined in configuration file!", e);
-                    }
+    /**
+     * @return names of all storages created or updated by this reader
+     */
+    public Set<String> getMergedStorages() {
+        return Collections.unmodifiableSet(mergedStorages);
+    }
 
-                    result = parseObject(object);
 
-                    //if ctx object already exists overwrite/update its content else create new one
-                    HashMap<String, Object> tmpMap = scenarioCtx.get(entry.getKey(), HashMap.class);
-                    if (tmpMap == null) {
-                        scenarioCtx.put(entry.getKey(), HashMap.class, result);
-                    } else {
-                        //tmpMap.putAll(result);
-                        deepMerge(tmpMap, result);
-                        scenarioCtx.put(entry.getKey(), HashMap.class, tmpMap);
-                    }
-                }
-            } else {
-                Log.debug("No objects found");
-            }
+    /**
+     * helper function used to walk include graph of a config file depth first
+     * Files are added to the resolved map after all files they include
+     *
+     * @param file File, config file
+     * @param stack LinkedHashSet, files which are currently being resolved
+     * @param resolved LinkedHashMap, files already resolved in merge order
+     */
+    private void resolve(File file, LinkedHashSet<String> stack, LinkedHashMap<String, ConfigCache.Entry> resolved) {
+        String key = ConfigCache.keyOf(file);
+        if ( resolved.containsKey(key) ) {
+            Log.debug("Configuration file " + file.getPath() + " already included");
+            return;
+        }
+        if ( ! stack.add(key) ) {
+            List<String> cycle = new ArrayList<>(stack);
+            cycle = cycle.subList(cycle.indexOf(key), cycle.size());
+            Log.error("Include cycle detected: " + String.join(" -> ", cycle) + " -> " + key);
         }
+
+        ConfigCache.Entry entry = ConfigCache.get(file);
+        if ( entry == null ) {
+            entry = parse(file);
+        }
+
+        for (String pathToIncludedConfigFile : entry.getIncludes()) {
+            Log.debug("Found included configuration file");
+            resolve(new File(pathToIncludedConfigFile), stack, resolved);
+        }
+
+        stack.remove(key);
+        resolved.put(key, entry);
     }
 
+
     /**
-     * Parses json object
-     * helper function used to parse config files content
-     * Parsing is done to HashMap
-     * Values can be of type: Integer, Long, Double, String, Boolean, ListArray, HashMap
+     * Parses config files and all files they include concurrently and stores them in the run level cache
+     * Nothing is merged into storages here, create shall be called afterwards in the required order so
+     * the result does not depend on the order in which files were parsed.
+     * Files which can't be parsed are skipped, error is reported when such file is created.
      *
-     * @param object jsonObject extractet from the config file
-     * @return HashMap
+     * Can be switched off with -Dsaf.config.preload=false
      *
+     * @param paths List, paths to config files
      */
-    //missing support for array of arrays!!!!
-    private HashMap<String, Object> parseObject(JsonObject object) {
-        Set<Map.Entry<String, JsonElement>> set = object.entrySet();
-        Iterator<Map.Entry<String, JsonElement>> iterator = set.iterator();
-        HashMap<String, Object> map = new HashMap<>();
-        while (iterator.hasNext()) {
-            Map.Entry<String, JsonElement> entry = iterator.next();
-            String key = entry.getKey();
-            if (entry.getValue().isJsonPrimitive()) {
-                if(entry.getValue().getAsJsonPrimitive().isNumber()){
-                    Number num = null;
-                    try {
-                        num = NumberFormat.getInstance(Locale.getDefault()).parse(entry.getValue().getAsString());
-                        if ( num instanceof Long ) {
-                            Long tVal = (Long) num;
-                            try {
-                                int iVal = toIntExact(tVal);
-                                num = iVal;
-                            } catch (ArithmeticException e) {
-                                //do nothing just return Long
-                            }
-                        }
-                    } catch (Exception e) {
-                        Log.error("Not able to parse String to Number for " + key + " : " +
-                                entry.getValue().getAsString(), e);
-                    }
-                    if (num != null){
-                        map.put(key, num);
-                    }
-                }else if(entry.getValue().getAsJsonPrimitive().isString()){
-                    map.put(key, entry.getValue().getAsString());
-                }else if(entry.getValue().getAsJsonPrimitive().isBoolean()){
-                    map.put(key, entry.getValue().getAsBoolean());
-                }else{
-                    Log.warn("Didn't recognized type of primitive data. Going to put null value!");
-                    map.put(key, null);
+    public void preload(List<String> paths) {
+        if ( ! PRELOAD || paths.isEmpty() ) {
+            return;
+        }
+        long start = System.nanoTime();
+        Set<String> seen = ConcurrentHashMap.newKeySet();
+        ForkJoinPool.commonPool().invoke(new PreloadTask(paths, FileCore.getProjectPath(), seen));
+        Log.debug("Preloaded " + seen.size() + " configuration files in "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+    }
+
+
+    /**
+     * Parses single config file and forks tasks for files it includes
+     */
+    private static final class PreloadTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<String> paths;
+        private final String projectPath;
+        private final Set<String> seen;
+
+        private PreloadTask(List<String> paths, String projectPath, Set<String> seen) {
+            this.paths = paths;
+            this.projectPath = projectPath;
+            this.seen = seen;
+        }
+
+        @Override
+        protected void compute() {
+            if ( paths.size() > 1 ) {
+                List<PreloadTask> tasks = new ArrayList<>(paths.size());
+                for (String path : paths) {
+                    tasks.add(new PreloadTask(Collections.singletonList(path), projectPath, seen));
                 }
-            } else if (entry.getValue().isJsonArray()){
-                ArrayList<Object> tmpArray = new ArrayList();
-                for (int i = 0; i < entry.getValue().getAsJsonArray().size(); i++) {
-                    if(entry.getValue().getAsJsonArray().get(i).isJsonPrimitive()){
-                        if(entry.getValue().getAsJsonArray().get(i).getAsJsonPrimitive().isBoolean()){
-                            tmpArray.add(entry.getValue().getAsJsonArray().get(i).getAsBoolean());
-                        }else if(entry.getValue().getAsJsonArray().get(i).getAsJsonPrimitive().isString()){
-                            tmpArray.add(entry.getValue().getAsJsonArray().get(i).getAsString());
-                        }else if(entry.getValue().getAsJsonArray().get(i).getAsJsonPrimitive().isNumber()){
-                            Number num = null;
-                            try {
-                                num = NumberFormat.getInstance(Locale.getDefault()).parse(entry.getValue().getAsJsonArray().get(i).getAsString());
-                                if ( num instanceof Long ) {
-                                    Long tVal = (Long) num;
-                                    try {
-                                        int iVal = toIntExact(tVal);
-                                        num = iVal;
-                                    } catch (ArithmeticException e) {
-                                        //do nothing just return Long
-                                    }
-                                }
-                            } catch (Exception e) {
-                                Log.error("Not able to parse String to Number for " +
-                                        key + " : " +
-                                        entry.getValue().getAsJsonArray().get(i).getAsString(), e);
-                            }
-                            if (num != null){
-                                tmpArray.add(num);
-                            }
-                        }else{
-                            Log.warn("Didn't recognized type of data in an array. Going to put null value!");
-                            tmpArray.add(null);
-                        }
-                    } else if (entry.getValue().getAsJsonArray().get(i).isJsonObject()) {
-                        HashMap<String, Object> tMap = parseObject(entry.getValue().getAsJsonArray().get(i).getAsJsonObject());
-                        tmpArray.add(tMap);
-                    }
+                invokeAll(tasks);
+                return;
+            }
+
+            File file = new File(paths.get(0));
+            if ( ! seen.add(ConfigCache.keyOf(file)) ) {
+                return;
+            }
+            ConfigCache.Entry entry = ConfigCache.get(file);
+            if ( entry == null ) {
+                long lastModified = file.lastModified();
+                long size = file.length();
+                ConfigParser.Result result = ConfigParser.tryParse(file, projectPath);
+                if ( result == null ) {
+                    return;
                 }
-                map.put(key, tmpArray);
-            }else if(entry.getValue().isJsonObject()){
-                HashMap<String, Object> tMap = parseObject(entry.getValue().getAsJsonObject());
-                map.put(key, tMap);
+                entry = ConfigCache.put(file, lastModified, size, result.getIncludes(), result.getStorages());
             }
-            else {
-                Log.warn("Didn't recognized type of object data. Going to put null value!");
-                map.put(key, null);
+            if ( ! entry.getIncludes().isEmpty() ) {
+                new PreloadTask(entry.getIncludes(), projectPath, seen).compute();
             }
         }
-        return map;
+    }
+
+
+    /**
+     * Creates or updates existing storage based on json content
+     * Used to restore content of a storage without writing it to a temporary config file first
+     *
+     * @param name String, name of the storage
+     * @param json String, content of the storage in the form of json object
+     */
+    public void createFromJson(String name, String json) {
+        merge(name, ConfigParser.parseStorage(name, json));
+    }
+
+
+    /**
+     * helper function used to put new storage into the context or
+     * merge its content with already existing storage of the same name
+     *
+     * @param name String, name of the storage
+     * @param result HashMap, content of the storage
+     */
+    private void merge(String name, HashMap<String, Object> result) {
+        mergedStorages.add(name);
+        //if ctx object already exists overwrite/update its content else create new one
+        HashMap<String, Object> tmpMap = scenarioCtx.get(name, HashMap.class);
+        if (tmpMap == null) {
+            scenarioCtx.put(name, HashMap.class, result);
+        } else {
+            //tmpMap.putAll(result);
+            deepMerge(tmpMap, result);
+            scenarioCtx.put(name, HashMap.class, tmpMap);
+        }
+    }
+
+
+    /**
+     * Parses config file and stores its content in the run level cache
+     * helper function used by create method
+     *
+     * @param file File, config file
+     *
+     * @return ConfigCache.Entry
+     */
+    private ConfigCache.Entry parse(File file) {
+        long lastModified = file.lastModified();
+        long size = file.length();
+        ConfigParser.Result result = ConfigParser.parse(file, FileCore.getProjectPath());
+
+        return ConfigCache.put(file, lastModified, size, result.getIncludes(), result.getStorages());
     }
 
 
@@ -0,0 +1,241 @@
+package libs.libCore.modules;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Resolves ${ctx.*} references between configuration values
+ *
+ * All string values which contain ${ctx. are collected first together with their storage paths.
+ * References between them form a dependency graph which is sorted topologically, so each value
+ * is rendered exactly once and only after all values it refers to are already final. A reference to a map
+ * or a list depends on all values inside of it. Values which are not part of resolved storages are looked up
+ * with the resolver as they are. If such value contains ${ctx. references itself, rendered value is rendered
+ * again until it does not change any more, same as StepCore.replaceInString did, so it is expanded fully.
+ *
+ * Costs O(n + r) where n is the size of resolved storages and r is the number of references.
+ * Cycles are reported as an error together with the chain of references.
+ */
+@SuppressWarnings("unchecked")
+public final class ConfigResolver {
+
+    private static final String MARKER = "${ctx.";
+    private static final int MAX_RENDERINGS = 100;
+
+    private ConfigResolver() {}
+
+    /**
+     * String value which contains references to other values
+     */
+    private static final class Node {
+        private final String path;
+        private final Object container;
+        private final Object key;
+        private final CompiledTemplate template;
+        private final List<Node> dependants = new ArrayList<>();
+        private int pending = 0;
+
+        private Node(String path, Object container, Object key, String value) {
+            this.path = path;
+            this.container = container;
+            this.key = key;
+            this.template = CompiledTemplate.compile("config value " + value, value);
+        }
+
+        private void set(String value) {
+            if ( container instanceof Map ) {
+                ((Map<String, Object>) container).put((String) key, value);
+            } else {
+                ((List<Object>) container).set((Integer) key, value);
+            }
+        }
+    }
+
+
+    /**
+     * Substitutes ${ctx.*} references in provided storages in place
+     *
+     * @param roots Map, storage path and its content, for example "Environment.Active" and its map
+     * @param resolver Function, returns value for a storage path
+     */
+    public static void resolve(Map<String, Map<String, Object>> roots, Function<String, Object> resolver) {
+        List<Node> nodes = new ArrayList<>();
+        Map<String, Node> values = new HashMap<>();
+        //nodes of a subtree are collected one after another, so each container is described by a range of nodes
+        Map<String, int[]> containers = new HashMap<>();
+
+        for (Map.Entry<String, Map<String, Object>> root : roots.entrySet()) {
+            if ( root.getValue() != null ) {
+                collect(root.getKey(), root.getValue(), nodes, values, containers);
+            }
+        }
+        if ( nodes.isEmpty() ) {
+            return;
+        }
+
+        //build the graph
+        for (Node node : nodes) {
+            for (String variable : node.template.getVariables()) {
+                if ( ! variable.startsWith("ctx.") ) {
+                    continue;
+                }
+                String path = variable.substring(4);
+                Node dependency = values.get(path);
+                if ( dependency != null ) {
+                    link(dependency, node);
+                    continue;
+                }
+                int[] range = containers.get(path);
+                if ( range != null ) {
+                    for (int i = range[0]; i < range[1]; i++) {
+                        link(nodes.get(i), node);
+                    }
+                }
+            }
+        }
+
+        //resolve in topological order
+        Deque<Node> ready = new ArrayDeque<>();
+        for (Node node : nodes) {
+            if ( node.pending == 0 ) {
+                ready.add(node);
+            }
+        }
+        int resolved = 0;
+        while ( ! ready.isEmpty() ) {
+            Node node = ready.poll();
+            node.set(render(node, resolver));
+            resolved++;
+            for (Node dependant : node.dependants) {
+                if ( --dependant.pending == 0 ) {
+                    ready.add(dependant);
+                }
+            }
+        }
+
+        if ( resolved < nodes.size() ) {
+            Log.error("Cycle detected in configuration! " + cycle(nodes));
+        }
+    }
+
+    /**
+     * helper function used to render value of a node
+     * values from outside of resolved storages can contain references as well, so rendered value is rendered
+     * again as long as it contains references which can be resolved
+     */
+    private static String render(Node node, Function<String, Object> resolver) {
+        String value = node.template.render(resolver);
+        String previous = null;
+        for (int i = 0; value.contains(MARKER) && ! value.equals(previous); i++) {
+            if ( i == MAX_RENDERINGS ) {
+                Log.error("Cycle detected in configuration! Value of ${ctx." + node.path + "} still changes after "
+                        + MAX_RENDERINGS + " substitutions: " + value);
+            }
+            previous = value;
+            value = CompiledTemplate.compile("config value " + node.path, value).render(resolver);
+        }
+
+        return value;
+    }
+
+    //same dependency can be linked many times, each link is counted and released separately
+    private static void link(Node dependency, Node dependant) {
+        dependency.dependants.add(dependant);
+        dependant.pending++;
+    }
+
+
+    /**
+     * helper function used to collect values which contain references
+     * Only maps and lists of strings and maps are traversed, same as storage paths support
+     */
+    private static void collect(String path, Object value, List<Node> nodes, Map<String, Node> values,
+                                Map<String, int[]> containers) {
+        int from = nodes.size();
+        if ( value instanceof Map ) {
+            for (Map.Entry<String, Object> entry : ((Map<String, Object>) value).entrySet()) {
+                String tPath = path + "." + entry.getKey();
+                Object tValue = entry.getValue();
+                if ( tValue instanceof String ) {
+                    add(tPath, value, entry.getKey(), (String) tValue, nodes, values);
+                } else if ( tValue instanceof Map || tValue instanceof List ) {
+                    collect(tPath, tValue, nodes, values, containers);
+                }
+            }
+        } else {
+            List<Object> list = (List<Object>) value;
+            for (int i = 0; i < list.size(); i++) {
+                String tPath = path + "[" + i + "]";
+                Object tValue = list.get(i);
+                if ( tValue instanceof String ) {
+                    add(tPath, value, i, (String) tValue, nodes, values);
+                } else if ( tValue instanceof Map ) {
+                    collect(tPath, tValue, nodes, values, containers);
+                }
+            }
+        }
+        containers.put(path, new int[]{from, nodes.size()});
+    }
+
+    private static void add(String path, Object container, Object key, String value, List<Node> nodes,
+                            Map<String, Node> values) {
+        if ( value.contains(MARKER) ) {
+            Node node = new Node(path, container, key, value);
+            nodes.add(node);
+            values.put(path, node);
+        }
+    }
+
+
+    /**
+     * helper function used to describe one of the cycles among unresolved nodes
+     *
+     * @param nodes List, all nodes, unresolved ones have pending dependencies
+     *
+     * @return String, chain of references
+     */
+    private static String cycle(List<Node> nodes) {
+        //each unresolved node is a dependant of at least one other unresolved node, walk those links backwards
+        Map<Node, Node> dependencyOf = new HashMap<>();
+        for (Node node : nodes) {
+            if ( node.pending > 0 ) {
+                for (Node dependant : node.dependants) {
+                    if ( dependant.pending > 0 ) {
+                        dependencyOf.putIfAbsent(dependant, node);
+                    }
+                }
+            }
+        }
+
+        Node start = null;
+        for (Node node : nodes) {
+            if ( node.pending > 0 ) {
+                start = node;
+                break;
+            }
+        }
+        LinkedHashSet<Node> chain = new LinkedHashSet<>();
+        Node node = start;
+        while ( node != null && chain.add(node) ) {
+            node = dependencyOf.get(node);
+        }
+
+        //keep only the cycle itself and print it in the direction of references
+        List<Node> tCycle = new ArrayList<>();
+        boolean inCycle = false;
+        for (Node tNode : chain) {
+            inCycle |= tNode == node;
+            if ( inCycle ) {
+                tCycle.add(tNode);
+            }
+        }
+        StringBuilder sb = new StringBuilder();
+        for (Node tNode : tCycle) {
+            sb.append("${ctx.").append(tNode.path).append("} -> ");
+        }
+        sb.append("${ctx.").append(node == null ? "" : node.path).append("}");
+
+        return sb.toString();
+    }
+
+}
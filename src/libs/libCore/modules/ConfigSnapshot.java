@@ -0,0 +1,402 @@
+package libs.libCore.modules;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Binary snapshot of the fully merged configuration
+ *
+ * Configuration of a scenario is the result of merging default, global and local config files, activating
+ * the environment and applying -Dctx.* command line switches. With -Dsaf.config.snapshot=true the result,
+ * before macro evaluation, is written to a compact binary file in target/config-snapshots. Next run which uses
+ * the same config files and the same switches maps that file into memory and restores storages from it without
+ * parsing any json.
+ *
+ * Snapshot file name is a SHA-256 hash of paths of top level config files and of ctx.* system properties.
+ * Snapshot contains paths of all merged files, included ones too, together with SHA-256 of their content.
+ * Snapshot is used only if content of all those files is still the same, hashes are computed again only
+ * for files whose size or modification time changed.
+ *
+ * Restored snapshots are kept in memory in immutable form, each scenario gets its own ForkedHashMap of them.
+ */
+@SuppressWarnings("unchecked")
+public final class ConfigSnapshot {
+
+    public static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("saf.config.snapshot", "false"));
+
+    private static final int MAGIC = 0x53414643;
+    private static final int VERSION = 1;
+
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte INTEGER = 2;
+    private static final byte LONG = 3;
+    private static final byte DOUBLE = 4;
+    private static final byte TRUE = 5;
+    private static final byte FALSE = 6;
+    private static final byte MAP = 7;
+    private static final byte LIST = 8;
+
+    private static final Map<String, Snapshot> SNAPSHOTS = new ConcurrentHashMap<>();
+
+    private ConfigSnapshot() {}
+
+    /**
+     * Content of a snapshot file
+     */
+    private static final class Snapshot {
+        private final List<Input> inputs;
+        private final LinkedHashMap<String, PersistentMap<String, Object>> storages;
+
+        private Snapshot(List<Input> inputs, LinkedHashMap<String, PersistentMap<String, Object>> storages) {
+            this.inputs = inputs;
+            this.storages = storages;
+        }
+
+        private boolean isValid() {
+            for (Input input : inputs) {
+                if ( ! input.isValid() ) {
+                    Log.debug("Configuration file " + input.path + " changed since the snapshot was taken");
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Config file merged into a snapshot
+     */
+    private static final class Input {
+        private final String path;
+        private long lastModified;
+        private long size;
+        private final String hash;
+
+        private Input(String path, long lastModified, long size, String hash) {
+            this.path = path;
+            this.lastModified = lastModified;
+            this.size = size;
+            this.hash = hash;
+        }
+
+        private boolean isValid() {
+            File file = new File(path);
+            if ( ! file.isFile() || file.length() != size ) {
+                return false;
+            }
+            if ( file.lastModified() == lastModified ) {
+                return true;
+            }
+            //file was touched, compare its content
+            if ( ! hash.equals(hash(file)) ) {
+                return false;
+            }
+            lastModified = file.lastModified();
+            return true;
+        }
+    }
+
+
+    /**
+     * Computes key of a snapshot
+     *
+     * @param configFiles List, paths to top level config files in the order in which they are merged
+     *
+     * @return String, hex encoded SHA-256
+     */
+    public static String key(List<String> configFiles) {
+        MessageDigest digest = sha256();
+        update(digest, "v" + VERSION);
+        for (String path : configFiles) {
+            update(digest, "file=" + path);
+        }
+        Properties props = System.getProperties();
+        TreeMap<String, String> switches = new TreeMap<>();
+        for (String name : props.stringPropertyNames()) {
+            if ( name.startsWith("ctx.") ) {
+                switches.put(name, props.getProperty(name));
+            }
+        }
+        for (Map.Entry<String, String> entry : switches.entrySet()) {
+            update(digest, "prop=" + entry.getKey() + "=" + entry.getValue());
+        }
+
+        return hex(digest.digest());
+    }
+
+
+    /**
+     * Restores storages from a snapshot into the scenario context
+     *
+     * @param dir File, directory with snapshots
+     * @param key String, key of the snapshot
+     * @param ctx Context, scenario context
+     *
+     * @return true if snapshot exists and is still valid
+     */
+    public static boolean restore(File dir, String key, Context ctx) {
+        Snapshot snapshot = SNAPSHOTS.get(key);
+        if ( snapshot == null ) {
+            File file = new File(dir, key + ".snapshot");
+            if ( ! file.isFile() ) {
+                return false;
+            }
+            snapshot = read(file);
+            if ( snapshot == null ) {
+                return false;
+            }
+        }
+        if ( ! snapshot.isValid() ) {
+            SNAPSHOTS.remove(key);
+            return false;
+        }
+        SNAPSHOTS.put(key, snapshot);
+
+        for (Map.Entry<String, PersistentMap<String, Object>> storage : snapshot.storages.entrySet()) {
+            ctx.put(storage.getKey(), HashMap.class, ForkedHashMap.fork(storage.getValue()));
+        }
+
+        return true;
+    }
+
+
+    /**
+     * Writes snapshot of storages
+     * Storages are frozen before they are written, so they can be still modified by the scenario afterwards.
+     * Snapshot is written to a temporary file first and then moved, so other JVMs never see a partial file.
+     *
+     * @param dir File, directory with snapshots
+     * @param key String, key of the snapshot
+     * @param files Collection, canonical paths of all merged config files
+     * @param storages Map, storage name and its content
+     */
+    public static void save(File dir, String key, Collection<String> files, Map<String, ? extends Map<String, Object>> storages) {
+        if ( SNAPSHOTS.containsKey(key) ) {
+            return;
+        }
+        long start = System.nanoTime();
+
+        List<Input> inputs = new ArrayList<>();
+        for (String path : files) {
+            File file = new File(path);
+            long lastModified = file.lastModified();
+            long size = file.length();
+            String hash = hash(file);
+            if ( hash == null ) {
+                return;
+            }
+            inputs.add(new Input(path, lastModified, size, hash));
+        }
+        LinkedHashMap<String, PersistentMap<String, Object>> frozen = new LinkedHashMap<>();
+        for (Map.Entry<String, ? extends Map<String, Object>> storage : storages.entrySet()) {
+            if ( storage.getValue() != null ) {
+                frozen.put(storage.getKey(), (PersistentMap<String, Object>) ForkedHashMap.freeze(storage.getValue()));
+            }
+        }
+
+        File file = new File(dir, key + ".snapshot");
+        try {
+            Files.createDirectories(dir.toPath());
+            File tmp = File.createTempFile(key, ".tmp", dir);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(inputs.size());
+                for (Input input : inputs) {
+                    writeString(out, input.path);
+                    out.writeLong(input.lastModified);
+                    out.writeLong(input.size);
+                    writeString(out, input.hash);
+                }
+                out.writeInt(frozen.size());
+                for (Map.Entry<String, PersistentMap<String, Object>> storage : frozen.entrySet()) {
+                    writeString(out, storage.getKey());
+                    writeValue(out, storage.getValue());
+                }
+            } catch (IllegalArgumentException e) {
+                Files.deleteIfExists(tmp.toPath());
+                Log.debug("Configuration snapshot not saved. " + e.getMessage());
+                return;
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Log.warn("Can't write configuration snapshot " + file.getAbsolutePath() + ". " + e.getMessage());
+            return;
+        }
+        SNAPSHOTS.put(key, new Snapshot(inputs, frozen));
+
+        Log.debug("Configuration snapshot " + file.getAbsolutePath() + " saved in "
+                + (System.nanoTime() - start) / 1000000 + " ms");
+    }
+
+
+    /**
+     * helper function used to read snapshot file
+     *
+     * @param file File, snapshot file
+     *
+     * @return Snapshot or null if file can't be read or was written by other version
+     */
+    private static Snapshot read(File file) {
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if ( buffer.getInt() != MAGIC || buffer.getInt() != VERSION ) {
+                Log.debug("Configuration snapshot " + file.getAbsolutePath() + " has unknown format");
+                return null;
+            }
+            int nrOfInputs = buffer.getInt();
+            List<Input> inputs = new ArrayList<>(nrOfInputs);
+            for (int i = 0; i < nrOfInputs; i++) {
+                inputs.add(new Input(readString(buffer), buffer.getLong(), buffer.getLong(), readString(buffer)));
+            }
+            int nrOfStorages = buffer.getInt();
+            LinkedHashMap<String, PersistentMap<String, Object>> storages = new LinkedHashMap<>();
+            for (int i = 0; i < nrOfStorages; i++) {
+                String name = readString(buffer);
+                storages.put(name, (PersistentMap<String, Object>) readValue(buffer));
+            }
+            Log.debug("Configuration snapshot " + file.getAbsolutePath() + " read in "
+                    + (System.nanoTime() - start) / 1000000 + " ms");
+
+            return new Snapshot(inputs, storages);
+        } catch (IOException | RuntimeException e) {
+            Log.warn("Can't read configuration snapshot " + file.getAbsolutePath() + ". " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if ( value == null ) {
+            out.writeByte(NULL);
+        } else if ( value instanceof String ) {
+            out.writeByte(STRING);
+            writeString(out, (String) value);
+        } else if ( value instanceof Integer ) {
+            out.writeByte(INTEGER);
+            out.writeInt((Integer) value);
+        } else if ( value instanceof Long ) {
+            out.writeByte(LONG);
+            out.writeLong((Long) value);
+        } else if ( value instanceof Double ) {
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double) value);
+        } else if ( value instanceof Boolean ) {
+            out.writeByte((Boolean) value ? TRUE : FALSE);
+        } else if ( value instanceof PersistentMap ) {
+            PersistentMap<String, Object> map = (PersistentMap<String, Object>) value;
+            out.writeByte(MAP);
+            out.writeInt(map.size());
+            for (Map.Entry<String, Object> entry : map) {
+                writeString(out, entry.getKey());
+                writeValue(out, entry.getValue());
+            }
+        } else if ( value instanceof PersistentVector ) {
+            PersistentVector<Object> list = (PersistentVector<Object>) value;
+            out.writeByte(LIST);
+            out.writeInt(list.size());
+            for (Object item : list) {
+                writeValue(out, item);
+            }
+        } else {
+            throw new IllegalArgumentException("Values of type " + value.getClass().getName() + " are not supported");
+        }
+    }
+
+    private static Object readValue(ByteBuffer buffer) {
+        byte type = buffer.get();
+        switch ( type ) {
+            case NULL:
+                return null;
+            case STRING:
+                return readString(buffer);
+            case INTEGER:
+                return buffer.getInt();
+            case LONG:
+                return buffer.getLong();
+            case DOUBLE:
+                return buffer.getDouble();
+            case TRUE:
+                return Boolean.TRUE;
+            case FALSE:
+                return Boolean.FALSE;
+            case MAP:
+                int size = buffer.getInt();
+                PersistentMap<String, Object> map = PersistentMap.empty();
+                for (int i = 0; i < size; i++) {
+                    String key = readString(buffer);
+                    map = map.assoc(key, readValue(buffer));
+                }
+                return map;
+            case LIST:
+                int length = buffer.getInt();
+                PersistentVector<Object> list = PersistentVector.empty();
+                for (int i = 0; i < length; i++) {
+                    list = list.cons(readValue(buffer));
+                }
+                return list;
+            default:
+                throw new IllegalStateException("Unknown value type " + type + " at position " + (buffer.position() - 1));
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String hash(File file) {
+        MessageDigest digest = sha256();
+        byte[] chunk = new byte[64 * 1024];
+        try (InputStream in = new FileInputStream(file)) {
+            int n;
+            while ( (n = in.read(chunk)) != -1 ) {
+                digest.update(chunk, 0, n);
+            }
+        } catch (IOException e) {
+            Log.debug("Can't read " + file.getAbsolutePath() + ". " + e.getMessage());
+            return null;
+        }
+
+        return hex(digest.digest());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            Log.error("", e);
+        }
+        return null;
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+}
@@ -1,43 +1,89 @@
 package libs.libCore.modules;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.function.Supplier;
 
+/**
+ * Container of objects shared between steps
+ *
+ * Objects are identified by the pair name, type so there can be multiple objects with the same name
+ * but of different types. All of them are kept in one flat open addressing table with linear probing
+ * so neither put nor get allocates anything except when the table grows.
+ *
+ * Objects can be registered lazily via putLazy, in such case they are built on first access.
+ *
+ * Lookups are not logged. Set -Dsaf.context.traceMisses=true to log lookups of objects that do not exist.
+ */
 public class Context {
 
-    private final Map<String, Map<Class<?>, Object>> internalMap;
+    private static final boolean TRACE_MISSES = Boolean.getBoolean("saf.context.traceMisses");
+    private static final int INITIAL_CAPACITY = 64;
+
+    private String[] names;
+    private Class<?>[] types;
+    private Object[] values;
+    private int[] hashes;
+    private int size;
 
     public Context() {
-        internalMap = new HashMap<>();
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Creates context which can be safely shared between threads
+     * Used for Global context
+     *
+     * @return Context
+     */
+    public static Context synchronizedContext() {
+        return new SynchronizedContext();
     }
 
     /**
-     * Puts an object into the context in a form of HashMap
+     * Puts an object into the context
      *
      * @param textKey String, object name
      * @param typeKey Class, object type
      * @param value Generic, object value
      */
     public <T> void put(String textKey, Class<T> typeKey, T value) {
-        Map<Class<?>, Object> mapForTextKey = getMapForTextKey(textKey);
-        mapForTextKey.put(typeKey, value);
-        Log.debug("Ctx object " + textKey + " of type " + typeKey.toString() + " created or modified");
+        if ( textKey == null ) {
+            Log.error("Name of ctx object of type " + typeKey.getName() + " can't be null!");
+        }
+        put(textKey, typeKey, ContextKey.hash(textKey, typeKey), value);
     }
 
     /**
-     * Gets internal map of object types for particular object name
-     * helper function
-     *
+     * Puts an object into the context
      * If object already exist its content will be updated else it will be created
-     * There can be multiple object with the same name but of different types
      *
-     * @param textKey object name
-     * @return HashMap
+     * @param key ContextKey, object name and type
+     * @param value Generic, object value
+     */
+    public <T> void put(ContextKey<T> key, T value) {
+        put(key.getName(), key.getType(), key.getHash(), value);
+    }
+
+    /**
+     * Registers provider of an object which is built on first access
+     * Provider is called at most once, its result replaces the provider in the context
+     *
+     * @param key ContextKey, object name and type
+     * @param provider Supplier, function used to build the object
+     */
+    public <T> void putLazy(ContextKey<T> key, Supplier<? extends T> provider) {
+        put(key.getName(), key.getType(), key.getHash(), new Lazy(key, provider));
+    }
+
+    /**
+     * Checks if object of particular name and type exists in the context and is not waiting to be built
+     *
+     * @param key ContextKey, object name and type
+     *
+     * @return boolean
      */
-    private Map<Class<?>, Object> getMapForTextKey(String textKey) {
-        if (!internalMap.containsKey(textKey))
-            internalMap.put(textKey, new HashMap<>());
-        return internalMap.get(textKey);
+    public boolean isBuilt(ContextKey<?> key) {
+        int idx = indexOf(key.getName(), key.getType(), key.getHash());
+        return idx >= 0 && ! (values[idx] instanceof Lazy);
     }
 
     /**
@@ -49,34 +95,211 @@ public class Context {
      * @return object from context
      */
     public <T> T get(String textKey, Class<T> typeKey) {
-        Object untypedValue = getUntyped(textKey, typeKey);
+        int idx = indexOf(textKey, typeKey, ContextKey.hash(textKey, typeKey));
         // the cast can not fail because:
         // - if there is no value for those keys, the argument is null,
         //      which can always be cast
         // - if there is a value for those keys, `put` made sure that
         //      its type matches the type used as a key
-        return typeKey.cast(untypedValue);
+        return typeKey.cast(valueAt(idx, textKey, typeKey));
     }
 
+    /**
+     * Retrieves object of particular type and name
+     *
+     * @param key ContextKey, object name and type
+     *
+     * @return object from context
+     */
+    public <T> T get(ContextKey<T> key) {
+        int idx = indexOf(key.getName(), key.getType(), key.getHash());
+        return key.getType().cast(valueAt(idx, key.getName(), key.getType()));
+    }
 
     /**
-     * Retrieves object with particular name and type
-     * helper function
+     * Checks if object of particular name and type exists in the context
      *
-     * @param textKey object name
-     * @return HashMap
+     * @param key ContextKey, object name and type
+     *
+     * @return boolean
+     */
+    public boolean contains(ContextKey<?> key) {
+        return indexOf(key.getName(), key.getType(), key.getHash()) >= 0;
+    }
+
+    /**
+     * helper function used to store value in the table
+     *
+     * @param name String, object name
+     * @param type Class, object type
+     * @param hash int, hash of the pair name, type
+     * @param value Object, object value
+     */
+    private void put(String name, Class<?> type, int hash, Object value) {
+        int mask = names.length - 1;
+        int idx = hash & mask;
+        while ( names[idx] != null ) {
+            if ( hashes[idx] == hash && types[idx] == type && names[idx].equals(name) ) {
+                values[idx] = value;
+                return;
+            }
+            idx = (idx + 1) & mask;
+        }
+
+        names[idx] = name;
+        types[idx] = type;
+        hashes[idx] = hash;
+        values[idx] = value;
+
+        //keep load factor at or below 0.5 so probe sequences stay short
+        if ( ++size * 2 > names.length ) {
+            resize();
+        }
+    }
+
+    /**
+     * helper function used to find slot of particular object
+     *
+     * @param name String, object name
+     * @param type Class, object type
+     * @param hash int, hash of the pair name, type
+     *
+     * @return int, slot number or -1 if object does not exist
      */
-    private Object getUntyped(String textKey, Class<?> typeKey) {
-        if (internalMap.containsKey(textKey)) {
-            return internalMap.get(textKey).get(typeKey);
-        } else {
-            Log.warn("Ctx obj with key " + textKey + " does not exists or null!");
+    private int indexOf(String name, Class<?> type, int hash) {
+        int mask = names.length - 1;
+        int idx = hash & mask;
+        String candidate;
+        while ( (candidate = names[idx]) != null ) {
+            if ( hashes[idx] == hash && types[idx] == type && candidate.equals(name) ) {
+                return idx;
+            }
+            idx = (idx + 1) & mask;
+        }
+
+        return -1;
+    }
+
+    private Object valueAt(int idx, String name, Class<?> type) {
+        if ( idx < 0 ) {
+            if ( TRACE_MISSES ) {
+                Log.warn("Ctx obj with key " + name + " of type " + type.getName() + " does not exists or null!");
+            }
             return null;
         }
+
+        Object value = values[idx];
+        if ( value instanceof Lazy ) {
+            value = ((Lazy) value).build();
+            //table could be resized while dependencies of the object were built
+            int current = indexOf(name, type, ContextKey.hash(name, type));
+            if ( current >= 0 && values[current] instanceof Lazy ) {
+                values[current] = value;
+            }
+        }
+
+        return value;
     }
 
-    //public void clear () {
-    //    internalMap.clear();
-    //}
+    private void resize() {
+        String[] oldNames = names;
+        Class<?>[] oldTypes = types;
+        Object[] oldValues = values;
+        int[] oldHashes = hashes;
+
+        allocate(oldNames.length * 2);
+        int mask = names.length - 1;
+        for (int i = 0; i < oldNames.length; i++) {
+            if ( oldNames[i] != null ) {
+                int idx = oldHashes[i] & mask;
+                while ( names[idx] != null ) {
+                    idx = (idx + 1) & mask;
+                }
+                names[idx] = oldNames[i];
+                types[idx] = oldTypes[i];
+                hashes[idx] = oldHashes[i];
+                values[idx] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Placeholder of an object which is built on first access
+     */
+    private static final class Lazy {
+
+        private final ContextKey<?> key;
+        private Supplier<?> provider;
+        private Object value;
+        private boolean building;
+
+        private Lazy(ContextKey<?> key, Supplier<?> provider) {
+            this.key = key;
+            this.provider = provider;
+        }
+
+        private Object build() {
+            if ( provider == null ) {
+                return value;
+            }
+            if ( building ) {
+                Log.error("Circular dependency detected while building ctx obj " + key);
+            }
+            building = true;
+            try {
+                value = provider.get();
+                provider = null;
+            } finally {
+                building = false;
+            }
+
+            return value;
+        }
+    }
+
+    private static final class SynchronizedContext extends Context {
+
+        @Override
+        public synchronized <T> void put(String textKey, Class<T> typeKey, T value) {
+            super.put(textKey, typeKey, value);
+        }
+
+        @Override
+        public synchronized <T> void put(ContextKey<T> key, T value) {
+            super.put(key, value);
+        }
+
+        @Override
+        public synchronized <T> T get(String textKey, Class<T> typeKey) {
+            return super.get(textKey, typeKey);
+        }
+
+        @Override
+        public synchronized <T> T get(ContextKey<T> key) {
+            return super.get(key);
+        }
+
+        @Override
+        public synchronized boolean contains(ContextKey<?> key) {
+            return super.contains(key);
+        }
+
+        @Override
+        public synchronized <T> void putLazy(ContextKey<T> key, Supplier<? extends T> provider) {
+            super.putLazy(key, provider);
+        }
+
+        @Override
+        public synchronized boolean isBuilt(ContextKey<?> key) {
+            return super.isBuilt(key);
+        }
+    }
+
+    private void allocate(int capacity) {
+        names = new String[capacity];
+        types = new Class<?>[capacity];
+        values = new Object[capacity];
+        hashes = new int[capacity];
+    }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,87 @@
+package libs.libCore.modules;
+
+/**
+ * Typed key of an object kept in the Context
+ *
+ * Key consists of object name and object type. Hash is computed once when the key is created
+ * so lookups done with a key held in a static field cost only a single probe of the Context table.
+ *
+ * @param <T> type of the object
+ */
+public final class ContextKey<T> {
+
+    private final String name;
+    private final Class<T> type;
+    private final int hash;
+
+    private ContextKey(String name, Class<T> type) {
+        this.name = name;
+        this.type = type;
+        this.hash = hash(name, type);
+    }
+
+    /**
+     * Creates key for object of particular name and type
+     *
+     * @param name String, object name
+     * @param type Class, object type
+     *
+     * @return ContextKey
+     */
+    public static <T> ContextKey<T> of(String name, Class<T> type) {
+        if ( name == null || type == null ) {
+            throw new IllegalArgumentException("Name and type of the ctx key can't be null!");
+        }
+
+        return new ContextKey<>(name, type);
+    }
+
+    /**
+     * helper function used to compute hash of the pair name, type
+     * Shared with Context so keys and plain string lookups land in the same slot
+     *
+     * @param name String, object name
+     * @param type Class, object type
+     *
+     * @return int
+     */
+    static int hash(String name, Class<?> type) {
+        int h = (name == null ? 0 : name.hashCode()) * 31 + type.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Class<T> getType() {
+        return type;
+    }
+
+    int getHash() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if ( this == o ) {
+            return true;
+        }
+        if ( ! (o instanceof ContextKey) ) {
+            return false;
+        }
+        ContextKey<?> other = (ContextKey<?>) o;
+        return type == other.type && name.equals(other.name);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return name + " of type " + type.getName();
+    }
+
+}
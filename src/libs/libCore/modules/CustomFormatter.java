@@ -5,7 +5,6 @@ import cucumber.api.Result;
 import cucumber.api.event.*;
 import cucumber.api.event.EventHandler;
 import cucumber.api.formatter.Formatter;
-import io.qameta.allure.Attachment;
 import io.restassured.RestAssured;
 import io.restassured.config.DecoderConfig;
 import io.restassured.config.LogConfig;
@@ -13,12 +12,6 @@ import org.apache.commons.lang.StringUtils;
 import org.apache.logging.log4j.Level;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.apache.logging.log4j.core.Appender;
-import org.apache.logging.log4j.core.LoggerContext;
-import org.apache.logging.log4j.core.appender.OutputStreamAppender;
-import org.apache.logging.log4j.core.config.Configuration;
-import org.apache.logging.log4j.core.config.LoggerConfig;
-import org.apache.logging.log4j.core.layout.PatternLayout;
 import org.apache.logging.log4j.io.IoBuilder;
 import org.apache.logging.log4j.status.StatusLogger;
 import org.openqa.selenium.WebDriverException;
@@ -51,6 +44,11 @@ public class CustomFormatter implements Formatter {
     private PageCore PageCore;
     private Storage Storage;
 
+    //spans of the whole run and of the feature being executed, see Tracer
+    private Tracer.Span runSpan;
+    private Tracer.Span featureSpan;
+    private String featureUri;
+
     private EventHandler<TestStepFinished> stepFinishedHandler = new EventHandler<TestStepFinished>() {
         @Override
         public void receive(TestStepFinished event) {
@@ -108,6 +106,7 @@ public class CustomFormatter implements Formatter {
 
     private void handleTestRunStarted(TestRunStarted event){
 
+        runSpan = Tracer.begin("run", "Test run");
         PropertyReader.readSystemProperties();
         Log.info("");
         Log.info("");
@@ -135,6 +134,22 @@ public class CustomFormatter implements Formatter {
 
         ThreadContext.initializeContext("Global");
 
+        //time all REST requests, see Metrics and Tracer
+        RestAssured.filters((requestSpec, responseSpec, filterCtx) -> {
+            Metrics.Sample tSample = Metrics.start("http." + requestSpec.getMethod());
+            try {
+                return filterCtx.next(requestSpec, responseSpec);
+            } finally {
+                tSample.stop();
+            }
+        });
+
+        //index templates and config files once for the whole run, local resources are indexed on first use
+        String projectPath = new FileCore().getProjectPath();
+        ResourceIndex.warmUp(projectPath + File.separator + "templates",
+                projectPath + File.separator + "config",
+                projectPath + File.separator + "libs");
+
         Log.info("");
         Log.info("");
         Log.info("+-------------------------------------------------------------+");
@@ -152,6 +167,14 @@ public class CustomFormatter implements Formatter {
         Log.info("+-------------------------------------------------------------+");
         Log.info("");
 
+        ModuleRegistry.report();
+        AttachmentWriter.report();
+
+        //write step and remote operation latencies of the whole run, see Metrics
+        String projectPath = new FileCore().getProjectPath();
+        File targetDir = new File(projectPath.substring(0, projectPath.length() - 14) + File.separator + "target");
+        Metrics.report(targetDir);
+
         Context threadCtx = ThreadContext.getContext("Global");
         EventFiringWebDriver Page = threadCtx.get("Page", EventFiringWebDriver.class);
         if ( Page != null ) {
@@ -174,10 +197,17 @@ public class CustomFormatter implements Formatter {
             Log.debug("Driver cleanup done");
         }
 
+        //write timeline of the whole run
+        if ( featureSpan != null ) {
+            featureSpan.end();
+        }
+        runSpan.end();
+        Tracer.write(targetDir);
 
     }
 
     private void handleTestStepStarted(TestStepStarted event){
+        Tracer.Span stepSpan;
         if(event.testStep instanceof PickleStepTestStep){
             PickleStepTestStep ev = (PickleStepTestStep)event.testStep;
             Log.info("");
@@ -185,9 +215,13 @@ public class CustomFormatter implements Formatter {
             Log.info("* Step started " + ev.getStepText());
             Log.info("+-------------------------------------------------------------+");
             Log.info("");
+            stepSpan = Tracer.begin("step", ev.getStepText());
+        } else {
+            stepSpan = Tracer.begin("hook", event.testStep.getCodeLocation());
         }
 
         Context scenarioCtx = ThreadContext.getContext("Scenario");
+        scenarioCtx.put("StepSpan", Tracer.Span.class, stepSpan);
         Integer stepCounter = scenarioCtx.get("ScenarioStepsCounter", Integer.class);
         stepCounter++;
         scenarioCtx.put("ScenarioStepsCounter", Integer.class, stepCounter);
@@ -195,7 +229,19 @@ public class CustomFormatter implements Formatter {
     }
 
     private void handleTestStepFinished(TestStepFinished event){
+        //record duration of the step per step definition, undefined steps are identified by their text
+        if ( event.testStep instanceof PickleStepTestStep ) {
+            PickleStepTestStep step = (PickleStepTestStep) event.testStep;
+            String definition = step.getPattern() != null ? step.getPattern() : step.getStepText();
+            Long duration = event.result.getDuration();
+            if ( duration != null && ( event.result.is(Result.Type.PASSED) || event.result.is(Result.Type.FAILED) ) ) {
+                Metrics.record(Metrics.STEP, definition, duration);
+            }
+            Metrics.increment("steps." + event.result.getStatus().lowerCaseName());
+        }
+
         Context scenarioCtx = ThreadContext.getContext("Scenario");
+        scenarioCtx.get("StepSpan", Tracer.Span.class).end();
         String testCaseName = scenarioCtx.get("ScenarioName", String.class);
         Integer scenarioStepsListSize = scenarioCtx.get("scenarioStepsListSize", Integer.class);
         Integer scenarioStepsCounter = scenarioCtx.get("ScenarioStepsCounter", Integer.class);
@@ -204,6 +250,7 @@ public class CustomFormatter implements Formatter {
         //it has to be used instead of TestCaseFinished event because otherwise scenario log
         //will not be properly attached to the report
         if ( scenarioStepsCounter.equals(scenarioStepsListSize) ){
+            Tracer.Span teardownSpan = Tracer.begin("teardown", "Scenario teardown");
             Log.info("");
             Log.info("+-------------------------------------------------------------+");
             Log.info("*** Scenario with name: " + testCaseName + " ended! ***");
@@ -301,43 +348,45 @@ public class CustomFormatter implements Formatter {
                     }
                 }
 
-                WinRSCore WinRSCore = scenarioCtx.get("WinRSCore", WinRSCore.class);
-                WinRSCore.closeWiniumResources();
+                ModuleRegistry modules = scenarioCtx.get("ModuleRegistry", ModuleRegistry.class);
+                if ( modules.isBuilt("WinRSCore", WinRSCore.class) ) {
+                    WinRSCore WinRSCore = scenarioCtx.get("WinRSCore", WinRSCore.class);
+                    WinRSCore.closeWiniumResources();
+                }
                 Log.debug("Driver cleanup done");
             }
 
-            // Close DB connection
-            SqlCore SqlCore = scenarioCtx.get("SqlCore", SqlCore.class);
-            SqlCore.close();
-
-            //Close ssh connection
-            SshCore SshCore = scenarioCtx.get("SshCore", SshCore.class);
-            SshCore.closeClient();
-
-            //Close winRM connection
-            WinRMCore WinRMCore = scenarioCtx.get("WinRMCore", WinRMCore.class);
-            WinRMCore.closeClient();
+            // Close DB, ssh and winRM connections of modules used in this scenario
+            ModuleRegistry modules = scenarioCtx.get("ModuleRegistry", ModuleRegistry.class);
+            modules.teardown();
 
             Log.info("Finished resources clean up");
             //this is used to add per scenario log to the report
-            ByteArrayOutputStream out = scenarioCtx.get("ScenarioLogAppender", ByteArrayOutputStream.class);
-            attachLogToReport(out);
+            ScenarioLog scenarioLog = scenarioCtx.get("ScenarioLog", ScenarioLog.class);
+            scenarioLog.attachToReport("Log");
+            teardownSpan.end();
         }
 
     }
 
     private void handleTestCaseStarted(TestCaseStarted event) {
 
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-
-        //this is used to add per scenario log to report with unique name
-        long logging_start = System.nanoTime();
+        //feature span lasts until first scenario of another feature is started
+        if ( ! event.testCase.getUri().equals(featureUri) ) {
+            if ( featureSpan != null ) {
+                featureSpan.end();
+            }
+            featureUri = event.testCase.getUri();
+            featureSpan = Tracer.begin("feature", featureUri);
+        }
+        Tracer.Span scenarioSpan = Tracer.begin("scenario", event.testCase.getName());
+        Tracer.Span setupSpan = Tracer.begin("setup", "Scenario setup");
 
         //initialize Logger class, without this line log for the first scenario will not be attached
         Log.info("");
 
-        //add appender to attach log for particular scenario to the report
-        addAppender(out, event.testCase.getName() + logging_start);
+        //open log of particular scenario which is attached to the report
+        ScenarioLog scenarioLog = ScenarioLog.open();
 
         String fileContent = "";
         try {
@@ -401,189 +450,69 @@ public class CustomFormatter implements Formatter {
         /* Global resources load */
         Log.info("Started resources initialisation");
 
-        FileCore fileCore = new FileCore();
-        scenarioCtx.put("FileCore", FileCore.class, fileCore);
-
-        ConfigReader Config = new ConfigReader();
-        scenarioCtx.put("Config", ConfigReader.class, Config);
-
-        Storage storage = new Storage();
-        scenarioCtx.put("Storage", Storage.class, storage);
-
-        PropertyReader env = new PropertyReader();
-        scenarioCtx.put("Environment", PropertyReader.class, env);
-
-        Macro macro = new Macro();
-        scenarioCtx.put("Macro", Macro.class, macro);
-
-        ExecutorCore executorCore = new ExecutorCore();
-        scenarioCtx.put("ExecutorCore", ExecutorCore.class, executorCore);
-
-        AssertCore assertCore = new AssertCore();
-        scenarioCtx.put("AssertCore", AssertCore.class, assertCore);
-
-        PdfCore pdfCore = new PdfCore();
-        scenarioCtx.put("PdfCore", PdfCore.class, pdfCore);
-
-        SshCore sshCore = new SshCore();
-        scenarioCtx.put("SshCore", SshCore.class, sshCore);
-
-        WinRMCore winRmCore = new WinRMCore();
-        scenarioCtx.put("WinRMCore", WinRMCore.class, winRmCore);
-
-        SqlCore sqlCore = new SqlCore();
-        scenarioCtx.put("SqlCore", SqlCore.class, sqlCore);
-
-        StepCore step = new StepCore();
-        scenarioCtx.put("StepCore", StepCore.class, step);
-
-        CloudDirectorCore cloudDirectorCore = new CloudDirectorCore();
-        scenarioCtx.put("CloudDirectorCore", CloudDirectorCore.class, cloudDirectorCore);
-
-        WinRSCore winRSCore = new WinRSCore();
-        scenarioCtx.put("WinRSCore", WinRSCore.class, winRSCore);
+        //modules are built on first access and torn down at the end of scenario only if they were used
+        ModuleRegistry modules = new ModuleRegistry(scenarioCtx);
+        scenarioCtx.put("ModuleRegistry", ModuleRegistry.class, modules);
+
+        modules.register("FileCore", FileCore.class, FileCore::new);
+        modules.register("Config", ConfigReader.class, ConfigReader::new);
+        modules.register("Storage", Storage.class, Storage::new);
+        modules.register("Environment", PropertyReader.class, PropertyReader::new);
+        modules.register("Macro", Macro.class, Macro::new);
+        modules.register("ExecutorCore", ExecutorCore.class, ExecutorCore::new);
+        modules.register("AssertCore", AssertCore.class, AssertCore::new);
+        modules.register("PdfCore", PdfCore.class, PdfCore::new);
+        modules.register("SshCore", SshCore.class, SshCore::new, SshCore::closeClient);
+        modules.register("WinRMCore", WinRMCore.class, WinRMCore::new, WinRMCore::closeClient);
+        modules.register("SqlCore", SqlCore.class, SqlCore::new, SqlCore::close);
+        modules.register("StepCore", StepCore.class, StepCore::new);
+        modules.register("CloudDirectorCore", CloudDirectorCore.class, CloudDirectorCore::new);
+        modules.register("WinRSCore", WinRSCore.class, WinRSCore::new);
 
         //get resources from ctx object
         FileCore FileCore = scenarioCtx.get("FileCore", FileCore.class);
+        ConfigReader Config = scenarioCtx.get("Config", ConfigReader.class);
         Macro Macro = scenarioCtx.get("Macro", Macro.class);
         StepCore = scenarioCtx.get("StepCore", StepCore.class);
         Storage = scenarioCtx.get("Storage", Storage.class);
 
-        Log.info("<- reading default configuration ->");
         String defaultConfigDir = FileCore.getProjectPath() + File.separator + "libs" + File.separator + "libCore" + File.separator + "config";
-        Log.debug("Default configuration directory is " + defaultConfigDir);
+        String globalConfigDir = FileCore.getGlobalConfigPath();
+        String featureDir = FileCore.getCurrentFeatureDirPath();
 
         ArrayList<String> defaultConfigFiles = FileCore.searchForFile(defaultConfigDir,".config");
-        if(defaultConfigFiles.size()!=0) {
-            for (String configFile : defaultConfigFiles) {
-                Config.create(configFile);
-            }
-        }
+        ArrayList<String> globalConfigFiles = FileCore.searchForFile(globalConfigDir, ".config");
+        ArrayList<String> localConfigFiles = featureDir == null ? new ArrayList<>() : FileCore.searchForFile(featureDir,".config");
 
-        Log.info("<- reading global configuration ->");
-        String globalConfigDir = FileCore.getGlobalConfigPath();
-        Log.debug("Global configuration directory is " + globalConfigDir);
+        //all config files in the order in which they are merged
+        List<String> allConfigFiles = new ArrayList<>(defaultConfigFiles);
+        allConfigFiles.addAll(globalConfigFiles);
+        allConfigFiles.addAll(localConfigFiles);
 
-        Boolean useProjectConfig = Storage.get("Environment.Default.UseProjectConfig");
-        if ( useProjectConfig ){
-            Log.debug("Looking for a project.config file");
-            String projFilePath = globalConfigDir + File.separator + "project.config";
-            File projFile = new File(projFilePath);
-            if (projFile.exists() && !projFile.isDirectory()) {
-                Log.debug("Reading project global configuration from " + projFilePath);
-                Config.create(projFilePath);
-            } else {
-                Log.error(projFilePath + " does not exists!");
-            }
+        //restore merged configuration from a snapshot if possible, see ConfigSnapshot
+        String targetDirPath = FileCore.getProjectPath().substring(0, FileCore.getProjectPath().length() - 14) + File.separator + "target";
+        File snapshotDir = new File(targetDirPath + File.separator + "config-snapshots");
+        String snapshotKey = ConfigSnapshot.ENABLED ? ConfigSnapshot.key(allConfigFiles) : null;
+        if ( snapshotKey != null && ConfigSnapshot.restore(snapshotDir, snapshotKey, scenarioCtx) ) {
+            Log.info("<- configuration restored from snapshot " + snapshotKey + " ->");
         } else {
-            Log.warn("Project.config usage switched off. Going to read global configuration in alphabetical order");
-            ArrayList<String> globalConfigFiles = FileCore.searchForFile(globalConfigDir, ".config");
-            if (globalConfigFiles.size() != 0) {
-                for (String configFile : globalConfigFiles) {
-                    Config.create(configFile);
+            readConfiguration(Config, allConfigFiles, defaultConfigFiles, globalConfigFiles, localConfigFiles,
+                    defaultConfigDir, globalConfigDir, featureDir);
+            if ( snapshotKey != null ) {
+                Map<String, HashMap<String, Object>> storages = new LinkedHashMap<>();
+                for (String name : Config.getMergedStorages()) {
+                    storages.put(name, scenarioCtx.get(name, HashMap.class));
                 }
+                ConfigSnapshot.save(snapshotDir, snapshotKey, Config.getMergedFiles(), storages);
             }
         }
-
-        //configuring logger for rest operations
-        ToLoggerPrintStream loggerPrintStream = new ToLoggerPrintStream();
-        Log.info("Finished resources initialisation");
-
-        /* Local resources load */
-        Log.info("<- Started local config load ->");
-        String featureDir = FileCore.getCurrentFeatureDirPath();
-
-        Log.debug("Feature dir is " + featureDir);
         if( featureDir != null ){
             scenarioCtx.put("FeatureFileDir", String.class, featureDir);
-
-            ArrayList<String> localConfigFiles = FileCore.searchForFile(featureDir,".config");
-            if( localConfigFiles.size()!= 0 ) {
-                for ( String configFile : localConfigFiles ) {
-                    Config.create(configFile);
-                }
-            }else{
-                Log.warn("No local config files found!");
-            }
         }
-
-        //all global and local configuration loaded.
-        //prepare environment config
-        Log.debug("Checking default environment configuration");
-        HashMap<String, Object> defaultEnvConfig = Storage.get("Environment.Default");
-        HashMap<String, Object> sshConfig = Storage.get("Ssh");
-        HashMap<String, Object> winRmConfig = Storage.get("WinRM");
         Map<String, Object> finalEnvConfig = Storage.get("Environment.Active");
-        if ( defaultEnvConfig == null || defaultEnvConfig.size() == 0 ){
-            Log.error("Default configuration Environment."
-                    + " Default not found or empty. Please create it!");
-        }
-        if ( finalEnvConfig == null ) {
-            Log.error("Environment.Active object does not exists or null."
-                    + " Please create such entry in global configuration");
-        }
-        if ( sshConfig == null ) {
-            Log.error("Ssh object does not exists or null. Please create it!");
-        }
-        if ( winRmConfig == null ) {
-            Log.error("WinRM object does not exists or null. Please create it!");
-        }
-        //merge ssh with default
-        defaultEnvConfig.put("Ssh", sshConfig);
-        //merge winRM with default
-        defaultEnvConfig.put("WinRM", winRmConfig);
 
-        //check if cmd argument active_env was provided to overwrite active_env
-        String cmd_arg  = System.getProperty("ctx.Environment.Active.name");
-        if ( cmd_arg != null ) {
-            Log.info("Property Environment.Active.name overwritten by CMD arg -Dctx.Environment.Active.name=" + cmd_arg);
-            Storage.set("Environment.Active.name", cmd_arg);
-        }
-        //read name of the environment that shall be activated
-        Log.debug("Checking active environment configuration");
-        String actEnvName = Storage.get("Environment.Active.name");
-        if ( actEnvName == null || actEnvName.equals("") || actEnvName.equalsIgnoreCase("default") ) {
-            Log.debug("Environment.Active.name not set! Fallback to Environment.Default");
-        } else {
-            //check if config with such name exists else fallback to default
-            HashMap<String, Object> activeEnvConfig = Storage.get("Environment." + actEnvName);
-            if ( activeEnvConfig == null || activeEnvConfig.size() == 0 ){
-                Log.error("Environment config with name " + actEnvName + " not found or empty");
-            }
-            //merge default and active
-            deepMerge(defaultEnvConfig, activeEnvConfig);
-            defaultEnvConfig = Storage.get("Environment.Default");
-        }
-        //create final
-        deepMerge(finalEnvConfig, defaultEnvConfig);
-
-        //
-        // Use with caution! inappropriate usage may cause run time exception
-        //
-        Log.debug("Checking provided command line switches");
-        Properties props = System.getProperties();
-        Set<Object> propsSet = props.keySet();
-        Integer nrOfSwitches = 0;
-        for(Object key : propsSet ){
-            if ( key.toString().contains("ctx.TestData.") ||
-                    key.toString().contains("ctx.Environment.") ||
-                    key.toString().contains("ctx.Expected.") ){
-
-                Log.debug("Trying to overwrite value of " + key.toString().substring(4,key.toString().length()) + " due to usage of command line switch -D" + key.toString());
-
-                Object obj = StepCore.checkIfInputIsVariable(props.get(key.toString()).toString());
-                Log.debug("Class of " + key.toString().substring(4,key.toString().length()) + " is " + obj.getClass().getName());
-
-                Storage.set(key.toString().substring(4,key.toString().length()), obj);
-                nrOfSwitches++;
-            }
-        }
-        if ( nrOfSwitches == 0 ){
-            Log.warn("No command line switches found");
-        }
-        //
-        //
-        //
+        //configuring logger for rest operations
+        ToLoggerPrintStream loggerPrintStream = new ToLoggerPrintStream();
 
         //adjust default RestAssured config
         Log.debug("adjusting RestAssured config");
@@ -654,23 +583,21 @@ public class CustomFormatter implements Formatter {
         //evaluate macros
         if( doMacroEval ){
             Log.info("Evaluating macros in TestData and Expected objects");
-            Macro.eval("TestData");
-            Macro.eval("Expected");
+            Macro.eval("TestData", "Expected");
         }
 
         //allow to use values from one entity in other entities of Storage
-        evaluateConfigEntities(Storage.get("Environment.Active"));
-        evaluateConfigEntities(Storage.get("TestData"));
-        evaluateConfigEntities(Storage.get("Expected"));
+        LinkedHashMap<String, Map<String, Object>> entities = new LinkedHashMap<>();
+        entities.put("Environment.Active", Storage.get("Environment.Active"));
+        entities.put("TestData", Storage.get("TestData"));
+        entities.put("Expected", Storage.get("Expected"));
+        ConfigResolver.resolve(entities, StepCore::checkIfInputIsVariable);
 
         //add information about used test environment to the report only if environment.properties file does not exist
-        String targetDirPath = FileCore.getProjectPath().substring(0, FileCore.getProjectPath().length() - 14) + File.separator + "target";
         File allureEnvironment = new File(targetDirPath + File.separator + "allure-results" + File.separator + "environment.properties");
 
         if ( ! Files.exists(allureEnvironment.toPath()) ) {
             Log.info("Adding environment information to the report");
-            //allow to use config entities concatenation in storage, evaluate them and change to final value
-            //evaluateConfigEntities(Storage.get("Environment.Active.WriteToReport"));
 
             //create properties list from a hashmap
             //give possibility to write each line of a list as a separate property???
@@ -737,8 +664,7 @@ public class CustomFormatter implements Formatter {
         //print storage
         Log.info("-- Following configuration Environment.Active is going to be used --");
         for (HashMap.Entry<String, Object> entry : finalEnvConfig.entrySet()) {
-            String[] tmp = entry.getValue().getClass().getName().split(Pattern.quote(".")); // Split on period.
-            String type = tmp[2];
+            String type = libs.libCore.modules.Storage.typeOf(entry.getValue());
             Log.info( "(" + type + ")" + entry.getKey() + " = " + entry.getValue() );
         }
         Log.info("-- end --");
@@ -753,51 +679,158 @@ public class CustomFormatter implements Formatter {
         Log.info("+-------------------------------------------------------------+");
         Log.info("");
 
-        scenarioCtx.put("ScenarioLogAppender", ByteArrayOutputStream.class, out);
+        scenarioCtx.put("ScenarioLog", ScenarioLog.class, scenarioLog);
+        scenarioCtx.put("ScenarioSpan", Tracer.Span.class, scenarioSpan);
+        setupSpan.end();
 
     }
 
     private void handleTestCaseFinished(TestCaseFinished event){
+        Metrics.increment("scenarios." + event.result.getStatus().lowerCaseName());
+
         Context scenarioCtx = ThreadContext.getContext("Scenario");
         //this is used to add per scenario log to the report
-        ByteArrayOutputStream out = scenarioCtx.get("ScenarioLogAppender", ByteArrayOutputStream.class);
-        out.reset();
+        ScenarioLog scenarioLog = scenarioCtx.get("ScenarioLog", ScenarioLog.class);
+        scenarioLog.close();
+        scenarioCtx.get("ScenarioSpan", Tracer.Span.class).end();
 
         ThreadContext.removeContext("Scenario");
     }
 
-    @Attachment(value="Log", type="text/plain")
-    public byte[] attachLogToReport(ByteArrayOutputStream out){
-        return out.toByteArray();
-    }
-
-
     /**
-     * helper function used to add per scenario log to the report
-     * it adds additional appender
-     *
-     * @param outputStream
-     * @param outputStreamName
+     * helper function used to read default, global and local configuration, activate the environment
+     * and apply command line switches
      */
-    private static void addAppender(final OutputStream outputStream, final String outputStreamName) {
-        LoggerContext context = LoggerContext.getContext(false);
-        Configuration config = context.getConfiguration();
+    private void readConfiguration(ConfigReader Config, List<String> allConfigFiles, List<String> defaultConfigFiles,
+                                   List<String> globalConfigFiles, List<String> localConfigFiles,
+                                   String defaultConfigDir, String globalConfigDir, String featureDir) {
+        //parse all config files concurrently, content is merged below one file after another in the usual order
+        Config.preload(allConfigFiles);
+
+        Log.info("<- reading default configuration ->");
+        Log.debug("Default configuration directory is " + defaultConfigDir);
 
-        PatternLayout layout = PatternLayout.newBuilder()
-                .withPattern("%d{yyyy-MM-dd HH:mm:ss.SSS} [%-5level] %msg%n")
-                .build();
+        if(defaultConfigFiles.size()!=0) {
+            for (String configFile : defaultConfigFiles) {
+                Config.create(configFile);
+            }
+        }
 
-        Appender appender = OutputStreamAppender
-                .createAppender(layout, null, outputStream, outputStreamName, false, true);
+        Log.info("<- reading global configuration ->");
+        Log.debug("Global configuration directory is " + globalConfigDir);
+
+        Boolean useProjectConfig = Storage.get("Environment.Default.UseProjectConfig");
+        if ( useProjectConfig ){
+            Log.debug("Looking for a project.config file");
+            String projFilePath = globalConfigDir + File.separator + "project.config";
+            File projFile = new File(projFilePath);
+            if (projFile.exists() && !projFile.isDirectory()) {
+                Log.debug("Reading project global configuration from " + projFilePath);
+                Config.create(projFilePath);
+            } else {
+                Log.error(projFilePath + " does not exists!");
+            }
+        } else {
+            Log.warn("Project.config usage switched off. Going to read global configuration in alphabetical order");
+            if (globalConfigFiles.size() != 0) {
+                for (String configFile : globalConfigFiles) {
+                    Config.create(configFile);
+                }
+            }
+        }
+
+        Log.info("Finished resources initialisation");
 
-        appender.start();
-        config.addAppender(appender);
+        /* Local resources load */
+        Log.info("<- Started local config load ->");
+        Log.debug("Feature dir is " + featureDir);
+        if( featureDir != null ){
+            if( localConfigFiles.size()!= 0 ) {
+                for ( String configFile : localConfigFiles ) {
+                    Config.create(configFile);
+                }
+            }else{
+                Log.warn("No local config files found!");
+            }
+        }
 
-        for (LoggerConfig loggerConfig : config.getLoggers().values()) {
-            loggerConfig.addAppender(appender, null, null);
+        //all global and local configuration loaded.
+        //prepare environment config
+        Log.debug("Checking default environment configuration");
+        HashMap<String, Object> defaultEnvConfig = Storage.get("Environment.Default");
+        HashMap<String, Object> sshConfig = Storage.get("Ssh");
+        HashMap<String, Object> winRmConfig = Storage.get("WinRM");
+        Map<String, Object> finalEnvConfig = Storage.get("Environment.Active");
+        if ( defaultEnvConfig == null || defaultEnvConfig.size() == 0 ){
+            Log.error("Default configuration Environment."
+                    + " Default not found or empty. Please create it!");
+        }
+        if ( finalEnvConfig == null ) {
+            Log.error("Environment.Active object does not exists or null."
+                    + " Please create such entry in global configuration");
         }
+        if ( sshConfig == null ) {
+            Log.error("Ssh object does not exists or null. Please create it!");
+        }
+        if ( winRmConfig == null ) {
+            Log.error("WinRM object does not exists or null. Please create it!");
+        }
+        //merge ssh with default
+        defaultEnvConfig.put("Ssh", sshConfig);
+        //merge winRM with default
+        defaultEnvConfig.put("WinRM", winRmConfig);
 
-        context.updateLoggers();
+        //check if cmd argument active_env was provided to overwrite active_env
+        String cmd_arg  = System.getProperty("ctx.Environment.Active.name");
+        if ( cmd_arg != null ) {
+            Log.info("Property Environment.Active.name overwritten by CMD arg -Dctx.Environment.Active.name=" + cmd_arg);
+            Storage.set("Environment.Active.name", cmd_arg);
+        }
+        //read name of the environment that shall be activated
+        Log.debug("Checking active environment configuration");
+        String actEnvName = Storage.get("Environment.Active.name");
+        if ( actEnvName == null || actEnvName.equals("") || actEnvName.equalsIgnoreCase("default") ) {
+            Log.debug("Environment.Active.name not set! Fallback to Environment.Default");
+        } else {
+            //check if config with such name exists else fallback to default
+            HashMap<String, Object> activeEnvConfig = Storage.get("Environment." + actEnvName);
+            if ( activeEnvConfig == null || activeEnvConfig.size() == 0 ){
+                Log.error("Environment config with name " + actEnvName + " not found or empty");
+            }
+            //merge default and active
+            deepMerge(defaultEnvConfig, activeEnvConfig);
+            defaultEnvConfig = Storage.get("Environment.Default");
+        }
+        //create final
+        deepMerge(finalEnvConfig, defaultEnvConfig);
+
+        //
+        // Use with caution! inappropriate usage may cause run time exception
+        //
+        Log.debug("Checking provided command line switches");
+        Properties props = System.getProperties();
+        Set<Object> propsSet = props.keySet();
+        Integer nrOfSwitches = 0;
+        for(Object key : propsSet ){
+            if ( key.toString().contains("ctx.TestData.") ||
+                    key.toString().contains("ctx.Environment.") ||
+                    key.toString().contains("ctx.Expected.") ){
+
+                Log.debug("Trying to overwrite value of " + key.toString().substring(4,key.toString().length()) + " due to usage of command line switch -D" + key.toString());
+
+                Object obj = StepCore.checkIfInputIsVariable(props.get(key.toString()).toString());
+                Log.debug("Class of " + key.toString().substring(4,key.toString().length()) + " is " + obj.getClass().getName());
+
+                Storage.set(key.toString().substring(4,key.toString().length()), obj);
+                nrOfSwitches++;
+            }
+        }
+        if ( nrOfSwitches == 0 ){
+            Log.warn("No command line switches found");
+        }
+        //
+        //
+        //
     }
 
 
@@ -832,73 +865,4 @@ public class CustomFormatter implements Formatter {
     }
 
 
-    /**
-     * helper function used to substitute values in a storage that contains keys to other attributes
-     * Values that contain ${ctx. string will be subject of substitution
-     *
-     * @param map, Map
-     *
-     */
-    private void evaluateConfigEntities (HashMap<String, Object> map) {
-        for (HashMap.Entry<String, Object> entry : map.entrySet()){
-
-            if ( entry.getValue() instanceof HashMap ) {
-                evaluateConfigEntities((HashMap) entry.getValue());
-            } else if ( entry.getValue() instanceof ArrayList ) {
-                for (int i=0; i < ((ArrayList) entry.getValue()).size(); i++) {
-                    if ( ((ArrayList) entry.getValue()).get(i).getClass().getName().contains("String") ) {
-                        String tmp = (String) ((ArrayList) entry.getValue()).get(i);
-                        if ( tmp.contains("${ctx.") ) {
-                            String newVal = replaceInString (tmp);
-                            ((ArrayList) entry.getValue()).set(i, newVal);
-                        }
-                    } else if (((ArrayList) entry.getValue()).get(i) instanceof HashMap) {
-                        evaluateConfigEntities( (HashMap<String, Object>) ((ArrayList) entry.getValue()).get(i) );
-                    }
-                }
-            } else {
-                if (entry.getValue().getClass().getName().contains("String")) {
-                    String tmp = (String) entry.getValue();
-                    if ( tmp.contains("${ctx.") ) {
-                        String newVal = replaceInString (tmp);
-                        map.put(entry.getKey(), newVal);
-                    }
-                }
-            }
-        }
-    }
-
-
-    /**
-     * helper function used replace config value in a Storage
-     *
-     * @param input, String
-     *
-     */
-    private String replaceInString (String input) {
-        //Log.debug("Input is " + input);
-        Integer beignIdx = input.indexOf("${");
-        Integer endIdx = input.indexOf("}", beignIdx);
-
-        if (beignIdx != -1) {
-            if ( endIdx == -1 ){
-                Log.error("Typo in config value " + input + "! Missing closing bracket }. Can't do variable substitution!");
-            }
-
-            String toReplace = input.substring(beignIdx+2, endIdx);
-            String toCheck = toReplace;
-            if ( toReplace.startsWith("ctx.") ){
-                toCheck = toReplace.substring(4);
-            }
-            String result = StepCore.checkIfInputIsVariable(toCheck).toString();
-
-            if (  ! toReplace.equals("ctx." + result) ) {
-                return replaceInString(input.replace("${" + toReplace + "}", result));
-            }
-        }
-
-        return input;
-    }
-
-
 }
\ No newline at end of file
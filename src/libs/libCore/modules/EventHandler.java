@@ -12,6 +12,20 @@ import org.openqa.selenium.support.events.WebDriverEventListener;
  */
 public class EventHandler implements WebDriverEventListener{
 
+    //web driver command in progress, commands are timed in Metrics and shown in the trace
+    private Metrics.Sample command;
+
+    private void start(String name) {
+        command = Metrics.start("webdriver." + name);
+    }
+
+    private void stop() {
+        if ( command != null ) {
+            command.stop();
+            command = null;
+        }
+    }
+
     @Override
     public void beforeAlertAccept(WebDriver webDriver) {
 
@@ -34,12 +48,12 @@ public class EventHandler implements WebDriverEventListener{
 
     @Override
     public void beforeNavigateTo(String s, WebDriver webDriver) {
-
+        start("navigateTo");
     }
 
     @Override
     public void afterNavigateTo(String s, WebDriver webDriver) {
-
+        stop();
     }
 
     @Override
@@ -74,35 +88,43 @@ public class EventHandler implements WebDriverEventListener{
 
     @Override
     public void beforeFindBy(By by, WebElement webElement, WebDriver webDriver) {
+        start("findBy");
     }
 
     @Override
     public void afterFindBy(By by, WebElement webElement, WebDriver webDriver) {
+        stop();
     }
 
     @Override
     public void beforeClickOn(WebElement webElement, WebDriver webDriver) {
+        start("clickOn");
         Log.debug("About to click on the " + webElement.toString());
     }
 
     @Override
     public void afterClickOn(WebElement webElement, WebDriver webDriver) {
+        stop();
     }
 
     @Override
     public void beforeChangeValueOf(WebElement webElement, WebDriver webDriver, CharSequence[] charSequences) {
+        start("changeValueOf");
     }
 
     @Override
     public void afterChangeValueOf(WebElement webElement, WebDriver webDriver, CharSequence[] charSequences) {
+        stop();
     }
 
     @Override
     public void beforeScript(String s, WebDriver webDriver) {
+        start("script");
     }
 
     @Override
     public void afterScript(String s, WebDriver webDriver) {
+        stop();
     }
 
     @Override
@@ -117,6 +139,7 @@ public class EventHandler implements WebDriverEventListener{
 
     @Override
     public void onException(Throwable throwable, WebDriver webDriver) {
+        stop();
         Log.error("Exception occurred at " + throwable.getMessage());
     }
 
@@ -132,12 +155,12 @@ public class EventHandler implements WebDriverEventListener{
 
     @Override
     public void beforeGetText(WebElement webElement, WebDriver webDriver) {
-
+        start("getText");
     }
 
     @Override
     public void afterGetText(WebElement webElement, WebDriver webDriver, String s) {
-
+        stop();
     }
 
 
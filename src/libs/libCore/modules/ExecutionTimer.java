@@ -4,17 +4,31 @@ public class ExecutionTimer {
 
     private long start;
     private long end;
+    private Metrics.Sample sample;
 
     public ExecutionTimer() {
         reset();
-        start = System.currentTimeMillis();
+        start = System.nanoTime();
+    }
+
+    /**
+     * starts counting elapsed time of an operation which is also recorded in Metrics
+     *
+     * @param operation String, name of the operation
+     */
+    public ExecutionTimer(String operation) {
+        this();
+        sample = Metrics.start(operation);
     }
 
     /**
      * stop counting elapsed time
      */
     public void end() {
-        end = System.currentTimeMillis();
+        end = System.nanoTime();
+        if ( sample != null ) {
+            sample.stop();
+        }
     }
 
     /**
@@ -23,6 +37,15 @@ public class ExecutionTimer {
      * @return elasped time in ms
      */
     public long duration(){
+        return (end-start) / 1000000;
+    }
+
+    /**
+     * Calculate the difference between start and stop time
+     *
+     * @return elapsed time in ns
+     */
+    public long durationNanos(){
         return (end-start);
     }
 
@@ -76,58 +76,63 @@ public class ExecutorCore {
         Log.debug("Command to execute is " + cmd);
         Log.debug("Working dir is " + workingDir.getAbsolutePath());
 
+        Metrics.Sample tSample = Metrics.start(blocking ? "executor.execute" : "executor.start");
         try {
-            executor.execute(cmdLine, resultHandler);
-        } catch (ExecuteException e) {
-            Log.error("", e);
-        } catch (IOException e) {
-            Log.error("", e);
-        }
-
-        if ( blocking ) {
-
-            Reader reader = new InputStreamReader(is);
-            BufferedReader r = new BufferedReader(reader);
-            String tmp;
+            try {
+                executor.execute(cmdLine, resultHandler);
+            } catch (ExecuteException e) {
+                Log.error("", e);
+            } catch (IOException e) {
+                Log.error("", e);
+            }
 
-            while ( ! resultHandler.hasResult() ) {
-                try {
-                    //add live streaming
-                    while ((tmp = r.readLine()) != null) {
-                        //Do something with tmp line
-                        Log.debug(tmp);
-                        String line = tmp + System.getProperty("line.separator");
-                        byte[] bytes = line.getBytes();
-                        os1.write(bytes);
+            if ( blocking ) {
+
+                Reader reader = new InputStreamReader(is);
+                BufferedReader r = new BufferedReader(reader);
+                String tmp;
+
+                while ( ! resultHandler.hasResult() ) {
+                    try {
+                        //add live streaming
+                        while ((tmp = r.readLine()) != null) {
+                            //Do something with tmp line
+                            Log.debug(tmp);
+                            String line = tmp + System.getProperty("line.separator");
+                            byte[] bytes = line.getBytes();
+                            os1.write(bytes);
+                        }
+
+                        resultHandler.waitFor();
+
+                    } catch (InterruptedException e) {
+                        //do nothing
+                    } catch (IOException e) {
+                        Log.error("", e);
                     }
+                }
 
-                    resultHandler.waitFor();
-
-                } catch (InterruptedException e) {
-                    //do nothing
+                try {
+                    r.close();
+                    reader.close();
                 } catch (IOException e) {
                     Log.error("", e);
                 }
-            }
-
-            try {
-                r.close();
-                reader.close();
-            } catch (IOException e) {
-                Log.error("", e);
-            }
 
 
-        }
+            }
 
-        if ( blocking ) {
-            int exitValue = resultHandler.getExitValue();
-            Log.debug("Command execution exitValue is " + exitValue);
-            if (executor.isFailure(exitValue)) {
-                Log.debug("Command execution failed");
-            } else {
-                Log.debug("Command execution successful");
+            if ( blocking ) {
+                int exitValue = resultHandler.getExitValue();
+                Log.debug("Command execution exitValue is " + exitValue);
+                if (executor.isFailure(exitValue)) {
+                    Log.debug("Command execution failed");
+                } else {
+                    Log.debug("Command execution successful");
+                }
             }
+        } finally {
+            tSample.stop();
         }
 
         return os1;
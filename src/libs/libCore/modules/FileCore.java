@@ -14,7 +14,6 @@ import org.apache.commons.io.FilenameUtils;
 import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.stream.Stream;
 
 import static org.apache.commons.io.FileUtils.readFileToString;
 
@@ -78,17 +77,11 @@ public class FileCore {
     public ArrayList<String> searchForFile(String sDir, String criteria){
         ArrayList<String> result = new ArrayList<>();
         try {
-            try (Stream<Path> stream = Files.find(Paths.get(sDir), 99,
-                    (path, attr) -> String.valueOf(path).endsWith(criteria))) {
-                stream.map(String::valueOf)
-                        .forEach(x -> result.add(x));
-            }
+            result = ResourceIndex.search(sDir, criteria);
         } catch (IOException e) {
             Log.warn( "Can't access " + sDir );
         }
 
-        Collections.sort(result, String.CASE_INSENSITIVE_ORDER);
-
         return result;
     }
 
@@ -0,0 +1,245 @@
+package libs.libCore.modules;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * ArrayList forked from an immutable PersistentVector
+ *
+ * Counterpart of ForkedHashMap for lists. Fork is created in O(1), elements of the base vector are copied in
+ * only when the list is accessed for the first time.
+ */
+public class ForkedArrayList extends ArrayList<Object> {
+
+    private static final long serialVersionUID = 1L;
+
+    private PersistentVector<Object> base;
+
+    private ForkedArrayList(PersistentVector<Object> base) {
+        super(base.size());
+        this.base = base;
+    }
+
+    /**
+     * Creates mutable fork of persistent vector
+     *
+     * @param base PersistentVector
+     *
+     * @return ForkedArrayList
+     */
+    public static ForkedArrayList fork(PersistentVector<Object> base) {
+        return new ForkedArrayList(base);
+    }
+
+    boolean isForked() {
+        return base != null;
+    }
+
+    PersistentVector<Object> getBase() {
+        return base;
+    }
+
+    private void load() {
+        if ( base == null ) {
+            return;
+        }
+        PersistentVector<Object> source = base;
+        base = null;
+        for (Object item : source) {
+            super.add(ForkedHashMap.thaw(item));
+        }
+    }
+
+    @Override
+    public int size() {
+        return base != null ? base.size() : super.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return base != null ? base.isEmpty() : super.isEmpty();
+    }
+
+    @Override
+    public void trimToSize() {
+        load();
+        super.trimToSize();
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        load();
+        return super.contains(o);
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        load();
+        return super.indexOf(o);
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        load();
+        return super.lastIndexOf(o);
+    }
+
+    @Override
+    public Object clone() {
+        load();
+        return super.clone();
+    }
+
+    @Override
+    public Object[] toArray() {
+        load();
+        return super.toArray();
+    }
+
+    @Override
+    public <T> T[] toArray(T[] a) {
+        load();
+        return super.toArray(a);
+    }
+
+    @Override
+    public Object get(int index) {
+        load();
+        return super.get(index);
+    }
+
+    @Override
+    public Object set(int index, Object element) {
+        load();
+        return super.set(index, element);
+    }
+
+    @Override
+    public boolean add(Object o) {
+        load();
+        return super.add(o);
+    }
+
+    @Override
+    public void add(int index, Object element) {
+        load();
+        super.add(index, element);
+    }
+
+    @Override
+    public Object remove(int index) {
+        load();
+        return super.remove(index);
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        load();
+        return super.remove(o);
+    }
+
+    @Override
+    public void clear() {
+        base = null;
+        super.clear();
+    }
+
+    @Override
+    public boolean addAll(Collection<?> c) {
+        load();
+        return super.addAll(c);
+    }
+
+    @Override
+    public boolean addAll(int index, Collection<?> c) {
+        load();
+        return super.addAll(index, c);
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        load();
+        return super.removeAll(c);
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        load();
+        return super.retainAll(c);
+    }
+
+    @Override
+    public boolean containsAll(Collection<?> c) {
+        load();
+        return super.containsAll(c);
+    }
+
+    @Override
+    public ListIterator<Object> listIterator(int index) {
+        load();
+        return super.listIterator(index);
+    }
+
+    @Override
+    public ListIterator<Object> listIterator() {
+        load();
+        return super.listIterator();
+    }
+
+    @Override
+    public Iterator<Object> iterator() {
+        load();
+        return super.iterator();
+    }
+
+    @Override
+    public List<Object> subList(int fromIndex, int toIndex) {
+        load();
+        return super.subList(fromIndex, toIndex);
+    }
+
+    @Override
+    public void forEach(Consumer<? super Object> action) {
+        load();
+        super.forEach(action);
+    }
+
+    @Override
+    public Spliterator<Object> spliterator() {
+        load();
+        return super.spliterator();
+    }
+
+    @Override
+    public boolean removeIf(Predicate<? super Object> filter) {
+        load();
+        return super.removeIf(filter);
+    }
+
+    @Override
+    public void replaceAll(UnaryOperator<Object> operator) {
+        load();
+        super.replaceAll(operator);
+    }
+
+    @Override
+    public void sort(Comparator<? super Object> c) {
+        load();
+        super.sort(c);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        load();
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        load();
+        return super.hashCode();
+    }
+
+}
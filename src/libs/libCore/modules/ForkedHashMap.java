@@ -0,0 +1,249 @@
+package libs.libCore.modules;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * HashMap forked from an immutable PersistentMap
+ *
+ * Fork is created in O(1) and behaves exactly as a HashMap. Content of the base map is copied in only
+ * when the map is accessed for the first time, nested maps and lists are forked again at that moment
+ * so only the levels of the storage tree which are actually used by a scenario are ever copied.
+ * Untouched map can be frozen back in O(1), touched one shares all its untouched children with the base.
+ */
+@SuppressWarnings("unchecked")
+public class ForkedHashMap extends HashMap<String, Object> {
+
+    private static final long serialVersionUID = 1L;
+
+    private PersistentMap<String, Object> base;
+
+    private ForkedHashMap(PersistentMap<String, Object> base) {
+        super(Math.max(16, (int) (base.size() / 0.75f) + 1));
+        this.base = base;
+    }
+
+    /**
+     * Creates mutable fork of persistent map
+     *
+     * @param base PersistentMap
+     *
+     * @return ForkedHashMap
+     */
+    public static ForkedHashMap fork(PersistentMap<String, Object> base) {
+        return new ForkedHashMap(base);
+    }
+
+    /**
+     * Converts storage value into its immutable form
+     * Maps become PersistentMaps, lists become PersistentVectors, other values are returned as they are
+     *
+     * @param value Object
+     *
+     * @return frozen value
+     */
+    public static Object freeze(Object value) {
+        if ( value instanceof ForkedHashMap && ((ForkedHashMap) value).base != null ) {
+            return ((ForkedHashMap) value).base;
+        }
+        if ( value instanceof ForkedArrayList && ((ForkedArrayList) value).isForked() ) {
+            return ((ForkedArrayList) value).getBase();
+        }
+        if ( value instanceof Map ) {
+            PersistentMap<String, Object> frozen = PersistentMap.empty();
+            for (Map.Entry<String, Object> entry : ((Map<String, Object>) value).entrySet()) {
+                frozen = frozen.assoc(entry.getKey(), freeze(entry.getValue()));
+            }
+            return frozen;
+        }
+        if ( value instanceof List ) {
+            PersistentVector<Object> frozen = PersistentVector.empty();
+            for (Object item : (List<Object>) value) {
+                frozen = frozen.cons(freeze(item));
+            }
+            return frozen;
+        }
+
+        return value;
+    }
+
+    /**
+     * Converts frozen storage value into mutable one
+     *
+     * @param value Object
+     *
+     * @return forked value
+     */
+    static Object thaw(Object value) {
+        if ( value instanceof PersistentMap ) {
+            return new ForkedHashMap((PersistentMap<String, Object>) value);
+        }
+        if ( value instanceof PersistentVector ) {
+            return ForkedArrayList.fork((PersistentVector<Object>) value);
+        }
+
+        return value;
+    }
+
+    /**
+     * @return immutable snapshot of this map
+     */
+    public PersistentMap<String, Object> freeze() {
+        return (PersistentMap<String, Object>) freeze(this);
+    }
+
+    private void load() {
+        if ( base == null ) {
+            return;
+        }
+        PersistentMap<String, Object> source = base;
+        base = null;
+        for (Map.Entry<String, Object> entry : source) {
+            super.put(entry.getKey(), thaw(entry.getValue()));
+        }
+    }
+
+    @Override
+    public int size() {
+        return base != null ? base.size() : super.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return base != null ? base.isEmpty() : super.isEmpty();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return base != null ? base.containsKey(key) : super.containsKey(key);
+    }
+
+    @Override
+    public Object get(Object key) {
+        load();
+        return super.get(key);
+    }
+
+    @Override
+    public Object getOrDefault(Object key, Object defaultValue) {
+        load();
+        return super.getOrDefault(key, defaultValue);
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        load();
+        return super.containsValue(value);
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        load();
+        return super.put(key, value);
+    }
+
+    @Override
+    public void putAll(Map<? extends String, ?> m) {
+        load();
+        super.putAll(m);
+    }
+
+    @Override
+    public Object remove(Object key) {
+        load();
+        return super.remove(key);
+    }
+
+    @Override
+    public void clear() {
+        base = null;
+        super.clear();
+    }
+
+    @Override
+    public Set<String> keySet() {
+        load();
+        return super.keySet();
+    }
+
+    @Override
+    public Collection<Object> values() {
+        load();
+        return super.values();
+    }
+
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet() {
+        load();
+        return super.entrySet();
+    }
+
+    @Override
+    public Object putIfAbsent(String key, Object value) {
+        load();
+        return super.putIfAbsent(key, value);
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        load();
+        return super.remove(key, value);
+    }
+
+    @Override
+    public boolean replace(String key, Object oldValue, Object newValue) {
+        load();
+        return super.replace(key, oldValue, newValue);
+    }
+
+    @Override
+    public Object replace(String key, Object value) {
+        load();
+        return super.replace(key, value);
+    }
+
+    @Override
+    public Object computeIfAbsent(String key, Function<? super String, ?> mappingFunction) {
+        load();
+        return super.computeIfAbsent(key, mappingFunction);
+    }
+
+    @Override
+    public Object computeIfPresent(String key, BiFunction<? super String, ? super Object, ?> remappingFunction) {
+        load();
+        return super.computeIfPresent(key, remappingFunction);
+    }
+
+    @Override
+    public Object compute(String key, BiFunction<? super String, ? super Object, ?> remappingFunction) {
+        load();
+        return super.compute(key, remappingFunction);
+    }
+
+    @Override
+    public Object merge(String key, Object value, BiFunction<? super Object, ? super Object, ?> remappingFunction) {
+        load();
+        return super.merge(key, value, remappingFunction);
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super String, ? super Object> action) {
+        load();
+        super.forEach(action);
+    }
+
+    @Override
+    public void replaceAll(BiFunction<? super String, ? super Object, ?> function) {
+        load();
+        super.replaceAll(function);
+    }
+
+    @Override
+    public Object clone() {
+        load();
+        return super.clone();
+    }
+
+}
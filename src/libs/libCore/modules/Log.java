@@ -5,6 +5,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.core.Appender;
 import org.apache.logging.log4j.core.LoggerContext;
+import org.apache.logging.log4j.core.appender.AsyncAppender;
 import org.apache.logging.log4j.core.appender.ConsoleAppender;
 import org.apache.logging.log4j.core.appender.FileAppender;
 import org.apache.logging.log4j.core.config.*;
@@ -13,11 +14,29 @@ import org.apache.logging.log4j.status.StatusLogger;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.function.Supplier;
 
 import static org.junit.Assert.fail;
 
+/**
+ * Logger used by the framework
+ *
+ * Messages are written to a log file in the target directory and to the console. With -Dsaf.log.async=true
+ * both are written by a background thread, test threads only put events into a bounded ring buffer of size
+ * -Dsaf.log.queueSize (default 8192). When the buffer is full -Dsaf.log.overflow decides what happens:
+ * block (default) makes the logging thread wait for the free space, discard drops the event.
+ * Queued events are flushed when the JVM shuts down.
+ *
+ * -Dsaf.log.level sets the lowest level which is logged (default ALL). Parameterized overloads and
+ * debugLazy, infoLazy and warnLazy do not build the message at all when its level is not logged.
+ */
 public class Log {
 
+	private static final boolean ASYNC = Boolean.parseBoolean(System.getProperty("saf.log.async", "false"));
+	private static final int QUEUE_SIZE = Integer.getInteger("saf.log.queueSize", 8192);
+	private static final String OVERFLOW = System.getProperty("saf.log.overflow", "block");
+	private static final Level LEVEL = Level.toLevel(System.getProperty("saf.log.level", "ALL"), Level.ALL);
+
     //a class initializer used to initialize logger.
 	static {
 
@@ -28,6 +47,12 @@ public class Log {
 		DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss");
 		String pattern = LocalDateTime.now().format(formatter);
 
+		//each parallel worker writes to its own log file
+		String workerId = System.getProperty("saf.worker.id");
+		if ( workerId != null ) {
+			pattern = pattern + "_worker" + workerId;
+		}
+
 		LoggerContext context = LoggerContext.getContext(false);
 		Configuration config = context.getConfiguration();
 
@@ -41,12 +66,14 @@ public class Log {
 				.withName("File-Appender")
 				.withLayout(layout)
 				.withFileName("target/"+pattern+"_SAF.log")
+				.withImmediateFlush(! ASYNC)
 				.build();
 
 		Appender appender2 = ConsoleAppender.newBuilder()
 				.setConfiguration(config)
 				.withName("Console-Appender")
 				.withLayout(layout)
+				.withImmediateFlush(! ASYNC)
 				.build();
 
 		appender.start();
@@ -59,10 +86,36 @@ public class Log {
 		AppenderRef ref2 = AppenderRef.createAppenderRef("Console-Appender", null, null);
 		AppenderRef[] refs = new AppenderRef[] { ref, ref2 };
 
-		LoggerConfig loggerConfig = LoggerConfig
-				.createLogger(false, Level.ALL, "libs.libCore.modules", "true", refs, null, config, null);
-		loggerConfig.addAppender(appender, null, null);
-		loggerConfig.addAppender(appender2, null, null);
+		LoggerConfig loggerConfig;
+		if ( ASYNC ) {
+			//file and console appenders are fed by a background thread, they flush at the end of each batch of events
+			Appender async = AsyncAppender.newBuilder()
+					.setConfiguration(config)
+					.setName("Async-Appender")
+					.setAppenderRefs(refs)
+					.setBufferSize(QUEUE_SIZE)
+					.setBlocking(! OVERFLOW.equalsIgnoreCase("discard"))
+					.build();
+			async.start();
+			config.addAppender(async);
+
+			AppenderRef asyncRef = AppenderRef.createAppenderRef("Async-Appender", null, null);
+			loggerConfig = LoggerConfig
+					.createLogger(false, LEVEL, "libs.libCore.modules", "true", new AppenderRef[] { asyncRef }, null, config, null);
+			loggerConfig.addAppender(async, null, null);
+		} else {
+			loggerConfig = LoggerConfig
+					.createLogger(false, LEVEL, "libs.libCore.modules", "true", refs, null, config, null);
+			loggerConfig.addAppender(appender, null, null);
+			loggerConfig.addAppender(appender2, null, null);
+		}
+
+		//scenario logs attached to the report are always written synchronously
+		Appender router = ScenarioLog.router(layout);
+		router.start();
+		config.addAppender(router);
+		loggerConfig.addAppender(router, null, null);
+
 		config.addLogger("libs.libCore.modules", loggerConfig);
 		context.updateLoggers();
 	}
@@ -83,6 +136,31 @@ public class Log {
 	}
 
 
+    /**
+     * logs message with INFO severity
+     * Message is built only if INFO severity is logged
+     *
+     * @param message String, text with {} placeholders
+     * @param params Object..., values of placeholders
+     */
+	public static void info(String message, Object... params) {
+		Log.info(message, params);
+	}
+
+
+    /**
+     * logs message with INFO severity
+     * Message is built only if INFO severity is logged
+     *
+     * @param message Supplier, provides text to be written to the log file
+     */
+	public static void infoLazy(Supplier<String> message) {
+		if ( Log.isInfoEnabled() ) {
+			Log.info(message.get());
+		}
+	}
+
+
     /**
      * logs message with WARN severity
      *
@@ -96,6 +174,31 @@ public class Log {
 	}
 
 
+    /**
+     * logs message with WARN severity
+     * Message is built only if WARN severity is logged
+     *
+     * @param message String, text with {} placeholders
+     * @param params Object..., values of placeholders
+     */
+	public static void warn(String message, Object... params) {
+		Log.warn(message, params);
+	}
+
+
+    /**
+     * logs message with WARN severity
+     * Message is built only if WARN severity is logged
+     *
+     * @param message Supplier, provides text to be written to the log file
+     */
+	public static void warnLazy(Supplier<String> message) {
+		if ( Log.isWarnEnabled() ) {
+			Log.warn(message.get());
+		}
+	}
+
+
     /**
      * logs message with ERROR severity. Marks current step and Scenario as failed.
      *
@@ -134,4 +237,37 @@ public class Log {
     public static void debug(String message) {
 		Log.debug(message);
 	}
+
+
+    /**
+     * logs message with DEBUG severity
+     * Message is built only if DEBUG severity is logged
+     *
+     * @param message String, text with {} placeholders
+     * @param params Object..., values of placeholders
+     */
+	public static void debug(String message, Object... params) {
+		Log.debug(message, params);
+	}
+
+
+    /**
+     * logs message with DEBUG severity
+     * Message is built only if DEBUG severity is logged
+     *
+     * @param message Supplier, provides text to be written to the log file
+     */
+	public static void debugLazy(Supplier<String> message) {
+		if ( Log.isDebugEnabled() ) {
+			Log.debug(message.get());
+		}
+	}
+
+
+    /**
+     * @return true if messages with DEBUG severity are logged
+     */
+	public static boolean isDebugEnabled() {
+		return Log.isDebugEnabled();
+	}
 }
\ No newline at end of file
@@ -8,11 +8,31 @@ import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoField;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Evaluates macros defined in the Macro configuration storage
+ *
+ * Values of the form "mcr.name" are looked up directly in the Macro storage, so evaluation of a storage costs
+ * O(values) regardless of the number of defined macros. Each macro is calculated lazily when it is referenced
+ * for the first time in a scenario and its value is reused by all later references in the same scenario.
+ * All macros of a scenario are calculated against the same point in time. Macros which are not referenced
+ * are never calculated, so errors in their definitions are not reported.
+ *
+ * Formatters and zones are cached for the whole test run.
+ */
 @SuppressWarnings("unchecked")
 public class Macro {
 
+    private static final String PREFIX = "mcr.";
+    private static final Set<String> TYPES = Collections.unmodifiableSet(new LinkedHashSet<>(Arrays.asList(
+            "date", "timestamp", "random", "startOfWeek", "endOfWeek", "startOfMonth", "endOfMonth")));
+    private static final Map<String, DateTimeFormatter> FORMATTERS = new ConcurrentHashMap<>();
+    private static final Map<String, ZoneId> ZONES = new ConcurrentHashMap<>();
+    private static volatile Set<String> availableZones;
+
     private Context scenarioCtx;
+    private LocalDateTime currentTime;
 
     public Macro() {
         this.scenarioCtx = ThreadContext.getContext("Scenario");
@@ -20,185 +40,229 @@ public class Macro {
 
 
     /**
-     * calculates macros
+     * Returns value of a macro
+     * Macro is calculated when it is referenced for the first time in a scenario
+     *
+     * @param name String, name of the macro as defined in the Macro storage
+     *
+     * @return String, calculated value or null if macro is not defined
+     */
+    public String get(String name) {
+        HashMap<String, String> calculated = calculated();
+        String value = calculated.get(name);
+        if ( value == null && ! calculated.containsKey(name) ) {
+            HashMap<String, Object> macros = scenarioCtx.get("Macro", HashMap.class);
+            if ( macros == null || ! macros.containsKey(name) ) {
+                return null;
+            }
+            value = mcr(name, macros.get(name));
+            calculated.put(name, value);
+            Log.debug("Macro " + name + " is " + value);
+        }
+
+        return value;
+    }
+
+
+    /**
+     * helper function used to retrieve macros already calculated in current scenario
      *
-     * helper function used to calculate macro values based on data defined in the Macro
+     * @return HashMap, macro name and calculated value mapping
+     */
+    private HashMap<String, String> calculated() {
+        HashMap<String, String> result = scenarioCtx.get("CalculatedMacros", HashMap.class);
+        if ( result == null ) {
+            result = new HashMap<>();
+            scenarioCtx.put("CalculatedMacros", HashMap.class, result);
+        }
+        if ( currentTime == null ) {
+            currentTime = LocalDateTime.now();
+        }
+
+        return result;
+    }
+
+
+    /**
+     * calculates macro
+     *
+     * helper function used to calculate macro value based on its definition from the Macro
      * configuration storage
      *
-     * It is used internally by eval method.
+     * It is used internally by get method.
+     *
+     * @param name String, name of the macro
+     * @param definition Object, macro definition
      *
-     * @param macro Map, storage that contains macro definitions
+     * @return String, calculated value
      */
-    private HashMap mcr(Map<String, Object> macro){
+    private String mcr(String name, Object definition) {
 
-        HashMap <String, String> result = scenarioCtx.get("CalculatedMacros", HashMap.class);
-        if ( result != null ) {
-            return result;
-        }
+        //set default values for particular macro
+        String calculatedValue = null;
+        String type = null;
+        String format = "MM/dd/yyyy HH:mm:ss S";
+        Integer length = 10;
+        Boolean useNumbers = true;
+        Boolean useLetters = true;
+        String suffix = "";
+        String prefix = "";
+        String sZoneId = null;
+        Integer addDays = 0;
+        Integer addWeeks = 0;
+        Integer addMonths = 0;
+        Integer addYears = 0;
+        Integer addHours = 0;
+        Integer addMinutes = 0;
+        Integer addSeconds = 0;
+        Integer addNanos = 0;
 
-        result = new HashMap<>();
-
-        // Get the current date and time
-        LocalDateTime currentTime = LocalDateTime.now();
-
-        //for each macro calculate new value and store it in a result map as string
-        for (HashMap.Entry<String, Object> entry : macro.entrySet())
-        {
-            //Log.debug("Found macro " + entry.getKey());
-
-            //set default values for particular macro
-            String calculatedValue = null;
-            String type = null;
-            String format = "MM/dd/yyyy HH:mm:ss S";
-            Integer length = 10;
-            Boolean useNumbers = true;
-            Boolean useLetters = true;
-            String suffix = "";
-            String prefix = "";
-            String sZoneId = ZoneId.systemDefault().getId();
-            Integer addDays = 0;
-            Integer addWeeks = 0;
-            Integer addMonths = 0;
-            Integer addYears = 0;
-            Integer addHours = 0;
-            Integer addMinutes = 0;
-            Integer addSeconds = 0;
-            Integer addNanos = 0;
-
-            //read user defined values for particular macro
-            if (entry.getValue().getClass().getName().contains("HashMap")) {
-                HashMap<String, Object> tMacro = (HashMap<String, Object>) entry.getValue();
-                if(tMacro.containsKey("type")){
-                    type = tMacro.get("type").toString();
-                }else{
-                    Log.error("Macro type has to be provided for " + entry.getKey());
-                }
-                if(tMacro.containsKey("format")){
-                    format = tMacro.get("format").toString();
-                }
-                if(tMacro.containsKey("length")){
-                    length = Integer.parseInt(tMacro.get("length").toString());
-                }
-                if ( length <= 0 ){
-                    Log.error("Length value shall be above 0!");
-                }
-                if(tMacro.containsKey("useNumbers")){
-                    useNumbers = Boolean.parseBoolean(tMacro.get("useNumbers").toString());
-                }
-                if(tMacro.containsKey("useLetters")){
-                    useLetters = Boolean.parseBoolean(tMacro.get("useLetters").toString());
-                }
-                if(tMacro.containsKey("suffix")){
-                    suffix = tMacro.get("suffix").toString();
-                }
-                if(tMacro.containsKey("prefix")){
-                    prefix = tMacro.get("prefix").toString();
-                }
-                if(tMacro.containsKey("zoneId")){
-                    sZoneId = tMacro.get("zoneId").toString();
-                }
-                if(tMacro.containsKey("addYears")){
-                    addYears = Integer.parseInt(tMacro.get("addYears").toString());
-                }
-                if(tMacro.containsKey("addMonths")){
-                    addMonths = Integer.parseInt(tMacro.get("addMonths").toString());
-                }
-                if(tMacro.containsKey("addWeeks")){
-                    addWeeks = Integer.parseInt(tMacro.get("addWeeks").toString());
-                }
-                if(tMacro.containsKey("addDays")){
-                    addDays = Integer.parseInt(tMacro.get("addDays").toString());
-                }
-                if(tMacro.containsKey("addHours")){
-                    addHours = Integer.parseInt(tMacro.get("addHours").toString());
-                }
-                if(tMacro.containsKey("addMinutes")){
-                    addMinutes = Integer.parseInt(tMacro.get("addMinutes").toString());
-                }
-                if(tMacro.containsKey("addSeconds")){
-                    addSeconds = Integer.parseInt(tMacro.get("addSeconds").toString());
-                }
-                if(tMacro.containsKey("addNanos")){
-                    addNanos = Integer.parseInt(tMacro.get("addNanos").toString());
-                }
+        //read user defined values for particular macro
+        if ( definition instanceof Map ) {
+            Map<String, Object> tMacro = (Map<String, Object>) definition;
+            if(tMacro.containsKey("type")){
+                type = tMacro.get("type").toString();
+            }else{
+                Log.error("Macro type has to be provided for " + name);
             }
-
-            //check if values are correct
-            ArrayList<String> availableTypes = new ArrayList<>();
-            availableTypes.add("date");
-            availableTypes.add("timestamp");
-            availableTypes.add("random");
-            availableTypes.add("startOfWeek");
-            availableTypes.add("endOfWeek");
-            availableTypes.add("startOfMonth");
-            availableTypes.add("endOfMonth");
-
-            if(!availableTypes.contains(type)){
-                Log.warn("Available macro types are as follows:");
-                for(String item : availableTypes){
-                    Log.debug(item);
-                }
-                Log.error("Wrong type defined for macro " + entry.getKey());
+            if(tMacro.containsKey("format")){
+                format = tMacro.get("format").toString();
             }
-
-            Set<String> availableZones = ZoneId.getAvailableZoneIds();
-            if(!availableZones.contains(sZoneId)) {
-                Log.warn("Available macro zoneIds are as follows:");
-                for (String s : availableZones) {
-                    Log.info(s);
-                }
-                Log.error("Wrong zoneId defined for macro " + entry.getKey());
+            if(tMacro.containsKey("length")){
+                length = Integer.parseInt(tMacro.get("length").toString());
             }
-
-            //calculate new macro value
-            ZoneId zoneId = ZoneId.of(sZoneId);
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern(format);
-            ZonedDateTime macroTime = currentTime.atZone(zoneId).plusYears(addYears)
-                    .plusMonths(addMonths)
-                    .plusWeeks(addWeeks)
-                    .plusDays(addDays)
-                    .plusHours(addHours)
-                    .plusMinutes(addMinutes)
-                    .plusSeconds(addSeconds)
-                    .plusNanos(addNanos);
-
-            long epoch = macroTime.toEpochSecond();
-
-            if(type.equals("startOfWeek")){
-                ZonedDateTime firstOfWeek = macroTime.with(ChronoField.DAY_OF_WEEK, 1); //ISO8601, Monday is first day of week
-                calculatedValue = prefix + firstOfWeek.format(formatter) + suffix;
+            if ( length <= 0 ){
+                Log.error("Length value shall be above 0!");
             }
-            if(type.equals("endOfWeek")){
-                ZonedDateTime endOfWeek = macroTime.with(ChronoField.DAY_OF_WEEK, 7); //ISO8601, Sunday is last day of week
-                calculatedValue = prefix + endOfWeek.format(formatter) + suffix;
+            if(tMacro.containsKey("useNumbers")){
+                useNumbers = Boolean.parseBoolean(tMacro.get("useNumbers").toString());
             }
-            if(type.equals("startOfMonth")){
-                ZonedDateTime firstOfMonth = macroTime.with(ChronoField.DAY_OF_MONTH, 1);
-                calculatedValue = prefix + firstOfMonth.format(formatter) + suffix;
+            if(tMacro.containsKey("useLetters")){
+                useLetters = Boolean.parseBoolean(tMacro.get("useLetters").toString());
             }
-            if(type.equals("endOfMonth")){
-                Integer lengthOfMonth = macroTime.toLocalDate().lengthOfMonth();
-                ZonedDateTime endOfMonth = macroTime.with(ChronoField.DAY_OF_MONTH, lengthOfMonth);
-                calculatedValue = prefix + endOfMonth.format(formatter) + suffix;
+            if(tMacro.containsKey("suffix")){
+                suffix = tMacro.get("suffix").toString();
             }
-            if(type.equals("date")) {
-                calculatedValue = prefix + macroTime.format(formatter) + suffix;
+            if(tMacro.containsKey("prefix")){
+                prefix = tMacro.get("prefix").toString();
             }
-            if(type.equals("timestamp")){
-                calculatedValue = prefix + epoch + suffix;
+            if(tMacro.containsKey("zoneId")){
+                sZoneId = tMacro.get("zoneId").toString();
             }
-            if(type.equals("random")){
-                calculatedValue = prefix + RandomStringUtils.random(length, useLetters, useNumbers) + suffix;
+            if(tMacro.containsKey("addYears")){
+                addYears = Integer.parseInt(tMacro.get("addYears").toString());
             }
+            if(tMacro.containsKey("addMonths")){
+                addMonths = Integer.parseInt(tMacro.get("addMonths").toString());
+            }
+            if(tMacro.containsKey("addWeeks")){
+                addWeeks = Integer.parseInt(tMacro.get("addWeeks").toString());
+            }
+            if(tMacro.containsKey("addDays")){
+                addDays = Integer.parseInt(tMacro.get("addDays").toString());
+            }
+            if(tMacro.containsKey("addHours")){
+                addHours = Integer.parseInt(tMacro.get("addHours").toString());
+            }
+            if(tMacro.containsKey("addMinutes")){
+                addMinutes = Integer.parseInt(tMacro.get("addMinutes").toString());
+            }
+            if(tMacro.containsKey("addSeconds")){
+                addSeconds = Integer.parseInt(tMacro.get("addSeconds").toString());
+            }
+            if(tMacro.containsKey("addNanos")){
+                addNanos = Integer.parseInt(tMacro.get("addNanos").toString());
+            }
+        }
 
-            //store calculated macro
-            result.put(entry.getKey(),calculatedValue);
-            Log.debug("Macro " + entry.getKey() + " is " + calculatedValue);
+        //check if values are correct
+        if(!TYPES.contains(type)){
+            Log.warn("Available macro types are as follows:");
+            for(String item : TYPES){
+                Log.debug(item);
+            }
+            Log.error("Wrong type defined for macro " + name);
         }
 
-        scenarioCtx.put("CalculatedMacros", HashMap.class, result);
+        ZoneId zoneId = zone(sZoneId, name);
 
-        return result;
+        //random values do not depend on time
+        if(type.equals("random")){
+            return prefix + RandomStringUtils.random(length, useLetters, useNumbers) + suffix;
+        }
+
+        //calculate new macro value
+        ZonedDateTime macroTime = currentTime.atZone(zoneId).plusYears(addYears)
+                .plusMonths(addMonths)
+                .plusWeeks(addWeeks)
+                .plusDays(addDays)
+                .plusHours(addHours)
+                .plusMinutes(addMinutes)
+                .plusSeconds(addSeconds)
+                .plusNanos(addNanos);
+
+        if(type.equals("timestamp")){
+            return prefix + macroTime.toEpochSecond() + suffix;
+        }
+
+        DateTimeFormatter formatter = FORMATTERS.computeIfAbsent(format, DateTimeFormatter::ofPattern);
+        if(type.equals("startOfWeek")){
+            ZonedDateTime firstOfWeek = macroTime.with(ChronoField.DAY_OF_WEEK, 1); //ISO8601, Monday is first day of week
+            calculatedValue = prefix + firstOfWeek.format(formatter) + suffix;
+        }
+        if(type.equals("endOfWeek")){
+            ZonedDateTime endOfWeek = macroTime.with(ChronoField.DAY_OF_WEEK, 7); //ISO8601, Sunday is last day of week
+            calculatedValue = prefix + endOfWeek.format(formatter) + suffix;
+        }
+        if(type.equals("startOfMonth")){
+            ZonedDateTime firstOfMonth = macroTime.with(ChronoField.DAY_OF_MONTH, 1);
+            calculatedValue = prefix + firstOfMonth.format(formatter) + suffix;
+        }
+        if(type.equals("endOfMonth")){
+            Integer lengthOfMonth = macroTime.toLocalDate().lengthOfMonth();
+            ZonedDateTime endOfMonth = macroTime.with(ChronoField.DAY_OF_MONTH, lengthOfMonth);
+            calculatedValue = prefix + endOfMonth.format(formatter) + suffix;
+        }
+        if(type.equals("date")) {
+            calculatedValue = prefix + macroTime.format(formatter) + suffix;
+        }
+
+        return calculatedValue;
+    }
+
+
+    /**
+     * helper function used to retrieve validated zone
+     * zones are validated only once per run
+     *
+     * @param sZoneId String, zone id or null for system default zone
+     * @param name String, name of the macro used in error messages
+     *
+     * @return ZoneId
+     */
+    private static ZoneId zone(String sZoneId, String name) {
+        if ( sZoneId == null ) {
+            return ZoneId.systemDefault();
+        }
+        ZoneId zoneId = ZONES.get(sZoneId);
+        if ( zoneId != null ) {
+            return zoneId;
+        }
+
+        if ( availableZones == null ) {
+            availableZones = ZoneId.getAvailableZoneIds();
+        }
+        if(!availableZones.contains(sZoneId)) {
+            Log.warn("Available macro zoneIds are as follows:");
+            for (String s : availableZones) {
+                Log.info(s);
+            }
+            Log.error("Wrong zoneId defined for macro " + name);
+        }
+        zoneId = ZoneId.of(sZoneId);
+        ZONES.put(sZoneId, zoneId);
+
+        return zoneId;
     }
 
 
@@ -207,58 +271,54 @@ public class Macro {
      * This method looks for a variable that starts with "mcr." in the configuration Storage entities
      * and tries to substitute such variables with calculated macro values.
      *
-     * @param input String, name of the storage where macro variables subsitution shall be done
+     * @param inputs String..., names of the storages where macro variables subsitution shall be done
      */
-    public void eval(String input) {
-        HashMap<String, Object> mapToEval = scenarioCtx.get(input,HashMap.class);
-        if ( mapToEval != null ) {
-            HashMap<String, Object> macros = scenarioCtx.get("Macro", HashMap.class);
-
-            HashMap<String, String> macrosAfterEvaluation = mcr(macros);
-
-            //evaluate macros
-            handleEvaluation(mapToEval, macrosAfterEvaluation);
-            scenarioCtx.put(input, HashMap.class, mapToEval);
-       }
+    public void eval(String... inputs) {
+        for (String input : inputs) {
+            HashMap<String, Object> mapToEval = scenarioCtx.get(input, HashMap.class);
+            if ( mapToEval != null ) {
+                evaluate(mapToEval);
+                scenarioCtx.put(input, HashMap.class, mapToEval);
+            }
+        }
     }
 
 
     /**
-     * helper method to handle nested macros in maps and lists.
-     * Recursion is used to check every entity of the input map.
-     * Nested lists are not supported
+     * evaluates macros in any data set
+     * Maps and lists are traversed once and each "mcr." variable is substituted in place,
+     * so large data sets can be evaluated without copying them.
      *
-     * @param map HashMap, input to be checked for macro presence
-     * @param macrosAfterEvaluation HashMap, contains macros name and calculated value mapping
+     * @param data T, map, list or a single value
+     *
+     * @return T, evaluated data, for a single String value its substitution
      */
-    private void handleEvaluation (HashMap<String, Object> map, HashMap<String, String> macrosAfterEvaluation) {
-        for (HashMap.Entry<String, Object> entry : map.entrySet()){
-
-            if ( entry.getValue() instanceof HashMap ) {
-                handleEvaluation((HashMap) entry.getValue(), macrosAfterEvaluation);
-            } else if ( entry.getValue() instanceof ArrayList ) {
-                for (int i=0; i < ((ArrayList) entry.getValue()).size(); i++){
-                    if ( ((ArrayList) entry.getValue()).get(i).getClass().getName().contains("String")) {
-                        for (HashMap.Entry<String, String> macroEntry : macrosAfterEvaluation.entrySet()) {
-                            if (((ArrayList) entry.getValue()).get(i).equals("mcr." + macroEntry.getKey())) {
-                                ((ArrayList) entry.getValue()).set(i,macroEntry.getValue());
-                            }
-                        }
-                    } else if ( ((ArrayList) entry.getValue()).get(i) instanceof HashMap) {
-                        handleEvaluation((HashMap<String, Object>) ((ArrayList) entry.getValue()).get(i), macrosAfterEvaluation);
-                    }
+    public <T> T evaluate(T data) {
+        if ( data instanceof Map ) {
+            for (Map.Entry<String, Object> entry : ((Map<String, Object>) data).entrySet()) {
+                Object value = entry.getValue();
+                Object evaluated = evaluate(value);
+                if ( evaluated != value ) {
+                    ((Map<String, Object>) data).put(entry.getKey(), evaluated);
                 }
-            } else {
-                if (entry.getValue().getClass().getName().contains("String")) {
-                    for (HashMap.Entry<String, String> macroEntry : macrosAfterEvaluation.entrySet()) {
-                        if (entry.getValue().equals("mcr." + macroEntry.getKey())) {
-                            map.put(entry.getKey(), macroEntry.getValue());
-                        }
-                    }
+            }
+        } else if ( data instanceof List ) {
+            List<Object> list = (List<Object>) data;
+            for (int i = 0; i < list.size(); i++) {
+                Object value = list.get(i);
+                Object evaluated = evaluate(value);
+                if ( evaluated != value ) {
+                    list.set(i, evaluated);
                 }
             }
+        } else if ( data instanceof String && ((String) data).startsWith(PREFIX) ) {
+            String value = get(((String) data).substring(PREFIX.length()));
+            if ( value != null ) {
+                return (T) value;
+            }
         }
-    }
 
+        return data;
+    }
 
-}
\ No newline at end of file
+}
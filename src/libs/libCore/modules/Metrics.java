@@ -0,0 +1,282 @@
+package libs.libCore.modules;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registry of latency histograms and counters collected for the whole test run
+ *
+ * Durations of steps are recorded per step definition from step events and durations of remote operations
+ * (sql queries, ssh and winRM commands, REST requests to vCloud Director, web page look ups, local processes)
+ * are recorded by the core modules using Metrics.start and Sample.stop. Each sample is also a span of Tracer.
+ *
+ * Histograms use fixed log-linear buckets, 16 buckets per power of two, so recording is a single atomic increment
+ * and percentiles are accurate to about 6%. Nothing is allocated when a value is recorded.
+ *
+ * At the end of the run metrics are written to target/metrics.json and to target/metrics.prom in Prometheus
+ * text format. Each parallel worker writes its own files target/metrics_worker[N].json and .prom.
+ */
+public class Metrics {
+
+    public static final String STEP = "step";
+    public static final String OPERATION = "operation";
+
+    private static final double[] QUANTILES = { 0.5, 0.95, 0.99 };
+
+    private static final Map<String, Map<String, Histogram>> histograms = new ConcurrentHashMap<>();
+    private static final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+
+    static {
+        histograms.put(STEP, new ConcurrentHashMap<>());
+        histograms.put(OPERATION, new ConcurrentHashMap<>());
+    }
+
+
+    /**
+     * Latency histogram with log-linear buckets
+     */
+    private static final class Histogram {
+
+        private static final int SUB_BITS = 4;
+        private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(64 * SUB_BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+
+        private void record(long nanos) {
+            long value = Math.max(0, nanos);
+            buckets.incrementAndGet(index(value));
+            count.increment();
+            sum.add(value);
+            long current = max.get();
+            while ( value > current && ! max.compareAndSet(current, value) ) {
+                current = max.get();
+            }
+        }
+
+        private static int index(long value) {
+            if ( value < SUB_BUCKETS ) {
+                return (int) value;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+            return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+        }
+
+        private static long upperBound(int index) {
+            if ( index < SUB_BUCKETS ) {
+                return index;
+            }
+            int exponent = index / SUB_BUCKETS + SUB_BITS - 1;
+            long sub = index % SUB_BUCKETS;
+            return ((SUB_BUCKETS + sub + 1) << (exponent - SUB_BITS)) - 1;
+        }
+
+        /**
+         * returns values of requested quantiles, each value is the upper bound of the bucket
+         * limited by the highest recorded value
+         */
+        private long[] quantiles(double[] quantiles) {
+            long[] counts = new long[buckets.length()];
+            long total = 0;
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = buckets.get(i);
+                total += counts[i];
+            }
+
+            long[] result = new long[quantiles.length];
+            if ( total == 0 ) {
+                return result;
+            }
+            long highest = max.get();
+            int bucket = 0;
+            long seen = counts[0];
+            for (int q = 0; q < quantiles.length; q++) {
+                long rank = Math.max(1, (long) Math.ceil(quantiles[q] * total));
+                while ( seen < rank && bucket < counts.length - 1 ) {
+                    seen += counts[++bucket];
+                }
+                result[q] = Math.min(upperBound(bucket), highest);
+            }
+
+            return result;
+        }
+    }
+
+
+    /**
+     * Single measurement of a duration started by Metrics.start
+     */
+    public static final class Sample {
+
+        private final Histogram histogram;
+        private final Tracer.Span span;
+        private final long start;
+
+        private Sample(Histogram histogram, Tracer.Span span) {
+            this.histogram = histogram;
+            this.span = span;
+            this.start = System.nanoTime();
+        }
+
+        /**
+         * stops the measurement and records its duration
+         *
+         * @return long, duration in ns
+         */
+        public long stop() {
+            long duration = System.nanoTime() - start;
+            span.end();
+            histogram.record(duration);
+            return duration;
+        }
+    }
+
+
+    /**
+     * Starts measurement of a remote operation
+     *
+     * @param operation String, name of the operation for example sql.selectList
+     *
+     * @return Sample
+     */
+    public static Sample start(String operation) {
+        return new Sample(histogram(OPERATION, operation), Tracer.begin("module", operation));
+    }
+
+
+    /**
+     * Records duration of a step or of an operation
+     *
+     * @param type String, STEP or OPERATION
+     * @param name String, name of the step definition or operation
+     * @param nanos long, duration in ns
+     */
+    public static void record(String type, String name, long nanos) {
+        histogram(type, name).record(nanos);
+    }
+
+
+    /**
+     * Increments a counter
+     *
+     * @param name String, name of the counter
+     */
+    public static void increment(String name) {
+        LongAdder counter = counters.get(name);
+        if ( counter == null ) {
+            counter = counters.computeIfAbsent(name, k -> new LongAdder());
+        }
+        counter.increment();
+    }
+
+    private static Histogram histogram(String type, String name) {
+        Map<String, Histogram> byName = histograms.get(type);
+        if ( byName == null ) {
+            Log.error("Unknown metric type " + type + ". Supported are " + STEP + " and " + OPERATION);
+        }
+        Histogram histogram = byName.get(name);
+        if ( histogram == null ) {
+            histogram = byName.computeIfAbsent(name, k -> new Histogram());
+        }
+
+        return histogram;
+    }
+
+
+    /**
+     * Writes all metrics collected so far to metrics.json and metrics.prom in the provided directory
+     * Each parallel worker writes its own files metrics_worker[N].json and metrics_worker[N].prom
+     *
+     * @param dir File, directory where metrics shall be written, usually target
+     */
+    public static void report(File dir) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        StringBuilder prom = new StringBuilder();
+
+        for (String type : Arrays.asList(STEP, OPERATION)) {
+            String metric = "saf_" + type + "_duration_seconds";
+            prom.append("# HELP ").append(metric).append(" Duration of each ").append(type).append(" in seconds\n");
+            prom.append("# TYPE ").append(metric).append(" summary\n");
+
+            Map<String, Object> entries = new LinkedHashMap<>();
+            for (Map.Entry<String, Histogram> entry : new TreeMap<>(histograms.get(type)).entrySet()) {
+                Histogram h = entry.getValue();
+                long count = h.count.sum();
+                if ( count == 0 ) {
+                    continue;
+                }
+                long sum = h.sum.sum();
+                long[] values = h.quantiles(QUANTILES);
+                String label = type + "=\"" + escape(entry.getKey()) + "\"";
+
+                Map<String, Object> stats = new LinkedHashMap<>();
+                stats.put("count", count);
+                stats.put("sumMs", millis(sum));
+                stats.put("meanMs", millis(sum / count));
+                for (int i = 0; i < QUANTILES.length; i++) {
+                    stats.put("p" + Math.round(QUANTILES[i] * 100) + "Ms", millis(values[i]));
+                    prom.append(metric).append("{").append(label).append(",quantile=\"").append(QUANTILES[i])
+                            .append("\"} ").append(seconds(values[i])).append("\n");
+                }
+                stats.put("maxMs", millis(h.max.get()));
+                entries.put(entry.getKey(), stats);
+
+                prom.append(metric).append("_sum{").append(label).append("} ").append(seconds(sum)).append("\n");
+                prom.append(metric).append("_count{").append(label).append("} ").append(count).append("\n");
+            }
+            json.put(type + "s", entries);
+        }
+
+        Map<String, Object> counts = new LinkedHashMap<>();
+        prom.append("# HELP saf_events_total Number of events\n");
+        prom.append("# TYPE saf_events_total counter\n");
+        for (Map.Entry<String, LongAdder> entry : new TreeMap<>(counters).entrySet()) {
+            long value = entry.getValue().sum();
+            counts.put(entry.getKey(), value);
+            prom.append("saf_events_total{name=\"").append(escape(entry.getKey())).append("\"} ")
+                    .append(value).append("\n");
+        }
+        json.put("counters", counts);
+
+        Gson gson = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
+        String workerId = System.getProperty(ParallelCucumber.WORKER_ID_PROPERTY);
+        String baseName = workerId == null ? "metrics" : "metrics_worker" + workerId;
+        File jsonFile = new File(dir, baseName + ".json");
+        File promFile = new File(dir, baseName + ".prom");
+        try {
+            Files.createDirectories(dir.toPath());
+            Files.write(jsonFile.toPath(), gson.toJson(json).getBytes(StandardCharsets.UTF_8));
+            Files.write(promFile.toPath(), prom.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            Log.warn("Metrics can't be written to " + dir.getAbsolutePath() + ". " + e.getMessage());
+            return;
+        }
+        Log.info("Metrics written to " + jsonFile.getAbsolutePath() + " and " + promFile.getAbsolutePath());
+    }
+
+    private static double millis(long nanos) {
+        return Math.round(nanos / 1e3) / 1e3;
+    }
+
+    private static String seconds(long nanos) {
+        return String.valueOf(nanos / 1e9);
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+}
@@ -0,0 +1,155 @@
+package libs.libCore.modules;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Registry of core modules used by a scenario
+ *
+ * Modules are registered in the scenario context with lazy providers so each module is built on first access
+ * (usually from a constructor of another module or a step class) and not when the scenario starts.
+ * Only modules that were built are torn down when the scenario ends, in reverse order of building.
+ *
+ * Number of builds and build time of each module is collected for the whole test run and printed at the end of
+ * the run together with an estimation of initialisation time saved for scenarios that did not use particular module.
+ * Build time of a module includes building of modules it depends on.
+ */
+public class ModuleRegistry {
+
+    private static final Map<String, Stats> stats = Collections.synchronizedMap(new LinkedHashMap<>());
+
+    private final Context scenarioCtx;
+    private final List<Module<?>> modules = new ArrayList<>();
+    private final List<Module<?>> built = new ArrayList<>();
+
+    /**
+     * Build statistics of a single module collected for the whole test run
+     */
+    private static final class Stats {
+        private final AtomicLong builds = new AtomicLong();
+        private final AtomicLong skipped = new AtomicLong();
+        private final AtomicLong nanos = new AtomicLong();
+    }
+
+    private static final class Module<T> {
+        private final ContextKey<T> key;
+        private final Consumer<T> teardown;
+
+        private Module(ContextKey<T> key, Consumer<T> teardown) {
+            this.key = key;
+            this.teardown = teardown;
+        }
+    }
+
+    public ModuleRegistry(Context scenarioCtx) {
+        this.scenarioCtx = scenarioCtx;
+    }
+
+
+    /**
+     * Registers module which does not need any clean up
+     *
+     * @param name String, name of the module in the context
+     * @param type Class, type of the module
+     * @param provider Supplier, function used to build the module
+     */
+    public <T> void register(String name, Class<T> type, Supplier<T> provider) {
+        register(name, type, provider, null);
+    }
+
+
+    /**
+     * Registers module
+     *
+     * @param name String, name of the module in the context
+     * @param type Class, type of the module
+     * @param provider Supplier, function used to build the module
+     * @param teardown Consumer, function used to clean up the module at the end of scenario, can be null
+     */
+    public <T> void register(String name, Class<T> type, Supplier<T> provider, Consumer<T> teardown) {
+        ContextKey<T> key = ContextKey.of(name, type);
+        Module<T> module = new Module<>(key, teardown);
+        Stats moduleStats = stats.computeIfAbsent(name, k -> new Stats());
+
+        modules.add(module);
+        scenarioCtx.putLazy(key, () -> {
+            long start = System.nanoTime();
+            T instance = provider.get();
+            moduleStats.nanos.addAndGet(System.nanoTime() - start);
+            moduleStats.builds.incrementAndGet();
+            built.add(module);
+            Log.debug("Module " + name + " initialised");
+            return instance;
+        });
+    }
+
+
+    /**
+     * Checks if module was already built in this scenario
+     *
+     * @param name String, name of the module
+     * @param type Class, type of the module
+     *
+     * @return boolean
+     */
+    public boolean isBuilt(String name, Class<?> type) {
+        return scenarioCtx.isBuilt(ContextKey.of(name, type));
+    }
+
+
+    /**
+     * Cleans up modules which were built in this scenario
+     * Modules which were never accessed are skipped
+     */
+    public void teardown() {
+        for (int i = built.size() - 1; i >= 0; i--) {
+            teardown(built.get(i));
+        }
+        for (Module<?> module : modules) {
+            if ( ! built.contains(module) ) {
+                stats.get(module.key.getName()).skipped.incrementAndGet();
+            }
+        }
+        built.clear();
+    }
+
+    private <T> void teardown(Module<T> module) {
+        if ( module.teardown != null ) {
+            module.teardown.accept(scenarioCtx.get(module.key));
+        }
+    }
+
+
+    /**
+     * Prints module initialisation report for the whole test run
+     */
+    public static void report() {
+        List<String> lines = new ArrayList<>();
+        long savedNanos = 0;
+        synchronized (stats) {
+            for (Map.Entry<String, Stats> entry : stats.entrySet()) {
+                Stats s = entry.getValue();
+                long builds = s.builds.get();
+                long avg = builds == 0 ? 0 : s.nanos.get() / builds;
+                long saved = avg * s.skipped.get();
+                savedNanos += saved;
+                lines.add(String.format("%-20s built %5d times, skipped %5d times, avg build time %8.3f ms, saved %8.3f ms",
+                        entry.getKey(), builds, s.skipped.get(), avg / 1e6, saved / 1e6));
+            }
+        }
+
+        if ( lines.isEmpty() ) {
+            return;
+        }
+        Log.info("--- Module initialisation report ---");
+        for (String line : lines) {
+            Log.info(line);
+        }
+        Log.info("Estimated initialisation time saved: " + TimeUnit.NANOSECONDS.toMillis(savedNanos) + " ms");
+        Log.info("--- end ---");
+    }
+
+}
@@ -238,10 +238,14 @@ public class PageCore {
      */
     public WebElement findElement(By locator) {
 
-        ExecutionTimer t_FindBy = new ExecutionTimer();
-        Log.debug("Looking for an element identified " + locator);
-        WebElement element = Page.findElement(locator);
-        t_FindBy.end();
+        WebElement element;
+        ExecutionTimer t_FindBy = new ExecutionTimer("page.findElement");
+        try {
+            Log.debug("Looking for an element identified " + locator);
+            element = Page.findElement(locator);
+        } finally {
+            t_FindBy.end();
+        }
         Log.debug("Element found after " + t_FindBy.duration()  + " ms");
 
         return element;
@@ -258,10 +262,14 @@ public class PageCore {
 
         Integer count = 0;
 
-        ExecutionTimer t_FindBy = new ExecutionTimer();
-        Log.debug("Looking for elements identified " + locator);
-        List<WebElement> elements = Page.findElements(locator);
-        t_FindBy.end();
+        List<WebElement> elements;
+        ExecutionTimer t_FindBy = new ExecutionTimer("page.findElements");
+        try {
+            Log.debug("Looking for elements identified " + locator);
+            elements = Page.findElements(locator);
+        } finally {
+            t_FindBy.end();
+        }
         if (elements != null ) {
             count = elements.size();
         }
@@ -337,9 +345,13 @@ public class PageCore {
     public Object executeJs (String script) {
 
         Log.debug("Going to execute js");
-        ExecutionTimer t_FindBy = new ExecutionTimer();
-        Object result = Page.executeScript(script);
-        t_FindBy.end();
+        Object result;
+        ExecutionTimer t_FindBy = new ExecutionTimer("page.executeJs");
+        try {
+            result = Page.executeScript(script);
+        } finally {
+            t_FindBy.end();
+        }
         Log.debug("Js execution done in " + t_FindBy.duration()  + " ms");
 
         return result;
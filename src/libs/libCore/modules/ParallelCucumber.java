@@ -0,0 +1,338 @@
+package libs.libCore.modules;
+
+import cucumber.api.CucumberOptions;
+import cucumber.api.SnippetType;
+import cucumber.api.junit.Cucumber;
+import cucumber.runtime.RuntimeOptions;
+import cucumber.runtime.RuntimeOptionsFactory;
+import cucumber.runtime.io.MultiLoader;
+import org.junit.runner.Description;
+import org.junit.runner.Runner;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunNotifier;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * JUnit runner that can execute features in parallel
+ *
+ * Number of workers is set via -Dsaf.parallel.workers (default 1). With a single worker features are executed
+ * by the standard Cucumber runner. With more workers feature files are split between worker JVMs so each worker
+ * has its own Global context, scenario contexts, log file and web drivers. Features are balanced by file size.
+ *
+ * Workers get the same class path and jvm arguments (for example aspectj agent used by Allure) including all
+ * -D system properties as the main JVM, ctx., allure. and saf. properties set at runtime (for example by surefire)
+ * are forwarded as well. cucumber.options is not forwarded, options it contains (plugins, glue, tags, ...) are
+ * already merged into runtime options which are passed to workers explicitly, its feature paths would override
+ * features of the worker. Each worker writes its own log
+ * target/[timestamp]_worker[N]_SAF.log and its console output to target/saf-worker-[N].out.
+ * Allure results of all workers are written to the same allure results directory.
+ */
+public class ParallelCucumber extends Runner {
+
+    public static final String WORKERS_PROPERTY = "saf.parallel.workers";
+    public static final String WORKER_ID_PROPERTY = "saf.worker.id";
+
+    private static final String[] FORWARDED_PROPERTIES = {"ctx.", "allure.", "saf.", "file.encoding", "user.timezone"};
+    private static final String CUCUMBER_OPTIONS_PROPERTY = "cucumber.options";
+    private static final String[] PLUGIN_FIELDS =
+            {"pluginFormatterNames", "pluginStepDefinitionReporterNames", "pluginSummaryPrinterNames"};
+
+    private final Class<?> clazz;
+    private final int workers;
+    private Runner delegate;
+    private RuntimeOptions runtimeOptions;
+    private List<List<String>> partitions;
+    private Description description;
+
+    public ParallelCucumber(Class<?> clazz) throws Exception {
+        this.clazz = clazz;
+        int requested = Integer.getInteger(WORKERS_PROPERTY, 1);
+        if ( requested > 1 ) {
+            runtimeOptions = new RuntimeOptionsFactory(clazz).create();
+            if ( ! runtimeOptions.getLineFilters(new MultiLoader(clazz.getClassLoader())).isEmpty() ) {
+                //line filters are bound to particular files so they can't be split between workers
+                requested = 1;
+            }
+        }
+
+        if ( requested > 1 ) {
+            partitions = partition(findFeatureFiles(runtimeOptions.getFeaturePaths()), requested);
+            workers = partitions.size();
+        } else {
+            workers = 1;
+        }
+
+        if ( workers <= 1 ) {
+            delegate = new Cucumber(clazz);
+        } else {
+            description = Description.createSuiteDescription(clazz);
+            for (int i = 0; i < workers; i++) {
+                description.addChild(Description.createTestDescription(clazz,
+                        "worker " + (i + 1) + " (" + partitions.get(i).size() + " features)"));
+            }
+        }
+    }
+
+    @Override
+    public Description getDescription() {
+        return delegate != null ? delegate.getDescription() : description;
+    }
+
+    @Override
+    public void run(RunNotifier notifier) {
+        if ( delegate != null ) {
+            delegate.run(notifier);
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        List<Future<?>> results = new ArrayList<>();
+        for (int i = 0; i < workers; i++) {
+            final int id = i + 1;
+            final List<String> features = partitions.get(i);
+            final Description child = description.getChildren().get(i);
+            results.add(executor.submit(() -> runWorker(id, features, child, notifier)));
+        }
+
+        for (Future<?> result : results) {
+            try {
+                result.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                notifier.fireTestFailure(new Failure(description, e.getCause()));
+            }
+        }
+        executor.shutdownNow();
+    }
+
+
+    /**
+     * helper function used to start single worker JVM and wait for its completion
+     *
+     * @param id int, worker number
+     * @param features List, paths to feature files to execute
+     * @param child Description, description of the worker
+     * @param notifier RunNotifier
+     */
+    private void runWorker(int id, List<String> features, Description child, RunNotifier notifier) {
+        notifier.fireTestStarted(child);
+        File out = new File("target", "saf-worker-" + id + ".out");
+        Process process = null;
+        try {
+            Files.createDirectories(out.getParentFile().toPath());
+            ProcessBuilder builder = new ProcessBuilder(workerCommand(id, features))
+                    .redirectErrorStream(true)
+                    .redirectOutput(out);
+            //options are passed on the command line, feature paths from environment would override them
+            builder.environment().remove("CUCUMBER_OPTIONS");
+            process = builder.start();
+            int exitCode = process.waitFor();
+            if ( exitCode != 0 ) {
+                notifier.fireTestFailure(new Failure(child, new AssertionError(
+                        "Worker " + id + " finished with failures. Please check " + out.getAbsolutePath()
+                                + ", worker log and allure report for details")));
+            }
+        } catch (IOException e) {
+            notifier.fireTestFailure(new Failure(child, e));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            notifier.fireTestFailure(new Failure(child, e));
+        } finally {
+            //run was cancelled, do not leave worker executing scenarios
+            if ( process != null && process.isAlive() ) {
+                process.destroyForcibly();
+            }
+            notifier.fireTestFinished(child);
+        }
+    }
+
+
+    /**
+     * helper function used to build command line of a worker JVM
+     *
+     * @param id int, worker number
+     * @param features List, paths to feature files to execute
+     *
+     * @return List of command line arguments
+     */
+    private List<String> workerCommand(int id, List<String> features) {
+        List<String> cmd = new ArrayList<>();
+        cmd.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+
+        Set<String> forwarded = new HashSet<>();
+        forwarded.add(WORKERS_PROPERTY);
+        forwarded.add(WORKER_ID_PROPERTY);
+        for (String arg : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            //debugger port can't be shared
+            if ( arg.startsWith("-agentlib:jdwp") ) {
+                continue;
+            }
+            if ( arg.startsWith("-D") ) {
+                String name = arg.substring(2).split("=", 2)[0];
+                if ( name.equals(WORKERS_PROPERTY) || name.equals(WORKER_ID_PROPERTY)
+                        || name.equals(CUCUMBER_OPTIONS_PROPERTY) ) {
+                    continue;
+                }
+                forwarded.add(name);
+            }
+            cmd.add(arg);
+        }
+
+        //properties which were not passed on the command line but set at runtime
+        Properties properties = System.getProperties();
+        for (String name : properties.stringPropertyNames()) {
+            for (String prefix : FORWARDED_PROPERTIES) {
+                if ( name.startsWith(prefix) && ! forwarded.contains(name) ) {
+                    cmd.add("-D" + name + "=" + properties.getProperty(name));
+                    break;
+                }
+            }
+        }
+        cmd.add("-D" + WORKER_ID_PROPERTY + "=" + id);
+
+        cmd.add("-cp");
+        cmd.add(System.getProperty("java.class.path"));
+        cmd.add("cucumber.api.cli.Main");
+
+        for (String glue : runtimeOptions.getGlue()) {
+            cmd.add("--glue");
+            cmd.add(glue);
+        }
+        for (String plugin : pluginNames()) {
+            cmd.add("--plugin");
+            cmd.add(plugin);
+        }
+        for (String tags : runtimeOptions.getTagFilters()) {
+            cmd.add("--tags");
+            cmd.add(tags);
+        }
+        runtimeOptions.getNameFilters().forEach(pattern -> {
+            cmd.add("--name");
+            cmd.add(pattern.pattern());
+        });
+        if ( runtimeOptions.isStrict() ) {
+            cmd.add("--strict");
+        }
+        if ( runtimeOptions.isMonochrome() ) {
+            cmd.add("--monochrome");
+        }
+        if ( runtimeOptions.isDryRun() ) {
+            cmd.add("--dry-run");
+        }
+        if ( runtimeOptions.getSnippetType() == SnippetType.CAMELCASE ) {
+            cmd.add("--snippets");
+            cmd.add("camelcase");
+        }
+        cmd.addAll(features);
+
+        return cmd;
+    }
+
+
+    /**
+     * helper function used to get names of plugins from runtime options
+     * Runtime options contain plugins from CucumberOptions annotation merged with plugins from cucumber.options
+     * but do not expose their names, plugins from the annotation are used if names can't be read
+     *
+     * @return List of plugin names in the form accepted by --plugin
+     */
+    private List<String> pluginNames() {
+        Set<String> names = new LinkedHashSet<>();
+        try {
+            for (String fieldName : PLUGIN_FIELDS) {
+                Field field = RuntimeOptions.class.getDeclaredField(fieldName);
+                field.setAccessible(true);
+                for (Object name : (List<?>) field.get(runtimeOptions)) {
+                    names.add(String.valueOf(name));
+                }
+            }
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            Log.warn("Plugins from cucumber.options can't be passed to workers. " + e.getMessage());
+            names.clear();
+            CucumberOptions options = clazz.getAnnotation(CucumberOptions.class);
+            if ( options != null ) {
+                names.addAll(Arrays.asList(options.plugin()));
+            }
+        }
+
+        return new ArrayList<>(names);
+    }
+
+
+    /**
+     * helper function used to find all feature files under provided paths
+     *
+     * @param featurePaths List, paths to feature files or directories
+     *
+     * @return List of feature files sorted by path
+     */
+    private static List<Path> findFeatureFiles(List<String> featurePaths) throws IOException {
+        SortedSet<Path> files = new TreeSet<>();
+        for (String featurePath : featurePaths) {
+            Path path = Paths.get(featurePath.startsWith("file:") ? featurePath.substring(5) : featurePath);
+            if ( Files.isDirectory(path) ) {
+                try (Stream<Path> walk = Files.walk(path)) {
+                    files.addAll(walk.filter(p -> p.toString().endsWith(".feature")).collect(Collectors.toList()));
+                }
+            } else if ( Files.exists(path) ) {
+                files.add(path);
+            }
+        }
+
+        return new ArrayList<>(files);
+    }
+
+
+    /**
+     * helper function used to split feature files between workers
+     * Biggest files are assigned first, each to the currently least loaded worker
+     *
+     * @param files List, feature files
+     * @param workers int, requested number of workers
+     *
+     * @return List of non empty partitions
+     */
+    private static List<List<String>> partition(List<Path> files, int workers) {
+        List<List<String>> partitions = new ArrayList<>();
+        long[] load = new long[workers];
+        for (int i = 0; i < workers; i++) {
+            partitions.add(new ArrayList<>());
+        }
+
+        files.sort(Comparator.comparingLong(ParallelCucumber::sizeOf).reversed());
+        for (Path file : files) {
+            int least = 0;
+            for (int i = 1; i < workers; i++) {
+                if ( load[i] < load[least] ) {
+                    least = i;
+                }
+            }
+            partitions.get(least).add(file.toString());
+            load[least] += sizeOf(file);
+        }
+        partitions.removeIf(List::isEmpty);
+
+        return partitions;
+    }
+
+    private static long sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+}
@@ -0,0 +1,367 @@
+package libs.libCore.modules;
+
+import java.util.*;
+
+/**
+ * Immutable hash array mapped trie
+ *
+ * Each update returns a new map which shares all untouched nodes with the original one so assoc and without
+ * cost O(log32 n) time and memory. Used to keep run level storage data (for example parsed configuration files)
+ * which is shared by all scenarios and threads and can't be modified by any of them.
+ *
+ * Iteration follows insertion order of the keys, same as for LinkedHashMap, so a map frozen from a HashMap and
+ * forked back gives the same iteration order as the source. Iteration costs O(n log n).
+ *
+ * Null keys are not supported, null values are.
+ */
+@SuppressWarnings("unchecked")
+public final class PersistentMap<K, V> implements Iterable<Map.Entry<K, V>> {
+
+    private static final PersistentMap<?, ?> EMPTY = new PersistentMap<>(0, null, 0);
+    private static final Object NOT_FOUND = new Object();
+
+    private final int size;
+    private final Node root;
+    private final long nextSeq;
+
+    private PersistentMap(int size, Node root, long nextSeq) {
+        this.size = size;
+        this.root = root;
+        this.nextSeq = nextSeq;
+    }
+
+    /**
+     * Value stored in the trie together with its insertion sequence number
+     */
+    private static final class Leaf {
+        private final Object value;
+        private final long seq;
+
+        private Leaf(Object value, long seq) {
+            this.value = value;
+            this.seq = seq;
+        }
+    }
+
+    public static <K, V> PersistentMap<K, V> empty() {
+        return (PersistentMap<K, V>) EMPTY;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public V get(Object key) {
+        return getOrDefault(key, null);
+    }
+
+    public V getOrDefault(Object key, V defaultValue) {
+        if ( root == null || key == null ) {
+            return defaultValue;
+        }
+        Object leaf = root.find(0, hash(key), key, NOT_FOUND);
+
+        return leaf == NOT_FOUND ? defaultValue : (V) ((Leaf) leaf).value;
+    }
+
+    public boolean containsKey(Object key) {
+        return root != null && key != null && root.find(0, hash(key), key, NOT_FOUND) != NOT_FOUND;
+    }
+
+    /**
+     * Returns map with particular key set to provided value
+     *
+     * @param key K, key, can't be null
+     * @param value V, value
+     *
+     * @return PersistentMap, this map if value was already set
+     */
+    public PersistentMap<K, V> assoc(K key, V value) {
+        if ( key == null ) {
+            throw new IllegalArgumentException("Null keys are not supported!");
+        }
+        int hash = hash(key);
+        Object existing = root == null ? NOT_FOUND : root.find(0, hash, key, NOT_FOUND);
+        if ( existing != NOT_FOUND && ((Leaf) existing).value == value ) {
+            return this;
+        }
+        //replaced key keeps its position in iteration order
+        Leaf leaf = new Leaf(value, existing == NOT_FOUND ? nextSeq : ((Leaf) existing).seq);
+
+        boolean[] added = new boolean[1];
+        Node start = root == null ? BitmapNode.EMPTY : root;
+        Node newRoot = start.assoc(0, hash, key, leaf, added);
+
+        return new PersistentMap<>(added[0] ? size + 1 : size, newRoot, added[0] ? nextSeq + 1 : nextSeq);
+    }
+
+    /**
+     * Returns map without particular key
+     *
+     * @param key K, key
+     *
+     * @return PersistentMap, this map if key does not exist
+     */
+    public PersistentMap<K, V> without(K key) {
+        if ( root == null || key == null ) {
+            return this;
+        }
+        Node newRoot = root.without(0, hash(key), key);
+        if ( newRoot == root ) {
+            return this;
+        }
+
+        return newRoot == null ? empty() : new PersistentMap<>(size - 1, newRoot, nextSeq);
+    }
+
+    @Override
+    public Iterator<Map.Entry<K, V>> iterator() {
+        List<Map.Entry<Object, Object>> leaves = new ArrayList<>(size);
+        if ( root != null ) {
+            root.collect(leaves);
+        }
+        leaves.sort(Comparator.comparingLong(entry -> ((Leaf) entry.getValue()).seq));
+
+        List<Map.Entry<K, V>> entries = new ArrayList<>(size);
+        for (Map.Entry<Object, Object> entry : leaves) {
+            entries.add(new AbstractMap.SimpleImmutableEntry<>((K) entry.getKey(), (V) ((Leaf) entry.getValue()).value));
+        }
+
+        return Collections.unmodifiableList(entries).iterator();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        for (Map.Entry<K, V> entry : this) {
+            if ( sb.length() > 1 ) {
+                sb.append(", ");
+            }
+            sb.append(entry.getKey()).append('=').append(entry.getValue());
+        }
+
+        return sb.append('}').toString();
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+
+    private interface Node {
+        Object find(int shift, int hash, Object key, Object notFound);
+        Node assoc(int shift, int hash, Object key, Object value, boolean[] added);
+        Node without(int shift, int hash, Object key);
+        void collect(List<Map.Entry<Object, Object>> entries);
+    }
+
+
+    /**
+     * Node with up to 32 slots selected by 5 bits of the hash
+     * Each slot holds either a key and its value or null and a sub node
+     */
+    private static final class BitmapNode implements Node {
+
+        private static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+        private final int bitmap;
+        private final Object[] array;
+
+        private BitmapNode(int bitmap, Object[] array) {
+            this.bitmap = bitmap;
+            this.array = array;
+        }
+
+        private int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        @Override
+        public Object find(int shift, int hash, Object key, Object notFound) {
+            int bit = bitpos(hash, shift);
+            if ( (bitmap & bit) == 0 ) {
+                return notFound;
+            }
+            int idx = index(bit);
+            Object k = array[2 * idx];
+            Object v = array[2 * idx + 1];
+            if ( k == null ) {
+                return ((Node) v).find(shift + 5, hash, key, notFound);
+            }
+
+            return key.equals(k) ? v : notFound;
+        }
+
+        @Override
+        public Node assoc(int shift, int hash, Object key, Object value, boolean[] added) {
+            int bit = bitpos(hash, shift);
+            int idx = index(bit);
+            if ( (bitmap & bit) != 0 ) {
+                Object k = array[2 * idx];
+                Object v = array[2 * idx + 1];
+                if ( k == null ) {
+                    Node node = ((Node) v).assoc(shift + 5, hash, key, value, added);
+                    return node == v ? this : new BitmapNode(bitmap, cloneAndSet(array, 2 * idx + 1, node));
+                }
+                if ( key.equals(k) ) {
+                    return v == value ? this : new BitmapNode(bitmap, cloneAndSet(array, 2 * idx + 1, value));
+                }
+                added[0] = true;
+                Object[] newArray = cloneAndSet(array, 2 * idx, null);
+                newArray[2 * idx + 1] = createNode(shift + 5, k, v, hash, key, value);
+                return new BitmapNode(bitmap, newArray);
+            }
+
+            int n = Integer.bitCount(bitmap);
+            Object[] newArray = new Object[2 * (n + 1)];
+            System.arraycopy(array, 0, newArray, 0, 2 * idx);
+            newArray[2 * idx] = key;
+            newArray[2 * idx + 1] = value;
+            System.arraycopy(array, 2 * idx, newArray, 2 * (idx + 1), 2 * (n - idx));
+            added[0] = true;
+
+            return new BitmapNode(bitmap | bit, newArray);
+        }
+
+        @Override
+        public Node without(int shift, int hash, Object key) {
+            int bit = bitpos(hash, shift);
+            if ( (bitmap & bit) == 0 ) {
+                return this;
+            }
+            int idx = index(bit);
+            Object k = array[2 * idx];
+            Object v = array[2 * idx + 1];
+            if ( k == null ) {
+                Node node = ((Node) v).without(shift + 5, hash, key);
+                if ( node == v ) {
+                    return this;
+                }
+                if ( node != null ) {
+                    return new BitmapNode(bitmap, cloneAndSet(array, 2 * idx + 1, node));
+                }
+            } else if ( ! key.equals(k) ) {
+                return this;
+            }
+            if ( bitmap == bit ) {
+                return null;
+            }
+
+            return new BitmapNode(bitmap ^ bit, removePair(array, idx));
+        }
+
+        @Override
+        public void collect(List<Map.Entry<Object, Object>> entries) {
+            for (int i = 0; i < array.length; i += 2) {
+                if ( array[i] == null ) {
+                    ((Node) array[i + 1]).collect(entries);
+                } else {
+                    entries.add(new AbstractMap.SimpleImmutableEntry<>(array[i], array[i + 1]));
+                }
+            }
+        }
+
+        private static Node createNode(int shift, Object key1, Object value1, int hash2, Object key2, Object value2) {
+            int hash1 = hash(key1);
+            if ( hash1 == hash2 ) {
+                return new CollisionNode(hash1, new Object[]{key1, value1, key2, value2});
+            }
+            boolean[] added = new boolean[1];
+
+            return EMPTY.assoc(shift, hash1, key1, value1, added).assoc(shift, hash2, key2, value2, added);
+        }
+    }
+
+
+    /**
+     * Node holding keys with identical hash
+     */
+    private static final class CollisionNode implements Node {
+
+        private final int hash;
+        private final Object[] array;
+
+        private CollisionNode(int hash, Object[] array) {
+            this.hash = hash;
+            this.array = array;
+        }
+
+        private int indexOf(Object key) {
+            for (int i = 0; i < array.length; i += 2) {
+                if ( key.equals(array[i]) ) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public Object find(int shift, int hash, Object key, Object notFound) {
+            int idx = hash == this.hash ? indexOf(key) : -1;
+            return idx < 0 ? notFound : array[idx + 1];
+        }
+
+        @Override
+        public Node assoc(int shift, int hash, Object key, Object value, boolean[] added) {
+            if ( hash != this.hash ) {
+                //nest this node in a bitmap node so both hashes can be told apart
+                return new BitmapNode(bitpos(this.hash, shift), new Object[]{null, this})
+                        .assoc(shift, hash, key, value, added);
+            }
+            int idx = indexOf(key);
+            if ( idx >= 0 ) {
+                return array[idx + 1] == value ? this : new CollisionNode(hash, cloneAndSet(array, idx + 1, value));
+            }
+            Object[] newArray = Arrays.copyOf(array, array.length + 2);
+            newArray[array.length] = key;
+            newArray[array.length + 1] = value;
+            added[0] = true;
+
+            return new CollisionNode(hash, newArray);
+        }
+
+        @Override
+        public Node without(int shift, int hash, Object key) {
+            int idx = hash == this.hash ? indexOf(key) : -1;
+            if ( idx < 0 ) {
+                return this;
+            }
+            if ( array.length == 2 ) {
+                return null;
+            }
+
+            return new CollisionNode(hash, removePair(array, idx / 2));
+        }
+
+        @Override
+        public void collect(List<Map.Entry<Object, Object>> entries) {
+            for (int i = 0; i < array.length; i += 2) {
+                entries.add(new AbstractMap.SimpleImmutableEntry<>(array[i], array[i + 1]));
+            }
+        }
+    }
+
+
+    private static int bitpos(int hash, int shift) {
+        return 1 << ((hash >>> shift) & 31);
+    }
+
+    private static Object[] cloneAndSet(Object[] array, int i, Object value) {
+        Object[] clone = array.clone();
+        clone[i] = value;
+        return clone;
+    }
+
+    private static Object[] removePair(Object[] array, int pair) {
+        Object[] newArray = new Object[array.length - 2];
+        System.arraycopy(array, 0, newArray, 0, 2 * pair);
+        System.arraycopy(array, 2 * (pair + 1), newArray, 2 * pair, newArray.length - 2 * pair);
+        return newArray;
+    }
+
+}
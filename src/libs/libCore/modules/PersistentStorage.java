@@ -0,0 +1,340 @@
+package libs.libCore.modules;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Append only file used to persist content of storages between test runs
+ *
+ * Each write appends a single record in the form identifier={json} to the end of the file.
+ * Latest record for particular identifier wins. In memory index keeps offset and length of
+ * the latest record per identifier so a read is a single positioned read of one record.
+ * When the file grows to more than twice the size of its live records it is compacted
+ * in the background.
+ *
+ * File can be shared by multiple JVMs running on the same host. Every operation takes
+ * a FileChannel lock on a separate lock file. First line of the file holds a generation id
+ * which changes on each compaction so other JVMs know when their index has to be rebuilt.
+ *
+ * Records from SAF_Persistent_Storage_File.json written by former versions are imported once, when the file
+ * does not exist yet. Legacy file is left untouched.
+ */
+public class PersistentStorage {
+
+    private static final String TMP_DIR_PATH = System.getProperty("java.io.tmpdir");
+    public static final File STORAGE_FILE = new File(TMP_DIR_PATH + "//" + "SAF_Persistent_Storage.log");
+    private static final File LOCK_FILE = new File(TMP_DIR_PATH + "//" + "SAF_Persistent_Storage.lck");
+    private static final File LEGACY_FILE = new File(TMP_DIR_PATH + "//" + "SAF_Persistent_Storage_File.json");
+
+    private static final String HEADER_PREFIX = "#SAF-STORAGE ";
+    private static final long COMPACTION_THRESHOLD = 64 * 1024;
+
+    private static final Object MONITOR = new Object();
+    private static final Map<String, long[]> index = new HashMap<>();
+    private static String generation = null;
+    private static long indexedLength = 0;
+    private static long liveBytes = 0;
+    private static boolean compactionScheduled = false;
+
+    private static final ExecutorService compactor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "SAF-storage-compactor");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private PersistentStorage() {}
+
+
+    /**
+     * Checks if persistent storage file or legacy file which will be imported exists
+     *
+     * @return boolean
+     */
+    public static boolean exists() {
+        return STORAGE_FILE.exists() || LEGACY_FILE.exists();
+    }
+
+
+    /**
+     * Appends new record for particular identifier
+     *
+     * @param identifier String, identifier of the record
+     * @param json String, content of the storage in the form of a single line json
+     */
+    @SuppressWarnings("try") //file lock is not used in try block, it is only held until the block ends
+    public static void write(String identifier, String json) {
+        byte[] record = (identifier + "=" + json + "\n").getBytes(StandardCharsets.UTF_8);
+
+        synchronized (MONITOR) {
+            try (FileChannel lockChannel = openLockChannel();
+                 FileLock lock = lockChannel.lock(0, Long.MAX_VALUE, false)) {
+
+                refreshIndex();
+                try (RandomAccessFile raf = new RandomAccessFile(STORAGE_FILE, "rw")) {
+                    if ( raf.length() == 0 ) {
+                        byte[] header = newHeader();
+                        raf.write(header);
+                        generation = readGeneration(header);
+                        indexedLength = header.length;
+                    }
+                    long offset = raf.length();
+                    raf.seek(offset);
+                    raf.write(record);
+
+                    long[] previous = index.put(identifier, new long[]{offset, record.length});
+                    if ( previous != null ) {
+                        liveBytes -= previous[1];
+                    }
+                    liveBytes += record.length;
+                    indexedLength = offset + record.length;
+                }
+                Log.debug("Record " + identifier + " written to " + STORAGE_FILE.getAbsolutePath());
+
+                scheduleCompactionIfNeeded();
+            } catch (IOException e) {
+                Log.error("Can't write to persistent storage file " + STORAGE_FILE.getAbsolutePath(), e);
+            }
+        }
+    }
+
+
+    /**
+     * Reads latest record for particular identifier
+     *
+     * @param identifier String, identifier of the record
+     *
+     * @return String, json content of the record or null if record does not exist
+     */
+    @SuppressWarnings("try") //lock is only held, see write
+    public static String read(String identifier) {
+        synchronized (MONITOR) {
+            try (FileChannel lockChannel = openLockChannel();
+                 FileLock lock = lockChannel.lock(0, Long.MAX_VALUE, true)) {
+
+                refreshIndex();
+                long[] position = index.get(identifier);
+                if ( position == null ) {
+                    return null;
+                }
+
+                byte[] record = new byte[(int) position[1]];
+                try (RandomAccessFile raf = new RandomAccessFile(STORAGE_FILE, "r")) {
+                    raf.seek(position[0]);
+                    raf.readFully(record);
+                }
+
+                String line = new String(record, StandardCharsets.UTF_8).trim();
+                return line.substring(identifier.length() + 1);
+            } catch (IOException e) {
+                Log.error("Can't read from persistent storage file " + STORAGE_FILE.getAbsolutePath(), e);
+            }
+        }
+
+        return null;
+    }
+
+
+    /**
+     * Rewrites the file so it contains only latest record for each identifier
+     * Executed in the background when file contains too many outdated records
+     */
+    @SuppressWarnings("try") //lock is only held, see write
+    private static void compact() {
+        synchronized (MONITOR) {
+            compactionScheduled = false;
+            File tmp = new File(STORAGE_FILE.getAbsolutePath() + ".compact");
+            try (FileChannel lockChannel = openLockChannel();
+                 FileLock lock = lockChannel.lock(0, Long.MAX_VALUE, false)) {
+
+                refreshIndex();
+                Map<String, long[]> newIndex = new HashMap<>();
+                byte[] header = newHeader();
+                long offset = header.length;
+
+                try (RandomAccessFile in = new RandomAccessFile(STORAGE_FILE, "r");
+                     OutputStream out = new BufferedOutputStream(new FileOutputStream(tmp))) {
+                    out.write(header);
+                    for (Map.Entry<String, long[]> entry : index.entrySet()) {
+                        byte[] record = new byte[(int) entry.getValue()[1]];
+                        in.seek(entry.getValue()[0]);
+                        in.readFully(record);
+                        out.write(record);
+                        newIndex.put(entry.getKey(), new long[]{offset, record.length});
+                        offset += record.length;
+                    }
+                }
+
+                Files.move(tmp.toPath(), STORAGE_FILE.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+                index.clear();
+                index.putAll(newIndex);
+                generation = readGeneration(header);
+                indexedLength = offset;
+                liveBytes = offset - header.length;
+                Log.debug("Persistent storage file " + STORAGE_FILE.getAbsolutePath() + " compacted");
+            } catch (IOException e) {
+                //compaction is only an optimisation, storage file stays valid if it fails
+                Log.warn("Compaction of persistent storage file failed. " + e.getMessage());
+                tmp.delete();
+            }
+        }
+    }
+
+
+    /**
+     * helper function used to bring the index up to date with the file
+     * Only records appended since last refresh are scanned. Whole file is scanned again
+     * if it was compacted or replaced by other process.
+     */
+    private static void refreshIndex() throws IOException {
+        if ( ! STORAGE_FILE.exists() ) {
+            if ( ! LEGACY_FILE.exists() ) {
+                resetIndex(null);
+                return;
+            }
+            importLegacyFile();
+        }
+
+        try (RandomAccessFile raf = new RandomAccessFile(STORAGE_FILE, "r")) {
+            long length = raf.length();
+            String currentGeneration = readGeneration(raf);
+
+            if ( currentGeneration == null || ! currentGeneration.equals(generation) || length < indexedLength ) {
+                resetIndex(currentGeneration);
+                indexedLength = 0;
+            }
+
+            if ( indexedLength == length ) {
+                return;
+            }
+
+            raf.seek(indexedLength);
+            InputStream in = new BufferedInputStream(new FileInputStream(raf.getFD()), 64 * 1024);
+            ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+            long offset = indexedLength;
+            long lineStart = offset;
+            int b;
+            while ( offset < length && (b = in.read()) != -1 ) {
+                offset++;
+                if ( b == '\n' ) {
+                    addToIndex(line.toByteArray(), lineStart, offset - lineStart);
+                    line.reset();
+                    lineStart = offset;
+                } else if ( line.size() < 4096 ) {
+                    //identifier is always at the beginning of the record so there is no need to keep the rest
+                    line.write(b);
+                }
+            }
+            //incomplete record written by other process stays unindexed until it is finished
+            indexedLength = lineStart;
+        }
+    }
+
+
+    /**
+     * helper function used to create storage file from records of the legacy file
+     * Legacy file contains one identifier={json} record per line, file is written to a temporary file first
+     * and then moved, so other JVMs never see a partial file. Has to be called under the lock.
+     */
+    private static void importLegacyFile() throws IOException {
+        File tmp = new File(STORAGE_FILE.getAbsolutePath() + ".import");
+        int count = 0;
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(LEGACY_FILE), StandardCharsets.UTF_8));
+             OutputStream out = new BufferedOutputStream(new FileOutputStream(tmp))) {
+            out.write(newHeader());
+            String line;
+            while ( (line = in.readLine()) != null ) {
+                if ( line.contains("={") ) {
+                    out.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+                    count++;
+                }
+            }
+        } catch (IOException e) {
+            tmp.delete();
+            throw e;
+        }
+        Files.move(tmp.toPath(), STORAGE_FILE.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        Log.debug("Imported " + count + " records from legacy persistent storage file " + LEGACY_FILE.getAbsolutePath());
+    }
+
+
+    /**
+     * helper function used to add single record to the index
+     *
+     * @param head byte[], beginning of the record
+     * @param offset long, position of the record in the file
+     * @param length long, length of the record including line separator
+     */
+    private static void addToIndex(byte[] head, long offset, long length) {
+        for (int i = 0; i < head.length - 1; i++) {
+            if ( head[i] == '=' && head[i + 1] == '{' ) {
+                String identifier = new String(head, 0, i, StandardCharsets.UTF_8);
+                long[] previous = index.put(identifier, new long[]{offset, length});
+                if ( previous != null ) {
+                    liveBytes -= previous[1];
+                }
+                liveBytes += length;
+                return;
+            }
+        }
+    }
+
+
+    private static void resetIndex(String newGeneration) {
+        index.clear();
+        liveBytes = 0;
+        indexedLength = 0;
+        generation = newGeneration;
+    }
+
+
+    private static void scheduleCompactionIfNeeded() {
+        if ( ! compactionScheduled && indexedLength > COMPACTION_THRESHOLD && indexedLength > 2 * liveBytes ) {
+            compactionScheduled = true;
+            compactor.submit(PersistentStorage::compact);
+        }
+    }
+
+
+    private static FileChannel openLockChannel() throws IOException {
+        return FileChannel.open(LOCK_FILE.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+
+    private static byte[] newHeader() {
+        return (HEADER_PREFIX + UUID.randomUUID().toString() + "\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+
+    private static String readGeneration(byte[] header) {
+        String line = new String(header, StandardCharsets.UTF_8).trim();
+        return line.substring(HEADER_PREFIX.length());
+    }
+
+
+    private static String readGeneration(RandomAccessFile raf) throws IOException {
+        raf.seek(0);
+        byte[] header = new byte[HEADER_PREFIX.length() + 36 + 1];
+        if ( raf.length() < header.length ) {
+            return null;
+        }
+        raf.readFully(header);
+        String line = new String(header, StandardCharsets.UTF_8);
+        if ( ! line.startsWith(HEADER_PREFIX) ) {
+            return null;
+        }
+
+        return readGeneration(header);
+    }
+
+}
@@ -0,0 +1,132 @@
+package libs.libCore.modules;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Immutable vector implemented as a 32 way trie
+ *
+ * Updates return a new vector which shares all untouched nodes with the original one
+ * so get, assoc and cons cost O(log32 n). Counterpart of PersistentMap for lists.
+ */
+@SuppressWarnings("unchecked")
+public final class PersistentVector<V> implements Iterable<V> {
+
+    private static final PersistentVector<?> EMPTY = new PersistentVector<>(0, 0, new Object[32]);
+
+    private final int size;
+    private final int shift;
+    private final Object[] root;
+
+    private PersistentVector(int size, int shift, Object[] root) {
+        this.size = size;
+        this.shift = shift;
+        this.root = root;
+    }
+
+    public static <V> PersistentVector<V> empty() {
+        return (PersistentVector<V>) EMPTY;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public V get(int i) {
+        if ( i < 0 || i >= size ) {
+            throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size);
+        }
+        Object[] node = root;
+        for (int level = shift; level > 0; level -= 5) {
+            node = (Object[]) node[(i >>> level) & 31];
+        }
+
+        return (V) node[i & 31];
+    }
+
+    /**
+     * Returns vector with element under particular index replaced
+     *
+     * @param i int, index of existing element
+     * @param value V, new value
+     *
+     * @return PersistentVector
+     */
+    public PersistentVector<V> assoc(int i, V value) {
+        if ( i < 0 || i >= size ) {
+            throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size);
+        }
+
+        return new PersistentVector<>(size, shift, set(shift, root, i, value));
+    }
+
+    /**
+     * Returns vector with new element added at the end
+     *
+     * @param value V, new value
+     *
+     * @return PersistentVector
+     */
+    public PersistentVector<V> cons(V value) {
+        Object[] newRoot = root;
+        int newShift = shift;
+        //root is full, add a new level on top of it
+        if ( size == 1 << (shift + 5) ) {
+            newRoot = new Object[32];
+            newRoot[0] = root;
+            newShift += 5;
+        }
+
+        return new PersistentVector<>(size + 1, newShift, set(newShift, newRoot, size, value));
+    }
+
+    @Override
+    public Iterator<V> iterator() {
+        return new Iterator<V>() {
+            private int i = 0;
+
+            @Override
+            public boolean hasNext() {
+                return i < size;
+            }
+
+            @Override
+            public V next() {
+                if ( i >= size ) {
+                    throw new NoSuchElementException();
+                }
+                return get(i++);
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            if ( i > 0 ) {
+                sb.append(", ");
+            }
+            sb.append(get(i));
+        }
+
+        return sb.append(']').toString();
+    }
+
+    private static Object[] set(int level, Object[] node, int i, Object value) {
+        Object[] copy = node == null ? new Object[32] : node.clone();
+        if ( level == 0 ) {
+            copy[i & 31] = value;
+        } else {
+            int sub = (i >>> level) & 31;
+            copy[sub] = set(level - 5, (Object[]) copy[sub], i, value);
+        }
+
+        return copy;
+    }
+
+}
@@ -0,0 +1,299 @@
+package libs.libCore.modules;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Run level index of resources like templates and config files
+ *
+ * Each directory tree is walked only once and the list of its paths is kept in memory together with results
+ * of lookups already done in it, so repeated searches for the same resource are answered without reading
+ * the directories again. Lookup results are exactly the same as for a walk of the directory: all paths which end
+ * with the searched suffix, sorted case insensitive.
+ *
+ * Indexed directories are watched with a WatchService. Pending watch events are processed at the beginning
+ * of each lookup, any change in a directory tree drops its index and the tree is walked again. Lookup costs O(1)
+ * file system calls, a change is visible as soon as the operating system reports it, usually within tens of
+ * milliseconds.
+ * When native notifications are not available (WatchService polls directories or can't be created) each lookup
+ * compares modification time of all indexed directories with the one recorded when the tree was walked instead,
+ * so it costs one file system call per indexed directory. Directories modified shortly before the walk can't be
+ * checked this way because of the resolution of modification time, tree is walked again until they settle.
+ *
+ * Can be switched off with -Dsaf.resourceIndex=false
+ */
+public final class ResourceIndex {
+
+    private static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("saf.resourceIndex", "true"));
+    private static final int MAX_DEPTH = 99;
+    //modification time resolution of common file systems is 1 or 2 seconds
+    private static final long RESOLUTION_MS = 2000;
+
+    private static final Map<String, Tree> TREES = new ConcurrentHashMap<>();
+    //directory can be a part of many indexed trees, for example default config dir is a part of libs dir
+    private static final Map<WatchKey, Set<String>> KEYS = new ConcurrentHashMap<>();
+    private static volatile WatchService watcher;
+    private static volatile boolean nativeWatcher;
+
+    private ResourceIndex() {}
+
+    /**
+     * Paths of a single directory tree and lookups done in it
+     * Modification times of directories are checked only when tree is not watched with native notifications
+     */
+    private static final class Tree {
+        private final List<String> paths;
+        private final List<WatchKey> keys;
+        private final boolean watched;
+        private final long built;
+        private final List<File> dirs;
+        private final long[] modified;
+        private final Map<String, List<String>> lookups = new ConcurrentHashMap<>();
+
+        private Tree(List<String> paths, List<WatchKey> keys, boolean watched, long built, List<File> dirs, long[] modified) {
+            this.paths = paths;
+            this.keys = keys;
+            this.watched = watched;
+            this.built = built;
+            this.dirs = dirs;
+            this.modified = modified;
+        }
+
+        /**
+         * @return true if any directory of the tree was modified since it was walked or modification can't be excluded
+         */
+        private boolean isStale() {
+            if ( watched ) {
+                return false;
+            }
+            for (int i = 0; i < modified.length; i++) {
+                long tModified = dirs.get(i).lastModified();
+                if ( tModified != modified[i] || tModified >= built - RESOLUTION_MS ) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+
+    /**
+     * Indexes provided directories in advance so the first lookup in them is fast too
+     * Directories which do not exist are skipped
+     *
+     * @param dirs String..., paths to directories
+     */
+    public static void warmUp(String... dirs) {
+        if ( ! ENABLED ) {
+            return;
+        }
+        for (String dir : dirs) {
+            if ( Files.isDirectory(Paths.get(dir)) ) {
+                tree(dir);
+            }
+        }
+    }
+
+
+    /**
+     * Returns paths to all files and directories in a directory tree which end with particular suffix
+     *
+     * @param sDir String, path to the directory
+     * @param criteria String, suffix of the path, for example file name or extension
+     *
+     * @return ArrayList, sorted case insensitive, empty if directory does not exist
+     */
+    public static ArrayList<String> search(String sDir, String criteria) throws IOException {
+        if ( ! ENABLED || ! Files.isDirectory(Paths.get(sDir)) ) {
+            return walk(sDir, criteria);
+        }
+
+        processEvents();
+        Tree tree = tree(sDir);
+        if ( tree.isStale() ) {
+            invalidate(sDir);
+            tree = tree(sDir);
+        }
+        Tree tTree = tree;
+        List<String> result = tree.lookups.computeIfAbsent(criteria, c -> {
+            List<String> matching = new ArrayList<>();
+            for (String path : tTree.paths) {
+                if ( path.endsWith(c) ) {
+                    matching.add(path);
+                }
+            }
+            return Collections.unmodifiableList(matching);
+        });
+
+        return new ArrayList<>(result);
+    }
+
+
+    /**
+     * Drops all indexes
+     */
+    public static void clear() {
+        for (String dir : new ArrayList<>(TREES.keySet())) {
+            invalidate(dir);
+        }
+    }
+
+
+    private static ArrayList<String> walk(String sDir, String criteria) throws IOException {
+        ArrayList<String> result = new ArrayList<>();
+        try (Stream<Path> stream = Files.find(Paths.get(sDir), MAX_DEPTH,
+                (path, attr) -> String.valueOf(path).endsWith(criteria))) {
+            stream.map(String::valueOf)
+                    .forEach(result::add);
+        }
+        result.sort(String.CASE_INSENSITIVE_ORDER);
+
+        return result;
+    }
+
+    private static Tree tree(String sDir) {
+        Tree tree = TREES.get(sDir);
+        if ( tree != null ) {
+            return tree;
+        }
+
+        synchronized (ResourceIndex.class) {
+            tree = TREES.get(sDir);
+            if ( tree == null ) {
+                tree = build(sDir);
+                TREES.put(sDir, tree);
+                Log.debug("Indexed " + tree.paths.size() + " resources in " + sDir);
+            }
+        }
+
+        return tree;
+    }
+
+    private static Tree build(String sDir) {
+        long built = System.currentTimeMillis();
+        List<String> paths = new ArrayList<>();
+        List<WatchKey> keys = new ArrayList<>();
+        List<File> dirs = new ArrayList<>();
+        List<Long> tModified = new ArrayList<>();
+        WatchService service = watcher();
+        boolean watched = service != null && nativeWatcher;
+        try {
+            Files.walkFileTree(Paths.get(sDir), EnumSet.noneOf(FileVisitOption.class), MAX_DEPTH,
+                    new SimpleFileVisitor<Path>() {
+                        @Override
+                        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                            paths.add(String.valueOf(dir));
+                            //modification time is read before the directory, a change during the walk makes tree stale
+                            dirs.add(dir.toFile());
+                            tModified.add(dir.toFile().lastModified());
+                            register(service, dir, sDir, keys);
+                            return FileVisitResult.CONTINUE;
+                        }
+
+                        @Override
+                        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                            paths.add(String.valueOf(file));
+                            return FileVisitResult.CONTINUE;
+                        }
+
+                        @Override
+                        public FileVisitResult visitFileFailed(Path file, IOException e) {
+                            return FileVisitResult.CONTINUE;
+                        }
+                    });
+        } catch (IOException e) {
+            Log.warn("Can't access " + sDir);
+        }
+        paths.sort(String.CASE_INSENSITIVE_ORDER);
+        long[] modified = new long[tModified.size()];
+        for (int i = 0; i < modified.length; i++) {
+            modified[i] = tModified.get(i);
+        }
+
+        //a directory which can't be registered is not watched
+        watched &= keys.size() == dirs.size();
+
+        return new Tree(paths, keys, watched, built, dirs, modified);
+    }
+
+    private static void register(WatchService service, Path dir, String root, List<WatchKey> keys) {
+        if ( service == null ) {
+            return;
+        }
+        try {
+            WatchKey key = dir.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE);
+            KEYS.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(root);
+            keys.add(key);
+        } catch (IOException e) {
+            Log.debug("Can't watch " + dir + ". " + e.getMessage());
+        }
+    }
+
+    private static synchronized void invalidate(String root) {
+        Tree tree = TREES.remove(root);
+        if ( tree != null ) {
+            for (WatchKey key : tree.keys) {
+                Set<String> roots = KEYS.get(key);
+                if ( roots != null ) {
+                    roots.remove(root);
+                    if ( roots.isEmpty() ) {
+                        KEYS.remove(key);
+                        key.cancel();
+                    }
+                }
+            }
+        }
+    }
+
+    private static WatchService watcher() {
+        if ( watcher == null ) {
+            synchronized (ResourceIndex.class) {
+                if ( watcher == null ) {
+                    try {
+                        WatchService service = FileSystems.getDefault().newWatchService();
+                        //polling implementation reports changes with a delay of seconds
+                        nativeWatcher = ! service.getClass().getSimpleName().startsWith("Polling");
+                        watcher = service;
+                    } catch (IOException | UnsupportedOperationException e) {
+                        Log.warn("Resources can't be watched for changes. " + e.getMessage());
+                    }
+                }
+            }
+        }
+
+        return watcher;
+    }
+
+    /**
+     * Drops indexes of trees in which the watch service reported changes since the last lookup
+     */
+    private static void processEvents() {
+        WatchService service = watcher;
+        if ( service == null ) {
+            return;
+        }
+        WatchKey key;
+        while ( (key = service.poll()) != null ) {
+            boolean overflow = false;
+            for (WatchEvent<?> event : key.pollEvents()) {
+                overflow |= event.kind() == StandardWatchEventKinds.OVERFLOW;
+            }
+            Set<String> roots = KEYS.get(key);
+            if ( overflow ) {
+                clear();
+            } else if ( roots != null ) {
+                for (String root : new ArrayList<>(roots)) {
+                    invalidate(root);
+                }
+            }
+            key.reset();
+        }
+    }
+
+}
@@ -0,0 +1,190 @@
+package libs.libCore.modules;
+
+import org.apache.logging.log4j.core.Layout;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.appender.AbstractAppender;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Log of a single scenario which is attached to the report
+ *
+ * There is a single routing appender for all scenarios. Thread which opens the scenario log and all threads
+ * attached to the scenario carry id of the log in the log4j thread context map, so each event is written
+ * only to the log of the scenario which produced it, also when scenarios run in parallel.
+ *
+ * First -Dsaf.log.scenarioMemory bytes (default 1MB) of the log are kept in memory, the rest is written
+ * to a temporary file which is removed when the log is closed. Log is attached to the report by a streaming copy.
+ */
+public final class ScenarioLog {
+
+    static final String KEY = "saf.scenario.log";
+
+    private static final int MEMORY_LIMIT = Integer.getInteger("saf.log.scenarioMemory", 1024 * 1024);
+
+    private static final Map<String, ScenarioLog> LOGS = new ConcurrentHashMap<>();
+    private static final AtomicLong sequence = new AtomicLong();
+
+    private final String id;
+    private final ByteArrayOutputStream memory = new ByteArrayOutputStream(8192);
+    private File spillFile;
+    private OutputStream spill;
+
+    private ScenarioLog(String id) {
+        this.id = id;
+    }
+
+
+    /**
+     * Opens new scenario log and binds current thread to it
+     *
+     * @return ScenarioLog
+     */
+    public static ScenarioLog open() {
+        ScenarioLog log = new ScenarioLog("log_" + sequence.incrementAndGet());
+        LOGS.put(log.id, log);
+        bind(log.id);
+        Log.debug("Scenario log " + log.id + " opened");
+
+        return log;
+    }
+
+
+    /**
+     * @return id of the log
+     */
+    public String getId() {
+        return id;
+    }
+
+
+    /**
+     * Attaches current content of the log to the report
+     *
+     * @param name String, name of the attachment
+     */
+    public void attachToReport(String name) {
+        InputStream content;
+        synchronized (this) {
+            try {
+                if ( spill != null ) {
+                    spill.flush();
+                }
+                content = new ByteArrayInputStream(memory.toByteArray());
+                if ( spillFile != null ) {
+                    content = new SequenceInputStream(content, new FileInputStream(spillFile));
+                }
+            } catch (IOException e) {
+                Log.warn("Can't read log of the scenario from " + spillFile + ". " + e.getMessage());
+                content = new ByteArrayInputStream(memory.toByteArray());
+            }
+        }
+        AttachmentWriter.attach(name, "text/plain", content);
+    }
+
+
+    /**
+     * Closes the log, releases its memory and removes its temporary file
+     * Current thread is unbound from the log
+     */
+    public void close() {
+        LOGS.remove(id);
+        if ( id.equals(org.apache.logging.log4j.ThreadContext.get(KEY)) ) {
+            unbind();
+        }
+        synchronized (this) {
+            memory.reset();
+            if ( spill != null ) {
+                try {
+                    spill.close();
+                    Files.deleteIfExists(spillFile.toPath());
+                } catch (IOException e) {
+                    Log.warn("Can't remove " + spillFile.getAbsolutePath() + ". " + e.getMessage());
+                }
+                spill = null;
+                spillFile = null;
+            }
+        }
+    }
+
+    private synchronized void write(byte[] bytes) {
+        try {
+            if ( spill == null && memory.size() + bytes.length <= MEMORY_LIMIT ) {
+                memory.write(bytes);
+                return;
+            }
+            if ( spill == null ) {
+                spillFile = File.createTempFile("SAF_" + id + "_", ".log");
+                spillFile.deleteOnExit();
+                spill = new BufferedOutputStream(new FileOutputStream(spillFile));
+            }
+            spill.write(bytes);
+        } catch (IOException e) {
+            //can't log from an appender, the event is lost for the scenario log only
+        }
+    }
+
+
+    /**
+     * helper function used to bind current thread to a scenario log
+     *
+     * @param id String, id of the log or null to unbind the thread
+     */
+    static void bind(String id) {
+        if ( id == null ) {
+            unbind();
+        } else {
+            org.apache.logging.log4j.ThreadContext.put(KEY, id);
+        }
+    }
+
+    /**
+     * @return id of the scenario log current thread is bound to or null
+     */
+    static String current() {
+        return org.apache.logging.log4j.ThreadContext.get(KEY);
+    }
+
+    private static void unbind() {
+        org.apache.logging.log4j.ThreadContext.remove(KEY);
+    }
+
+
+    /**
+     * Creates appender which routes events to the log of the scenario which produced them
+     *
+     * @param layout Layout
+     *
+     * @return Appender
+     */
+    static Router router(Layout<? extends Serializable> layout) {
+        return new Router(layout);
+    }
+
+    /**
+     * Appender which writes each event to the log of the scenario bound to the logging thread
+     */
+    static final class Router extends AbstractAppender {
+
+        private Router(Layout<? extends Serializable> layout) {
+            super("Scenario-Log-Router", null, layout, true);
+        }
+
+        @Override
+        public void append(LogEvent event) {
+            String id = event.getContextData().getValue(KEY);
+            if ( id == null ) {
+                return;
+            }
+            ScenarioLog log = LOGS.get(id);
+            if ( log != null ) {
+                log.write(getLayout().toByteArray(event));
+            }
+        }
+    }
+
+}
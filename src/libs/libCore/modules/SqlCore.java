@@ -37,7 +37,12 @@ public class SqlCore {
      *
      */
     public void open(){
-        Sql = new DBConnector().create();
+        Metrics.Sample tSample = Metrics.start("sql.connect");
+        try {
+            Sql = new DBConnector().create();
+        } finally {
+            tSample.stop();
+        }
     }
 
 
@@ -72,11 +77,14 @@ public class SqlCore {
         QueryRunner runner = new QueryRunner();
         List<Map<String,Object>> list = null;
 
+        Metrics.Sample tSample = Metrics.start("sql.selectList");
         try {
             list = runner.query(Sql, SqlQuery, new MapListHandler());
             Log.debug("Sql query executed");
         } catch (SQLException e) {
             Log.error( "", e );
+        } finally {
+            tSample.stop();
         }
 
         return list;
@@ -204,11 +212,14 @@ public class SqlCore {
         QueryRunner runner = new QueryRunner();
         Integer scalar = null;
 
+        Metrics.Sample tSample = Metrics.start("sql.selectScalar");
         try {
             scalar = runner.query(Sql, SqlQuery, scalarHandler);
             Log.debug("Sql query executed");
         } catch (SQLException e) {
             Log.error("", e );
+        } finally {
+            tSample.stop();
         }
 
         return scalar;
@@ -228,12 +239,15 @@ public class SqlCore {
         //Integer scalar = null;
         QueryRunner runner = new QueryRunner();
 
+        Metrics.Sample tSample = Metrics.start("sql.insert");
         try {
             //scalar = runner.insert(Sql, SqlQuery, scalarHandler);
             runner.insert(Sql, SqlQuery, new ScalarHandler<>());
             Log.debug("Sql query executed");
         } catch (SQLException e) {
             Log.error( "", e );
+        } finally {
+            tSample.stop();
         }
 
         //return scalar;
@@ -253,11 +267,14 @@ public class SqlCore {
         Integer scalar = 0;
         QueryRunner runner = new QueryRunner();
 
+        Metrics.Sample tSample = Metrics.start("sql.update");
         try {
             scalar = runner.update(Sql, SqlQuery);
             Log.debug("Sql query executed");
         } catch (SQLException e) {
             Log.error( "", e );
+        } finally {
+            tSample.stop();
         }
 
         return scalar;
@@ -276,11 +293,14 @@ public class SqlCore {
         Integer scalar = 0;
         QueryRunner runner = new QueryRunner();
 
+        Metrics.Sample tSample = Metrics.start("sql.delete");
         try {
             scalar = runner.update(Sql, SqlQuery);
             Log.debug("Sql query executed");
         } catch (SQLException e) {
             Log.error( "", e );
+        } finally {
+            tSample.stop();
         }
 
         return scalar;
@@ -346,13 +366,14 @@ public class SqlCore {
 
             final int batchSize = 1000;
             int count = 0;
+            //type mapping is fetched once for the whole file and not for each cell
+            List<String> colToTypeList = Storage.get(typeMapping);
             try {
                 Log.debug("Reading csv file");
                 while ((nextLine = csvReader.readNext()) != null) {
 
                     if (null != nextLine) {
 
-                        List<String> colToTypeList = Storage.get(typeMapping);
                         if ( colToTypeList == null ) {
                             Log.error("Type mapping " + typeMapping + " null!");
                         }
@@ -369,41 +390,42 @@ public class SqlCore {
                         for (String string : nextLine) {
                             int idx = index -1;
                             //type mapping
-                            if ( Storage.get(typeMapping+"["+idx+"]").equals("NUMERIC") ||
-                                    Storage.get(typeMapping+"["+idx+"]").equals("DECIMAL") ){
+                            String type = colToTypeList.get(idx);
+                            if ( type.equals("NUMERIC") ||
+                                    type.equals("DECIMAL") ){
                                 BigDecimal number = new BigDecimal(string);
                                 ps.setBigDecimal(index++, number);
-                            } else if ( Storage.get(typeMapping+"["+idx+"]").equals("VARCHAR") ||
-                                    Storage.get(typeMapping+"["+idx+"]").equals("CHARACTER") ||
-                                    Storage.get(typeMapping+"["+idx+"]").equals("LONGVARCHAR") ){
+                            } else if ( type.equals("VARCHAR") ||
+                                    type.equals("CHARACTER") ||
+                                    type.equals("LONGVARCHAR") ){
                                 ps.setString(index++, string);
-                            } else if ( Storage.get(typeMapping+"["+idx+"]").equals("BIT") ) {
+                            } else if ( type.equals("BIT") ) {
                                 Boolean b = BooleanUtils.toBoolean(string);
                                 ps.setBoolean(index++, b);
-                            } else if ( Storage.get(typeMapping+"["+idx+"]").equals("TINYINT") ||
-                                    Storage.get(typeMapping+"["+idx+"]").equals("SMALLINT") ||
-                                    Storage.get(typeMapping+"["+idx+"]").equals("INTEGER") ) {
+                            } else if ( type.equals("TINYINT") ||
+                                    type.equals("SMALLINT") ||
+                                    type.equals("INTEGER") ) {
                                 Integer number = Integer.getInteger(string);
                                 ps.setInt(index++, number);
-                            } else if ( Storage.get(typeMapping+"["+idx+"]").equals("BIGINT") ) {
+                            } else if ( type.equals("BIGINT") ) {
                                 Long number = Long.getLong(string);
                                 ps.setLong(index++, number);
-                            } else if ( Storage.get(typeMapping+"["+idx+"]").equals("REAL") ) {
+                            } else if ( type.equals("REAL") ) {
                                 Float number = Float.parseFloat(string);
                                 ps.setFloat(index++, number);
-                            } else if ( Storage.get(typeMapping+"["+idx+"]").equals("FLOAT") ||
-                                    Storage.get(typeMapping+"["+idx+"]").equals("DOUBLE PRECISION") ) {
+                            } else if ( type.equals("FLOAT") ||
+                                    type.equals("DOUBLE PRECISION") ) {
                                 Double number = Double.valueOf(string);
                                 ps.setDouble(index++, number);
-                            } else if ( Storage.get(typeMapping+"["+idx+"]").equals("BINARY") ||
-                                    Storage.get(typeMapping+"["+idx+"]").equals("VARBINARY") ||
-                                    Storage.get(typeMapping+"["+idx+"]").equals("LONGVARBINARY") ){
+                            } else if ( type.equals("BINARY") ||
+                                    type.equals("VARBINARY") ||
+                                    type.equals("LONGVARBINARY") ){
                                 Log.error("Wrong type provided. " + "" +
                                         "BINARY, VARBINARY and LONGVARBINARY are not supported");
-                            } else if ( Storage.get(typeMapping+"["+idx+"]").equals("DATE") ) {
+                            } else if ( type.equals("DATE") ) {
                                     Date date = DateParser.convertToDate(string);
                                     ps.setDate(index++, new java.sql.Date(date.getTime()));
-                            } else if ( Storage.get(typeMapping+"["+idx+"]").equals("TIME") ) {
+                            } else if ( type.equals("TIME") ) {
                                 Pattern p = Pattern.compile("\\d\\d:\\d\\d:\\d\\d"); // not perfect but good enough;)
                                 Matcher m = p.matcher(string);
                                 if (m.matches()) {
@@ -413,7 +435,7 @@ public class SqlCore {
                                     Log.error("Wrong time format provided. Expected is hh:mm:ss" +
                                     " but was " + string);
                                 }
-                            } else if ( Storage.get(typeMapping+"["+idx+"]").equals("TIMESTAMP") ) {
+                            } else if ( type.equals("TIMESTAMP") ) {
                                 try {
                                     Timestamp timestamp = Timestamp.valueOf(string);
                                     ps.setTimestamp(index++, timestamp);
@@ -62,23 +62,28 @@ public class SshCore {
             Log.error("Environment.Active.Ssh. " + node + ".password " + " is null or empty!");
         }
 
+        Metrics.Sample tSample = Metrics.start("ssh.connect");
         try {
-            client = new SSHClient();
-            client.addHostKeyVerifier(dummyHostKeyVerifier());
-            client.connect(address, port);
-        } catch (IOException e) {
-            Log.error("Unable to connect via ssh to " + node + " as " + user
-                    + " on " + address + " and port " + port, e);
-        }
+            try {
+                client = new SSHClient();
+                client.addHostKeyVerifier(dummyHostKeyVerifier());
+                client.connect(address, port);
+            } catch (IOException e) {
+                Log.error("Unable to connect via ssh to " + node + " as " + user
+                        + " on " + address + " and port " + port, e);
+            }
 
-        try {
-            client.authPassword(user, passwd);
-        } catch (UserAuthException e) {
-            closeClient();
-            Log.error("", e);
-        } catch (TransportException e) {
-            closeClient();
-            Log.error("", e);
+            try {
+                client.authPassword(user, passwd);
+            } catch (UserAuthException e) {
+                closeClient();
+                Log.error("", e);
+            } catch (TransportException e) {
+                closeClient();
+                Log.error("", e);
+            }
+        } finally {
+            tSample.stop();
         }
 
         Log.debug("Connected via ssh to " + node + " as " + user + " on " + address + " and port " + port);
@@ -114,6 +119,7 @@ public class SshCore {
      * @return SSHResult, result set that contains stdout, stderr and exit status code
      */
     public SSHResult execute(String cmd, Integer timeout) {
+        Metrics.Sample tSample = Metrics.start("ssh.execute");
         startSession();
         Session.Command command;
         SSHResult result = null;
@@ -131,6 +137,7 @@ public class SshCore {
         } catch (IOException e) {
             Log.error("", e);
         } finally {
+            tSample.stop();
             closeSession();
         }
 
@@ -226,11 +233,13 @@ public class SshCore {
         createClient(nodeName);
         String fileName = FilenameUtils.getName(pathToFileOnRemote);
 
+        Metrics.Sample tSample = Metrics.start("ssh.scpDownload");
         try {
             client.newSCPFileTransfer().download(pathToFileOnRemote, new FileSystemFile(pathToLocalDir));
         } catch (IOException e) {
             Log.error("", e);
         } finally {
+            tSample.stop();
             closeClient();
         }
 
@@ -257,12 +266,14 @@ public class SshCore {
         Boolean result = false;
 
         createClient(nodeName);
+        Metrics.Sample tSample = Metrics.start("ssh.scpUpload");
         try {
             client.newSCPFileTransfer().upload(new FileSystemFile(pathToLocalFile), pathToUploadDirOnRemote);
             result = true;
         } catch (IOException e) {
             Log.error("", e);
         } finally {
+            tSample.stop();
             closeClient();
         }
 
@@ -282,6 +293,7 @@ public class SshCore {
     public File downloadFileViaSftp(String nodeName, String pathToFileOnRemote, String pathToLocalDir) {
         createClient(nodeName);
         String fileName = FilenameUtils.getName(pathToFileOnRemote);
+        Metrics.Sample tSample = Metrics.start("ssh.sftpDownload");
         try {
             SFTPClient sftp = client.newSFTPClient();
             try {
@@ -292,6 +304,7 @@ public class SshCore {
         } catch (IOException e) {
             Log.error("", e);
         } finally {
+            tSample.stop();
             closeClient();
         }
 
@@ -313,6 +326,7 @@ public class SshCore {
         Boolean result = false;
 
         createClient(nodeName);
+        Metrics.Sample tSample = Metrics.start("ssh.sftpUpload");
         try {
             SFTPClient sftp = client.newSFTPClient();
             try {
@@ -324,6 +338,7 @@ public class SshCore {
         } catch (IOException e) {
             Log.error("", e);
         } finally {
+            tSample.stop();
             closeClient();
         }
 
@@ -373,6 +388,7 @@ public class SshCore {
     public SSHResult executeInShell(String cmd, String expectedOutput) {
         String stdout;
         SSHResult result = null;
+        Metrics.Sample tSample = Metrics.start("ssh.executeInShell");
         try {
             expect.sendLine(cmd);
             stdout  = expect.expect(contains(expectedOutput)).getInput();
@@ -383,6 +399,8 @@ public class SshCore {
             closeSession();
             closeClient();
             Log.error("", e);
+        } finally {
+            tSample.stop();
         }
 
         return result;
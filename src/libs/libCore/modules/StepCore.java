@@ -1,19 +1,14 @@
 package libs.libCore.modules;
 
-import org.apache.commons.lang.BooleanUtils;
 import org.apache.commons.lang.StringUtils;
-import org.apache.commons.lang.math.NumberUtils;
-import io.qameta.allure.Attachment;
+import io.restassured.response.Response;
 
-import java.io.File;
-import java.io.IOException;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
-import java.nio.file.Paths;
-import java.text.NumberFormat;
 import java.time.Instant;
 import java.util.*;
-
-import static java.lang.Math.toIntExact;
+import java.util.regex.PatternSyntaxException;
 
 @SuppressWarnings("unchecked")
 public class StepCore {
@@ -43,97 +38,38 @@ public class StepCore {
         }
     }
 
-    /**
-     * returns type of value
-     * helper function
-     *
-     * @param value object value
-     *
-     * @return type of value
-     */
-    private <T> Class<?> getType(T value){
-        if(value.getClass().getName().contains("String")){
-            return String.class;
-        }
-        if(value.getClass().getName().contains("Double")){
-            return Double.class;
-        }
-        if(value.getClass().getName().contains("Long")){
-            return Long.class;
-        }
-        if(value.getClass().getName().contains("Integer")){
-            return Integer.class;
-        }
-        if(value.getClass().getName().contains("ArrayList")){
-            return ArrayList.class;
-        }
-        if(value.getClass().getName().contains("HashMap")){
-            return HashMap.class;
-        }
-        if(value.getClass().getName().contains("Boolean")){
-            return Boolean.class;
-        }
-        Log.error("Type of object " + value.getClass().getName() + " not supported!");
-
-        return null;
-    }
-
     /**
      * Checks if string provided as an input to the step def is actually a key in the storage
      * Returns input value or value extracted from storage.
      * Please note that in this case type of input is String but returned value can be one of
      * String, Double, Long, Int, Boolean
+     * Input is classified only once per run, see StepInput, only the storage lookup is done on each call
      *
      * @param input key in the storage or value
      *
      * @return value from storage or input
      */
     public <T> T checkIfInputIsVariable(String input) {
-        T result = (T) input;
-        Storage Storage = scenarioCtx.get("Storage", Storage.class);
-        T tmp = Storage.get(input);
-
-        //check if String contains boolean
-        if ( BooleanUtils.toBooleanObject(input) != null ) {
-            Boolean b = BooleanUtils.toBoolean(input);
-            result = (T) b;
-            Log.debug("Converted String " + input + " to Boolean");
-        }
-
-        //check if String contains number
-        if(NumberUtils.isNumber(input)){
-            Number num = null;
-            try {
-                num = NumberFormat.getInstance(Locale.getDefault()).parse(input);
-                if ( num instanceof Long ) {
-                    Long tVal = (Long) num;
-                    try {
-                        int iVal = toIntExact(tVal);
-                        num = iVal;
-                    } catch (ArithmeticException e) {
-                        //do nothing just return Long
-                    }
-                }
-            } catch (Exception e) {
-                Log.debug("Checking if String contains a numeric value " + input);
-                Log.error("Not able to parse String to Number for " + input, e);
+        StepInput classified = StepInput.classify(input);
+        if ( classified.isPath() ) {
+            Object value = Storage.find(input);
+            if ( value != null ) {
+                Log.debug("Converted element from storage: {} to {} of class {}", input, value, value.getClass().getName());
+                return (T) value;
             }
-            Class<T> typeKey = (Class<T>) getType(num);
-            result = typeKey.cast(num);
-            Log.debug("Converted String " + input + " to number of class " + result.getClass().getName());
         }
 
-        if ( tmp != null ){
-            result = tmp;
-            Log.debug("Converted element from storage: " + input + " to " + result + " of class " + result.getClass().getName());
-        }
-
-        return result;
+        return (T) classified.getLiteral();
     }
 
 
     /**
      * Executes white space tolerant template comparison
+     * By default template and results are compared line by line, see TemplateComparator. Comparison runs in linear
+     * time, stops at the first mismatch and diff around the mismatch is attached to the report.
+     * Former comparison where all white spaces including line breaks are removed and whole results have to match
+     * the template used as a single regular expression can be switched on with -Dsaf.template.compare=regex.
+     * It is also used for templates with regular expressions spanning many lines which can't be compared line by line.
      *
      * @param templateName String, name of the template without .template extension
      * @param pathToResults String, path on the file system to the file which shall be compared with template
@@ -143,25 +79,35 @@ public class StepCore {
 
         String templatePath = searchForTemplate(templateName);
 
-        File template = new File(templatePath);
+        //evaluate the template and attach it to the report
+        File temp = renderTemplate(templateName, new File(templatePath));
         File results = new File(pathToResults);
 
-        String sFile = FileCore.readToString(template);
-        String sResults = FileCore.readToString(results);
-
-        //evaluate the template
-        String templateAfteEval = replaceInTemplate(sFile);
+        if ( ! System.getProperty("saf.template.compare", "lines").equals("regex") ) {
+            TemplateComparator.Result result = null;
+            try (Reader template = new InputStreamReader(new FileInputStream(temp), StandardCharsets.UTF_8);
+                 Reader toCompare = new InputStreamReader(new FileInputStream(results), StandardCharsets.UTF_8)) {
+                result = TemplateComparator.compare(template, toCompare);
+            } catch (IOException e) {
+                FileCore.removeFile(temp);
+                Log.error("Template comparison failed! Can't read " + results.getAbsolutePath(), e);
+            } catch (PatternSyntaxException e) {
+                Log.warn(e.getMessage() + ". Template " + templateName + " is compared as a whole file regular expression");
+            }
 
-        //attach template after evaluation to the report
-        File temp = FileCore.createTempFile(templateName,"template");
-        FileCore.appendToFile(temp, templateAfteEval);
-        String tempPath = temp.getAbsolutePath();
-        attachFileToReport(templateName + ".template","text/plain",tempPath);
+            if ( result != null ) {
+                FileCore.removeFile(temp);
+                if ( ! result.matches() ) {
+                    attachMessageToReport(templateName + ".diff", result.getDiff());
+                    Log.error("Template comparison failed! " + result.getMessage() + System.lineSeparator() + result.getDiff());
+                }
+                return;
+            }
+        }
 
         //trim template content and string to compare
-        String templateContent = templateAfteEval.trim().replaceAll("\\s+","");
-        String resultToCompare = sResults.trim().replaceAll("\\s+","");
-
+        String templateContent = FileCore.readToString(temp).trim().replaceAll("\\s+","");
+        String resultToCompare = FileCore.readToString(results).trim().replaceAll("\\s+","");
         FileCore.removeFile(temp);
 
         //compare ignoring white spaces
@@ -183,20 +129,7 @@ public class StepCore {
     public File evaluateTemplate(String templateName) {
         String templatePath = searchForTemplate(templateName);
 
-        File template = new File(templatePath);
-        String sFile = FileCore.readToString(template);
-
-        //evaluate the template
-        String templateAfteEval = replaceInTemplate(sFile);
-
-        //attach template after evaluation to the report
-        File temp = FileCore.createTempFile(templateName,"template");
-        FileCore.appendToFile(temp, templateAfteEval);
-        String tempPath = temp.getAbsolutePath();
-        attachFileToReport(templateName + ".template","text/plain",tempPath);
-
-        return temp;
-
+        return renderTemplate(templateName, new File(templatePath));
     }
 
 
@@ -212,52 +145,37 @@ public class StepCore {
      */
     public File evaluateTemplate(String templateName, String templateDirPath){
         File template = new File(templateDirPath + File.separator + templateName + ".template");
-        String sFile = FileCore.readToString(template);
-
-        //evaluate the template
-        String templateAfterEval = replaceInTemplate(sFile);
-
-        //attach template after evaluation to the report
-        File temp = FileCore.createTempFile(templateName,"template");
-        FileCore.appendToFile(temp, templateAfterEval);
-        String tempPath = temp.getAbsolutePath();
-        attachFileToReport(templateName + ".template","text/plain",tempPath);
 
-        return temp;
+        return renderTemplate(templateName, template);
     }
 
 
 
     /**
      * helper function used in evaluateTemplate method
-     * replaces variables with values from storage
+     * renders compiled template with values from storage directly into a temporary file
+     * and attaches it to the report
      *
-     * @param input String, template content
+     * @param templateName String, name of the template without .template extension
+     * @param template File, template file
      *
-     * @return String
+     * @return File
      */
-    private String replaceInTemplate (String input) {
-        Integer beignIdx = input.indexOf("${");
-        Integer endIdx = input.indexOf("}", beignIdx);
-
-        if (beignIdx != -1) {
-            if ( endIdx == -1 ){
-                Log.error("Typo in template! Missing closing bracket }. Can't do variable substitution!");
-            }
-
-            String toReplace = input.substring(beignIdx+2, endIdx);
-            String toCheck = toReplace;
-            if ( toReplace.startsWith("ctx.") ){
-                toCheck = toReplace.substring(4);
-            }
-            String result = checkIfInputIsVariable(toCheck).toString();
+    private File renderTemplate(String templateName, File template) {
+        CompiledTemplate compiled = CompiledTemplate.compile(template);
 
-            if (  ! toReplace.equals("ctx." + result) ) {
-                return replaceInTemplate(input.replace("${" + toReplace + "}", result));
-            }
+        File temp = FileCore.createTempFile(templateName,"template");
+        try (Writer out = Files.newBufferedWriter(temp.toPath(), StandardCharsets.UTF_8)) {
+            compiled.render(out, this::checkIfInputIsVariable);
+        } catch (IOException e) {
+            Log.error("Can't write evaluated template " + templateName + " to " + temp.getAbsolutePath(), e);
         }
 
-        return input;
+        //attach template after evaluation to the report
+        String tempPath = temp.getAbsolutePath();
+        attachFileToReport(templateName + ".template","text/plain",tempPath);
+
+        return temp;
     }
 
 
@@ -476,25 +394,20 @@ public class StepCore {
 
     /**
      * Attaches file to the report
+     * File is streamed to the report, see AttachmentWriter for size limit and compression
      *
      * @param name name of the file to be displayed in the report
      * @param type type of file like text/plain or application/pdf etc.
      * @param path path to the file
      */
-    @Attachment(value="{0}", type="{1}")
-    public byte[] attachFileToReport(String name, String type, String path) {
-        byte[] bytes = null;
-
+    public void attachFileToReport(String name, String type, String path) {
         File file = new File(path);
-        try {
-            bytes = Files.readAllBytes(Paths.get(file.getAbsolutePath()));
-        } catch (IOException e) {
-            Log.error( "File " + file.getAbsolutePath() + " not found!", e );
+        if ( ! file.exists() ) {
+            Log.error( "File " + file.getAbsolutePath() + " not found!" );
         }
+        AttachmentWriter.attach(name, type, file.toPath());
 
         Log.debug("File " + path + " with name " + name + " attached to report");
-
-        return bytes;
     }
 
     /**
@@ -502,11 +415,10 @@ public class StepCore {
      *
      * @param name name of the screenshot
      */
-    @Attachment(value="{0}", type="image/png")
-    public byte[] attachScreenshotToReport(String name, byte[] screenshot){
+    public void attachScreenshotToReport(String name, byte[] screenshot){
         String tName = StringUtils.deleteWhitespace(name);
+        AttachmentWriter.attach(name, "image/png", screenshot);
         Log.debug("Screenshot with name " + tName + " attached to report");
-        return screenshot;
     }
 
     /**
@@ -515,10 +427,27 @@ public class StepCore {
      * @param name of the text to be displayed in the report
      * @param message content of the text to be displayed in the report
      */
-    @Attachment(value="{0}", type="text/plain")
-    public String attachMessageToReport(String name, String message){
+    public void attachMessageToReport(String name, String message){
+        AttachmentWriter.attach(name, message);
         Log.debug("Message with name " + name + " attached to report");
-        return message;
+    }
+
+    /**
+     * Attaches body of the response to the report
+     * Body is logged and streamed to the report without creating a pretty printed copy of it,
+     * type of the attachment is taken from content type of the response
+     *
+     * @param name of the response to be displayed in the report
+     * @param response Response
+     */
+    public void attachResponseToReport(String name, Response response){
+        response.then().log().body(true);
+        String tType = StringUtils.substringBefore(StringUtils.defaultString(response.getContentType()), ";").trim();
+        if ( tType.isEmpty() ) {
+            tType = "text/plain";
+        }
+        AttachmentWriter.attach(name, tType, response.asInputStream());
+        Log.debug("Response with name " + name + " attached to report");
     }
 
 
@@ -530,27 +459,8 @@ public class StepCore {
      */
     public String replaceInString(String input) {
         Log.debug("Input is " + input);
-        Integer beignIdx = input.indexOf("${");
-        Integer endIdx = input.indexOf("}", beignIdx);
-
-        if (beignIdx != -1) {
-            if ( endIdx == -1 ){
-                Log.error("Typo in config value " + input + "! Missing closing bracket }. Can't do variable substitution!");
-            }
-
-            String toReplace = input.substring(beignIdx+2, endIdx);
-            String toCheck = toReplace;
-            if ( toReplace.startsWith("ctx.") ){
-                toCheck = toReplace.substring(4);
-            }
-            String result = checkIfInputIsVariable(toCheck).toString();
-
-            if (  ! toReplace.equals("ctx." + result) ) {
-                return replaceInString(input.replace("${" + toReplace + "}", result));
-            }
-        }
 
-        return input;
+        return CompiledTemplate.compile("config value " + input, input).render(this::checkIfInputIsVariable);
     }
 
 
@@ -0,0 +1,103 @@
+package libs.libCore.modules;
+
+import org.apache.commons.lang.BooleanUtils;
+import org.apache.commons.lang.math.NumberUtils;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Classified form of a string provided as an input to a step def
+ *
+ * Input is a literal number, a literal boolean or a string which can be a path to a value in the storage.
+ * Each distinct input is classified only once and kept in a bounded LRU cache, so steps executed in loops
+ * or with big data tables do not parse the same strings again. Only the storage lookup is done on each use,
+ * because content of the storage changes during the scenario.
+ *
+ * Numbers are parsed without NumberFormat, so result does not depend on default locale. Integral values
+ * become Integer or Long, other values Double, see ConfigParser.parseNumber. Hexadecimal numbers and numbers
+ * with type suffix, like 0x1F or 10L, are treated as strings.
+ */
+public final class StepInput {
+
+    private static final int CACHE_SIZE = Integer.getInteger("saf.step.inputCacheSize", 4096);
+    private static final Pattern DECIMAL = Pattern.compile("-?(\\d+(\\.\\d*)?|\\.\\d+)([eE][+-]?\\d+)?");
+
+    private static final Map<String, StepInput> CACHE = Collections.synchronizedMap(
+            new LinkedHashMap<String, StepInput>(256, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, StepInput> eldest) {
+                    return size() > CACHE_SIZE;
+                }
+            });
+
+    private final Object literal;
+    private final boolean path;
+
+    private StepInput(Object literal, boolean path) {
+        this.literal = literal;
+        this.path = path;
+    }
+
+
+    /**
+     * Returns classified input
+     *
+     * @param input String, step def input
+     *
+     * @return StepInput
+     */
+    public static StepInput classify(String input) {
+        StepInput classified = CACHE.get(input);
+        if ( classified == null ) {
+            classified = create(input);
+            CACHE.put(input, classified);
+        }
+
+        return classified;
+    }
+
+    private static StepInput create(String input) {
+        Boolean bool = BooleanUtils.toBooleanObject(input);
+        if ( bool != null ) {
+            Log.debug("Converted String " + input + " to Boolean");
+            return new StepInput(bool, true);
+        }
+
+        if ( NumberUtils.isNumber(input) ) {
+            if ( DECIMAL.matcher(input).matches() ) {
+                Number num = ConfigParser.parseNumber(input);
+                Log.debug("Converted String " + input + " to number of class " + num.getClass().getName());
+                return new StepInput(num, false);
+            }
+            //numbers never point to the storage
+            return new StepInput(input, false);
+        }
+
+        if ( StoragePath.compile(input).isMalformed() ) {
+            //malformed list index, can't be a path
+            return new StepInput(input, false);
+        }
+
+        return new StepInput(input, true);
+    }
+
+
+    /**
+     * @return value of the input if it is not a path to the storage, Boolean, Integer, Long, Double or String
+     */
+    public Object getLiteral() {
+        return literal;
+    }
+
+
+    /**
+     * @return true if input can point to a value in the storage
+     */
+    public boolean isPath() {
+        return path;
+    }
+
+}
@@ -2,24 +2,19 @@ package libs.libCore.modules;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import org.apache.commons.lang.math.NumberUtils;
 
-import java.io.*;
 import java.util.*;
-import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 @SuppressWarnings("unchecked")
 public class Storage {
 
     private Context scenarioCtx;
-    private FileCore FileCore;
     private ConfigReader Config;
-    private static final String TMP_DIR_PATH = System.getProperty("java.io.tmpdir");
-    private static final File STORAGE_FILE = new File(TMP_DIR_PATH + "//" + "SAF_Persistent_Storage_File.json");
+    private static final Gson GSON = new GsonBuilder().create();
 
     public Storage() {
         this.scenarioCtx = ThreadContext.getContext("Scenario");
-        this.FileCore = scenarioCtx.get("FileCore",FileCore.class);
         this.Config = scenarioCtx.get("Config", ConfigReader.class);
     }
 
@@ -32,26 +27,26 @@ public class Storage {
      *
      */
     public <T> void set (String textKey, T value) {
-        Log.debug("Try to set " + textKey + " to " + value);
+        Log.debug("Try to set {} to {}", textKey, value);
 
-        Integer idx = 0;
-        String[] t_textKey = textKey.split("[.]");
-        String StorageName = t_textKey[idx];
-
-        HashMap<String, Object> Storage = scenarioCtx.get(StorageName, HashMap.class);
+        StoragePath path = StoragePath.compile(textKey);
+        if ( path.isMalformed() ) {
+            Log.error("Can't set " + textKey + " to " + value + ". Path contains list index which is not a number!");
+        }
+        HashMap<String, Object> Storage = scenarioCtx.get(path.getStorageName(), HashMap.class);
 
         if ( Storage == null ) {
             Log.error("Can't set " + textKey + " to " + value + ". Storage does not exists or null!");
         }
 
-        for(idx = 1; idx < t_textKey.length; idx++) {
-            String key = t_textKey[idx].split("\\[")[0];
+        int last = path.size() - 1;
+        for (int idx = 0; idx <= last; idx++) {
+            String key = path.key(idx);
             //if key does not exist lets create one
             if ( Storage.get(key) == null ) {
-                if ( idx < t_textKey.length-1 ) {
-                    if ( t_textKey[idx].contains("[") ){
-                        String sIndex = t_textKey[idx].split("\\[")[1].replace("]","");
-                        if ( sIndex.equals("0") ) {
+                if ( idx < last ) {
+                    if ( path.hasIndex(idx) ){
+                        if ( path.index(idx) == 0 ) {
                             ArrayList<Object> tValue = new ArrayList<>();
                             HashMap<String, Object> tInnerValue = new HashMap<>();
                             tValue.add(tInnerValue);
@@ -64,10 +59,8 @@ public class Storage {
                         Storage.put(key, tValue);
                     }
                 } else {
-                    if ( t_textKey[idx].contains("[") ) {
-                        String sIndex = t_textKey[idx].split("\\[")[1].replace("]", "");
-                        Integer iIndex = Integer.valueOf(sIndex);
-                        if (iIndex == 0) {
+                    if ( path.hasIndex(idx) ) {
+                        if ( path.index(idx) == 0 ) {
                             ArrayList<Object> tValue = new ArrayList<>();
                             tValue.add(null);
                             Storage.put(key, tValue);
@@ -79,13 +72,12 @@ public class Storage {
                         Storage.put(key, tValue);
                     }
                 }
-                //Log.error("Can't set " + textKey + " to " + value + ". Key does not exists or null!");
             }
 
-            Storage = parseMap(Storage, t_textKey[idx], value);
+            Storage = parseMap(Storage, path, idx, value);
 
         }
-        Log.debug(textKey + " was set to " + value);
+        Log.debug("{} was set to {}", textKey, value);
     }
 
 
@@ -93,24 +85,29 @@ public class Storage {
      * helper function used by set method
      *
      * @param Storage HashMap
-     * @param key String
+     * @param path StoragePath, compiled path
+     * @param idx int, number of currently handled path segment
      * @param value T
      *
      * @return HashMap
      */
-    private <T> HashMap parseMap (HashMap Storage, String key, T value) {
-        String tKey = key.split("\\[")[0];
-        if ( Storage.get(tKey) instanceof Map ) {
-            Storage = (HashMap<String, Object>) Storage.get(key);
-        } else if (Storage.get(tKey) instanceof List ) {
-            Integer index = Integer.valueOf(key.substring(key.indexOf("[") + 1, key.indexOf("]")));
-            ArrayList<Object> t_Array = (ArrayList<Object>) Storage.get(tKey);
+    private <T> HashMap<String, Object> parseMap (HashMap<String, Object> Storage, StoragePath path, int idx, T value) {
+        String tKey = path.key(idx);
+        Object current = Storage.get(tKey);
+        if ( current instanceof Map ) {
+            Storage = (HashMap<String, Object>) current;
+        } else if ( current instanceof List ) {
+            if ( ! path.hasIndex(idx) ) {
+                Log.error("Can't set " + path + " to " + value + ". " + tKey + " is a list but index was not provided!");
+            }
+            int index = path.index(idx);
+            List<Object> t_Array = (List<Object>) current;
             if (t_Array.size() - index == 0) {
                 HashMap<String, Object> tMap = new HashMap<>();
                 t_Array.add(tMap);
-                Storage = (HashMap<String, Object>) t_Array.get(index);
+                Storage = tMap;
             } else if (t_Array.size() - index < 0) {
-                Log.error("Can't set " + Storage + "." + key + " to " + value + ". Key does not exists or null!");
+                Log.error("Can't set " + Storage + "." + tKey + "[" + index + "] to " + value + ". Key does not exists or null!");
             } else if (t_Array.get(index) instanceof Map) {
                 Storage = (HashMap<String, Object>) t_Array.get(index);
             } else {
@@ -135,8 +132,7 @@ public class Storage {
         if ( dataMap != null ) {
             Log.info("--- start ---");
             for (Map.Entry<String, Object> entry : dataMap.entrySet()) {
-                String[] tmp = entry.getValue().getClass().getName().split(Pattern.quote(".")); // Split on period.
-                String type = tmp[2];
+                String type = typeOf(entry.getValue());
                 Log.info("(" + type + ")" + entry.getKey() + " = " + entry.getValue().toString());
             }
             Log.info("--- end ---");
@@ -144,6 +140,26 @@ public class Storage {
     }
 
 
+    /**
+     * helper function used to print type of a storage value
+     * maps and lists are always printed as HashMap and ArrayList even if they are forks of the run level data
+     *
+     * @param value Object
+     *
+     * @return String, simple name of the type
+     */
+    public static String typeOf(Object value) {
+        if ( value instanceof Map ) {
+            return "HashMap";
+        }
+        if ( value instanceof List ) {
+            return "ArrayList";
+        }
+
+        return value.getClass().getSimpleName();
+    }
+
+
     /**
      * Retrieves particular key value from the storage.
      * Usage is get("StorageName.key1.nestedKey2[2]")
@@ -153,68 +169,160 @@ public class Storage {
      * @return value from storage
      */
     public <T> T get(String path) {
-        //do not check if storage exists if we are dealing with a number
-        if ( NumberUtils.isNumber(path) ) {
-            Log.warn("Value of " + path + " is null");
+        StoragePath compiled = StoragePath.compile(path);
+
+        //do not check if storage exists if we are dealing with a number or with text which is not a path
+        if ( compiled.isNumber() || compiled.isMalformed() ) {
+            Log.warn("Value of {} is null", path);
             return null;
-        } else {
-            // if no dots in the path return just the storage ->
-            // for example "TestData" was entered but not "TestData.key1"
-            if ( ! path.contains(".") ) {
-                Object value = scenarioCtx.get(path, HashMap.class);
-                Log.debug("Value of " + path + " is " + value);
-                return (T) value;
-            }
+        }
 
-            //get hashmap with particular storage if it exists else return null
-            String[] tmp = path.split("\\.");
-            Object value = scenarioCtx.get(tmp[0], HashMap.class);
+        // if no dots in the path return just the storage ->
+        // for example "TestData" was entered but not "TestData.key1"
+        if ( ! compiled.isNested() ) {
+            Object value = scenarioCtx.get(path, HashMap.class);
+            Log.debug("Value of {} is {}", path, value);
+            return (T) value;
+        }
 
-            if ( value != null ) {
-                String sTmp = "";
-                for (int i = 1; i < tmp.length; i++) {
-                    sTmp = sTmp + "." + tmp[i];
-                }
+        //get hashmap with particular storage if it exists else return null
+        Object value = scenarioCtx.get(compiled.getStorageName(), HashMap.class);
 
-                //iterate over elements
-                String[] elements = sTmp.substring(1).split("\\.");
-                for (String element : elements) {
-                    String ename = element.split("\\[")[0];
-
-                    if (AbstractMap.class.isAssignableFrom(value.getClass())) {
-                        value = ((AbstractMap<String, Object>) value).get(ename);
-                        if ( value != null ) {
-                            if (element.contains("[")) {
-                                if (List.class.isAssignableFrom(value.getClass())) {
-                                    Integer index = Integer.valueOf(element.substring(element.indexOf("[") + 1, element.indexOf("]")));
-                                    value = ((List<Object>) value).get(index);
-                                    if ( value == null ){
-                                        Log.warn("Value of " + path + " is null");
-                                        return null;
-                                    }
-                                } else {
-                                    Log.warn("Value of " + path + " is null");
-                                    return null;
-                                }
-                            }
-                        } else {
-                            Log.warn("Value of " + path + " is null");
-                            return null;
-                        }
-                    } else {
-                        Log.warn("Value of " + path + " is null");
+        if ( value != null ) {
+            //iterate over elements
+            for (int i = 0; i < compiled.size(); i++) {
+                if ( ! (value instanceof Map) ) {
+                    Log.warn("Value of {} is null", path);
+                    return null;
+                }
+                value = ((Map<String, Object>) value).get(compiled.key(i));
+                if ( value == null ) {
+                    Log.warn("Value of {} is null", path);
+                    return null;
+                }
+                if ( compiled.hasIndex(i) ) {
+                    if ( ! (value instanceof List) ) {
+                        Log.warn("Value of {} is null", path);
+                        return null;
+                    }
+                    value = ((List<Object>) value).get(compiled.index(i));
+                    if ( value == null ) {
+                        Log.warn("Value of {} is null", path);
                         return null;
                     }
                 }
             }
+        }
+
+        Log.debug("Value of {} is {}", path, value);
+        return (T) value;
+    }
+
+    /**
+     * Retrieves all values matching particular query from the storage in a single traversal.
+     * Usage is getAll("TestData.users[*].id"), getAll("TestData.users[2:10]") or getAll("TestData.*.name")
+     * See StorageQuery for the query syntax.
+     *
+     * Costs O(s + n) where s is the number of query segments and n is the number of selected storage nodes,
+     * query string is parsed only once per run.
+     *
+     * @param query query selecting values in the storage
+     *
+     * @return List, selected values in storage order, empty if nothing matches, never null
+     */
+    public <T> List<T> getAll(String query) {
+        StorageQuery compiled = StorageQuery.compile(query);
+        List<Object> result = new ArrayList<>();
+        compiled.select(scenarioCtx.get(compiled.getStorageName(), HashMap.class), result);
+
+        Log.debug("Values of {} are {}", query, result);
+        return (List<T>) result;
+    }
 
-            Log.debug("Value of " + path + " is " + value);
-            return (T) value;
 
+    /**
+     * Retrieves all values matching particular query from the storage as a stream
+     * Same as getAll(query).stream()
+     *
+     * @param query query selecting values in the storage
+     *
+     * @return Stream
+     */
+    public <T> Stream<T> stream(String query) {
+        List<T> values = getAll(query);
+        return values.stream();
+    }
+
+
+    /**
+     * Retrieves values of many paths at once.
+     * Each path is compiled only once per run and each storage is looked up in the context only once per call.
+     * Costs O(p) where p is the total number of segments of all paths.
+     *
+     * @param paths list of paths in the form StorageName.key1.nestedKey2[2]
+     *
+     * @return List, values in the same order as paths, null for paths which do not exist
+     */
+    public List<Object> getAll(List<String> paths) {
+        Map<String, Map<String, Object>> storages = new HashMap<>();
+        List<Object> result = new ArrayList<>(paths.size());
+        for (String path : paths) {
+            StoragePath compiled = StoragePath.compile(path);
+            if ( compiled.isNumber() || compiled.isMalformed() ) {
+                result.add(null);
+                continue;
+            }
+            Object storage = storages.computeIfAbsent(compiled.getStorageName(),
+                    name -> scenarioCtx.get(name, HashMap.class));
+            result.add(resolve(storage, compiled));
+        }
+
+        Log.debug("Values of {} are {}", paths, result);
+        return result;
+    }
+
+
+    /**
+     * Retrieves particular key value from the storage without logging
+     * Used to check if a string is a path to a value in the storage
+     *
+     * @param path path to the value in the storage
+     *
+     * @return value from storage or null if path does not exist
+     */
+    public <T> T find(String path) {
+        StoragePath compiled = StoragePath.compile(path);
+        if ( compiled.isNumber() || compiled.isMalformed() ) {
+            return null;
+        }
+
+        return (T) resolve(scenarioCtx.get(compiled.getStorageName(), HashMap.class), compiled);
+    }
+
+
+    /**
+     * helper function used to walk compiled path in a storage
+     *
+     * @param storage Object, storage content
+     * @param compiled StoragePath
+     *
+     * @return value or null if path does not exist
+     */
+    private static Object resolve(Object storage, StoragePath compiled) {
+        Object value = storage;
+        for (int i = 0; i < compiled.size() && value != null; i++) {
+            value = value instanceof Map ? ((Map<String, Object>) value).get(compiled.key(i)) : null;
+            if ( value != null && compiled.hasIndex(i) ) {
+                List<Object> list = value instanceof List ? (List<Object>) value : null;
+                int index = compiled.index(i);
+                value = list != null && index >= 0 && index < list.size() ? list.get(index) : null;
+            }
         }
+
+        return value;
     }
 
-    public synchronized void writeToFile(String name, String identifier) {
+    public void writeToFile(String name, String identifier) {
         Log.debug("Flushing current content of the storage " + name + " to the file");
         if ( name == null || name.equals("") ){
             Log.error("Storage name null or empty!");
@@ -225,42 +333,9 @@ public class Storage {
 
         HashMap<String, Object> dataMap = scenarioCtx.get(name,HashMap.class);
         if ( dataMap != null ) {
-
             //Gson gson = new GsonBuilder().setPrettyPrinting().create();
-            Gson gson = new GsonBuilder().create();
-            String content = gson.toJson(dataMap);
-
-            if ( ! STORAGE_FILE.exists() ) {
-                FileCore.writeToFile(STORAGE_FILE, identifier + "=" + content + System.getProperty("line.separator"));
-                Log.debug("Storage file " + STORAGE_FILE.getAbsolutePath() + " created");
-            } else {
-                //overwrite line with identifier if exist else add new line
-                Boolean overwriteWasDone = false;
-                List<String> lines = FileCore.readLines(STORAGE_FILE);
-
-                //just in case file exists but is empty
-                if ( lines.size() == 0 ) {
-                    FileCore.writeToFile(STORAGE_FILE, identifier + "=" + content + System.getProperty("line.separator"));
-                    Log.debug("Storage file " + STORAGE_FILE.getAbsolutePath() + " updated");
-                }
-
-                for (int i = 0; i < lines.size(); i++) {
-                    if ( lines.get(i).startsWith(identifier+"={") ) {
-                        lines.set( i, identifier + "=" + content );
-                        overwriteWasDone = true;
-                    }
-                }
-
-                if ( overwriteWasDone.equals(true) ) {
-                    FileCore.removeFile(STORAGE_FILE);
-                    for (int i = 0; i < lines.size(); i++) {
-                        FileCore.appendToFile(STORAGE_FILE, lines.get(i) + System.getProperty("line.separator"));
-                    }
-                } else {
-                    FileCore.appendToFile(STORAGE_FILE, identifier + "=" + content + System.getProperty("line.separator"));
-                }
-                Log.debug("Storage file " + STORAGE_FILE.getAbsolutePath() + " updated");
-            }
+            String content = GSON.toJson(dataMap);
+            PersistentStorage.write(identifier, content);
         }
     }
 
@@ -273,36 +348,21 @@ public class Storage {
             Log.error("identifier null or empty!");
         }
 
-        if ( STORAGE_FILE.exists() ) {
-            String content = null;
-            List<String> lines = FileCore.readLines(STORAGE_FILE);
-            for (int i = 0; i < lines.size(); i++) {
-                if ( lines.get(i).startsWith(identifier+"={") ) {
-                    content = lines.get(i);
-                    break;
-                }
-            }
+        if ( PersistentStorage.exists() ) {
+            String content = PersistentStorage.read(identifier);
 
             if ( content == null ){
                 Log.error("Content of Storage with identifier " + identifier + " was not found! " +
                     "Please make sure that step 'write storage (.+) with id (.+) to file' was executed!");
             }
 
-            String sJson = name + " : " + content.substring(identifier.length()+1);
-            File file = FileCore.createTempFile(name + "_" + identifier + "_","config");
-            FileCore.appendToFile(file, sJson);
-            Config.create(file.getAbsolutePath());
-            //clean up
-            if ( file.exists() ) {
-                FileCore.removeFile(file);
-            }
+            Config.createFromJson(name, content);
         } else {
-            Log.error( "Storage file " + TMP_DIR_PATH + "//"
-                    + "SAF_Persistent_Storage_File.json"
+            Log.error( "Storage file " + PersistentStorage.STORAGE_FILE.getAbsolutePath()
                     + " does not exists!" + " Please make sure that step "
                     + " 'write storage (.+) with id (.+) to file'"
                     + " was executed" );
         }
    }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,163 @@
+package libs.libCore.modules;
+
+import org.apache.commons.lang.math.NumberUtils;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compiled form of a Storage path like "TestData.users[3].address.city"
+ *
+ * Path is split only once into storage name and a list of segments where each segment is a map key
+ * optionally followed by a list index. Compiled paths are immutable and kept in a bounded LRU cache
+ * keyed by path string so repeated Storage.get/set calls for the same path do not parse it again.
+ *
+ * Strings which are not valid paths, for example free text with an index which is not a number like
+ * "Expected 3.5 [units]", are compiled as malformed paths which never resolve to any value.
+ */
+public final class StoragePath {
+
+    public static final int NO_INDEX = Integer.MIN_VALUE;
+
+    private static final int CACHE_SIZE = Integer.getInteger("saf.storage.pathCacheSize", 4096);
+
+    private static final Map<String, StoragePath> CACHE = Collections.synchronizedMap(
+            new LinkedHashMap<String, StoragePath>(256, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, StoragePath> eldest) {
+                    return size() > CACHE_SIZE;
+                }
+            });
+
+    private final String path;
+    private final boolean number;
+    private final boolean nested;
+    private final boolean malformed;
+    private final String storageName;
+    private final String[] keys;
+    private final int[] indexes;
+
+    private StoragePath(String path) {
+        this.path = path;
+        this.number = NumberUtils.isNumber(path);
+
+        String[] elements = path.split("\\.");
+        this.nested = !number && path.contains(".");
+        this.storageName = nested ? elements[0] : path;
+
+        int size = nested ? elements.length - 1 : 0;
+        this.keys = new String[size];
+        this.indexes = new int[size];
+
+        boolean tMalformed = false;
+        for (int i = 0; i < size; i++) {
+            String element = elements[i + 1];
+            int open = element.indexOf('[');
+            indexes[i] = NO_INDEX;
+            if ( open == -1 ) {
+                keys[i] = element;
+            } else {
+                keys[i] = element.substring(0, open);
+                int close = element.indexOf(']', open);
+                String index = close == -1 ? "" : element.substring(open + 1, close);
+                if ( NumberUtils.isDigits(index) && index.length() < 10 ) {
+                    indexes[i] = Integer.parseInt(index);
+                } else {
+                    tMalformed = true;
+                }
+            }
+        }
+        this.malformed = tMalformed;
+    }
+
+    /**
+     * Returns compiled path for provided path string
+     * Compiled paths are cached so each distinct path is parsed only once
+     *
+     * @param path String, path in the form StorageName.key1.key2[idx]
+     *
+     * @return StoragePath
+     */
+    public static StoragePath compile(String path) {
+        StoragePath compiled = CACHE.get(path);
+        if ( compiled == null ) {
+            compiled = new StoragePath(path);
+            CACHE.put(path, compiled);
+        }
+
+        return compiled;
+    }
+
+    /**
+     * @return original path string
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * @return true if path is actually a number and can't point to any storage
+     */
+    public boolean isNumber() {
+        return number;
+    }
+
+    /**
+     * @return true if path contains a list index which is not a number, such path can't point to any storage
+     */
+    public boolean isMalformed() {
+        return malformed;
+    }
+
+    /**
+     * @return true if path points to an entry inside of a storage and not to the storage itself
+     */
+    public boolean isNested() {
+        return nested;
+    }
+
+    /**
+     * @return name of the storage, first element of the path
+     */
+    public String getStorageName() {
+        return storageName;
+    }
+
+    /**
+     * @return number of segments after storage name
+     */
+    public int size() {
+        return keys.length;
+    }
+
+    /**
+     * @param idx segment number
+     * @return map key of particular segment
+     */
+    public String key(int idx) {
+        return keys[idx];
+    }
+
+    /**
+     * @param idx segment number
+     * @return true if particular segment contains list index
+     */
+    public boolean hasIndex(int idx) {
+        return indexes[idx] != NO_INDEX;
+    }
+
+    /**
+     * @param idx segment number
+     * @return list index of particular segment or NO_INDEX
+     */
+    public int index(int idx) {
+        return indexes[idx];
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+
+}
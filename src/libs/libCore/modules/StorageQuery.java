@@ -0,0 +1,189 @@
+package libs.libCore.modules;
+
+import java.util.*;
+
+/**
+ * Compiled form of a Storage query like "TestData.users[*].address.city" or "TestData.users[2:10].id"
+ *
+ * Query is a Storage path where each segment is a map key or * (all values of a map) followed by
+ * any number of list selectors. Selector can be an index [3], a wildcard [*] or a slice [from:to] where
+ * from is inclusive, to is exclusive and any of them can be omitted, for example [2:] or [:10].
+ * Slice bounds are clamped to the size of the list.
+ *
+ * Compiled queries are immutable and kept in a bounded LRU cache keyed by query string, same as StoragePath.
+ *
+ * Complexity of a query is O(s + n) where s is the number of segments and n is the number of storage nodes
+ * selected on the way, so a whole column of a list is fetched in a single traversal. Index and slice
+ * selectors address list elements directly and do not iterate over skipped ones.
+ */
+public final class StorageQuery {
+
+    private static final int CACHE_SIZE = Integer.getInteger("saf.storage.pathCacheSize", 4096);
+
+    private static final Map<String, StorageQuery> CACHE = Collections.synchronizedMap(
+            new LinkedHashMap<String, StorageQuery>(64, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, StorageQuery> eldest) {
+                    return size() > CACHE_SIZE;
+                }
+            });
+
+    private static final String ANY_KEY = "*";
+    private static final int OPEN = Integer.MAX_VALUE;
+
+    private final String query;
+    private final String storageName;
+    private final String[] keys;
+    private final int[][] selectors;
+
+    private StorageQuery(String query) {
+        this.query = query;
+
+        String[] elements = query.split("\\.");
+        this.storageName = elements[0];
+        this.keys = new String[elements.length - 1];
+        this.selectors = new int[elements.length - 1][];
+
+        for (int i = 0; i < keys.length; i++) {
+            String element = elements[i + 1];
+            int open = element.indexOf('[');
+            keys[i] = open == -1 ? element : element.substring(0, open);
+
+            List<int[]> tSelectors = new ArrayList<>();
+            while ( open != -1 ) {
+                int close = element.indexOf(']', open);
+                if ( close == -1 ) {
+                    Log.error("Missing ] in query " + query);
+                }
+                tSelectors.add(parseSelector(element.substring(open + 1, close).trim()));
+                open = element.indexOf('[', close);
+            }
+
+            int[] flat = new int[tSelectors.size() * 2];
+            for (int j = 0; j < tSelectors.size(); j++) {
+                flat[2 * j] = tSelectors.get(j)[0];
+                flat[2 * j + 1] = tSelectors.get(j)[1];
+            }
+            selectors[i] = flat;
+        }
+    }
+
+    /**
+     * helper function used to turn selector text into a range of list indexes
+     *
+     * @param selector String, content of the brackets
+     *
+     * @return int[]{from, to}
+     */
+    private int[] parseSelector(String selector) {
+        try {
+            if ( selector.equals("*") ) {
+                return new int[]{0, OPEN};
+            }
+            int colon = selector.indexOf(':');
+            if ( colon == -1 ) {
+                int index = Integer.parseInt(selector);
+                return new int[]{index, index + 1};
+            }
+            String from = selector.substring(0, colon).trim();
+            String to = selector.substring(colon + 1).trim();
+
+            return new int[]{from.isEmpty() ? 0 : Integer.parseInt(from), to.isEmpty() ? OPEN : Integer.parseInt(to)};
+        } catch (NumberFormatException e) {
+            Log.error("Wrong selector [" + selector + "] in query " + query, e);
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns compiled query for provided query string
+     * Compiled queries are cached so each distinct query is parsed only once
+     *
+     * @param query String, query in the form StorageName.key1[*].key2[from:to]
+     *
+     * @return StorageQuery
+     */
+    public static StorageQuery compile(String query) {
+        StorageQuery compiled = CACHE.get(query);
+        if ( compiled == null ) {
+            compiled = new StorageQuery(query);
+            CACHE.put(query, compiled);
+        }
+
+        return compiled;
+    }
+
+    /**
+     * @return original query string
+     */
+    public String getQuery() {
+        return query;
+    }
+
+    /**
+     * @return name of the storage, first element of the query
+     */
+    public String getStorageName() {
+        return storageName;
+    }
+
+    /**
+     * Selects all values matching this query
+     * Values which do not exist are skipped, nulls are never added to the result
+     *
+     * @param storage Map, root of the storage
+     * @param result List, list to which selected values are added in storage order
+     */
+    public void select(Map<String, Object> storage, List<Object> result) {
+        if ( storage != null ) {
+            walk(storage, 0, result);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void walk(Object node, int segment, List<Object> result) {
+        if ( segment == keys.length ) {
+            result.add(node);
+            return;
+        }
+        if ( ! (node instanceof Map) ) {
+            return;
+        }
+        Map<String, Object> map = (Map<String, Object>) node;
+        if ( keys[segment].equals(ANY_KEY) ) {
+            for (Object value : map.values()) {
+                applySelectors(value, segment, 0, result);
+            }
+        } else {
+            applySelectors(map.get(keys[segment]), segment, 0, result);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void applySelectors(Object node, int segment, int selector, List<Object> result) {
+        if ( node == null ) {
+            return;
+        }
+        int[] tSelectors = selectors[segment];
+        if ( selector == tSelectors.length ) {
+            walk(node, segment + 1, result);
+            return;
+        }
+        if ( ! (node instanceof List) ) {
+            return;
+        }
+        List<Object> list = (List<Object>) node;
+        int from = Math.max(0, tSelectors[selector]);
+        int to = Math.min(list.size(), tSelectors[selector + 1]);
+        for (int i = from; i < to; i++) {
+            applySelectors(list.get(i), segment, selector + 2, result);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return query;
+    }
+
+}
@@ -0,0 +1,251 @@
+package libs.libCore.modules;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * White space tolerant, line by line comparison of a text with a template
+ *
+ * Both inputs are read as streams of lines, white spaces are removed from each line and blank lines are skipped.
+ * Each template line has to match exactly one result line. Template line is a regular expression, lines without
+ * regex special characters are compared as plain strings. Template line {{*}} matches any number of result lines,
+ * result lines are skipped until the next template line matches.
+ *
+ * Each regular expression is applied to a single line only and there is no backtracking between lines,
+ * so comparison runs in linear time with respect to the number of lines and stops at the first mismatch.
+ * Mismatch is described with a bounded unified diff.
+ *
+ * StepCore.compareWithTemplate uses it by default, whole file comparison is used only with
+ * -Dsaf.template.compare=regex or when a template line is not a valid regular expression.
+ */
+public final class TemplateComparator {
+
+    public static final String WILDCARD = "{{*}}";
+
+    private static final int CONTEXT = Integer.getInteger("saf.template.diffContext", 3);
+    private static final int MAX_LINE_LENGTH = 300;
+    private static final String SPECIAL = "\\^$.|?*+()[]{}";
+
+    private TemplateComparator() {}
+
+    /**
+     * Result of template comparison
+     */
+    public static final class Result {
+
+        private final String message;
+        private final String diff;
+
+        private Result(String message, String diff) {
+            this.message = message;
+            this.diff = diff;
+        }
+
+        /**
+         * @return true if result matches template
+         */
+        public boolean matches() {
+            return message == null;
+        }
+
+        /**
+         * @return description of the first mismatch or null
+         */
+        public String getMessage() {
+            return message;
+        }
+
+        /**
+         * @return unified diff around the first mismatch or null
+         */
+        public String getDiff() {
+            return diff;
+        }
+    }
+
+
+    /**
+     * Compares text with a template
+     *
+     * @param template Reader, evaluated template
+     * @param results Reader, text to compare
+     *
+     * @return Result
+     *
+     * @throws PatternSyntaxException if a template line is not a valid regular expression
+     */
+    public static Result compare(Reader template, Reader results) throws IOException {
+        Lines tLines = new Lines(template);
+        Lines rLines = new Lines(results);
+        Deque<String> context = new ArrayDeque<>();
+        Map<String, Pattern> patterns = new HashMap<>();
+
+        boolean skipping = false;
+        String tLine;
+        while ( (tLine = tLines.next()) != null ) {
+            if ( tLines.stripped.equals(WILDCARD) ) {
+                skipping = true;
+                continue;
+            }
+            String expected = tLines.stripped;
+            Pattern pattern = isPlain(expected) ? null : compile(expected, tLines.number, patterns);
+
+            String rLine;
+            while ( true ) {
+                rLine = rLines.next();
+                if ( rLine == null ) {
+                    return mismatch("Template line " + tLines.number + " has no matching line in the result",
+                            tLines, tLine, rLines, null, context);
+                }
+                String actual = rLines.stripped;
+                if ( pattern == null ? expected.equals(actual) : pattern.matcher(actual).matches() ) {
+                    break;
+                }
+                if ( ! skipping ) {
+                    return mismatch("Template line " + tLines.number + " does not match result line " + rLines.number,
+                            tLines, tLine, rLines, rLine, context);
+                }
+                remember(context, rLine);
+            }
+            skipping = false;
+            remember(context, rLine);
+        }
+
+        String rLine = skipping ? null : rLines.next();
+        if ( rLine != null ) {
+            return mismatch("Result line " + rLines.number + " is not expected by the template",
+                    tLines, null, rLines, rLine, context);
+        }
+
+        return new Result(null, null);
+    }
+
+
+    private static boolean isPlain(String line) {
+        for (int i = 0; i < line.length(); i++) {
+            if ( SPECIAL.indexOf(line.charAt(i)) != -1 ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Pattern compile(String regex, int lineNumber, Map<String, Pattern> patterns) {
+        Pattern pattern = patterns.get(regex);
+        if ( pattern == null ) {
+            try {
+                pattern = Pattern.compile(regex);
+            } catch (PatternSyntaxException e) {
+                throw new PatternSyntaxException("Wrong regular expression in template line " + lineNumber
+                        + ". " + e.getDescription(), regex, e.getIndex());
+            }
+            patterns.put(regex, pattern);
+        }
+
+        return pattern;
+    }
+
+    private static void remember(Deque<String> context, String line) {
+        if ( CONTEXT <= 0 ) {
+            return;
+        }
+        if ( context.size() == CONTEXT ) {
+            context.removeFirst();
+        }
+        context.addLast(line);
+    }
+
+    /**
+     * helper function used to describe mismatch as a unified diff
+     * diff contains up to CONTEXT matched lines before the mismatch and up to CONTEXT lines of both inputs after it
+     */
+    private static Result mismatch(String message, Lines tLines, String tLine, Lines rLines, String rLine,
+                                   Deque<String> context) throws IOException {
+        StringBuilder diff = new StringBuilder();
+        diff.append("--- template").append(System.lineSeparator());
+        diff.append("+++ result").append(System.lineSeparator());
+        diff.append("@@ -").append(tLines.number).append(" +").append(rLines.number).append(" @@ ")
+                .append(message).append(System.lineSeparator());
+        for (String line : context) {
+            append(diff, ' ', line);
+        }
+        if ( tLine != null ) {
+            append(diff, '-', tLine);
+            for (int i = 0; i < CONTEXT && (tLine = tLines.next()) != null; i++) {
+                append(diff, '-', tLine);
+            }
+        }
+        if ( rLine != null ) {
+            append(diff, '+', rLine);
+            for (int i = 0; i < CONTEXT && (rLine = rLines.next()) != null; i++) {
+                append(diff, '+', rLine);
+            }
+        }
+
+        return new Result(message, diff.toString());
+    }
+
+    private static void append(StringBuilder diff, char prefix, String line) {
+        diff.append(prefix);
+        if ( line.length() > MAX_LINE_LENGTH ) {
+            diff.append(line, 0, MAX_LINE_LENGTH).append("...");
+        } else {
+            diff.append(line);
+        }
+        diff.append(System.lineSeparator());
+    }
+
+
+    /**
+     * Stream of non blank lines together with their numbers and content without white spaces
+     */
+    private static final class Lines {
+
+        private final BufferedReader reader;
+        private int number = 0;
+        private String stripped;
+
+        private Lines(Reader reader) {
+            this.reader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        }
+
+        private String next() throws IOException {
+            String line;
+            while ( (line = reader.readLine()) != null ) {
+                number++;
+                stripped = strip(line);
+                if ( ! stripped.isEmpty() ) {
+                    return line;
+                }
+            }
+
+            return null;
+        }
+
+        private static String strip(String line) {
+            StringBuilder sb = null;
+            for (int i = 0; i < line.length(); i++) {
+                if ( isSpace(line.charAt(i)) ) {
+                    if ( sb == null ) {
+                        sb = new StringBuilder(line.length());
+                        sb.append(line, 0, i);
+                    }
+                } else if ( sb != null ) {
+                    sb.append(line.charAt(i));
+                }
+            }
+
+            return sb == null ? line : sb.toString();
+        }
+
+        //same characters as \s in regular expressions
+        private static boolean isSpace(char c) {
+            return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+        }
+    }
+
+}
@@ -1,11 +1,9 @@
 package libs.libCore.modules;
 
-import cucumber.api.junit.Cucumber;
-
 import org.junit.runner.RunWith;
 import cucumber.api.CucumberOptions;
 
-@RunWith(Cucumber.class)
+@RunWith(ParallelCucumber.class)
 @CucumberOptions(
         plugin = {"io.qameta.allure.cucumber3jvm.AllureCucumber3Jvm", "libs.libCore.modules.CustomFormatter"},
         features = "src/features",
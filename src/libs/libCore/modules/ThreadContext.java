@@ -1,61 +1,218 @@
 package libs.libCore.modules;
 
-import java.util.Arrays;
-import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
-// add possibility to assign name to the context like feature+scenario to identify them in a unique way
-
+/**
+ * Registry of contexts
+ *
+ * There is a single thread safe Global context shared by all threads and one Scenario context per running scenario.
+ * Scenario context is identified by a ScenarioHandle and not by the thread name so it works on pooled
+ * threads as well. Thread that initializes the scenario is attached to it automatically, any other thread
+ * (for example an executor thread used by a step) has to be attached explicitly via ScenarioHandle.attach
+ * or by running its task wrapped with ScenarioHandle.wrap. Because attached threads may read and modify
+ * the scenario context concurrently with the scenario thread, scenario context is thread safe as well.
+ *
+ * Lookup of a context is a plain ThreadLocal read. Context is released as soon as it is removed.
+ *
+ * Attached threads are also bound to the scenario log, see ScenarioLog, so their log events are part
+ * of the log of the scenario.
+ */
 public class ThreadContext {
 
-    protected static Map<String, HashMap<String, Context>> threadContexts =
-            new ConcurrentHashMap<>();
+    private static volatile Context globalCtx;
+    private static final ThreadLocal<ScenarioHandle> currentScenario = new ThreadLocal<>();
+    private static final Map<String, ScenarioHandle> scenarios = new ConcurrentHashMap<>();
+    private static final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * Identity of a running scenario
+     * Can be handed over to other threads to give them access to the scenario context
+     */
+    public static final class ScenarioHandle {
 
-    private static String types[] = {"Global", "Scenario"};
+        private final String id;
+        private final String logId;
+        private volatile Context context;
 
-    private static void validateType(String type){
-        // Convert String Array to List
-        List<String> list = Arrays.asList(types);
-        if ( !list.contains(type) ){
-            Log.error("Not supported context type! Please use one of Global or Scenario!");
+        private ScenarioHandle(String id, String logId) {
+            this.id = id;
+            this.logId = logId;
+            this.context = Context.synchronizedContext();
         }
-    }
 
-    private static String getThreadNameAndId(String type){
-        validateType(type);
+        /**
+         * @return unique id of the scenario within the test run
+         */
+        public String getId() {
+            return id;
+        }
 
-        String name = Thread.currentThread().getName();
-        String id = Long.toString(Thread.currentThread().getId());
+        /**
+         * @return scenario context or null if scenario already finished
+         */
+        public Context getContext() {
+            return context;
+        }
+
+        /**
+         * Attaches current thread to the scenario
+         *
+         * @return ScenarioHandle, handle the thread was attached to before or null
+         */
+        public ScenarioHandle attach() {
+            ScenarioHandle previous = currentScenario.get();
+            currentScenario.set(this);
+            ScenarioLog.bind(logId);
+            return previous;
+        }
 
-        if (type.equals("Global")){
-             return "main_1";
+        /**
+         * Wraps task so it runs attached to the scenario on whatever thread executes it
+         *
+         * @param task Runnable
+         *
+         * @return Runnable
+         */
+        public Runnable wrap(Runnable task) {
+            return () -> {
+                ScenarioHandle previous = attach();
+                try {
+                    task.run();
+                } finally {
+                    restore(previous);
+                }
+            };
         }
 
-        return name + "_" + id;
+        /**
+         * Wraps task so it runs attached to the scenario on whatever thread executes it
+         *
+         * @param task Callable
+         *
+         * @return Callable
+         */
+        public <V> Callable<V> wrap(Callable<V> task) {
+            return () -> {
+                ScenarioHandle previous = attach();
+                try {
+                    return task.call();
+                } finally {
+                    restore(previous);
+                }
+            };
+        }
+
+        @Override
+        public String toString() {
+            return id;
+        }
     }
 
+
+    /**
+     * Creates new context of particular type
+     * Scenario context is attached to the current thread
+     *
+     * @param type String, one of Global or Scenario
+     */
     public static void initializeContext(String type){
-        HashMap<String, Context> ctxMap = threadContexts.get(getThreadNameAndId(type));
-        if ( ctxMap == null ){
-            ctxMap = new HashMap<>();
+        if ( type.equals("Global") ) {
+            globalCtx = Context.synchronizedContext();
+            Log.info("New thread context of type Global created");
+        } else if ( type.equals("Scenario") ) {
+            ScenarioHandle handle = new ScenarioHandle("scenario_" + sequence.incrementAndGet(), ScenarioLog.current());
+            scenarios.put(handle.getId(), handle);
+            currentScenario.set(handle);
+            Log.info("New thread context of type Scenario created with id " + handle.getId());
+        } else {
+            notSupported();
         }
-        ctxMap.put(type, new Context());
-        threadContexts.put(getThreadNameAndId(type),ctxMap);
-        Log.info("New thread context od type " + type + " created for thread with id " + getThreadNameAndId(type));
     }
 
+    /**
+     * Returns context of particular type
+     *
+     * @param type String, one of Global or Scenario
+     *
+     * @return Context or null if context does not exist or current thread is not attached to any scenario
+     */
     public static Context getContext(String type){
-        HashMap<String, Context> ctxMap = threadContexts.get(getThreadNameAndId(type));
-        Log.info("Thread context of type " + type + " retrieved for thread with id " + getThreadNameAndId(type));
-        return ctxMap.get(type);
+        if ( type.equals("Scenario") ) {
+            ScenarioHandle handle = currentScenario.get();
+            return handle == null ? null : handle.context;
+        }
+        if ( type.equals("Global") ) {
+            return globalCtx;
+        }
+        notSupported();
+
+        return null;
     }
 
+    /**
+     * Removes context of particular type
+     * Removed scenario context is detached from the current thread and released
+     *
+     * @param type String, one of Global or Scenario
+     */
     public static void removeContext(String type){
-        HashMap<String, Context> ctxMap = threadContexts.get(getThreadNameAndId(type));
-        ctxMap.remove(type);
-        Log.info("Thread context of type " + type + " removed for thread with id " + getThreadNameAndId(type));
+        if ( type.equals("Global") ) {
+            globalCtx = null;
+            Log.info("Thread context of type Global removed");
+        } else if ( type.equals("Scenario") ) {
+            ScenarioHandle handle = currentScenario.get();
+            currentScenario.remove();
+            if ( handle != null ) {
+                scenarios.remove(handle.getId());
+                handle.context = null;
+                Log.info("Thread context of type Scenario removed for scenario with id " + handle.getId());
+            }
+        } else {
+            notSupported();
+        }
+    }
+
+    /**
+     * @return handle of the scenario current thread is attached to or null
+     */
+    public static ScenarioHandle currentScenario() {
+        return currentScenario.get();
+    }
+
+    /**
+     * Returns handle of running scenario
+     *
+     * @param id String, scenario id
+     *
+     * @return ScenarioHandle or null if scenario with such id is not running
+     */
+    public static ScenarioHandle getScenario(String id) {
+        return scenarios.get(id);
+    }
+
+    /**
+     * Detaches current thread from the scenario it is attached to
+     */
+    public static void detach() {
+        currentScenario.remove();
+        ScenarioLog.bind(null);
+    }
+
+    private static void restore(ScenarioHandle previous) {
+        if ( previous == null ) {
+            currentScenario.remove();
+            ScenarioLog.bind(null);
+        } else {
+            currentScenario.set(previous);
+            ScenarioLog.bind(previous.logId);
+        }
+    }
+
+    private static void notSupported() {
+        Log.error("Not supported context type! Please use one of Global or Scenario!");
     }
 
-}
\ No newline at end of file
+}
@@ -1,15 +1,22 @@
 package libs.libCore.modules;
 
-import java.io.IOException;
-import java.io.OutputStream;
-import java.io.PrintStream;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 /**
- * A wrapper class which takes a logger as constructor argument and offers a PrintStream whose flush
- * method writes the written content to the supplied logger (debug level).
+ * A wrapper class which takes a logger as constructor argument and offers a PrintStream which writes
+ * the written content line by line to the supplied logger (debug level).
  * <p>
  * Usage:<br>
  * initializing in @BeforeClass of the unit test:
@@ -22,41 +29,226 @@ import org.apache.logging.log4j.Logger;
  * <pre>
  *             resp.then().log().all( true );
  * </pre>
+ * <p>
+ * Bytes are decoded incrementally as UTF-8 so multi byte characters split between writes are not corrupted.
+ * Content of a single println call (RestAssured prints a whole request or response with one call) or content written
+ * before an explicit flush is logged up to
+ * -Dsaf.log.maxBodySize bytes (default 256KB). Above that the rest is not logged, a marker line is logged instead
+ * and the full content is written to a file in -Dsaf.log.spillDir (default target/log-payloads).
+ * Content which does not end with a new line is logged when the stream is flushed.
  *
  * @version 1.0 (28.10.2015)
  * @author  Heri Bender
  */
 public class ToLoggerPrintStream {
+
+    private static final int MAX_BODY_SIZE = Integer.getInteger("saf.log.maxBodySize", 256 * 1024);
+    private static final String SPILL_DIR = System.getProperty("saf.log.spillDir", "target/log-payloads");
+
     /**
      * Logger for this class
      */
     private Logger myLog;
     private PrintStream myPrintStream;
 
+    /**
+     * Stream which decodes written bytes and logs each complete line
+     */
+    private final class LineOutputStream extends OutputStream {
+
+        private final Charset charset = StandardCharsets.UTF_8;
+        private final CharsetDecoder decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private final ByteBuffer in = ByteBuffer.allocate(8192);
+        private final CharBuffer out = CharBuffer.allocate(8192);
+        private final StringBuilder line = new StringBuilder();
+
+        //content of current message, kept until it is known if it has to be spilled
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        private long bodySize;
+        private OutputStream spill;
+        private Path spillFile;
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if ( spill != null ) {
+                bodySize += len;
+                spill.write(b, off, len);
+                return;
+            }
+
+            //only part of the message up to the limit is logged
+            int logged = (int) Math.min(len, MAX_BODY_SIZE - bodySize);
+            bodySize += len;
+            body.write(b, off, len);
+            decode(b, off, logged);
+            if ( logged < len ) {
+                startSpill();
+            }
+        }
+
+        private void decode(byte[] b, int off, int len) {
+            while ( len > 0 ) {
+                int chunk = Math.min(len, in.remaining());
+                in.put(b, off, chunk);
+                off += chunk;
+                len -= chunk;
+
+                in.flip();
+                while ( true ) {
+                    boolean overflow = decoder.decode(in, out, false).isOverflow();
+                    out.flip();
+                    while ( out.hasRemaining() ) {
+                        char c = out.get();
+                        if ( c == '\n' ) {
+                            emitLine();
+                        } else if ( c != '\r' ) {
+                            line.append(c);
+                        }
+                    }
+                    out.clear();
+                    if ( ! overflow ) {
+                        break;
+                    }
+                }
+                //keep bytes of an incomplete character for the next write
+                in.compact();
+            }
+        }
+
+        private void emitLine() {
+            myLog.debug(line.toString());
+            line.setLength(0);
+        }
+
+        private void startSpill() throws IOException {
+            Path dir = Paths.get(SPILL_DIR);
+            Files.createDirectories(dir);
+            spillFile = Files.createTempFile(dir, "payload_", ".log");
+            spill = new BufferedOutputStream(Files.newOutputStream(spillFile));
+            body.writeTo(spill);
+            body.reset();
+            in.clear();
+            decoder.reset();
+            line.setLength(0);
+        }
+
+        /**
+         * ends current message, if it was spilled to a file marker line is logged
+         */
+        private void endMessage() throws IOException {
+            if ( spill != null ) {
+                spill.close();
+                myLog.debug("... truncated after " + MAX_BODY_SIZE + " of " + bodySize
+                        + " bytes, full content written to " + spillFile.toAbsolutePath());
+                spill = null;
+                spillFile = null;
+            }
+            body.reset();
+            bodySize = 0;
+        }
+
+        /**
+         * logs content written so far which does not end with a new line and ends current message
+         *
+         * @see java.io.OutputStream#flush()
+         */
+        @Override
+        public void flush() throws IOException {
+            if ( line.length() > 0 ) {
+                emitLine();
+            }
+            endMessage();
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+
     /**
      * @return printStream
      */
     public PrintStream getPrintStream() {
         if (myPrintStream == null) {
-            OutputStream output = new OutputStream() {
-                private StringBuilder myStringBuilder = new StringBuilder();
+            LineOutputStream output = new LineOutputStream();
+            try {
+                myPrintStream = new PrintStream(output, false, StandardCharsets.UTF_8.name()) {
+                    //each println call is a separate message
+                    private void endMessage() {
+                        try {
+                            output.endMessage();
+                        } catch (IOException e) {
+                            setError();
+                        }
+                    }
 
-                @Override
-                public void write(int b) throws IOException {
-                    this.myStringBuilder.append((char) b);
-                }
+                    @Override
+                    public void println() {
+                        synchronized (this) {
+                            super.println();
+                            endMessage();
+                        }
+                    }
 
-                /**
-                 * @see java.io.OutputStream#flush()
-                 */
-                @Override
-                public void flush() {
-                    myLog.debug(this.myStringBuilder.toString());
-                    myStringBuilder = new StringBuilder();
-                }
-            };
+                    @Override
+                    public void println(boolean x) {
+                        println(String.valueOf(x));
+                    }
+
+                    @Override
+                    public void println(char x) {
+                        println(String.valueOf(x));
+                    }
+
+                    @Override
+                    public void println(int x) {
+                        println(String.valueOf(x));
+                    }
+
+                    @Override
+                    public void println(long x) {
+                        println(String.valueOf(x));
+                    }
+
+                    @Override
+                    public void println(float x) {
+                        println(String.valueOf(x));
+                    }
+
+                    @Override
+                    public void println(double x) {
+                        println(String.valueOf(x));
+                    }
+
+                    @Override
+                    public void println(char[] x) {
+                        println(new String(x));
+                    }
+
+                    @Override
+                    public void println(String x) {
+                        synchronized (this) {
+                            super.println(x);
+                            endMessage();
+                        }
+                    }
 
-            myPrintStream = new PrintStream(output, true);  // true: autoflush must be set!
+                    @Override
+                    public void println(Object x) {
+                        println(String.valueOf(x));
+                    }
+                };
+            } catch (UnsupportedEncodingException e) {
+                throw new IllegalStateException(e);
+            }
         }
 
         return myPrintStream;
@@ -0,0 +1,179 @@
+package libs.libCore.modules;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Span tracer used to show where wall-clock time of the test run goes
+ *
+ * Spans are opened with Tracer.begin and closed with Span.end. Spans opened on the same thread while another one
+ * is open are shown nested in it. CustomFormatter opens spans for the run, features, scenarios, scenario setup and
+ * teardown and steps. Remote operations timed with Metrics.start (sql queries, ssh and winRM commands, REST
+ * requests, web driver commands) are spans as well.
+ *
+ * Each span is attributed to the thread which opened it and to the scenario this thread is attached to, see
+ * ThreadContext.ScenarioHandle.
+ *
+ * At the end of the run spans are written to target/trace.json (target/trace_worker[N].json for parallel workers)
+ * in Chrome trace event format which can be opened in chrome://tracing or ui.perfetto.dev.
+ *
+ * Tracing is off by default and can be switched on with -Dsaf.trace=true. Spans are kept in memory until the end
+ * of the run, their number is limited by -Dsaf.trace.maxEvents (default 1000000), spans above the limit are dropped.
+ */
+public class Tracer {
+
+    public static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("saf.trace", "false"));
+    private static final int MAX_EVENTS = Integer.getInteger("saf.trace.maxEvents", 1000000);
+
+    private static final long ORIGIN = System.nanoTime();
+    private static final Queue<Span> spans = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger size = new AtomicInteger();
+    private static final AtomicLong dropped = new AtomicLong();
+    private static final Map<Long, String> threads = new ConcurrentHashMap<>();
+
+    private static final Span NOOP = new Span(null, null, null);
+
+
+    /**
+     * Single span, it is recorded when it ends
+     */
+    public static final class Span {
+
+        private final String category;
+        private final String name;
+        private final String scenario;
+        private final long threadId;
+        private final long start;
+        private volatile long end;
+
+        private Span(String category, String name, String scenario) {
+            this.category = category;
+            this.name = name;
+            this.scenario = scenario;
+            this.threadId = Thread.currentThread().getId();
+            this.start = System.nanoTime();
+        }
+
+        /**
+         * closes the span, a span is recorded only once
+         */
+        public void end() {
+            if ( this == NOOP || end != 0 ) {
+                return;
+            }
+            end = System.nanoTime();
+            if ( size.incrementAndGet() > MAX_EVENTS ) {
+                size.decrementAndGet();
+                dropped.incrementAndGet();
+                return;
+            }
+            spans.add(this);
+        }
+    }
+
+
+    /**
+     * Opens a span on the current thread
+     *
+     * @param category String, category of the span for example run, feature, scenario, step, module
+     * @param name String, name of the span
+     *
+     * @return Span
+     */
+    public static Span begin(String category, String name) {
+        if ( ! ENABLED ) {
+            return NOOP;
+        }
+        Thread thread = Thread.currentThread();
+        if ( ! threads.containsKey(thread.getId()) ) {
+            threads.put(thread.getId(), thread.getName());
+        }
+        ThreadContext.ScenarioHandle handle = ThreadContext.currentScenario();
+
+        return new Span(category, name, handle == null ? null : handle.getId());
+    }
+
+
+    /**
+     * Writes all spans recorded so far to trace.json in the provided directory
+     * Each parallel worker writes its own file trace_worker[N].json
+     *
+     * @param dir File, directory where trace shall be written, usually target
+     */
+    public static void write(File dir) {
+        if ( ! ENABLED ) {
+            return;
+        }
+        String workerId = System.getProperty(ParallelCucumber.WORKER_ID_PROPERTY);
+        String pid = workerId == null ? "0" : workerId;
+        File file = new File(dir, workerId == null ? "trace.json" : "trace_worker" + workerId + ".json");
+
+        try {
+            Files.createDirectories(dir.toPath());
+            try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+                out.write("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[\n");
+                out.write("{\"name\":\"process_name\",\"ph\":\"M\",\"pid\":" + pid + ",\"tid\":0,\"args\":{\"name\":"
+                        + quote(workerId == null ? "SAF" : "SAF worker " + workerId) + "}}");
+                for (Map.Entry<Long, String> thread : threads.entrySet()) {
+                    out.write(",\n{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":" + pid + ",\"tid\":" + thread.getKey()
+                            + ",\"args\":{\"name\":" + quote(thread.getValue()) + "}}");
+                }
+                for (Span span : spans) {
+                    out.write(",\n{\"name\":");
+                    out.write(quote(span.name));
+                    out.write(",\"cat\":");
+                    out.write(quote(span.category));
+                    out.write(",\"ph\":\"X\",\"ts\":");
+                    out.write(micros(span.start - ORIGIN));
+                    out.write(",\"dur\":");
+                    out.write(micros(span.end - span.start));
+                    out.write(",\"pid\":" + pid + ",\"tid\":" + span.threadId);
+                    if ( span.scenario != null ) {
+                        out.write(",\"args\":{\"scenario\":" + quote(span.scenario) + "}");
+                    }
+                    out.write("}");
+                }
+                out.write("\n]}\n");
+            }
+        } catch (IOException e) {
+            Log.warn("Trace can't be written to " + file.getAbsolutePath() + ". " + e.getMessage());
+            return;
+        }
+
+        if ( dropped.get() > 0 ) {
+            Log.warn(dropped.get() + " spans were dropped because limit of " + MAX_EVENTS + " was reached");
+        }
+        Log.info("Trace with " + size.get() + " spans written to " + file.getAbsolutePath());
+    }
+
+    private static String micros(long nanos) {
+        return (nanos / 1000) + "." + String.format("%03d", nanos % 1000);
+    }
+
+    private static String quote(String value) {
+        if ( value == null ) {
+            return "null";
+        }
+        StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if ( c == '"' || c == '\\' ) {
+                sb.append('\\').append(c);
+            } else if ( c < 0x20 ) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+
+        return sb.append('"').toString();
+    }
+
+}
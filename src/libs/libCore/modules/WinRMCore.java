@@ -123,12 +123,15 @@ public class WinRMCore {
 
         Log.debug("Command to execute is " + cmd);
 
+        Metrics.Sample tSample = Metrics.start("winrm.executeCommand");
         try {
             Long lTimeout = timeout.longValue();
             tool.setOperationTimeout(lTimeout * 1000);
             result = tool.executeCommand(cmd);
         } catch (Exception e){
             Log.error("", e);
+        } finally {
+            tSample.stop();
         }
 
         return result;
@@ -159,12 +162,15 @@ public class WinRMCore {
         message = removeLastDelimiter(message, " & ");
         Log.debug("Command to execute is " + message);
 
+        Metrics.Sample tSample = Metrics.start("winrm.executeCommand");
         try {
             Long lTimeout = timeout.longValue();
             tool.setOperationTimeout(lTimeout * 1000);
             result = tool.executeCommand(cmd);
         } catch ( Exception e){
             Log.error("", e);
+        } finally {
+            tSample.stop();
         }
 
         return result;
@@ -191,12 +197,15 @@ public class WinRMCore {
 
         Log.debug("Command to execute is " + cmd);
 
+        Metrics.Sample tSample = Metrics.start("winrm.executePs");
         try {
             Long lTimeout = timeout.longValue();
             tool.setOperationTimeout(lTimeout * 1000);
             result = tool.executePs(cmd);
         } catch ( Exception e ){
             Log.error("", e);
+        } finally {
+            tSample.stop();
         }
 
         return result;
@@ -229,12 +238,15 @@ public class WinRMCore {
         message = removeLastDelimiter(message, " \r\n ");
         Log.debug("Command to execute is " + message);
 
+        Metrics.Sample tSample = Metrics.start("winrm.executePs");
         try {
             Long lTimeout = timeout.longValue();
             tool.setOperationTimeout(lTimeout * 1000);
             result = tool.executePs(cmd);
         } catch ( Exception e){
             Log.error("", e);
+        } finally {
+            tSample.stop();
         }
 
         return result;
@@ -226,8 +226,13 @@ public class WinRSCore {
         String invocation = "winrs -r:http://" + address + ":" + port + " -u:" + domain + "\\" + user + " -p:" + passwd;
         cmd =  invocation + " " + cmd;
 
-        ByteArrayOutputStream out = ExecutorCore.execute(cmd, workingDir, timeout, true);
-        return new String(out.toByteArray(), Charset.defaultCharset());
+        Metrics.Sample tSample = Metrics.start("winrs.execute");
+        try {
+            ByteArrayOutputStream out = ExecutorCore.execute(cmd, workingDir, timeout, true);
+            return new String(out.toByteArray(), Charset.defaultCharset());
+        } finally {
+            tSample.stop();
+        }
     }
 
 
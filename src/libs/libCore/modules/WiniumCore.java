@@ -40,10 +40,14 @@ public class WiniumCore {
      */
     public WebElement findElement(By locator) {
 
-        ExecutionTimer t_FindBy = new ExecutionTimer();
-        Log.debug("Looking for an element identified " + locator);
-        WebElement element = App.findElement(locator);
-        t_FindBy.end();
+        WebElement element;
+        ExecutionTimer t_FindBy = new ExecutionTimer("winium.findElement");
+        try {
+            Log.debug("Looking for an element identified " + locator);
+            element = App.findElement(locator);
+        } finally {
+            t_FindBy.end();
+        }
         Log.debug("Element found after " + t_FindBy.duration()  + " ms");
 
         return element;
@@ -58,10 +62,14 @@ public class WiniumCore {
      */
     public List<WebElement> findElements(By locator) {
 
-        ExecutionTimer t_FindBy = new ExecutionTimer();
-        Log.debug("Looking for elements identified " + locator);
-        List<WebElement> elements = App.findElements(locator);
-        t_FindBy.end();
+        List<WebElement> elements;
+        ExecutionTimer t_FindBy = new ExecutionTimer("winium.findElements");
+        try {
+            Log.debug("Looking for elements identified " + locator);
+            elements = App.findElements(locator);
+        } finally {
+            t_FindBy.end();
+        }
         Log.debug("Elements found after " + t_FindBy.duration()  + " ms");
 
         return elements;
@@ -127,17 +135,18 @@ public class WiniumCore {
     public void enterIntoAnElement(By locator, String text){
         Log.debug("About to enter text " + text + " into an element identified " + locator);
 
-        ExecutionTimer t_FindBy = new ExecutionTimer();
-
-        WebElement element = findElement(locator);
-        Log.debug("About to clear input identified " + locator + " content");
-        element.clear();
-        StepCore.sleep(1);
-        Log.debug("Content of input identified " + locator + " has been cleared");
-        element.sendKeys(text);
-        StepCore.sleep(1);
-
-        t_FindBy.end();
+        ExecutionTimer t_FindBy = new ExecutionTimer("winium.enterIntoAnElement");
+        try {
+            WebElement element = findElement(locator);
+            Log.debug("About to clear input identified " + locator + " content");
+            element.clear();
+            StepCore.sleep(1);
+            Log.debug("Content of input identified " + locator + " has been cleared");
+            element.sendKeys(text);
+            StepCore.sleep(1);
+        } finally {
+            t_FindBy.end();
+        }
         Log.debug("Text has been entered after " + t_FindBy.duration() + " ms");
     }
 
@@ -211,12 +220,15 @@ public class WiniumCore {
         Log.debug("About to move to element " + element + " by x offset " + xOffset +
                 " and y offset " + yOffset + " and click");
 
-        ExecutionTimer t_FindBy = new ExecutionTimer();
-        new Actions(App).moveToElement(element, 0, 0)
-                .moveByOffset(xOffset, yOffset)
-                .click()
-                .build().perform();
-        t_FindBy.end();
+        ExecutionTimer t_FindBy = new ExecutionTimer("winium.moveByOffsetAndClick");
+        try {
+            new Actions(App).moveToElement(element, 0, 0)
+                    .moveByOffset(xOffset, yOffset)
+                    .click()
+                    .build().perform();
+        } finally {
+            t_FindBy.end();
+        }
         Log.debug("Click executed after " + t_FindBy.duration()  + " ms");
     }
 
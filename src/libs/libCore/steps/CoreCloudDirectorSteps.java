@@ -17,13 +17,13 @@ public class CoreCloudDirectorSteps extends BaseSteps {
      */
     @Given("^add node (.+) to trusted hosts$")
     public void add_node_to_trusted_hosts(String node){
-        String address = Storage.get("Environment.Active.WinRM." + node + ".host");
+        String address = storage().get("Environment.Active.WinRM." + node + ".host");
 
         if ( address == null ){
             Log.error("Configuration for Environment.Active.WinRM." + node + ".host not found or null!");
         }
 
-        WinRSCore.addToTrustedHosts(address);
+        winRSCore().addToTrustedHosts(address);
 
     }
 
@@ -35,8 +35,8 @@ public class CoreCloudDirectorSteps extends BaseSteps {
      */
     @Then("^check that DNS entry for remote host (.+) was updated$")
     public void check_that_DNS_entry_for_remote_host_was_updated(String node) {
-        File workingDir = FileCore.getTempDir();
-        String address = Storage.get("Environment.Active.WinRM." + node + ".host");
+        File workingDir = fileCore().getTempDir();
+        String address = storage().get("Environment.Active.WinRM." + node + ".host");
 
         if ( address == null ){
             Log.error("Configuration for Environment.Active.WinRM." + node + ".host not found or null!");
@@ -48,14 +48,14 @@ public class CoreCloudDirectorSteps extends BaseSteps {
         Integer i=0;
         String result = "";
         while ( i < numberOfChecks ) {
-            ByteArrayOutputStream out = ExecutorCore.execute("nslookup " + address, workingDir, 60, true);
+            ByteArrayOutputStream out = executorCore().execute("nslookup " + address, workingDir, 60, true);
             result = new String(out.toByteArray(), Charset.defaultCharset());
             Log.debug("Output is " + result);
 
             if ( ! (result.contains("can't find")) ) {
                 break;
             } else {
-                StepCore.sleep(60);
+                stepCore().sleep(60);
             }
 
             i++;
@@ -74,14 +74,14 @@ public class CoreCloudDirectorSteps extends BaseSteps {
      */
     @Given("^remote host (.+) is accessible$")
     public void remote_host_is_accessible(String node) {
-        String address = Storage.get("Environment.Active.WinRM." + node + ".host");
+        String address = storage().get("Environment.Active.WinRM." + node + ".host");
 
         if ( address == null ){
             Log.error("Configuration for Environment.Active.WinRM." + node + ".host not found or null!");
         }
 
         //WA for Kerberso issues
-        WinRSCore.awaitForHostAvailability(node);
+        winRSCore().awaitForHostAvailability(node);
 
     }
 
@@ -94,14 +94,14 @@ public class CoreCloudDirectorSteps extends BaseSteps {
      */
     @When("^on remote host (.+) set new MS SQL password (.+) for user sa$")
     public void remote_host_set_new_MS_SQL_password_for_user_sa(String node, String password) {
-        String pass = StepCore.checkIfInputIsVariable(password);
+        String pass = stepCore().checkIfInputIsVariable(password);
 
         Log.debug("Setting new MSSQL password for user sa");
 
         String script = "temp.bat";
         String cmd = "call osql -E -Q \"exec sp_password NULL, '" + pass + "', 'sa'\"";
-        WinRSCore.transferScript(node, cmd, script);
-        WinRSCore.executeSingleCommandOnVM("call " + script, node, 120);
+        winRSCore().transferScript(node, cmd, script);
+        winRSCore().executeSingleCommandOnVM("call " + script, node, 120);
 
     }
 
@@ -114,26 +114,26 @@ public class CoreCloudDirectorSteps extends BaseSteps {
      */
     @Given("^create new vApp (.+)$")
     public void create_new_vApp(String name) {
-        String org = Storage.get("Environment.Active.vCloudDirector.org");
-        String catalog = Storage.get("TestData." + name + ".Catalog");
-        String template = Storage.get("TestData." + name + ".VAppTemplate");
-        String catalogItem = Storage.get("TestData." + name + ".CatalogItem");
-        String vm = Storage.get("TestData." + name + ".VmTemplate");
-        String vdc = Storage.get("TestData." + name + ".Vdc");
-        String vm_name = Storage.get("TestData." + name + ".NewVmName");
-        String network = Storage.get("TestData." + name + ".Network");
-
-        CloudDirectorCore.login();
-        CloudDirectorCore.getOrganization(org);
-        CloudDirectorCore.getCatalog(catalog);
-        CloudDirectorCore.getCatalogItem(catalogItem);
-        String vAppTemplateUrl = CloudDirectorCore.getVAppTemplate(template);
-        CloudDirectorCore.getVmTemplateFromVAppTemplate(vm);
-        String vdcUrl = CloudDirectorCore.getVdc(vdc);
-        String networkUrl = CloudDirectorCore.getNetwork(network);
-
-        CloudDirectorCore.createNewVAppFromTemplate(vdcUrl, vAppTemplateUrl, vm_name, network, networkUrl);
-        CloudDirectorCore.logout();
+        String org = storage().get("Environment.Active.vCloudDirector.org");
+        String catalog = storage().get("TestData." + name + ".Catalog");
+        String template = storage().get("TestData." + name + ".VAppTemplate");
+        String catalogItem = storage().get("TestData." + name + ".CatalogItem");
+        String vm = storage().get("TestData." + name + ".VmTemplate");
+        String vdc = storage().get("TestData." + name + ".Vdc");
+        String vm_name = storage().get("TestData." + name + ".NewVmName");
+        String network = storage().get("TestData." + name + ".Network");
+
+        cloudDirectorCore().login();
+        cloudDirectorCore().getOrganization(org);
+        cloudDirectorCore().getCatalog(catalog);
+        cloudDirectorCore().getCatalogItem(catalogItem);
+        String vAppTemplateUrl = cloudDirectorCore().getVAppTemplate(template);
+        cloudDirectorCore().getVmTemplateFromVAppTemplate(vm);
+        String vdcUrl = cloudDirectorCore().getVdc(vdc);
+        String networkUrl = cloudDirectorCore().getNetwork(network);
+
+        cloudDirectorCore().createNewVAppFromTemplate(vdcUrl, vAppTemplateUrl, vm_name, network, networkUrl);
+        cloudDirectorCore().logout();
     }
 
 
@@ -145,16 +145,16 @@ public class CoreCloudDirectorSteps extends BaseSteps {
     @When("^add new vm (.+) to vApp$")
     public void add_new_vm_to_vApp(String name) {
 
-        String org = Storage.get("Environment.Active.vCloudDirector.org");
-        String catalog = Storage.get("TestData." + name + ".Catalog");
-        String template = Storage.get("TestData." + name + ".VAppTemplate");
-        String catalogItem = Storage.get("TestData." + name + ".CatalogItem");
-        String vm = Storage.get("TestData." + name + ".VmTemplate"); //name of the vm template from vApp template
-        String vdc = Storage.get("TestData." + name + ".Vdc");
-        String vm_name = Storage.get("TestData." + name + ".NewVmName"); //name of the vm to be deployed in vApp
-        String network = Storage.get("TestData." + name + ".Network");
-        String vapp = Storage.get("TestData." + name + ".VApp");//name of the vApp where vm shall be deployed
-        String ipAllocationMode = Storage.get("TestData." + name + ".ip_allocation_mode");
+        String org = storage().get("Environment.Active.vCloudDirector.org");
+        String catalog = storage().get("TestData." + name + ".Catalog");
+        String template = storage().get("TestData." + name + ".VAppTemplate");
+        String catalogItem = storage().get("TestData." + name + ".CatalogItem");
+        String vm = storage().get("TestData." + name + ".VmTemplate"); //name of the vm template from vApp template
+        String vdc = storage().get("TestData." + name + ".Vdc");
+        String vm_name = storage().get("TestData." + name + ".NewVmName"); //name of the vm to be deployed in vApp
+        String network = storage().get("TestData." + name + ".Network");
+        String vapp = storage().get("TestData." + name + ".VApp");//name of the vApp where vm shall be deployed
+        String ipAllocationMode = storage().get("TestData." + name + ".ip_allocation_mode");
 
         if ( catalog == null || catalog.equals("") ) {
             Log.error("Value of TestData." + name + ".Catalog null or empty!");
@@ -184,51 +184,51 @@ public class CoreCloudDirectorSteps extends BaseSteps {
             Log.error("Value of TestData." + name + ".ip_allocation_mode null or empty!");
         }
 
-        CloudDirectorCore.login();
-        CloudDirectorCore.getOrganization(org);
-        CloudDirectorCore.getCatalog(catalog);
-        CloudDirectorCore.getCatalogItem(catalogItem);
-        CloudDirectorCore.getVAppTemplate(template);
-        String vmTemplateUrl = CloudDirectorCore.getVmTemplateFromVAppTemplate(vm);
-        CloudDirectorCore.getVdc(vdc);
-        String networkUrl = CloudDirectorCore.getNetwork(network);
-        String vAppUrl = CloudDirectorCore.getVApp(vapp);
+        cloudDirectorCore().login();
+        cloudDirectorCore().getOrganization(org);
+        cloudDirectorCore().getCatalog(catalog);
+        cloudDirectorCore().getCatalogItem(catalogItem);
+        cloudDirectorCore().getVAppTemplate(template);
+        String vmTemplateUrl = cloudDirectorCore().getVmTemplateFromVAppTemplate(vm);
+        cloudDirectorCore().getVdc(vdc);
+        String networkUrl = cloudDirectorCore().getNetwork(network);
+        String vAppUrl = cloudDirectorCore().getVApp(vapp);
 
-        CloudDirectorCore.addVmToVapp(vAppUrl, vmTemplateUrl, vapp, vm_name, network, networkUrl, ipAllocationMode);
-        String newVmUrl = CloudDirectorCore.getVmFromVApp(vm_name, vAppUrl);
-        CloudDirectorCore.setGuestCustomization(newVmUrl);
+        cloudDirectorCore().addVmToVapp(vAppUrl, vmTemplateUrl, vapp, vm_name, network, networkUrl, ipAllocationMode);
+        String newVmUrl = cloudDirectorCore().getVmFromVApp(vm_name, vAppUrl);
+        cloudDirectorCore().setGuestCustomization(newVmUrl);
 
-        String memorySize = Storage.get("TestData." + name + ".Memory");
+        String memorySize = storage().get("TestData." + name + ".Memory");
         if ( memorySize != null && ! memorySize.equals("") ){
-            CloudDirectorCore.setVmMemory(newVmUrl, memorySize);
+            cloudDirectorCore().setVmMemory(newVmUrl, memorySize);
         } else {
             Log.warn("Value of TestData." + name + ".Memory not set or empty. No RAM memory adjustment will be done");
         }
 
-        String numberOfCpu = Storage.get("TestData." + name + ".Cpu");
+        String numberOfCpu = storage().get("TestData." + name + ".Cpu");
         if ( numberOfCpu != null && ! numberOfCpu.equals("") ) {
-            CloudDirectorCore.setVmCpu(newVmUrl, numberOfCpu);
+            cloudDirectorCore().setVmCpu(newVmUrl, numberOfCpu);
         } else {
             Log.warn("Value of TestData." + name + ".Cpu not set or empty. No Cpu adjustment will be done");
         }
 
-        String diskSize = Storage.get("TestData." + name + ".DiskSize");
+        String diskSize = storage().get("TestData." + name + ".DiskSize");
         if ( diskSize != null && ! diskSize.equals("") ) {
-            String initialDiskSize = Storage.get("TestData." + name + ".InitialDiskSize");
+            String initialDiskSize = storage().get("TestData." + name + ".InitialDiskSize");
             if ( initialDiskSize == null || initialDiskSize.equals("") ){
                 initialDiskSize = "102400";
                 Log.warn("Value of TestData." + name + ".InitialDiskSize not set or empty. Going to extend capacity of disk with initial capacity of 102400 MB");
             }
-            CloudDirectorCore.setVmDisk(newVmUrl, initialDiskSize, diskSize);
+            cloudDirectorCore().setVmDisk(newVmUrl, initialDiskSize, diskSize);
         } else {
             Log.warn("Value of TestData." + name + ".DiskSize not set or empty. No disk capacity adjustment will be done.");
         }
 
-        CloudDirectorCore.deployVm(newVmUrl);
-        CloudDirectorCore.logout();
+        cloudDirectorCore().deployVm(newVmUrl);
+        cloudDirectorCore().logout();
 
         Log.debug("Waiting 3 minutes for DHCP to assign an ip address");
-        StepCore.sleep(180);
+        stepCore().sleep(180);
 
     }
 
@@ -242,10 +242,10 @@ public class CoreCloudDirectorSteps extends BaseSteps {
     @When("^force recustomization for vm (.+)$")
     public void force_recustomization_for_vm(String name) {
 
-        String org = Storage.get("Environment.Active.vCloudDirector.org");
-        String vm_name = Storage.get("TestData." + name + ".NewVmName"); //name of the vm to be deployed in vApp
-        String vapp = Storage.get("TestData." + name + ".VApp");//name of the vApp where vm shall be deployed
-        String vdc = Storage.get("TestData." + name + ".Vdc");
+        String org = storage().get("Environment.Active.vCloudDirector.org");
+        String vm_name = storage().get("TestData." + name + ".NewVmName"); //name of the vm to be deployed in vApp
+        String vapp = storage().get("TestData." + name + ".VApp");//name of the vApp where vm shall be deployed
+        String vdc = storage().get("TestData." + name + ".Vdc");
 
         if ( vm_name == null ) {
             Log.error("Value of TestData." + name + ".NewVmName null or empty!");
@@ -257,24 +257,24 @@ public class CoreCloudDirectorSteps extends BaseSteps {
             Log.error("Value of TestData." + name + ".Vdc null or empty!");
         }
 
-        CloudDirectorCore.login();
-        CloudDirectorCore.getOrganization(org);
-        CloudDirectorCore.getVdc(vdc);
-        String vAppUrl = CloudDirectorCore.getVApp(vapp);
-        String newVmUrl = CloudDirectorCore.getVmFromVApp(vm_name, vAppUrl);
+        cloudDirectorCore().login();
+        cloudDirectorCore().getOrganization(org);
+        cloudDirectorCore().getVdc(vdc);
+        String vAppUrl = cloudDirectorCore().getVApp(vapp);
+        String newVmUrl = cloudDirectorCore().getVmFromVApp(vm_name, vAppUrl);
         //un-deploy
         Log.debug("Forced recofniguration - power off (undeploy)");
-        CloudDirectorCore.powerOffVm(newVmUrl);
+        cloudDirectorCore().powerOffVm(newVmUrl);
         //issue put request to set needsCustomization=true in vm params
         //Log.debug("Forced recofniguration - set needs customization flag to true");
         //vmMgmt.setNeedsCustomizationFlagForVm(newVmUrl);
         //deploy the vm with flag force recustomization set
         Log.debug("Forced recofniguration - deploy with force customization");
-        CloudDirectorCore.deployVm(newVmUrl);
+        cloudDirectorCore().deployVm(newVmUrl);
         //power on vm
         Log.debug("Forced recofniguration - power on");
-        CloudDirectorCore.powerOnVm(newVmUrl);
-        CloudDirectorCore.logout();
+        cloudDirectorCore().powerOnVm(newVmUrl);
+        cloudDirectorCore().logout();
     }
 
 
@@ -286,10 +286,10 @@ public class CoreCloudDirectorSteps extends BaseSteps {
     @When("^powerOn vm (.+)$")
     public void powerOn_vm(String name) {
 
-        String org = Storage.get("Environment.Active.vCloudDirector.org");
-        String vm_name = Storage.get("TestData." + name + ".NewVmName"); //name of the vm to be deployed in vApp
-        String vapp = Storage.get("TestData." + name + ".VApp");//name of the vApp where vm shall be deployed
-        String vdc = Storage.get("TestData." + name + ".Vdc");
+        String org = storage().get("Environment.Active.vCloudDirector.org");
+        String vm_name = storage().get("TestData." + name + ".NewVmName"); //name of the vm to be deployed in vApp
+        String vapp = storage().get("TestData." + name + ".VApp");//name of the vApp where vm shall be deployed
+        String vdc = storage().get("TestData." + name + ".Vdc");
 
         if ( vm_name == null ) {
             Log.error("Value of TestData." + name + ".NewVmName null or empty!");
@@ -301,13 +301,13 @@ public class CoreCloudDirectorSteps extends BaseSteps {
             Log.error("Value of TestData." + name + ".Vdc null or empty!");
         }
 
-        CloudDirectorCore.login();
-        CloudDirectorCore.getOrganization(org);
-        CloudDirectorCore.getVdc(vdc);
-        String vAppUrl = CloudDirectorCore.getVApp(vapp);
-        String newVmUrl = CloudDirectorCore.getVmFromVApp(vm_name, vAppUrl);
-        CloudDirectorCore.powerOnVm(newVmUrl);
-        CloudDirectorCore.logout();
+        cloudDirectorCore().login();
+        cloudDirectorCore().getOrganization(org);
+        cloudDirectorCore().getVdc(vdc);
+        String vAppUrl = cloudDirectorCore().getVApp(vapp);
+        String newVmUrl = cloudDirectorCore().getVmFromVApp(vm_name, vAppUrl);
+        cloudDirectorCore().powerOnVm(newVmUrl);
+        cloudDirectorCore().logout();
     }
 
 
@@ -318,10 +318,10 @@ public class CoreCloudDirectorSteps extends BaseSteps {
     @When("^disconnect network for vm (.+)$")
     public void disconnect_network_for_vm(String name)  {
 
-        String org = Storage.get("Environment.Active.vCloudDirector.org");
-        String vm_name = Storage.get("TestData." + name + ".NewVmName"); //name of the vm to be deployed in vApp
-        String vapp = Storage.get("TestData." + name + ".VApp");//name of the vApp where vm shall be deployed
-        String vdc = Storage.get("TestData." + name + ".Vdc");
+        String org = storage().get("Environment.Active.vCloudDirector.org");
+        String vm_name = storage().get("TestData." + name + ".NewVmName"); //name of the vm to be deployed in vApp
+        String vapp = storage().get("TestData." + name + ".VApp");//name of the vApp where vm shall be deployed
+        String vdc = storage().get("TestData." + name + ".Vdc");
 
         if ( vm_name == null ) {
             Log.error("Value of TestData." + name + ".NewVmName null or empty!");
@@ -333,13 +333,13 @@ public class CoreCloudDirectorSteps extends BaseSteps {
             Log.error("Value of TestData." + name + ".Vdc null or empty!");
         }
 
-        CloudDirectorCore.login();
-        CloudDirectorCore.getOrganization(org);
-        CloudDirectorCore.getVdc(vdc);
-        String vAppUrl = CloudDirectorCore.getVApp(vapp);
-        String newVmUrl = CloudDirectorCore.getVmFromVApp(vm_name, vAppUrl);
-        CloudDirectorCore.disconnectNetworkConnection(newVmUrl);
-        CloudDirectorCore.logout();
+        cloudDirectorCore().login();
+        cloudDirectorCore().getOrganization(org);
+        cloudDirectorCore().getVdc(vdc);
+        String vAppUrl = cloudDirectorCore().getVApp(vapp);
+        String newVmUrl = cloudDirectorCore().getVmFromVApp(vm_name, vAppUrl);
+        cloudDirectorCore().disconnectNetworkConnection(newVmUrl);
+        cloudDirectorCore().logout();
     }
 
 
@@ -349,10 +349,10 @@ public class CoreCloudDirectorSteps extends BaseSteps {
      */
     @When("^connect network for vm (.+)$")
     public void connect_network_for_vm(String name) {
-        String org = Storage.get("Environment.Active.vCloudDirector.org");
-        String vm_name = Storage.get("TestData." + name + ".NewVmName"); //name of the vm to be deployed in vApp
-        String vapp = Storage.get("TestData." + name + ".VApp");//name of the vApp where vm shall be deployed
-        String vdc = Storage.get("TestData." + name + ".Vdc");
+        String org = storage().get("Environment.Active.vCloudDirector.org");
+        String vm_name = storage().get("TestData." + name + ".NewVmName"); //name of the vm to be deployed in vApp
+        String vapp = storage().get("TestData." + name + ".VApp");//name of the vApp where vm shall be deployed
+        String vdc = storage().get("TestData." + name + ".Vdc");
 
         if ( vm_name == null ) {
             Log.error("Value of TestData." + name + ".NewVmName null or empty!");
@@ -364,13 +364,13 @@ public class CoreCloudDirectorSteps extends BaseSteps {
             Log.error("Value of TestData." + name + ".Vdc null or empty!");
         }
 
-        CloudDirectorCore.login();
-        CloudDirectorCore.getOrganization(org);
-        CloudDirectorCore.getVdc(vdc);
-        String vAppUrl = CloudDirectorCore.getVApp(vapp);
-        String newVmUrl = CloudDirectorCore.getVmFromVApp(vm_name, vAppUrl);
-        CloudDirectorCore.connectNetworkConnection(newVmUrl);
-        CloudDirectorCore.logout();
+        cloudDirectorCore().login();
+        cloudDirectorCore().getOrganization(org);
+        cloudDirectorCore().getVdc(vdc);
+        String vAppUrl = cloudDirectorCore().getVApp(vapp);
+        String newVmUrl = cloudDirectorCore().getVmFromVApp(vm_name, vAppUrl);
+        cloudDirectorCore().connectNetworkConnection(newVmUrl);
+        cloudDirectorCore().logout();
     }
 
 
@@ -380,10 +380,10 @@ public class CoreCloudDirectorSteps extends BaseSteps {
      */
     @When("^get network cards details for vm (.+)$")
     public void get_network_cards_details(String name) {
-        String org = Storage.get("Environment.Active.vCloudDirector.org");
-        String vm_name = Storage.get("TestData." + name + ".NewVmName"); //name of the vm to be deployed in vApp
-        String vapp = Storage.get("TestData." + name + ".VApp");//name of the vApp where vm shall be deployed
-        String vdc = Storage.get("TestData." + name + ".Vdc");
+        String org = storage().get("Environment.Active.vCloudDirector.org");
+        String vm_name = storage().get("TestData." + name + ".NewVmName"); //name of the vm to be deployed in vApp
+        String vapp = storage().get("TestData." + name + ".VApp");//name of the vApp where vm shall be deployed
+        String vdc = storage().get("TestData." + name + ".Vdc");
 
         if ( vm_name == null ) {
             Log.error("Value of TestData." + name + ".NewVmName null or empty!");
@@ -395,13 +395,13 @@ public class CoreCloudDirectorSteps extends BaseSteps {
             Log.error("Value of TestData." + name + ".Vdc null or empty!");
         }
 
-        CloudDirectorCore.login();
-        CloudDirectorCore.getOrganization(org);
-        CloudDirectorCore.getVdc(vdc);
-        String vAppUrl = CloudDirectorCore.getVApp(vapp);
-        String newVmUrl = CloudDirectorCore.getVmFromVApp(vm_name, vAppUrl);
-        CloudDirectorCore.getVmNetworkCardsDetails(newVmUrl);
-        CloudDirectorCore.logout();
+        cloudDirectorCore().login();
+        cloudDirectorCore().getOrganization(org);
+        cloudDirectorCore().getVdc(vdc);
+        String vAppUrl = cloudDirectorCore().getVApp(vapp);
+        String newVmUrl = cloudDirectorCore().getVmFromVApp(vm_name, vAppUrl);
+        cloudDirectorCore().getVmNetworkCardsDetails(newVmUrl);
+        cloudDirectorCore().logout();
     }
 
 
@@ -415,10 +415,10 @@ public class CoreCloudDirectorSteps extends BaseSteps {
      */
     @When("^powerOff vm (.+)$")
     public void powerOff_vm(String name) {
-        String org = Storage.get("Environment.Active.vCloudDirector.org");
-        String vm_name = Storage.get("TestData." + name + ".NewVmName"); //name of the vm to be deployed in vApp
-        String vapp = Storage.get("TestData." + name + ".VApp");//name of the vApp where vm shall be deployed
-        String vdc = Storage.get("TestData." + name + ".Vdc");
+        String org = storage().get("Environment.Active.vCloudDirector.org");
+        String vm_name = storage().get("TestData." + name + ".NewVmName"); //name of the vm to be deployed in vApp
+        String vapp = storage().get("TestData." + name + ".VApp");//name of the vApp where vm shall be deployed
+        String vdc = storage().get("TestData." + name + ".Vdc");
 
         if ( vm_name == null ) {
             Log.error("Value of TestData." + name + ".NewVmName null or empty!");
@@ -430,13 +430,13 @@ public class CoreCloudDirectorSteps extends BaseSteps {
             Log.error("Value of TestData." + name + ".Vdc null or empty!");
         }
 
-        CloudDirectorCore.login();
-        CloudDirectorCore.getOrganization(org);
-        CloudDirectorCore.getVdc(vdc);
-        String vAppUrl = CloudDirectorCore.getVApp(vapp);
-        String newVmUrl = CloudDirectorCore.getVmFromVApp(vm_name, vAppUrl);
-        CloudDirectorCore.powerOffVm(newVmUrl);
-        CloudDirectorCore.logout();
+        cloudDirectorCore().login();
+        cloudDirectorCore().getOrganization(org);
+        cloudDirectorCore().getVdc(vdc);
+        String vAppUrl = cloudDirectorCore().getVApp(vapp);
+        String newVmUrl = cloudDirectorCore().getVmFromVApp(vm_name, vAppUrl);
+        cloudDirectorCore().powerOffVm(newVmUrl);
+        cloudDirectorCore().logout();
     }
 
     /**
@@ -446,10 +446,10 @@ public class CoreCloudDirectorSteps extends BaseSteps {
      */
     @Given("^reboot vm (.+)$")
     public void reboot_vm(String name) {
-        String org = Storage.get("Environment.Active.vCloudDirector.org");
-        String vm_name = Storage.get("TestData." + name + ".NewVmName"); //name of the vm to be deployed in vApp
-        String vapp = Storage.get("TestData." + name + ".VApp");//name of the vApp where vm shall be deployed
-        String vdc = Storage.get("TestData." + name + ".Vdc");
+        String org = storage().get("Environment.Active.vCloudDirector.org");
+        String vm_name = storage().get("TestData." + name + ".NewVmName"); //name of the vm to be deployed in vApp
+        String vapp = storage().get("TestData." + name + ".VApp");//name of the vApp where vm shall be deployed
+        String vdc = storage().get("TestData." + name + ".Vdc");
 
         if ( vm_name == null ) {
             Log.error("Value of TestData." + name + ".NewVmName null or empty!");
@@ -461,13 +461,13 @@ public class CoreCloudDirectorSteps extends BaseSteps {
             Log.error("Value of TestData." + name + ".Vdc null or empty!");
         }
 
-        CloudDirectorCore.login();
-        CloudDirectorCore.getOrganization(org);
-        CloudDirectorCore.getVdc(vdc);
-        String vAppUrl = CloudDirectorCore.getVApp(vapp);
-        String newVmUrl = CloudDirectorCore.getVmFromVApp(vm_name, vAppUrl);
-        CloudDirectorCore.rebootVm(newVmUrl);
-        CloudDirectorCore.logout();
+        cloudDirectorCore().login();
+        cloudDirectorCore().getOrganization(org);
+        cloudDirectorCore().getVdc(vdc);
+        String vAppUrl = cloudDirectorCore().getVApp(vapp);
+        String newVmUrl = cloudDirectorCore().getVmFromVApp(vm_name, vAppUrl);
+        cloudDirectorCore().rebootVm(newVmUrl);
+        cloudDirectorCore().logout();
     }
 
 
@@ -479,10 +479,10 @@ public class CoreCloudDirectorSteps extends BaseSteps {
     @Then("^check vm (.+) status$")
     public void check_vm_status(String name) {
 
-        String org = Storage.get("Environment.Active.vCloudDirector.org");
-        String vdc = Storage.get("TestData." + name + ".Vdc");
-        String vm_name = Storage.get("TestData." + name + ".NewVmName"); //name of the vm to be deployed in vApp
-        String vapp = Storage.get("TestData." + name + ".VApp");//name of the vApp where vm shall be deployed
+        String org = storage().get("Environment.Active.vCloudDirector.org");
+        String vdc = storage().get("TestData." + name + ".Vdc");
+        String vm_name = storage().get("TestData." + name + ".NewVmName"); //name of the vm to be deployed in vApp
+        String vapp = storage().get("TestData." + name + ".VApp");//name of the vApp where vm shall be deployed
 
         if ( vm_name == null ) {
             Log.error("Value of TestData." + name + ".NewVmName null or empty!");
@@ -494,13 +494,13 @@ public class CoreCloudDirectorSteps extends BaseSteps {
             Log.error("Value of TestData." + name + ".Vdc null or empty!");
         }
 
-        CloudDirectorCore.login();
-        CloudDirectorCore.getOrganization(org);
-        CloudDirectorCore.getVdc(vdc);
-        String vAppUrl = CloudDirectorCore.getVApp(vapp);
-        String vmUrl = CloudDirectorCore.getVmFromVApp(vm_name, vAppUrl);
-        CloudDirectorCore.getVmDetails(vmUrl);
-        CloudDirectorCore.logout();
+        cloudDirectorCore().login();
+        cloudDirectorCore().getOrganization(org);
+        cloudDirectorCore().getVdc(vdc);
+        String vAppUrl = cloudDirectorCore().getVApp(vapp);
+        String vmUrl = cloudDirectorCore().getVmFromVApp(vm_name, vAppUrl);
+        cloudDirectorCore().getVmDetails(vmUrl);
+        cloudDirectorCore().logout();
     }
 
 
@@ -511,10 +511,10 @@ public class CoreCloudDirectorSteps extends BaseSteps {
      */
     @When("^remove vm (.+) from vApp$")
     public void remove_vm_from_vApp(String name) {
-        String org = Storage.get("Environment.Active.vCloudDirector.org");
-        String vdc = Storage.get("TestData." + name + ".Vdc");
-        String vm_name = Storage.get("TestData." + name + ".NewVmName");
-        String vapp = Storage.get("TestData." + name + ".VApp");
+        String org = storage().get("Environment.Active.vCloudDirector.org");
+        String vdc = storage().get("TestData." + name + ".Vdc");
+        String vm_name = storage().get("TestData." + name + ".NewVmName");
+        String vapp = storage().get("TestData." + name + ".VApp");
 
         if ( vm_name == null ) {
             Log.error("Value of TestData." + name + ".NewVmName null or empty!");
@@ -526,13 +526,13 @@ public class CoreCloudDirectorSteps extends BaseSteps {
             Log.error("Value of TestData." + name + ".Vdc null or empty!");
         }
 
-        CloudDirectorCore.login();
-        CloudDirectorCore.getOrganization(org);
-        CloudDirectorCore.getVdc(vdc);
-        String vAppUrl = CloudDirectorCore.getVApp(vapp);
-        String vmUrl = CloudDirectorCore.getVmFromVApp(vm_name, vAppUrl);
-        CloudDirectorCore.removeVmFromVApp(vmUrl);
-        CloudDirectorCore.logout();
+        cloudDirectorCore().login();
+        cloudDirectorCore().getOrganization(org);
+        cloudDirectorCore().getVdc(vdc);
+        String vAppUrl = cloudDirectorCore().getVApp(vapp);
+        String vmUrl = cloudDirectorCore().getVmFromVApp(vm_name, vAppUrl);
+        cloudDirectorCore().removeVmFromVApp(vmUrl);
+        cloudDirectorCore().logout();
     }
 
 
@@ -544,19 +544,19 @@ public class CoreCloudDirectorSteps extends BaseSteps {
     @When("^on remote host (.+) force restart$")
     public void on_remote_host_force_restart(String node) {
 
-        String address = Storage.get("Environment.Active.WinRM." + node + ".host");
+        String address = storage().get("Environment.Active.WinRM." + node + ".host");
 
         if ( address == null ){
             Log.error("Configuration for Environment.Active.WinRM." + node + ".host not found or null!");
         }
 
         Log.debug("Rebooting remote host " + address);
-        WinRSCore.executeSingleCommandOnVM("shutdown -r -t 30 -f", node, 30);
+        winRSCore().executeSingleCommandOnVM("shutdown -r -t 30 -f", node, 30);
 
-        StepCore.sleep(180);
+        stepCore().sleep(180);
 
         //WA for Kerberos issues
-        WinRSCore.awaitForHostAvailability(node);
+        winRSCore().awaitForHostAvailability(node);
 
     }
 
@@ -569,8 +569,8 @@ public class CoreCloudDirectorSteps extends BaseSteps {
     @When("^on remote host (.+) set default user$")
     public void on_remote_host_set_default_user(String node) {
 
-        String address = Storage.get("Environment.Active.WinRM." + node + ".host");
-        String user = Storage.get("Environment.Active.WinRM." + node + ".user");
+        String address = storage().get("Environment.Active.WinRM." + node + ".host");
+        String user = storage().get("Environment.Active.WinRM." + node + ".user");
 
         if (address == null) {
             Log.error("Configuration for Environment.Active.WinRM." + node + ".host not found or null!");
@@ -583,10 +583,10 @@ public class CoreCloudDirectorSteps extends BaseSteps {
         // this is needed to force HF installation as a super user and wfcautouser!
         Log.debug("Setting DefaultUserName to " + user);
         String cmd = "(Get-ItemProperty 'HKLM:\\Software\\Microsoft\\Windows NT\\CurrentVersion\\WinLogon').DefaultUserName";
-        String results = WinRSCore.executeSingleCommandOnVM("Powershell.exe \"" + cmd + "\"", node, 120);
+        String results = winRSCore().executeSingleCommandOnVM("Powershell.exe \"" + cmd + "\"", node, 120);
         if (!results.trim().equals(user)) {
             cmd = "Set-ItemProperty -Path 'HKLM:\\Software\\Microsoft\\Windows NT\\CurrentVersion\\WinLogon' -Name DefaultUserName -Value " + user.toLowerCase();
-            WinRSCore.executeSingleCommandOnVM("Powershell.exe \"" + cmd + "\"", node, 120);
+            winRSCore().executeSingleCommandOnVM("Powershell.exe \"" + cmd + "\"", node, 120);
         }
     }
 
@@ -25,10 +25,10 @@ public class CoreDbSteps extends BaseSteps {
      */
     @Given("^data from (.*?) csv file is loaded to table (.*?)$")
     public void data_from_csv_file_is_loaded_to_table(String fileName, String tableName) {
-        File input = new File(FileCore.getCurrentFeatureDirPath() + "/input/" + fileName + ".csv");
-        StepCore.attachFileToReport(fileName+".csv", "text/csv", input.getAbsolutePath());
+        File input = new File(fileCore().getCurrentFeatureDirPath() + "/input/" + fileName + ".csv");
+        stepCore().attachFileToReport(fileName+".csv", "text/csv", input.getAbsolutePath());
         Log.debug("Path to csv input file is " + input.getAbsolutePath());
-        SqlCore.insertFromFile(input,tableName,true, "TestData." + fileName + "TypeMapping");
+        sqlCore().insertFromFile(input,tableName,true, "TestData." + fileName + "TypeMapping");
     }
 
 
@@ -47,14 +47,14 @@ public class CoreDbSteps extends BaseSteps {
      */
     @When("^select query (.*?) is executed and results stored as (.*?)$")
     public void select_query_is_executed(String sQuery, String queryResultName) {
-        String query = StepCore.checkIfInputIsVariable(sQuery);
-        String queryAfterReplacement = StepCore.replaceInString(query);
-        List<Map<String,Object>> list = SqlCore.selectList(queryAfterReplacement);
+        String query = stepCore().checkIfInputIsVariable(sQuery);
+        String queryAfterReplacement = stepCore().replaceInString(query);
+        List<Map<String,Object>> list = sqlCore().selectList(queryAfterReplacement);
 
-        SqlCore.printList(list);
-        File results = SqlCore.writeListToFile(list,queryResultName,"txt");
+        sqlCore().printList(list);
+        File results = sqlCore().writeListToFile(list,queryResultName,"txt");
 
-        StepCore.attachFileToReport(queryResultName + ".txt","text/plain", results.getAbsolutePath());
+        stepCore().attachFileToReport(queryResultName + ".txt","text/plain", results.getAbsolutePath());
         scenarioCtx.put(queryResultName, String.class, results.getAbsolutePath());
     }
 
@@ -71,7 +71,7 @@ public class CoreDbSteps extends BaseSteps {
     @Then("^validate that select query result (.*?) is like (.*) template$")
     public void validate_that_select_query_result_is_like_template(String queryResultName, String templateName)  {
         String path = scenarioCtx.get(queryResultName, String.class);
-        StepCore.compareWithTemplate(templateName, path);
+        stepCore().compareWithTemplate(templateName, path);
     }
 
     /**
@@ -82,15 +82,15 @@ public class CoreDbSteps extends BaseSteps {
      */
     @When("^create table (.*?) backup with name (.*)$")
     public void create_table_backup_with_name(String tableName, String backupName) {
-        String table = StepCore.checkIfInputIsVariable(tableName);
-        String backup = StepCore.checkIfInputIsVariable(backupName);
+        String table = stepCore().checkIfInputIsVariable(tableName);
+        String backup = stepCore().checkIfInputIsVariable(backupName);
 
-        Integer numOfRowsInTable = SqlCore.selectScalar("SELECT COUNT(*) FROM " + table);
+        Integer numOfRowsInTable = sqlCore().selectScalar("SELECT COUNT(*) FROM " + table);
 
         String query = "SELECT INTO " + backup + " FROM " + table;
-        SqlCore.selectList(query);
+        sqlCore().selectList(query);
 
-        Integer numOfRowsInBackup = SqlCore.selectScalar("SELECT COUNT(*) FROM " + backup);
+        Integer numOfRowsInBackup = sqlCore().selectScalar("SELECT COUNT(*) FROM " + backup);
 
         if ( ! numOfRowsInTable.equals(numOfRowsInBackup)){
             Log.error("Table backup failed! Number of rows in " + table + " " + numOfRowsInTable +
@@ -106,14 +106,14 @@ public class CoreDbSteps extends BaseSteps {
      */
     @Then("^verify that content of table (.*?) equals content of table (.*)$")
     public void verify_that_content_of_table_equals_content_of_table(String tableAName, String tableBName) {
-          String tableA = StepCore.checkIfInputIsVariable(tableAName);
-        String tableB = StepCore.checkIfInputIsVariable(tableBName);
+          String tableA = stepCore().checkIfInputIsVariable(tableAName);
+        String tableB = stepCore().checkIfInputIsVariable(tableBName);
 
         String query = "SELECT * FROM TABLE " + tableA + " EXCEPT SELECT * FROM TABLE " + tableB;
-        List<Map<String,Object>> list = SqlCore.selectList(query);
+        List<Map<String,Object>> list = sqlCore().selectList(query);
 
         if ( list.size() > 0 ){
-            SqlCore.printList(list);
+            sqlCore().printList(list);
             Log.error("Content of table " + tableA + " is different than content of table " + tableB);
         }
     }
@@ -17,7 +17,7 @@ public class CorePdfSteps extends BaseSteps {
     @Given("^read pdf file from (.+)$")
     public void read_pdf_file_from(String pathToFile) {
 
-        String path = StepCore.checkIfInputIsVariable(pathToFile);
+        String path = stepCore().checkIfInputIsVariable(pathToFile);
 
         File file = new File(path);
         if (! file.exists()) {
@@ -25,7 +25,7 @@ public class CorePdfSteps extends BaseSteps {
         }
 
         Log.debug("Reading pdf file " + file.getAbsolutePath());
-        List<String> lines = PdfCore.readLines(file);
+        List<String> lines = pdfCore().readLines(file);
 
         for (String line : lines) {
             Log.debug(line);
@@ -31,8 +31,8 @@ public class CoreRestSteps extends BaseSteps {
     @Given("^service is available$")
     public void service_is_available(){
 
-        String url = Storage.get("Environment.Active.Rest.url");
-        Integer expectedCode = Storage.get("Expected.statusOK");
+        String url = storage().get("Environment.Active.Rest.url");
+        Integer expectedCode = storage().get("Expected.statusOK");
             given()
                     .when()
                     .log()
@@ -56,12 +56,12 @@ public class CoreRestSteps extends BaseSteps {
     @When("^json post request (.*?) is sent$")
     public void json_post_request_is_sent(String name) {
 
-        String url = Storage.get("Environment.Active.Rest.url");
-        String path = Storage.get("Environment.Active.Rest.url_post_suffix");
+        String url = storage().get("Environment.Active.Rest.url");
+        String path = storage().get("Environment.Active.Rest.url_post_suffix");
 
         url = url + path;
 
-        File file = StepCore.evaluateTemplate(name);
+        File file = stepCore().evaluateTemplate(name);
 
         //build specification and use file template as a body content
         RequestSpecification request = given()
@@ -79,7 +79,7 @@ public class CoreRestSteps extends BaseSteps {
         //store response as ctx object so it can be verified by other steps and attach it to report
         ValidatableResponse vResp = response.then();
         scenarioCtx.put("response",ValidatableResponse.class, vResp);
-        StepCore.attachMessageToReport("Json response", response.prettyPrint());
+        stepCore().attachResponseToReport("Json response", response);
     }
 
 
@@ -97,10 +97,10 @@ public class CoreRestSteps extends BaseSteps {
     @When("^xml post request (.*?) with soap action header (.*?) is sent$")
     public void xml_post_request_is_sent(String name, String actionHeader) {
 
-        String url = Storage.get("Environment.Active.Rest.url");
-        File file = StepCore.evaluateTemplate(name);
-        String sAction = StepCore.checkIfInputIsVariable(actionHeader);
-        String sFile = FileCore.readToString(file);
+        String url = storage().get("Environment.Active.Rest.url");
+        File file = stepCore().evaluateTemplate(name);
+        String sAction = stepCore().checkIfInputIsVariable(actionHeader);
+        String sFile = fileCore().readToString(file);
 
         //build specification and use file template as a body content
         RequestSpecification request = given()
@@ -119,7 +119,7 @@ public class CoreRestSteps extends BaseSteps {
         //store response as ctx object so it can be verified by other steps and attach it to report
         ValidatableResponse vResp = response.then();
         scenarioCtx.put("response",ValidatableResponse.class, vResp);
-        StepCore.attachMessageToReport("Xml response", response.prettyPrint());
+        stepCore().attachResponseToReport("Xml response", response);
     }
 
 
@@ -135,7 +135,7 @@ public class CoreRestSteps extends BaseSteps {
     @Then("^verify that status code is (.+)$")
     public void verify_that_status_code_is(String input){
 
-        Integer statusCode = StepCore.checkIfInputIsVariable(input);
+        Integer statusCode = stepCore().checkIfInputIsVariable(input);
         ValidatableResponse response = scenarioCtx.get("response",ValidatableResponse.class);
 
         try {
@@ -190,7 +190,7 @@ public class CoreRestSteps extends BaseSteps {
                     continue;
                 }
                 if ( name.equalsIgnoreCase("expected") ){
-                    expectedValue = StepCore.checkIfInputIsVariable(valueInRow);
+                    expectedValue = stepCore().checkIfInputIsVariable(valueInRow);
                 }
 
                 //execute simple error handling
@@ -208,7 +208,7 @@ public class CoreRestSteps extends BaseSteps {
                 }
 
                 //execute comparison
-                AssertCore.validatableResponseBodyTableAssertion(response, key, action, expectedValue);
+                assertCore().validatableResponseBodyTableAssertion(response, key, action, expectedValue);
             }
         }
     }
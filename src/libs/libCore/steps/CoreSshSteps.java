@@ -18,12 +18,12 @@ public class CoreSshSteps extends BaseSteps {
         String cmd = "echo " + hostName + " is alive";
 
         Log.debug("Create new ssh session");
-        SshCore.createClient(hostName);
+        sshCore().createClient(hostName);
         Log.debug("Command to execute via ssh is " + cmd);
-        SSHResult result = SshCore.execute(cmd, 10);
+        SSHResult result = sshCore().execute(cmd, 10);
         Log.debug("Result is " + result.getStdout());
         Log.debug("Exit code is " + result.getExitCode());
-        SshCore.closeClient();
+        sshCore().closeClient();
 
         String output = result.getStdout().replaceAll("(\\r|\\n)", "");
         output = output.trim();
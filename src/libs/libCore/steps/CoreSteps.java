@@ -16,15 +16,15 @@ public class CoreSteps extends BaseSteps {
 
         //Just in case Skilui is in use -> we don't want to allow to open new browser window
         //if tests are run in parallel on same host
-        if ( Storage.get("Environment.Active.WebDrivers.useSikuli") ){
-            StepCore.activateBrowserLock();
-            StepCore.lockBrowser();
+        if ( storage().get("Environment.Active.WebDrivers.useSikuli") ){
+            stepCore().activateBrowserLock();
+            stepCore().lockBrowser();
         }
 
 
-        String browser = Storage.get("Environment.Active.Web.browser");
+        String browser = storage().get("Environment.Active.Web.browser");
         EventFiringWebDriver driver = new DriverFactory().create(browser);
-        Boolean closeWebDriver = Storage.get("Environment.Active.WebDrivers.CloseBrowserAfterScenario");
+        Boolean closeWebDriver = storage().get("Environment.Active.WebDrivers.CloseBrowserAfterScenario");
         if ( closeWebDriver ) {
             scenarioCtx.put("Page", EventFiringWebDriver.class, driver);
         } else {
@@ -33,7 +33,6 @@ public class CoreSteps extends BaseSteps {
 
         PageCore pageCore = new PageCore();
         scenarioCtx.put("PageCore", PageCore.class, pageCore);
-        PageCore = scenarioCtx.get("PageCore", PageCore.class);
         Log.debug("Web driver created");
     }
 
@@ -47,7 +46,7 @@ public class CoreSteps extends BaseSteps {
     public void open_browser_of_type(String browser) {
 
         EventFiringWebDriver driver = new DriverFactory().create(browser);
-        Boolean closeWebDriver = Storage.get("Environment.Active.WebDrivers.CloseBrowserAfterScenario");
+        Boolean closeWebDriver = storage().get("Environment.Active.WebDrivers.CloseBrowserAfterScenario");
         if ( closeWebDriver ) {
             scenarioCtx.put("Page", EventFiringWebDriver.class, driver);
         } else {
@@ -56,7 +55,6 @@ public class CoreSteps extends BaseSteps {
 
         PageCore pageCore = new PageCore();
         scenarioCtx.put("PageCore", PageCore.class, pageCore);
-        PageCore = scenarioCtx.get("PageCore", PageCore.class);
         Log.debug("Web driver created");
     }
 
@@ -67,7 +65,7 @@ public class CoreSteps extends BaseSteps {
     @Given("^open db$")
     public void open_db() {
         Log.debug("Create new db connection");
-        SqlCore.open();
+        sqlCore().open();
         Log.debug("Connected to the data base");
     }
 
@@ -82,7 +80,7 @@ public class CoreSteps extends BaseSteps {
     public void open_ssh_to(String node) {
 
         Log.debug("Create new ssh client");
-        SshCore.createClient(node);
+        sshCore().createClient(node);
         Log.debug("Connected to " + node);
     }
 
@@ -94,7 +92,7 @@ public class CoreSteps extends BaseSteps {
     @And("^load configuration data from (.*?)$")
     public void load_local_test_data(String arg1) {
 
-        String path = FileCore.getFeaturesPath() + File.separator + arg1;
+        String path = fileCore().getFeaturesPath() + File.separator + arg1;
         ConfigReader Config = new ConfigReader();
         Config.create(path);
 
@@ -109,11 +107,10 @@ public class CoreSteps extends BaseSteps {
     public void eval_macro() {
 
         Log.info("<- evaluating macros ->");
-        Macro.eval("TestData");
-        Macro.eval("Expected");
+        macro().eval("TestData", "Expected");
 
         Log.debug("Test data storage after macro evaluation is");
-        Storage.print("TestData");
+        storage().print("TestData");
     }
 
 
@@ -126,10 +123,10 @@ public class CoreSteps extends BaseSteps {
     @And("^set (.+) to (.+)$")
     public void set_to(String storageName, String value) {
 
-        Object val = StepCore.checkIfInputIsVariable(value);
+        Object val = stepCore().checkIfInputIsVariable(value);
 
-        Storage.set(storageName, val);
-        Storage.get(storageName);
+        storage().set(storageName, val);
+        storage().get(storageName);
     }
 
 
@@ -141,7 +138,7 @@ public class CoreSteps extends BaseSteps {
      */
     @And("^write storage (.+) with id (.+) to file$")
     public void write_storage_to_file(String storageName, String StorageId) {
-        Storage.writeToFile(storageName, StorageId);
+        storage().writeToFile(storageName, StorageId);
     }
 
 
@@ -153,7 +150,7 @@ public class CoreSteps extends BaseSteps {
      */
     @And("^read storage (.+) with id (.+) from file$")
     public void read_storage_to_file(String storageName, String StorageId){
-        Storage.readFromFile(storageName, StorageId);
+        storage().readFromFile(storageName, StorageId);
     }
 
 
@@ -166,18 +163,18 @@ public class CoreSteps extends BaseSteps {
     @And("^pause execution$")
     public void pause_execution() {
 
-        File workingDir = FileCore.createTempDir();
-        String autoItPath = Storage.get("Environment.Active.apps.autoIt");
-        String scriptsPath = Storage.get("Environment.Active.libCoreScripts.path");
-        Integer timeout = Storage.get("Environment.Active.PauseDuration");
+        File workingDir = fileCore().createTempDir();
+        String autoItPath = storage().get("Environment.Active.apps.autoIt");
+        String scriptsPath = storage().get("Environment.Active.libCoreScripts.path");
+        Integer timeout = storage().get("Environment.Active.PauseDuration");
 
-        String cmd = autoItPath + " " + FileCore.getProjectPath() +
+        String cmd = autoItPath + " " + fileCore().getProjectPath() +
                 File.separator + scriptsPath + File.separator + "pause.exe" + " " +
                 Integer.toString(timeout);
 
         Log.debug("Calling autoIt pause script with timeout " + timeout + " seconds");
 
-        ExecutorCore.execute(cmd, workingDir, timeout+3, true);
+        executorCore().execute(cmd, workingDir, timeout+3, true);
 
         Log.debug("Pause canceled or timeout. Resuming execution");
     }
@@ -191,8 +188,8 @@ public class CoreSteps extends BaseSteps {
      */
     @And("^wait for (.+) seconds$")
     public void wait_for_seconds(String seconds) {
-        Integer sec = StepCore.checkIfInputIsVariable(seconds);
-        StepCore.sleep(sec);
+        Integer sec = stepCore().checkIfInputIsVariable(seconds);
+        stepCore().sleep(sec);
     }
 
 
@@ -204,7 +201,7 @@ public class CoreSteps extends BaseSteps {
      */
     @Given("^on remote host (.+) open an app from (.+)")
     public void on_remote_host_open_an_app_from(String node, String pathToApp) {
-        WinRSCore.startApp(node, pathToApp, "");
+        winRSCore().startApp(node, pathToApp, "");
     }
 
 
@@ -216,8 +213,8 @@ public class CoreSteps extends BaseSteps {
      */
     @Given("^open an app from (.+) with args (.+)")
     public void open_an_app_from(String pathToApp, String args) {
-        ExecutorCore.startApp(pathToApp, args);
-        StepCore.sleep(2);
+        executorCore().startApp(pathToApp, args);
+        stepCore().sleep(2);
     }
 
 }
\ No newline at end of file
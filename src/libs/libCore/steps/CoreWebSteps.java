@@ -16,10 +16,10 @@ public class CoreWebSteps extends BaseSteps {
     @When("^navigate to url (.*?)$")
     public void navigate_to_url(String input) {
 
-        String url = StepCore.checkIfInputIsVariable(input);
+        String url = stepCore().checkIfInputIsVariable(input);
 
-        PageCore.open(url);
-        String current = PageCore.getCurrentUrl();
+        pageCore().open(url);
+        String current = pageCore().getCurrentUrl();
 
         if ( ! current.equals(url) ) {
             Log.error("Current url " + current + " does not equal to expected url " + url);
@@ -36,10 +36,10 @@ public class CoreWebSteps extends BaseSteps {
     @When("^navigate to base page$")
     public void navigate_to_base_page() {
 
-        String url = Storage.get("Environment.Active.Web.url");
+        String url = storage().get("Environment.Active.Web.url");
 
-        PageCore.open(url);
-        String current = PageCore.getCurrentUrl();
+        pageCore().open(url);
+        String current = pageCore().getCurrentUrl();
 
         if ( ! current.equals(url) ) {
             Log.error("Current url " + current + " does not equal to expected url " + url);
@@ -56,11 +56,11 @@ public class CoreWebSteps extends BaseSteps {
     @Then("^verify that title is (.*?)$")
     public void verify_that_title_is(String input) {
 
-        String expectedTitle = StepCore.checkIfInputIsVariable(input);
+        String expectedTitle = stepCore().checkIfInputIsVariable(input);
 
-        if ( ! PageCore.getTitle().equals(expectedTitle) ) {
+        if ( ! pageCore().getTitle().equals(expectedTitle) ) {
             Log.error("Page title verification failed! Expected is " + expectedTitle +
-                    " but was " + PageCore.getTitle() );
+                    " but was " + pageCore().getTitle() );
         }
     }
 
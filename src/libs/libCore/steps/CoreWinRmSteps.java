@@ -23,14 +23,14 @@ public class CoreWinRmSteps extends BaseSteps {
         String cmd = "Write-Host " + hostName + " is alive";
 
         Log.debug("Create new winRM session");
-        WinRMCore.createClient(hostName);
+        winRMCore().createClient(hostName);
         //Log.debug("Command to execute via winRM is " + cmd);
-        WinRmToolResponse result = WinRMCore.executePs(cmd, 3);
+        WinRmToolResponse result = winRMCore().executePs(cmd, 3);
 
         Log.debug("Result is " + result.getStdOut());
         Log.debug("Exit code is " + result.getStatusCode());
         Log.debug("Error is " + result.getStdErr());
-        WinRMCore.closeClient();
+        winRMCore().closeClient();
 
         String output = result.getStdOut().replaceAll("(\\r|\\n)", "");
         output = output.trim();
@@ -49,12 +49,12 @@ public class CoreWinRmSteps extends BaseSteps {
     @Given("^execute via WinRS on node (.+)$")
     public void execute_via_WinRS_on_node(String node) {
 
-        File workingDir = FileCore.createTempDir();
+        File workingDir = fileCore().createTempDir();
 
-        String address = Storage.get("Environment.Active.WinRM." + node + ".host");
-        Integer port = Storage.get("Environment.Active.WinRM." + node + ".port");
-        String user = Storage.get("Environment.Active.WinRM." + node + ".user");
-        String passwd = Storage.get("Environment.Active.WinRM." + node + ".password");
+        String address = storage().get("Environment.Active.WinRM." + node + ".host");
+        Integer port = storage().get("Environment.Active.WinRM." + node + ".port");
+        String user = storage().get("Environment.Active.WinRM." + node + ".user");
+        String passwd = storage().get("Environment.Active.WinRM." + node + ".password");
 
         //String cmd = "'Hostname'";
         //C:\Users\akowa>winrs -r:http://127.0.0.1:55985 -u:vagrant -p:vagrant cmd.exe /c "echo 'Test' > test.bat"
@@ -64,7 +64,7 @@ public class CoreWinRmSteps extends BaseSteps {
         String invocation = "winrs -r:http://" + address + ":" + port + " -u:" + user + " -p:" + passwd;
         cmd =  invocation + " " + cmd;
 
-        ByteArrayOutputStream out = ExecutorCore.execute(cmd, workingDir, 20, true);
+        ByteArrayOutputStream out = executorCore().execute(cmd, workingDir, 20, true);
         Log.debug("Output is ");
         Log.debug(new String(out.toByteArray(), Charset.defaultCharset()));
 
@@ -102,22 +102,22 @@ public class CoreWinRmSteps extends BaseSteps {
 
 
         //Log.debug("Create new winRM session");
-        WinRMCore.createClient(host);
+        winRMCore().createClient(host);
         //Log.debug("Command to execute via winRM is " + cmd);
 
-        //WinRmToolResponse result = WinRMCore.executeCommand(cmdList, 3);
+        //WinRmToolResponse result = winRMCore().executeCommand(cmdList, 3);
 
 
-        //WinRmToolResponse result = WinRMCore.executePs(cmd, 3);
+        //WinRmToolResponse result = winRMCore().executePs(cmd, 3);
 
-        WinRmToolResponse result = WinRMCore.executeBatchScriptFromString(cmd, "mount.bat","");
-        //WinRmToolResponse result = WinRMCore.executePsScriptFromString(cmd, "mount.ps1","");
+        WinRmToolResponse result = winRMCore().executeBatchScriptFromString(cmd, "mount.bat","");
+        //WinRmToolResponse result = winRMCore().executePsScriptFromString(cmd, "mount.ps1","");
 
         Log.debug("Result is " + result.getStdOut());
         Log.debug("Exit code is " + result.getStatusCode());
         Log.debug("Error is " + result.getStdErr());
 
-        WinRMCore.closeClient();
+        winRMCore().closeClient();
 
         String output = result.getStdOut().replaceAll("(\\r|\\n)", "");
         output = output.trim();
@@ -44,7 +44,7 @@ public class DemoOnlieSteps extends BaseSteps {
      */
     @And("^add product (.*) to cart$")
     public void add_product_to_cart(String productName){
-        String input = StepCore.checkIfInputIsVariable(productName);
+        String input = stepCore().checkIfInputIsVariable(productName);
         product.addToCart(input);
     }
 
@@ -73,8 +73,8 @@ public class DemoOnlieSteps extends BaseSteps {
             sum = sum + Double.valueOf(price);
         }
 
-        byte[] screenshot = PageCore.takeScreenshot();
-        StepCore.attachScreenshotToReport("Checkout_Products_Price_View", screenshot);
+        byte[] screenshot = pageCore().takeScreenshot();
+        stepCore().attachScreenshotToReport("Checkout_Products_Price_View", screenshot);
 
         Log.debug("Sum per product type is " + sum);
         Log.debug("Sub-Total is " + totalPrice);
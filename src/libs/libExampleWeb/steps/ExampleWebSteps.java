@@ -15,9 +15,9 @@ public class ExampleWebSteps extends BaseSteps {
      */
     @When("^I open seleniumframework website$")
     public void i_open_seleniumframework_website() {
-        String url = Storage.get("Environment.Active.Web.url");
+        String url = storage().get("Environment.Active.Web.url");
         Log.debug("Going to open " + url);
-        PageCore.open(url);
+        pageCore().open(url);
     }
 
 
@@ -28,15 +28,15 @@ public class ExampleWebSteps extends BaseSteps {
     @Then("^I validate title and URL$")
     public void i_print_title_and_URL(){
         Log.debug("Going to validate an Url");
-        Log.debug("Page title is " + PageCore.getTitle());
-        Log.debug("Current url is " + PageCore.getCurrentUrl());
-        if ( ! PageCore.getTitle().equals("Google") ) {
+        Log.debug("Page title is " + pageCore().getTitle());
+        Log.debug("Current url is " + pageCore().getCurrentUrl());
+        if ( ! pageCore().getTitle().equals("Google") ) {
             Log.error("Wrong title provided. Expected Google" +
-                " but was " + PageCore.getTitle() );
+                " but was " + pageCore().getTitle() );
         }
-        if ( ! PageCore.getCurrentUrl().contains("www.google.pl") ) {
+        if ( ! pageCore().getCurrentUrl().contains("www.google.pl") ) {
             Log.error("Wrong url. It shall contain www.google.pl but was " +
-                    PageCore.getCurrentUrl() );
+                    pageCore().getCurrentUrl() );
         }
     }
 
@@ -46,9 +46,9 @@ public class ExampleWebSteps extends BaseSteps {
      */
     @When("^I open google page$")
     public void i_open_google_website(){
-        String url = Storage.get("Environment.Active.Web.url");
+        String url = storage().get("Environment.Active.Web.url");
         Log.debug("Going to open " + url);
-        PageCore.open(url);
+        pageCore().open(url);
     }
 
 
@@ -59,7 +59,7 @@ public class ExampleWebSteps extends BaseSteps {
     @Then("^I check for input element$")
     public void i_check_for_input_element() {
         Log.debug("Going to locate input element");
-        WebElement element = PageCore.findElement(By.id("lst-ib"));
+        WebElement element = pageCore().findElement(By.id("lst-ib"));
     }
 
 
@@ -70,9 +70,9 @@ public class ExampleWebSteps extends BaseSteps {
     @Then("^I search for text$")
     public void i_search_for(){
         Log.debug("Going to search for");
-        WebElement element = PageCore.findElement(By.id("lst-ib"));
+        WebElement element = pageCore().findElement(By.id("lst-ib"));
 
-        String sVal = Storage.get("TestData.search_sentence");
+        String sVal = storage().get("TestData.search_sentence");
 
         Log.debug("Entering text " + sVal);
         element.sendKeys(sVal);
@@ -85,9 +85,9 @@ public class ExampleWebSteps extends BaseSteps {
     @Then("^I search for text (.*)$")
     public void i_search_for2(String input){
         Log.debug("Going to search for");
-        WebElement element = PageCore.findElement(By.id("lst-ib"));
+        WebElement element = pageCore().findElement(By.id("lst-ib"));
 
-        Integer iVal = StepCore.checkIfInputIsVariable(input);
+        Integer iVal = stepCore().checkIfInputIsVariable(input);
 
         String sVal = iVal.toString();
 
@@ -104,9 +104,9 @@ public class ExampleWebSteps extends BaseSteps {
     @Then("^attach sample file to report$")
     public void attache_file_to_report(){
         Log.debug("Going to attach file");
-        StepCore.attachFileToReport("SimpleTextAttachment", "text/plain", "C:\\Users\\akowa\\Documents\\przykladowy_plik_tekstowt.txt");
-        StepCore.attachFileToReport("PdfAttachment", "application/pdf", "C:\\Users\\akowa\\Documents\\API_design.pdf");
-        StepCore.attachMessageToReport("Some name", "Some random message");
+        stepCore().attachFileToReport("SimpleTextAttachment", "text/plain", "C:\\Users\\akowa\\Documents\\przykladowy_plik_tekstowt.txt");
+        stepCore().attachFileToReport("PdfAttachment", "application/pdf", "C:\\Users\\akowa\\Documents\\API_design.pdf");
+        stepCore().attachMessageToReport("Some name", "Some random message");
     }
 
 
@@ -15,9 +15,9 @@ public class ExecutorExampleSteps extends BaseSteps {
     public void execute_sample_command() {
         String cmd = "java -version";
 
-        File workingDir = FileCore.getTempDir();
+        File workingDir = fileCore().getTempDir();
 
-        ByteArrayOutputStream out = ExecutorCore.execute(cmd, workingDir, 10, true);
+        ByteArrayOutputStream out = executorCore().execute(cmd, workingDir, 10, true);
 
         Log.debug("Output is ");
         Log.debug(new String(out.toByteArray(), Charset.defaultCharset()));
@@ -26,10 +26,10 @@ public class ExecutorExampleSteps extends BaseSteps {
 
     @Given("^execute loop command$")
     public void execute_loop_command(){
-        File workingDir = FileCore.getTempDir();
+        File workingDir = fileCore().getTempDir();
 
         String cmd = "1..1000 | % {Write-Host $(get-date) '$_ testaaaaaaaaaaaaaaaaaaaaaa aaaaaaaaaaaaaaaaa aaaaaaaaaaaaaaaaa aaaaaaaaaaaaaaaaaa $_';Start-Sleep -m 20}";
-        ExecutorCore.execute("Powershell.exe " + cmd, workingDir, 301, true);
+        executorCore().execute("Powershell.exe " + cmd, workingDir, 301, true);
     }
 
 
@@ -43,11 +43,11 @@ public class ExecutorExampleSteps extends BaseSteps {
                 "1..100000 | % {$stream.WriteLine($_.ToString() + $line + $_.ToString())};" +
                 "$stream.close()\"";
 
-        File workingDir = FileCore.createTempDir();
+        File workingDir = fileCore().createTempDir();
         String sWorkingDirPath = workingDir.getAbsolutePath();
         scenarioCtx.put("WorkingDir", String.class, sWorkingDirPath);
 
-        ByteArrayOutputStream out = ExecutorCore.execute(cmd, workingDir, 100, true);
+        ByteArrayOutputStream out = executorCore().execute(cmd, workingDir, 100, true);
 
         Log.debug("Output is ");
         Log.debug(new String(out.toByteArray(), Charset.defaultCharset()));
@@ -58,9 +58,9 @@ public class ExecutorExampleSteps extends BaseSteps {
         String path = scenarioCtx.get("WorkingDir", String.class);
         String cmd = "powershell.exe 'Get-Content -Path " + path + "\\t2.txt'";
 
-        File workingDir = FileCore.createTempDir();
+        File workingDir = fileCore().createTempDir();
 
-        ByteArrayOutputStream out = ExecutorCore.execute(cmd, workingDir, 100, true);
+        ByteArrayOutputStream out = executorCore().execute(cmd, workingDir, 100, true);
 
         Log.debug("Output is ");
         Log.debug(new String(out.toByteArray(), Charset.defaultCharset()));
@@ -13,12 +13,12 @@ public class RemoteExecutionSteps extends BaseSteps {
         String singleCmd = "ls";
 
         Log.debug("Create new client and connect to node1");
-        SshCore.createClient("node1");
+        sshCore().createClient("node1");
         Log.debug("Command to execute vis ssh is " + singleCmd);
-        SSHResult result = SshCore.execute(singleCmd, 10);
+        SSHResult result = sshCore().execute(singleCmd, 10);
         Log.debug("Result is " + result.getStdout());
         Log.debug("Exit code is " + result.getExitCode());
-        SshCore.closeClient();
+        sshCore().closeClient();
     }
 
 
@@ -29,35 +29,35 @@ public class RemoteExecutionSteps extends BaseSteps {
         String validateCmd = "whoami";
 
         Log.debug("Create new client and connect to node1");
-        SshCore.createClient("node1");
-        SshCore.startShell(20);
-        SshCore.executeInShell("", "$");
+        sshCore().createClient("node1");
+        sshCore().startShell(20);
+        sshCore().executeInShell("", "$");
         Log.debug("Command to execute vis ssh is " + userChangeCmd);
-        SshCore.executeInShell(userChangeCmd, "Password");
+        sshCore().executeInShell(userChangeCmd, "Password");
         Log.debug("Command to execute vis ssh is " + passOfUserCmd);
-        SshCore.executeInShell(passOfUserCmd, "root@");
+        sshCore().executeInShell(passOfUserCmd, "root@");
         Log.debug("Command to execute vis ssh is " + validateCmd);
-        SshCore.executeInShell(validateCmd, "root");
-        SshCore.closeShell();
-        SshCore.closeClient();
+        sshCore().executeInShell(validateCmd, "root");
+        sshCore().closeShell();
+        sshCore().closeClient();
     }
 
     @When("^check command exit status code when in shell$")
     public void check_command_exit_status_code_when_in_shell(){
         Log.debug("Create new client and connect to node1");
-        SshCore.createClient("node1");
-        SshCore.startShell(10);
-        SshCore.executeInShell("", "$");
-        SSHResult result = SshCore.executeInShell("test -e postinstall.sh;echo $?", "0");
+        sshCore().createClient("node1");
+        sshCore().startShell(10);
+        sshCore().executeInShell("", "$");
+        SSHResult result = sshCore().executeInShell("test -e postinstall.sh;echo $?", "0");
         Log.debug(result.getStdout().replaceAll("(\\r|\\n)", "").trim());
-        SshCore.closeShell();
-        SshCore.closeClient();
+        sshCore().closeShell();
+        sshCore().closeClient();
     }
 
     @When("^check that file exists on remote node$")
     public void check_that_file_exists_on_remote_node(){
         Log.debug("Check that node is alive");
-        Boolean isAlive = SshCore.checkThatNodeIsAlive("node1");
+        Boolean isAlive = sshCore().checkThatNodeIsAlive("node1");
 
         if ( ! isAlive ) {
             Log.error("Host node1 is not available");
@@ -65,14 +65,14 @@ public class RemoteExecutionSteps extends BaseSteps {
 
         Log.debug("Check that file is present on the remote host");
         String pathToFile = "postinstall.sh";
-        Boolean isAvailable = SshCore.checkThatFileExists("node1", pathToFile);
+        Boolean isAvailable = sshCore().checkThatFileExists("node1", pathToFile);
 
         if ( ! isAvailable ){
             Log.error("File postinstall.sh was not found");
         }
 
         Log.debug("Download file via scp");
-        File file = SshCore.downloadFileViaScp("node1","postinstall.sh","C:\\Users\\akowa\\Documents\\Projects\\FK_Prototype");
+        File file = sshCore().downloadFileViaScp("node1","postinstall.sh","C:\\Users\\akowa\\Documents\\Projects\\FK_Prototype");
         Log.debug("Path to file is " + file.getAbsolutePath());
     }
 
@@ -26,7 +26,7 @@ public class ReqResInSteps extends BaseSteps {
         }
 
         globalCtx.put(identifier,String.class,userId);
-        Storage.set("Expected.userId", userId);
+        storage().set("Expected.userId", userId);
     }
 
 
@@ -36,8 +36,8 @@ public class ReqResInSteps extends BaseSteps {
      */
     @When("^json get request single user with id (.+) is sent$")
     public void json_get_request_is_sent(String id){
-        String url = Storage.get("Environment.Active.Rest.url");
-        String path = Storage.get("Environment.Active.Rest.url_get_suffix");
+        String url = storage().get("Environment.Active.Rest.url");
+        String path = storage().get("Environment.Active.Rest.url_get_suffix");
         String userId = globalCtx.get(id,String.class);
 
         Log.debug("userId is " + userId);
@@ -58,7 +58,7 @@ public class ReqResInSteps extends BaseSteps {
         //store response as ctx object so it can be verified by other steps and attach it to report
         ValidatableResponse vResp = response.then();
         scenarioCtx.put("response",ValidatableResponse.class, vResp);
-        StepCore.attachMessageToReport("Json response", response.prettyPrint());
+        stepCore().attachResponseToReport("Json response", response);
     }
 
 
@@ -70,12 +70,12 @@ public class ReqResInSteps extends BaseSteps {
      */
     @When("^json put request (.*?) to modify single user with id (.*?) is sent$")
     public void json_put_request_is_sent(String name, String id) {
-        String url = Storage.get("Environment.Active.Rest.url");
-        String path = Storage.get("Environment.Active.Rest.url_put_suffix");
+        String url = storage().get("Environment.Active.Rest.url");
+        String path = storage().get("Environment.Active.Rest.url_put_suffix");
 
         url = url + path + id;
 
-        File file = StepCore.evaluateTemplate(name);
+        File file = stepCore().evaluateTemplate(name);
 
         //build specification and use file template as a body content
         RequestSpecification request = given()
@@ -93,7 +93,7 @@ public class ReqResInSteps extends BaseSteps {
         //store response as ctx object so it can be verified by other steps and attach it to report
         ValidatableResponse vResp = response.then();
         scenarioCtx.put("response",ValidatableResponse.class, vResp);
-        StepCore.attachMessageToReport("Json response", response.prettyPrint());
+        stepCore().attachResponseToReport("Json response", response);
     }
 
 
@@ -104,8 +104,8 @@ public class ReqResInSteps extends BaseSteps {
      */
     @When("^json delete single user request with id (.+) is sent$")
     public void json_delete_request_is_sent(String userId){
-        String url = Storage.get("Environment.Active.Rest.url");
-        String path = Storage.get("Environment.Active.Rest.url_get_suffix");
+        String url = storage().get("Environment.Active.Rest.url");
+        String path = storage().get("Environment.Active.Rest.url_get_suffix");
 
         Log.debug("userId is " + userId);
         url = url + path + userId;
@@ -125,7 +125,7 @@ public class ReqResInSteps extends BaseSteps {
         //store response as ctx object so it can be verified by other steps and attach it to report
         ValidatableResponse vResp = response.then();
         scenarioCtx.put("response",ValidatableResponse.class, vResp);
-        StepCore.attachMessageToReport("Json response", response.prettyPrint());
+        stepCore().attachResponseToReport("Json response", response);
     }
 
 